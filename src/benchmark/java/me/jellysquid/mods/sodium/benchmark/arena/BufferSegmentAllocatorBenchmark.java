@@ -0,0 +1,73 @@
+package me.jellysquid.mods.sodium.benchmark.arena;
+
+import me.jellysquid.mods.sodium.client.gl.arena.BufferSegmentAllocator;
+import me.jellysquid.mods.sodium.client.gl.arena.GlBufferSegment;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of allocating and freeing segments in a fragmented arena, in the way that sections are replaced
+ * when they are rebuilt. The arena is filled up front, and then each operation frees a random segment and allocates a
+ * new one of a random size in its place. One operation is one free and allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferSegmentAllocatorBenchmark {
+    // The number of sections in a render region
+    private static final int SEGMENT_COUNT = 256;
+
+    // The largest size of a section's mesh, in vertices
+    private static final int MAX_SEGMENT_SIZE = 4096;
+
+    @Param({ "0.5", "0.9" })
+    public float occupancy;
+
+    private BufferSegmentAllocator allocator;
+    private GlBufferSegment[] segments;
+
+    private Random random;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        this.random = new Random(1234L);
+
+        // Size the arena so that it is only partially filled, leaving room for the free space to be fragmented
+        int averageSize = MAX_SEGMENT_SIZE / 2;
+        int capacity = (int) ((SEGMENT_COUNT * averageSize) / this.occupancy);
+
+        this.allocator = new BufferSegmentAllocator(capacity);
+        this.segments = new GlBufferSegment[SEGMENT_COUNT];
+
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            this.segments[i] = this.allocator.alloc(this.nextSize());
+        }
+    }
+
+    @Benchmark
+    public void replaceSegment(Blackhole blackhole) {
+        int index = this.random.nextInt(SEGMENT_COUNT);
+
+        GlBufferSegment segment = this.segments[index];
+
+        if (segment != null) {
+            segment.delete();
+        }
+
+        // The arena isn't resized here, so an allocation can fail if the free space is too fragmented
+        segment = this.allocator.alloc(this.nextSize());
+        this.segments[index] = segment;
+
+        blackhole.consume(segment);
+    }
+
+    private int nextSize() {
+        return 1 + this.random.nextInt(MAX_SEGMENT_SIZE);
+    }
+}
@@ -0,0 +1,37 @@
+package me.jellysquid.mods.sodium.benchmark.fixtures;
+
+/**
+ * The coarse block categories used by {@link SectionFixture}. These only capture the properties which the meshing
+ * pipeline branches on, rather than any particular block state.
+ */
+public class BlockKind {
+    public static final int AIR     = 0;
+    public static final int SOLID   = 1;
+    public static final int LEAVES  = 2;
+    public static final int WATER   = 3;
+    public static final int SLAB    = 4;
+
+    public static boolean isOpaqueFullCube(int kind) {
+        return kind == SOLID;
+    }
+
+    public static boolean isFullCube(int kind) {
+        return kind == SOLID || kind == LEAVES;
+    }
+
+    public static boolean isFluid(int kind) {
+        return kind == WATER;
+    }
+
+    /**
+     * @return True if a face of a block with kind {@param self} is visible when next to a block of kind {@param adj}
+     */
+    public static boolean isFaceVisible(int self, int adj) {
+        if (isOpaqueFullCube(adj)) {
+            return false;
+        }
+
+        // Fluids are only drawn against non-fluid blocks
+        return !(isFluid(self) && isFluid(adj));
+    }
+}
@@ -0,0 +1,67 @@
+package me.jellysquid.mods.sodium.benchmark.fixtures;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.BlockRenderView;
+import net.minecraft.world.biome.ColorResolver;
+import net.minecraft.world.chunk.light.LightingProvider;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The smallest possible world view needed by the light pipelines, which only ever ask for the directional shading of
+ * a face. Everything else is supplied by {@link FixtureLightDataAccess}, so any other access is a bug in the benchmark.
+ */
+class FixtureBlockView implements BlockRenderView {
+    @Override
+    public float getBrightness(Direction direction, boolean shaded) {
+        if (!shaded) {
+            return 1.0f;
+        }
+
+        // Matches the directional shading of the overworld
+        return switch (direction) {
+            case DOWN -> 0.5f;
+            case UP -> 1.0f;
+            case NORTH, SOUTH -> 0.8f;
+            case WEST, EAST -> 0.6f;
+        };
+    }
+
+    @Override
+    public LightingProvider getLightingProvider() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getColor(BlockPos pos, ColorResolver colorResolver) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public @Nullable BlockEntity getBlockEntity(BlockPos pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getHeight() {
+        return 16;
+    }
+
+    @Override
+    public int getBottomY() {
+        return 0;
+    }
+}
@@ -0,0 +1,31 @@
+package me.jellysquid.mods.sodium.benchmark.fixtures;
+
+import me.jellysquid.mods.sodium.client.model.light.data.LightDataAccess;
+
+/**
+ * A light data cache which is backed by a {@link SectionFixture} instead of a world slice. The light values are
+ * derived from the block kinds so that the light pipeline takes the same branches as it would for real terrain.
+ */
+public class FixtureLightDataAccess extends LightDataAccess {
+    private final SectionFixture fixture;
+
+    public FixtureLightDataAccess(SectionFixture fixture) {
+        this.fixture = fixture;
+        this.world = new FixtureBlockView();
+    }
+
+    @Override
+    public int get(int x, int y, int z) {
+        int kind = this.fixture.getBlock(x, y, z);
+
+        boolean fo = BlockKind.isOpaqueFullCube(kind);
+        boolean fc = BlockKind.isFullCube(kind);
+        boolean op = fo || kind == BlockKind.LEAVES || kind == BlockKind.SLAB;
+
+        // Sky light falls off with depth, and there is no block light in any of the fixtures
+        int sl = fo ? 0 : Math.max(0, 15 - (15 - y) / 2);
+        float ao = op ? 0.2f : 1.0f;
+
+        return packFC(fc) | packFO(fo) | packOP(op) | packEM(false) | packAO(ao) | packLU(0) | packSL(sl) | packBL(0);
+    }
+}
@@ -0,0 +1,99 @@
+package me.jellysquid.mods.sodium.benchmark.fixtures;
+
+import java.util.Random;
+
+/**
+ * Synthetic chunk sections which approximate the kinds of terrain that are the most interesting to the meshing
+ * pipeline. Each fixture is generated deterministically so that results can be compared between runs and machines.
+ *
+ * The block volume covers the section itself plus a two-block border on every side, which matches the volume that
+ * is copied by the world slice for a real meshing task.
+ */
+public enum SectionFixture {
+    /**
+     * Solid stone with a handful of small caves. Nearly every face is culled, so this stresses the fast rejection
+     * paths.
+     */
+    STONE {
+        @Override
+        protected int generate(Random random, int x, int y, int z) {
+            return random.nextInt(100) < 4 ? BlockKind.AIR : BlockKind.SOLID;
+        }
+    },
+    /**
+     * A dense forest canopy. Leaves never cull each other, so this produces the most geometry per section.
+     */
+    FOLIAGE {
+        @Override
+        protected int generate(Random random, int x, int y, int z) {
+            return random.nextInt(100) < 20 ? BlockKind.AIR : BlockKind.LEAVES;
+        }
+    },
+    /**
+     * A section of ocean with a sea floor of stone. Almost everything is routed through the fluid renderer.
+     */
+    OCEAN {
+        @Override
+        protected int generate(Random random, int x, int y, int z) {
+            return y < 4 ? BlockKind.SOLID : BlockKind.WATER;
+        }
+    },
+    /**
+     * A player build made of slabs and full blocks, which exercises the partial and non-aligned face paths of the
+     * light pipeline.
+     */
+    MIXED_SLABS {
+        @Override
+        protected int generate(Random random, int x, int y, int z) {
+            return switch (random.nextInt(4)) {
+                case 0 -> BlockKind.AIR;
+                case 1 -> BlockKind.SOLID;
+                default -> BlockKind.SLAB;
+            };
+        }
+    };
+
+    public static final int BORDER = 2;
+    public static final int LENGTH = 16 + (BORDER * 2);
+
+    private static final long SEED = 0x5EED_50D1L;
+
+    private int[] blocks;
+
+    protected abstract int generate(Random random, int x, int y, int z);
+
+    /**
+     * @return The kind of block at the given position, where (0, 0, 0) is the first block of the section (not the
+     * border)
+     */
+    public int getBlock(int x, int y, int z) {
+        return this.blocks()[index(x + BORDER, y + BORDER, z + BORDER)];
+    }
+
+    private int[] blocks() {
+        if (this.blocks == null) {
+            this.blocks = this.createBlocks();
+        }
+
+        return this.blocks;
+    }
+
+    private int[] createBlocks() {
+        var random = new Random(SEED ^ this.ordinal());
+        var blocks = new int[LENGTH * LENGTH * LENGTH];
+
+        for (int y = 0; y < LENGTH; y++) {
+            for (int z = 0; z < LENGTH; z++) {
+                for (int x = 0; x < LENGTH; x++) {
+                    blocks[index(x, y, z)] = this.generate(random, x - BORDER, y - BORDER, z - BORDER);
+                }
+            }
+        }
+
+        return blocks;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y * LENGTH * LENGTH) + (z * LENGTH) + x;
+    }
+}
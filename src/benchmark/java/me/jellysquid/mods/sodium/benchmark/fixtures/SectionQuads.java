@@ -0,0 +1,97 @@
+package me.jellysquid.mods.sodium.benchmark.fixtures;
+
+import me.jellysquid.mods.sodium.client.model.quad.ModelQuad;
+import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
+import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFlags;
+import me.jellysquid.mods.sodium.client.util.DirectionUtil;
+import net.minecraft.util.math.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The visible block faces of a {@link SectionFixture}, in the same order that the meshing task would visit them. This
+ * is computed once up-front so that the benchmarks only measure the stage they are interested in.
+ */
+public class SectionQuads {
+    // The corners of each block face, in the same winding order as vanilla's baked models
+    private static final float[][][] FACE_VERTICES = new float[][][] {
+            /* DOWN  */ { { 0, 0, 1 }, { 0, 0, 0 }, { 1, 0, 0 }, { 1, 0, 1 } },
+            /* UP    */ { { 0, 1, 0 }, { 0, 1, 1 }, { 1, 1, 1 }, { 1, 1, 0 } },
+            /* NORTH */ { { 1, 1, 0 }, { 1, 0, 0 }, { 0, 0, 0 }, { 0, 1, 0 } },
+            /* SOUTH */ { { 0, 1, 1 }, { 0, 0, 1 }, { 1, 0, 1 }, { 1, 1, 1 } },
+            /* WEST  */ { { 0, 1, 0 }, { 0, 0, 0 }, { 0, 0, 1 }, { 0, 1, 1 } },
+            /* EAST  */ { { 1, 1, 1 }, { 1, 0, 1 }, { 1, 0, 0 }, { 1, 1, 0 } }
+    };
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public SectionQuads(SectionFixture fixture) {
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    this.addBlock(fixture, x, y, z);
+                }
+            }
+        }
+    }
+
+    private void addBlock(SectionFixture fixture, int x, int y, int z) {
+        int kind = fixture.getBlock(x, y, z);
+
+        if (kind == BlockKind.AIR) {
+            return;
+        }
+
+        for (Direction dir : DirectionUtil.ALL_DIRECTIONS) {
+            int adj = fixture.getBlock(x + dir.getOffsetX(), y + dir.getOffsetY(), z + dir.getOffsetZ());
+
+            if (BlockKind.isFaceVisible(kind, adj)) {
+                this.entries.add(new Entry(x, y, z, dir, createQuad(kind, dir)));
+            }
+        }
+    }
+
+    private static ModelQuad createQuad(int kind, Direction dir) {
+        // Slabs and fluid surfaces only fill the bottom part of the block, which moves their top face off the block
+        // grid and makes their side faces partial
+        float height = switch (kind) {
+            case BlockKind.SLAB -> 0.5f;
+            case BlockKind.WATER -> 0.875f;
+            default -> 1.0f;
+        };
+
+        var quad = new ModelQuad();
+        var vertices = FACE_VERTICES[dir.getId()];
+
+        for (int i = 0; i < 4; i++) {
+            quad.setX(i, vertices[i][0]);
+            quad.setY(i, vertices[i][1] * height);
+            quad.setZ(i, vertices[i][2]);
+
+            quad.setColor(i, 0xFFFFFFFF);
+
+            quad.setTexU(i, vertices[i][0]);
+            quad.setTexV(i, vertices[i][2]);
+        }
+
+        quad.setColorIndex(kind == BlockKind.LEAVES || kind == BlockKind.WATER ? 0 : -1);
+        quad.setFlags(ModelQuadFlags.getQuadFlags(quad, dir));
+
+        return quad;
+    }
+
+    public List<Entry> entries() {
+        return this.entries;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public record Entry(int x, int y, int z, Direction face, ModelQuad quad) {
+        public ModelQuadFacing facing() {
+            return ModelQuadFacing.fromDirection(this.face);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package me.jellysquid.mods.sodium.benchmark.light;
+
+import me.jellysquid.mods.sodium.benchmark.fixtures.FixtureLightDataAccess;
+import me.jellysquid.mods.sodium.benchmark.fixtures.SectionFixture;
+import me.jellysquid.mods.sodium.benchmark.fixtures.SectionQuads;
+import me.jellysquid.mods.sodium.client.model.light.data.QuadLightData;
+import me.jellysquid.mods.sodium.client.model.light.smooth.SmoothLightPipeline;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of computing smooth lighting and ambient occlusion for every visible face in a chunk section.
+ * One operation is one chunk section.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmoothLightPipelineBenchmark {
+    @Param
+    public SectionFixture fixture;
+
+    private SectionQuads.Entry[] quads;
+    private SmoothLightPipeline pipeline;
+
+    private final QuadLightData lightData = new QuadLightData();
+    private final BlockPos.Mutable pos = new BlockPos.Mutable();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.quads = new SectionQuads(this.fixture).entries()
+                .toArray(new SectionQuads.Entry[0]);
+        this.pipeline = new SmoothLightPipeline(new FixtureLightDataAccess(this.fixture));
+    }
+
+    @Benchmark
+    public void lightSection(Blackhole blackhole) {
+        var out = this.lightData;
+
+        for (SectionQuads.Entry entry : this.quads) {
+            this.pos.set(entry.x(), entry.y(), entry.z());
+            this.pipeline.calculate(entry.quad(), this.pos, out, entry.face(), entry.face(), true);
+
+            blackhole.consume(out.lm[0]);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package me.jellysquid.mods.sodium.benchmark.meshing;
+
+import me.jellysquid.mods.sodium.benchmark.fixtures.SectionFixture;
+import me.jellysquid.mods.sodium.benchmark.fixtures.SectionQuads;
+import me.jellysquid.mods.sodium.client.model.quad.ModelQuad;
+import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.Material;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.parameters.AlphaCutoffParameter;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.builder.ChunkMeshBufferBuilder;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.builder.ChunkMeshBufferPool;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkMeshFormats;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of encoding the visible geometry of a single chunk section into the vertex buffers, which is the
+ * last stage of the meshing task before the mesh is handed off for upload. One operation is one chunk section.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkMeshBufferBuilderBenchmark {
+    // The render pass is only used to pick the material bits, so it doesn't need a render layer
+    private static final Material MATERIAL =
+            new Material(new TerrainRenderPass(null, false, false), AlphaCutoffParameter.ZERO, true);
+
+    @Param
+    public SectionFixture fixture;
+
+    private SectionQuads.Entry[] quads;
+    private ChunkMeshBufferPool pool;
+    private ChunkMeshBufferBuilder[] builders;
+
+    private final ChunkVertexEncoder.Vertex[] vertices = ChunkVertexEncoder.Vertex.uninitializedQuad();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.quads = new SectionQuads(this.fixture).entries()
+                .toArray(new SectionQuads.Entry[0]);
+        this.pool = new ChunkMeshBufferPool();
+        this.builders = new ChunkMeshBufferBuilder[ModelQuadFacing.COUNT];
+
+        for (int i = 0; i < this.builders.length; i++) {
+            this.builders[i] = new ChunkMeshBufferBuilder(ChunkMeshFormats.COMPACT, this.pool);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (ChunkMeshBufferBuilder builder : this.builders) {
+            builder.destroy();
+        }
+
+        this.pool.destroy();
+    }
+
+    @Benchmark
+    public void encodeSection(Blackhole blackhole) {
+        for (ChunkMeshBufferBuilder builder : this.builders) {
+            builder.start(0);
+        }
+
+        this.pool.onBuildStarted();
+
+        var vertices = this.vertices;
+
+        for (SectionQuads.Entry entry : this.quads) {
+            ModelQuad quad = entry.quad();
+
+            for (int i = 0; i < 4; i++) {
+                var out = vertices[i];
+                out.x = entry.x() + quad.getX(i);
+                out.y = entry.y() + quad.getY(i);
+                out.z = entry.z() + quad.getZ(i);
+                out.color = quad.getColor(i);
+                out.u = quad.getTexU(i);
+                out.v = quad.getTexV(i);
+                out.light = 0x00F000F0;
+            }
+
+            this.builders[entry.facing().ordinal()]
+                    .push(vertices, MATERIAL);
+        }
+
+        for (ChunkMeshBufferBuilder builder : this.builders) {
+            blackhole.consume(builder.count());
+        }
+    }
+}
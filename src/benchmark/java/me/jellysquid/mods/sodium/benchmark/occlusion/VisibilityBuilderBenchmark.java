@@ -0,0 +1,76 @@
+package me.jellysquid.mods.sodium.benchmark.occlusion;
+
+import me.jellysquid.mods.sodium.client.render.chunk.occlusion.VisibilityBuilder;
+import me.jellysquid.mods.sodium.client.render.chunk.occlusion.VisibilityEncoding;
+import net.minecraft.client.render.chunk.ChunkOcclusionDataBuilder;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of computing the visibility data of a section, comparing vanilla's
+ * {@link ChunkOcclusionDataBuilder} against {@link VisibilityBuilder}. One operation is one section.
+ *
+ * The builders are checked to produce the same visibility data by VisibilityBuilderTest, which runs with the tests.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisibilityBuilderBenchmark {
+    /**
+     * The fraction of blocks in the section which are opaque. Around 0.3, the open space forms long winding tunnels
+     * through the section, which is the worst case for both flood fills.
+     */
+    @Param({ "0.1", "0.3", "0.6", "0.9" })
+    public float density;
+
+    // The positions of the opaque blocks in the section, packed as (y << 8) | (z << 4) | x
+    private int[] closed;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.closed = generate(new Random(1234L), this.density);
+    }
+
+    @Benchmark
+    public long vanilla() {
+        var builder = new ChunkOcclusionDataBuilder();
+        var pos = new BlockPos.Mutable();
+
+        for (int index : this.closed) {
+            builder.markClosed(pos.set(index & 15, index >>> 8, (index >>> 4) & 15));
+        }
+
+        return VisibilityEncoding.encode(builder.build());
+    }
+
+    @Benchmark
+    public long bitset() {
+        var builder = new VisibilityBuilder();
+
+        for (int index : this.closed) {
+            builder.markClosed(index & 15, index >>> 8, (index >>> 4) & 15);
+        }
+
+        return builder.build();
+    }
+
+    private static int[] generate(Random random, float density) {
+        int[] closed = new int[16 * 16 * 16];
+        int count = 0;
+
+        for (int index = 0; index < closed.length; index++) {
+            if (random.nextFloat() < density) {
+                closed[count++] = index;
+            }
+        }
+
+        return Arrays.copyOf(closed, count);
+    }
+}
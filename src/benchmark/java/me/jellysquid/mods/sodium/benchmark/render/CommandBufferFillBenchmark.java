@@ -0,0 +1,168 @@
+package me.jellysquid.mods.sodium.benchmark.render;
+
+import me.jellysquid.mods.sodium.client.gl.arena.BufferSegmentAllocator;
+import me.jellysquid.mods.sodium.client.gl.device.MultiDrawBatch;
+import me.jellysquid.mods.sodium.client.gl.util.VertexRange;
+import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
+import me.jellysquid.mods.sodium.client.render.chunk.LocalSectionIndex;
+import me.jellysquid.mods.sodium.client.render.chunk.RegionCommandBufferBuilder;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionRenderDataStorage;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionRenderDataUnsafe;
+import me.jellysquid.mods.sodium.client.render.chunk.region.RenderRegion;
+import me.jellysquid.mods.sodium.client.util.BitwiseMath;
+import me.jellysquid.mods.sodium.client.util.iterator.ReversibleByteArrayIterator;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of building the draw commands for one region, comparing the per-section loop which was used
+ * previously against {@link RegionCommandBufferBuilder}. The camera is placed in the middle of the region, so that
+ * sections on every side of it are culled differently. One operation is the command buffer of one region.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBufferFillBenchmark {
+    // The largest number of vertices in each facing of a section's mesh
+    private static final int MAX_FACING_VERTICES = 1024;
+
+    // The position of the camera's chunk within the region
+    private static final int CAMERA_X = RenderRegion.REGION_WIDTH / 2;
+    private static final int CAMERA_Y = RenderRegion.REGION_HEIGHT / 2;
+    private static final int CAMERA_Z = RenderRegion.REGION_LENGTH / 2;
+
+    @Param({ "0.25", "0.5", "1.0" })
+    public float occupancy;
+
+    private SectionRenderDataStorage storage;
+    private MultiDrawBatch batch;
+
+    private byte[] sections;
+    private int sectionCount;
+
+    private RegionCommandBufferBuilder builder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var random = new Random(1234L);
+        var allocator = new BufferSegmentAllocator(
+                RenderRegion.REGION_SIZE * ModelQuadFacing.COUNT * MAX_FACING_VERTICES);
+
+        this.storage = new SectionRenderDataStorage();
+        this.batch = new MultiDrawBatch((ModelQuadFacing.COUNT * RenderRegion.REGION_SIZE) + 1);
+        this.sections = new byte[RenderRegion.REGION_SIZE];
+        this.builder = new RegionCommandBufferBuilder();
+
+        for (int sectionIndex = 0; sectionIndex < RenderRegion.REGION_SIZE; sectionIndex++) {
+            if (random.nextFloat() >= this.occupancy) {
+                continue;
+            }
+
+            var ranges = new VertexRange[ModelQuadFacing.COUNT];
+            int vertexCount = 0;
+
+            for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+                // Most sections don't have geometry in every facing
+                if (random.nextBoolean()) {
+                    int count = 4 * (1 + random.nextInt(MAX_FACING_VERTICES / 4));
+                    ranges[facing] = new VertexRange(vertexCount, count);
+                    vertexCount += count;
+                }
+            }
+
+            if (vertexCount == 0) {
+                continue;
+            }
+
+            this.storage.setMeshes(sectionIndex, allocator.alloc(vertexCount), ranges);
+            this.sections[this.sectionCount++] = (byte) sectionIndex;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        this.storage.delete();
+        this.batch.delete();
+    }
+
+    @Benchmark
+    public int perSection() {
+        this.batch.clear();
+
+        var iterator = new ReversibleByteArrayIterator(this.sections, this.sectionCount, false);
+
+        while (iterator.hasNext()) {
+            int sectionIndex = iterator.nextByteAsInt();
+
+            var pMeshData = this.storage.getDataPointer(sectionIndex);
+
+            int slices = getVisibleFaces(CAMERA_X, CAMERA_Y, CAMERA_Z,
+                    LocalSectionIndex.unpackX(sectionIndex),
+                    LocalSectionIndex.unpackY(sectionIndex),
+                    LocalSectionIndex.unpackZ(sectionIndex));
+
+            slices &= SectionRenderDataUnsafe.getSliceMask(pMeshData);
+
+            if (slices != 0) {
+                addDrawCommands(this.batch, pMeshData, slices);
+            }
+        }
+
+        return this.batch.size;
+    }
+
+    @Benchmark
+    public int batched() {
+        this.batch.clear();
+
+        var iterator = new ReversibleByteArrayIterator(this.sections, this.sectionCount, false);
+
+        this.builder.prepare(this.storage, iterator, -CAMERA_X, -CAMERA_Y, -CAMERA_Z, true);
+        this.builder.writeCommands(this.batch);
+
+        return this.batch.size;
+    }
+
+    // The per-section implementation which DefaultChunkRenderer used before RegionCommandBufferBuilder was added
+
+    @SuppressWarnings("IntegerMultiplicationImplicitCastToLong")
+    private static void addDrawCommands(MultiDrawBatch batch, long pMeshData, int mask) {
+        final var pBaseVertex = batch.pBaseVertex;
+        final var pElementCount = batch.pElementCount;
+
+        int size = batch.size;
+
+        for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+            MemoryUtil.memPutInt(pBaseVertex + (size << 2),
+                    SectionRenderDataUnsafe.getVertexOffset(pMeshData, facing));
+            MemoryUtil.memPutInt(pElementCount + (size << 2),
+                    SectionRenderDataUnsafe.getElementCount(pMeshData, facing));
+
+            size += (mask >> facing) & 1;
+        }
+
+        batch.size = size;
+    }
+
+    private static int getVisibleFaces(int x1, int y1, int z1, int x2, int y2, int z2) {
+        int planes = 0;
+
+        planes |= BitwiseMath.lessThan(x2 - 1, x1) << ModelQuadFacing.POS_X.ordinal();
+        planes |= BitwiseMath.lessThan(y2 - 1, y1) << ModelQuadFacing.POS_Y.ordinal();
+        planes |= BitwiseMath.lessThan(z2 - 1, z1) << ModelQuadFacing.POS_Z.ordinal();
+
+        planes |= BitwiseMath.greaterThan(x2 + 1, x1) << ModelQuadFacing.NEG_X.ordinal();
+        planes |= BitwiseMath.greaterThan(y2 + 1, y1) << ModelQuadFacing.NEG_Y.ordinal();
+        planes |= BitwiseMath.greaterThan(z2 + 1, z1) << ModelQuadFacing.NEG_Z.ordinal();
+
+        planes |= (1 << ModelQuadFacing.UNASSIGNED.ordinal());
+
+        return planes;
+    }
+}
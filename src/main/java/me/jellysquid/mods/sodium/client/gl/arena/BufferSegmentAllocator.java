@@ -0,0 +1,594 @@
+package me.jellysquid.mods.sodium.client.gl.arena;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tracks which ranges of a buffer arena are in use, without touching any graphics resources. This allows the allocator
+ * to be tested and benchmarked on its own, while {@link GlBufferArena} takes care of copying the buffer's contents.
+ *
+ * Every segment of the arena is kept in a linked list ordered by offset, so that neighbouring free segments can be
+ * merged. Free segments are also kept in segregated free lists (similar to a TLSF allocator), where each power-of-two
+ * size class is split into {@link #SL_COUNT} linear sub-classes. Two bitmaps record which of the lists are non-empty,
+ * so both allocating and freeing take constant time, and no memory is allocated except for the segments themselves.
+ *
+ * When searching for free space, the requested size is rounded up to the next sub-class boundary, so that any segment
+ * in the list which is found is large enough. If that fails, the list which the exact size belongs to is scanned as a
+ * last resort, since it may still hold a segment which fits, and the arena would otherwise have to be resized.
+ */
+public class BufferSegmentAllocator {
+    static final boolean CHECK_ASSERTIONS = false;
+
+    private static final int SL_BITS = 4;
+    private static final int SL_COUNT = 1 << SL_BITS;
+
+    private static final int FL_COUNT = Integer.SIZE;
+
+    // The total number of free lists
+    static final int LIST_COUNT = FL_COUNT * SL_COUNT;
+
+    // The head of the free list for each size class, indexed by (fl * SL_COUNT) + sl
+    private final GlBufferSegment[] freeLists = new GlBufferSegment[LIST_COUNT];
+
+    // Bit (fl) is set if any of the lists of that first-level class are non-empty
+    private int flBitmap;
+
+    // Bit (sl) of element (fl) is set if the list of that size class is non-empty
+    private final int[] slBitmaps = new int[FL_COUNT];
+
+    private GlBufferSegment head;
+
+    private int capacity;
+    private int used;
+
+    // True if the internal state should be checked for consistency after every change
+    private final boolean checkAssertions;
+
+    public BufferSegmentAllocator(int capacity) {
+        this(capacity, CHECK_ASSERTIONS);
+    }
+
+    BufferSegmentAllocator(int capacity, boolean checkAssertions) {
+        this.capacity = capacity;
+        this.checkAssertions = checkAssertions;
+
+        this.head = new GlBufferSegment(this, 0, capacity);
+        this.insertFree(this.head);
+    }
+
+    /**
+     * Allocates a segment of the given size from the end of a free segment.
+     *
+     * @return The allocated segment, or null if there is no free segment which is large enough
+     */
+    public @Nullable GlBufferSegment alloc(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size <= 0");
+        }
+
+        GlBufferSegment a = this.findFree(size);
+
+        if (a == null) {
+            return null;
+        }
+
+        return this.allocFrom(a, size);
+    }
+
+    private GlBufferSegment allocFrom(GlBufferSegment a, int size) {
+        this.removeFree(a);
+
+        GlBufferSegment result;
+
+        if (a.getLength() == size) {
+            a.setFree(false);
+
+            result = a;
+        } else {
+            GlBufferSegment b = new GlBufferSegment(this, a.getEnd() - size, size);
+            b.setNext(a.getNext());
+            b.setPrev(a);
+
+            if (b.getNext() != null) {
+                b.getNext()
+                        .setPrev(b);
+            }
+
+            a.setLength(a.getLength() - size);
+            a.setNext(b);
+
+            this.insertFree(a);
+
+            result = b;
+        }
+
+        this.used += result.getLength();
+        this.checkAssertions();
+
+        return result;
+    }
+
+    public void free(GlBufferSegment entry) {
+        if (entry.isFree()) {
+            throw new IllegalStateException("Already freed");
+        }
+
+        this.used -= entry.getLength();
+
+        GlBufferSegment next = entry.getNext();
+
+        if (next != null && next.isFree()) {
+            this.removeFree(next);
+            entry.mergeInto(next);
+        }
+
+        GlBufferSegment prev = entry.getPrev();
+
+        if (prev != null && prev.isFree()) {
+            this.removeFree(prev);
+            prev.mergeInto(entry);
+
+            entry = prev;
+        }
+
+        this.insertFree(entry);
+        this.checkAssertions();
+    }
+
+    /**
+     * Moves used segments from the start of the arena into holes further along it, so that the free space gathers in a
+     * single segment at the start, like it would after {@link #compact(int)}. Segments are moved in order of their
+     * offset, and this stops at the first one which doesn't fit into a hole or the remaining budget. The first segment
+     * is always moved if it fits into a hole, even if it's larger than the budget, so that a large segment at the start
+     * of the arena can't stop it from ever being defragmented. The segments which are moved keep their identity, and
+     * only their offset changes.
+     *
+     * @param maxLength The maximum number of elements to move
+     * @param copies The list which the copies that need to be made within the buffer are added to
+     * @return The number of elements which were moved
+     */
+    public int defragment(int maxLength, List<PendingBufferCopyCommand> copies) {
+        int moved = 0;
+
+        while (true) {
+            // Anything before the first used segment has already been merged into the free segment at the head
+            GlBufferSegment segment = this.head.isFree() ? this.head.getNext() : this.head;
+
+            if (segment == null || maxLength <= 0 || (moved != 0 && moved + segment.getLength() > maxLength)) {
+                break;
+            }
+
+            GlBufferSegment hole = this.findHole(segment.getLength());
+
+            if (hole == null) {
+                break;
+            }
+
+            int readOffset = segment.getOffset();
+
+            // Allocate the new location, and then swap it with the segment so that the old location can be freed
+            GlBufferSegment target = this.allocFrom(hole, segment.getLength());
+            GlBufferSegment placeholder = new GlBufferSegment(this, readOffset, segment.getLength());
+
+            this.replace(segment, placeholder);
+            this.replace(target, segment);
+
+            copies.add(new PendingBufferCopyCommand(readOffset, segment.getOffset(), segment.getLength()));
+
+            this.free(placeholder);
+
+            moved += segment.getLength();
+        }
+
+        return moved;
+    }
+
+    private @Nullable GlBufferSegment findHole(int size) {
+        GlBufferSegment head = this.head;
+
+        // The free segment at the head is the only one which comes before the segment being moved, so hide it
+        if (!head.isFree()) {
+            return this.findFree(size);
+        }
+
+        this.removeFree(head);
+
+        GlBufferSegment hole = this.findFree(size);
+
+        this.insertFree(head);
+
+        return hole;
+    }
+
+    private void replace(GlBufferSegment segment, GlBufferSegment replacement) {
+        GlBufferSegment prev = segment.getPrev();
+        GlBufferSegment next = segment.getNext();
+
+        replacement.setOffset(segment.getOffset());
+        replacement.setPrev(prev);
+        replacement.setNext(next);
+
+        if (prev != null) {
+            prev.setNext(replacement);
+        } else {
+            this.head = replacement;
+        }
+
+        if (next != null) {
+            next.setPrev(replacement);
+        }
+    }
+
+    /**
+     * Moves every used segment to the end of a buffer with the given capacity, in the same order, and leaves all the
+     * free space in a single segment at the start of it.
+     *
+     * @return The copies which need to be made from the old buffer to the new buffer, in units of elements
+     */
+    public List<PendingBufferCopyCommand> compact(int newCapacity) {
+        if (this.used > newCapacity) {
+            throw new UnsupportedOperationException("New capacity must be larger than used size");
+        }
+
+        this.checkAssertions();
+
+        int tail = newCapacity - this.used;
+
+        List<GlBufferSegment> usedSegments = this.getUsedSegments();
+        List<PendingBufferCopyCommand> pendingCopies = this.buildTransferList(usedSegments, tail);
+
+        this.clearFreeLists();
+
+        this.capacity = newCapacity;
+
+        if (tail > 0) {
+            this.head = new GlBufferSegment(this, 0, tail);
+            this.insertFree(this.head);
+
+            if (!usedSegments.isEmpty()) {
+                this.head.setNext(usedSegments.get(0));
+                this.head.getNext()
+                        .setPrev(this.head);
+            }
+        } else {
+            this.head = usedSegments.get(0);
+        }
+
+        this.checkAssertions();
+
+        return pendingCopies;
+    }
+
+    private List<PendingBufferCopyCommand> buildTransferList(List<GlBufferSegment> usedSegments, int base) {
+        List<PendingBufferCopyCommand> pendingCopies = new ArrayList<>();
+        PendingBufferCopyCommand currentCopyCommand = null;
+
+        int writeOffset = base;
+
+        for (int i = 0; i < usedSegments.size(); i++) {
+            GlBufferSegment s = usedSegments.get(i);
+
+            if (currentCopyCommand == null || currentCopyCommand.readOffset + currentCopyCommand.length != s.getOffset()) {
+                if (currentCopyCommand != null) {
+                    pendingCopies.add(currentCopyCommand);
+                }
+
+                currentCopyCommand = new PendingBufferCopyCommand(s.getOffset(), writeOffset, s.getLength());
+            } else {
+                currentCopyCommand.length += s.getLength();
+            }
+
+            s.setOffset(writeOffset);
+
+            if (i + 1 < usedSegments.size()) {
+                s.setNext(usedSegments.get(i + 1));
+            } else {
+                s.setNext(null);
+            }
+
+            if (i - 1 < 0) {
+                s.setPrev(null);
+            } else {
+                s.setPrev(usedSegments.get(i - 1));
+            }
+
+            writeOffset += s.getLength();
+        }
+
+        if (currentCopyCommand != null) {
+            pendingCopies.add(currentCopyCommand);
+        }
+
+        return pendingCopies;
+    }
+
+    private ArrayList<GlBufferSegment> getUsedSegments() {
+        ArrayList<GlBufferSegment> used = new ArrayList<>();
+        GlBufferSegment seg = this.head;
+
+        while (seg != null) {
+            GlBufferSegment next = seg.getNext();
+
+            if (!seg.isFree()) {
+                used.add(seg);
+            }
+
+            seg = next;
+        }
+
+        return used;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public int getUsed() {
+        return this.used;
+    }
+
+    public boolean isEmpty() {
+        return this.used <= 0;
+    }
+
+    /**
+     * Returns the amount of free space which is held in holes between used segments, rather than in the free segment
+     * at the start of the arena.
+     */
+    public int getFragmentedSpace() {
+        int free = this.capacity - this.used;
+
+        if (this.head.isFree()) {
+            free -= this.head.getLength();
+        }
+
+        return free;
+    }
+
+    private @Nullable GlBufferSegment findFree(int size) {
+        // Round the size up to the next size class, so that every segment in the list we find is large enough
+        int rounded = size;
+
+        if (size >= SL_COUNT) {
+            rounded += (1 << (log2(size) - SL_BITS)) - 1;
+        }
+
+        int index = findNonEmptyList(rounded);
+
+        if (index != -1) {
+            return this.freeLists[index];
+        }
+
+        // Otherwise, the list which the exact size belongs to may still hold a segment which is large enough
+        GlBufferSegment entry = this.freeLists[getListIndex(size)];
+
+        while (entry != null) {
+            if (entry.getLength() >= size) {
+                return entry;
+            }
+
+            entry = entry.getNextFree();
+        }
+
+        return null;
+    }
+
+    private int findNonEmptyList(int size) {
+        // Overflowed while rounding up, so no segment can be large enough
+        if (size < 0) {
+            return -1;
+        }
+
+        int index = getListIndex(size);
+
+        int fl = index / SL_COUNT;
+        int sl = index % SL_COUNT;
+
+        int slMap = this.slBitmaps[fl] & (~0 << sl);
+
+        if (slMap == 0) {
+            int flMap = fl + 1 < FL_COUNT ? this.flBitmap & (~0 << (fl + 1)) : 0;
+
+            if (flMap == 0) {
+                return -1;
+            }
+
+            fl = Integer.numberOfTrailingZeros(flMap);
+            slMap = this.slBitmaps[fl];
+        }
+
+        return (fl * SL_COUNT) + Integer.numberOfTrailingZeros(slMap);
+    }
+
+    private void insertFree(GlBufferSegment segment) {
+        int index = getListIndex(segment.getLength());
+
+        GlBufferSegment first = this.freeLists[index];
+
+        segment.setFree(true);
+        segment.setPrevFree(null);
+        segment.setNextFree(first);
+
+        if (first != null) {
+            first.setPrevFree(segment);
+        }
+
+        this.freeLists[index] = segment;
+
+        int fl = index / SL_COUNT;
+        int sl = index % SL_COUNT;
+
+        this.slBitmaps[fl] |= 1 << sl;
+        this.flBitmap |= 1 << fl;
+    }
+
+    private void removeFree(GlBufferSegment segment) {
+        int index = getListIndex(segment.getLength());
+
+        GlBufferSegment prev = segment.getPrevFree();
+        GlBufferSegment next = segment.getNextFree();
+
+        if (prev != null) {
+            prev.setNextFree(next);
+        } else {
+            this.freeLists[index] = next;
+        }
+
+        if (next != null) {
+            next.setPrevFree(prev);
+        }
+
+        segment.setFree(false);
+        segment.setPrevFree(null);
+        segment.setNextFree(null);
+
+        if (this.freeLists[index] == null) {
+            int fl = index / SL_COUNT;
+            int sl = index % SL_COUNT;
+
+            this.slBitmaps[fl] &= ~(1 << sl);
+
+            if (this.slBitmaps[fl] == 0) {
+                this.flBitmap &= ~(1 << fl);
+            }
+        }
+    }
+
+    private void clearFreeLists() {
+        // The free segments are discarded after compaction, so their links don't need to be cleared
+        Arrays.fill(this.freeLists, null);
+        Arrays.fill(this.slBitmaps, 0);
+
+        this.flBitmap = 0;
+    }
+
+    static int getListIndex(int size) {
+        // Sizes below SL_COUNT each have their own list in the first class
+        if (size < SL_COUNT) {
+            return size;
+        }
+
+        int log2 = log2(size);
+
+        int fl = log2 - SL_BITS + 1;
+        int sl = (size >>> (log2 - SL_BITS)) - SL_COUNT;
+
+        return (fl * SL_COUNT) + sl;
+    }
+
+    private static int log2(int value) {
+        return (Integer.SIZE - 1) - Integer.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Returns true if the bitmaps record that the free list with the given index is non-empty.
+     */
+    boolean isFreeListNonEmpty(int index) {
+        int fl = index / SL_COUNT;
+        int sl = index % SL_COUNT;
+
+        return (this.flBitmap & (1 << fl)) != 0 && (this.slBitmaps[fl] & (1 << sl)) != 0;
+    }
+
+    private void checkAssertions() {
+        if (this.checkAssertions) {
+            this.checkAssertions0();
+        }
+    }
+
+    private void checkAssertions0() {
+        GlBufferSegment seg = this.head;
+        int used = 0;
+
+        while (seg != null) {
+            if (seg.getOffset() < 0) {
+                throw new IllegalStateException("segment.start < 0: out of bounds");
+            } else if (seg.getEnd() > this.capacity) {
+                throw new IllegalStateException("segment.end > arena.capacity: out of bounds");
+            }
+
+            if (!seg.isFree()) {
+                used += seg.getLength();
+            } else if (!this.isInFreeList(seg)) {
+                throw new IllegalStateException("segment.free && !segment.listed: missing from free list");
+            }
+
+            GlBufferSegment next = seg.getNext();
+
+            if (next != null) {
+                if (next.getOffset() < seg.getEnd()) {
+                    throw new IllegalStateException("segment.next.start < segment.end: overlapping segments (corrupted)");
+                } else if (next.getOffset() > seg.getEnd()) {
+                    throw new IllegalStateException("segment.next.start > segment.end: not truly connected (sparsity error)");
+                }
+
+                if (seg.isFree() && next.isFree()) {
+                    throw new IllegalStateException("segment.free && segment.next.free: not merged consecutive segments");
+                }
+            }
+
+            GlBufferSegment prev = seg.getPrev();
+
+            if (prev != null) {
+                if (prev.getEnd() > seg.getOffset()) {
+                    throw new IllegalStateException("segment.prev.end > segment.start: overlapping segments (corrupted)");
+                } else if (prev.getEnd() < seg.getOffset()) {
+                    throw new IllegalStateException("segment.prev.end < segment.start: not truly connected (sparsity error)");
+                }
+            }
+
+            seg = next;
+        }
+
+        if (this.used < 0) {
+            throw new IllegalStateException("arena.used < 0: failure to track");
+        } else if (this.used > this.capacity) {
+            throw new IllegalStateException("arena.used > arena.capacity: failure to track");
+        }
+
+        if (this.used != used) {
+            throw new IllegalStateException("arena.used is invalid");
+        }
+
+        for (int index = 0; index < LIST_COUNT; index++) {
+            GlBufferSegment entry = this.freeLists[index];
+
+            if ((entry != null) != this.isFreeListNonEmpty(index)) {
+                throw new IllegalStateException("freeLists[index] != null != bitmap[index]: bitmaps out of sync");
+            }
+
+            while (entry != null) {
+                if (!entry.isFree()) {
+                    throw new IllegalStateException("!segment.free && segment.listed: used segment in free list");
+                } else if (getListIndex(entry.getLength()) != index) {
+                    throw new IllegalStateException("segment.length doesn't match list: stale size class");
+                }
+
+                entry = entry.getNextFree();
+            }
+        }
+
+        for (int fl = 0; fl < FL_COUNT; fl++) {
+            if ((this.slBitmaps[fl] != 0) != ((this.flBitmap & (1 << fl)) != 0)) {
+                throw new IllegalStateException("slBitmaps[fl] != 0 != flBitmap[fl]: bitmaps out of sync");
+            }
+        }
+    }
+
+    private boolean isInFreeList(GlBufferSegment segment) {
+        GlBufferSegment entry = this.freeLists[getListIndex(segment.getLength())];
+
+        while (entry != null) {
+            if (entry == segment) {
+                return true;
+            }
+
+            entry = entry.getNextFree();
+        }
+
+        return false;
+    }
+}
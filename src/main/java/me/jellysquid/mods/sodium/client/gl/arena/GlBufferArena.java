@@ -5,116 +5,66 @@ import me.jellysquid.mods.sodium.client.gl.buffer.GlBuffer;
 import me.jellysquid.mods.sodium.client.gl.buffer.GlBufferUsage;
 import me.jellysquid.mods.sodium.client.gl.buffer.GlMutableBuffer;
 import me.jellysquid.mods.sodium.client.gl.device.CommandList;
+import me.jellysquid.mods.sodium.client.render.metrics.RenderCounters;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+/**
+ * A buffer which holds many smaller allocations. The allocations are tracked by a {@link BufferSegmentAllocator}, and
+ * when it runs out of space, the buffer is re-allocated with a larger capacity and all the allocations are compacted.
+ */
 public class GlBufferArena {
-    static final boolean CHECK_ASSERTIONS = false;
-
     private static final GlBufferUsage BUFFER_USAGE = GlBufferUsage.STATIC_DRAW;
 
+    // The fraction of the arena's capacity which must be held in holes before it is defragmented
+    private static final float DEFRAGMENT_THRESHOLD = 0.125f;
+
+    // The fraction of the arena's capacity which it must stay below for it to be shrunk
+    private static final float SHRINK_THRESHOLD = 0.25f;
+
+    // The number of consecutive checks in which the arena must be underused for it to be shrunk
+    private static final int SHRINK_DELAY = 600;
+
+    private final int initialCapacity;
     private final int resizeIncrement;
 
     private final StagingBuffer stagingBuffer;
     private GlMutableBuffer arenaBuffer;
 
-    private GlBufferSegment head;
-
-    private int capacity;
-    private int used;
+    private final BufferSegmentAllocator allocator;
 
     private final int stride;
 
+    private int underusedChecks;
+
     public GlBufferArena(CommandList commands, int initialCapacity, int stride, StagingBuffer stagingBuffer) {
-        this.capacity = initialCapacity;
-        this.resizeIncrement = initialCapacity / 16;
+        this(commands, initialCapacity, initialCapacity / 16, stride, stagingBuffer);
+    }
+
+    public GlBufferArena(CommandList commands, int initialCapacity, int resizeIncrement, int stride,
+                         StagingBuffer stagingBuffer) {
+        this.initialCapacity = initialCapacity;
+        this.resizeIncrement = resizeIncrement;
 
         this.stride = stride;
 
-        this.head = new GlBufferSegment(this, 0, initialCapacity);
-        this.head.setFree(true);
+        this.allocator = new BufferSegmentAllocator(initialCapacity);
 
         this.arenaBuffer = commands.createMutableBuffer();
-        commands.allocateStorage(this.arenaBuffer, this.capacity * stride, BUFFER_USAGE);
+        commands.allocateStorage(this.arenaBuffer, initialCapacity * stride, BUFFER_USAGE);
 
         this.stagingBuffer = stagingBuffer;
     }
 
     private void resize(CommandList commandList, int newCapacity) {
-        if (this.used > newCapacity) {
-            throw new UnsupportedOperationException("New capacity must be larger than used size");
-        }
-
-        this.checkAssertions();
-
-        int tail = newCapacity - this.used;
-
-        List<GlBufferSegment> usedSegments = this.getUsedSegments();
-        List<PendingBufferCopyCommand> pendingCopies = this.buildTransferList(usedSegments, tail);
+        List<PendingBufferCopyCommand> pendingCopies = this.allocator.compact(newCapacity);
 
         this.transferSegments(commandList, pendingCopies, newCapacity);
 
-        this.head = new GlBufferSegment(this, 0, tail);
-        this.head.setFree(true);
-
-        if (usedSegments.isEmpty()) {
-            this.head.setNext(null);
-        } else {
-            this.head.setNext(usedSegments.get(0));
-            this.head.getNext()
-                    .setPrev(this.head);
-        }
-
-        this.checkAssertions();
-    }
-
-    private List<PendingBufferCopyCommand> buildTransferList(List<GlBufferSegment> usedSegments, int base) {
-        List<PendingBufferCopyCommand> pendingCopies = new ArrayList<>();
-        PendingBufferCopyCommand currentCopyCommand = null;
-
-        int writeOffset = base;
-
-        for (int i = 0; i < usedSegments.size(); i++) {
-            GlBufferSegment s = usedSegments.get(i);
-
-            if (currentCopyCommand == null || currentCopyCommand.readOffset + currentCopyCommand.length != s.getOffset()) {
-                if (currentCopyCommand != null) {
-                    pendingCopies.add(currentCopyCommand);
-                }
-
-                currentCopyCommand = new PendingBufferCopyCommand(s.getOffset(), writeOffset, s.getLength());
-            } else {
-                currentCopyCommand.length += s.getLength();
-            }
-
-            s.setOffset(writeOffset);
-
-            if (i + 1 < usedSegments.size()) {
-                s.setNext(usedSegments.get(i + 1));
-            } else {
-                s.setNext(null);
-            }
-
-            if (i - 1 < 0) {
-                s.setPrev(null);
-            } else {
-                s.setPrev(usedSegments.get(i - 1));
-            }
-
-            writeOffset += s.getLength();
-        }
-
-        if (currentCopyCommand != null) {
-            pendingCopies.add(currentCopyCommand);
-        }
-
-        return pendingCopies;
+        RenderCounters.onArenaResized();
     }
 
     private void transferSegments(CommandList commandList, Collection<PendingBufferCopyCommand> list, int capacity) {
@@ -133,112 +83,72 @@ public class GlBufferArena {
         commandList.deleteBuffer(srcBufferObj);
 
         this.arenaBuffer = dstBufferObj;
-        this.capacity = capacity;
     }
 
-    private ArrayList<GlBufferSegment> getUsedSegments() {
-        ArrayList<GlBufferSegment> used = new ArrayList<>();
-        GlBufferSegment seg = this.head;
-
-        while (seg != null) {
-            GlBufferSegment next = seg.getNext();
-
-            if (!seg.isFree()) {
-                used.add(seg);
-            }
-
-            seg = next;
+    /**
+     * Moves some of the arena's segments into the holes left behind by freed segments, if enough of the arena has been
+     * fragmented. Segments are moved within the same buffer, so the buffer object doesn't change, but the offsets of
+     * the moved segments do.
+     *
+     * @return The number of bytes which were moved
+     */
+    public int defragment(CommandList commandList, int maxBytes) {
+        if (this.allocator.getFragmentedSpace() < this.allocator.getCapacity() * DEFRAGMENT_THRESHOLD) {
+            return 0;
         }
 
-        return used;
-    }
+        var copies = new ArrayList<PendingBufferCopyCommand>();
+        int moved = this.allocator.defragment(maxBytes / this.stride, copies);
 
-    public int getDeviceUsedMemory() {
-        return this.used * this.stride;
-    }
+        for (PendingBufferCopyCommand cmd : copies) {
+            commandList.copyBufferSubData(this.arenaBuffer, this.arenaBuffer,
+                    (long) cmd.readOffset * this.stride,
+                    (long) cmd.writeOffset * this.stride,
+                    (long) cmd.length * this.stride);
+        }
 
-    public int getDeviceAllocatedMemory() {
-        return this.capacity * this.stride;
+        return moved * this.stride;
     }
 
-    private GlBufferSegment alloc(int size) {
-        GlBufferSegment a = this.findFree(size);
+    /**
+     * Shrinks the arena if it has grown past its initial capacity and only a small part of it has been used for a
+     * while. This should be called once per frame. Shrinking the arena re-allocates the buffer.
+     *
+     * @return True if the arena was shrunk
+     */
+    public boolean tryShrink(CommandList commandList) {
+        int capacity = this.allocator.getCapacity();
+        int used = this.allocator.getUsed();
 
-        if (a == null) {
-            return null;
+        if (capacity <= this.initialCapacity || used > capacity * SHRINK_THRESHOLD) {
+            this.underusedChecks = 0;
+            return false;
         }
 
-        GlBufferSegment result;
-
-        if (a.getLength() == size) {
-            a.setFree(false);
-
-            result = a;
-        } else {
-            GlBufferSegment b = new GlBufferSegment(this, a.getEnd() - size, size);
-            b.setNext(a.getNext());
-            b.setPrev(a);
+        if (++this.underusedChecks < SHRINK_DELAY) {
+            return false;
+        }
 
-            if (b.getNext() != null) {
-                b.getNext()
-                        .setPrev(b);
-            }
+        this.underusedChecks = 0;
 
-            a.setLength(a.getLength() - size);
-            a.setNext(b);
+        // Leave enough room for the arena to double in use before it needs to grow again
+        int newCapacity = Math.max(this.initialCapacity, used * 2);
 
-            result = b;
+        if (newCapacity >= capacity) {
+            return false;
         }
 
-        this.used += result.getLength();
-        this.checkAssertions();
+        this.resize(commandList, newCapacity);
 
-        return result;
+        return true;
     }
 
-    private GlBufferSegment findFree(int size) {
-        GlBufferSegment entry = this.head;
-        GlBufferSegment best = null;
-
-        while (entry != null) {
-            if (entry.isFree()) {
-                if (entry.getLength() == size) {
-                    return entry;
-                } else if (entry.getLength() >= size) {
-                    if (best == null || best.getLength() > entry.getLength()) {
-                        best = entry;
-                    }
-                }
-            }
-
-            entry = entry.getNext();
-        }
-
-        return best;
+    public int getDeviceUsedMemory() {
+        return this.allocator.getUsed() * this.stride;
     }
 
-    public void free(GlBufferSegment entry) {
-        if (entry.isFree()) {
-            throw new IllegalStateException("Already freed");
-        }
-
-        entry.setFree(true);
-
-        this.used -= entry.getLength();
-
-        GlBufferSegment next = entry.getNext();
-
-        if (next != null && next.isFree()) {
-            entry.mergeInto(next);
-        }
-
-        GlBufferSegment prev = entry.getPrev();
-
-        if (prev != null && prev.isFree()) {
-            prev.mergeInto(entry);
-        }
-
-        this.checkAssertions();
+    public int getDeviceAllocatedMemory() {
+        return this.allocator.getCapacity() * this.stride;
     }
 
     public void delete(CommandList commands) {
@@ -246,41 +156,33 @@ public class GlBufferArena {
     }
 
     public boolean isEmpty() {
-        return this.used <= 0;
+        return this.allocator.isEmpty();
     }
 
     public GlBuffer getBufferObject() {
         return this.arenaBuffer;
     }
 
-    public boolean upload(CommandList commandList, Stream<PendingUpload> stream) {
+    public boolean upload(CommandList commandList, List<PendingUpload> uploads) {
         // Record the buffer object before we start any work
         // If the arena needs to re-allocate a buffer, this will allow us to check and return an appropriate flag
         GlBuffer buffer = this.arenaBuffer;
 
-        // A linked list is used as we'll be randomly removing elements and want O(1) performance
-        List<PendingUpload> queue = stream.collect(Collectors.toCollection(LinkedList::new));
-
-        // Try to upload all of the data into free segments first
-        this.tryUploads(commandList, queue);
-
-        // If we weren't able to upload some buffers, they will have been left behind in the queue
-        if (!queue.isEmpty()) {
-            // Calculate the amount of memory needed for the remaining uploads
-            int remainingElements = queue.stream()
-                    .mapToInt(upload -> upload.getDataBuffer().getLength())
-                    .sum();
+        // Try to upload all of the data into free segments first, and find out how much space the rest will need
+        int remainingElements = this.tryUploads(commandList, uploads);
 
+        // If we weren't able to upload some buffers, they will have been left without a result
+        if (remainingElements > 0) {
             // Ask the arena to grow to accommodate the remaining uploads
             // This will force a re-allocation and compaction, which will leave us a continuous free segment
             // for the remaining uploads
             this.ensureCapacity(commandList, remainingElements);
 
             // Try again to upload any buffers that failed last time
-            this.tryUploads(commandList, queue);
+            remainingElements = this.tryUploads(commandList, uploads);
 
             // If we still had failures, something has gone wrong
-            if (!queue.isEmpty()) {
+            if (remainingElements > 0) {
                 throw new RuntimeException("Failed to upload all buffers");
             }
         }
@@ -288,28 +190,54 @@ public class GlBufferArena {
         return this.arenaBuffer != buffer;
     }
 
-    private void tryUploads(CommandList commandList, List<PendingUpload> queue) {
-        queue.removeIf(upload -> this.tryUpload(commandList, upload));
+    /**
+     * Tries to upload each of the given buffers which haven't been uploaded yet.
+     *
+     * @return The number of elements which are needed by the buffers that couldn't be uploaded
+     */
+    private int tryUploads(CommandList commandList, List<PendingUpload> uploads) {
+        int remainingElements = 0;
+
+        for (int i = 0; i < uploads.size(); i++) {
+            var upload = uploads.get(i);
+
+            if (!upload.hasResult() && !this.tryUpload(commandList, upload)) {
+                remainingElements += upload.getLength() / this.stride;
+            }
+        }
+
         this.stagingBuffer.flush(commandList);
+
+        return remainingElements;
     }
 
     private boolean tryUpload(CommandList commandList, PendingUpload upload) {
-        ByteBuffer data = upload.getDataBuffer()
-                .getDirectBuffer();
-
-        int elementCount = data.remaining() / this.stride;
+        int elementCount = upload.getLength() / this.stride;
 
-        GlBufferSegment dst = this.alloc(elementCount);
+        GlBufferSegment dst = this.allocator.alloc(elementCount);
 
         if (dst == null) {
             return false;
         }
 
-        // Copy the data into our staging buffer, then copy it into the arena's buffer
-        this.stagingBuffer.enqueueCopy(commandList, data, this.arenaBuffer, dst.getOffset() * this.stride);
+        var stagedData = upload.getStagedData();
+
+        if (stagedData != null) {
+            // The data is already in a staging ring, so it can be copied into the arena's buffer directly
+            stagedData.getRing()
+                    .enqueueCopy(commandList, stagedData, this.arenaBuffer, (long) dst.getOffset() * this.stride);
+        } else {
+            ByteBuffer data = upload.getDataBuffer()
+                    .getDirectBuffer();
+
+            // Copy the data into our staging buffer, then copy it into the arena's buffer
+            this.stagingBuffer.enqueueCopy(commandList, data, this.arenaBuffer, dst.getOffset() * this.stride);
+        }
 
         upload.setResult(dst);
 
+        RenderCounters.onUpload(upload.getLength());
+
         return true;
     }
 
@@ -317,77 +245,10 @@ public class GlBufferArena {
         // Re-sizing the arena results in a compaction, so any free space in the arena will be
         // made into one contiguous segment, joined with the new segment of free space we're asking for
         // We calculate the number of free elements in our arena and then subtract that from the total requested
-        int elementsNeeded = elementCount - (this.capacity - this.used);
+        int capacity = this.allocator.getCapacity();
+        int elementsNeeded = elementCount - (capacity - this.allocator.getUsed());
 
         // Try to allocate some extra buffer space unless this is an unusually large allocation
-        this.resize(commandList, Math.max(this.capacity + this.resizeIncrement, this.capacity + elementsNeeded));
-    }
-
-    private void checkAssertions() {
-        if (CHECK_ASSERTIONS) {
-            this.checkAssertions0();
-        }
-    }
-
-    private void checkAssertions0() {
-        GlBufferSegment seg = this.head;
-        int used = 0;
-
-        while (seg != null) {
-            if (seg.getOffset() < 0) {
-                throw new IllegalStateException("segment.start < 0: out of bounds");
-            } else if (seg.getEnd() > this.capacity) {
-                throw new IllegalStateException("segment.end > arena.capacity: out of bounds");
-            }
-
-            if (!seg.isFree()) {
-                used += seg.getLength();
-            }
-
-            GlBufferSegment next = seg.getNext();
-
-            if (next != null) {
-                if (next.getOffset() < seg.getEnd()) {
-                    throw new IllegalStateException("segment.next.start < segment.end: overlapping segments (corrupted)");
-                } else if (next.getOffset() > seg.getEnd()) {
-                    throw new IllegalStateException("segment.next.start > segment.end: not truly connected (sparsity error)");
-                }
-
-                if (next.isFree() && next.getNext() != null) {
-                    if (next.getNext().isFree()) {
-                        throw new IllegalStateException("segment.free && segment.next.free: not merged consecutive segments");
-                    }
-                }
-            }
-
-            GlBufferSegment prev = seg.getPrev();
-
-            if (prev != null) {
-                if (prev.getEnd() > seg.getOffset()) {
-                    throw new IllegalStateException("segment.prev.end > segment.start: overlapping segments (corrupted)");
-                } else if (prev.getEnd() < seg.getOffset()) {
-                    throw new IllegalStateException("segment.prev.end < segment.start: not truly connected (sparsity error)");
-                }
-
-                if (prev.isFree() && prev.getPrev() != null) {
-                    if (prev.getPrev().isFree()) {
-                        throw new IllegalStateException("segment.free && segment.prev.free: not merged consecutive segments");
-                    }
-                }
-            }
-
-            seg = next;
-        }
-
-        if (this.used < 0) {
-            throw new IllegalStateException("arena.used < 0: failure to track");
-        } else if (this.used > this.capacity) {
-            throw new IllegalStateException("arena.used > arena.capacity: failure to track");
-        }
-
-        if (this.used != used) {
-            throw new IllegalStateException("arena.used is invalid");
-        }
+        this.resize(commandList, Math.max(capacity + this.resizeIncrement, capacity + elementsNeeded));
     }
-
 }
@@ -1,7 +1,7 @@
 package me.jellysquid.mods.sodium.client.gl.arena;
 
 public class GlBufferSegment {
-    private final GlBufferArena arena;
+    private final BufferSegmentAllocator allocator;
 
     private boolean free = false;
 
@@ -11,14 +11,18 @@ public class GlBufferSegment {
     private GlBufferSegment next;
     private GlBufferSegment prev;
 
-    public GlBufferSegment(GlBufferArena arena, int offset, int length) {
-        this.arena = arena;
+    // The neighbouring segments in the allocator's free list for this segment's size, only used while it's free
+    private GlBufferSegment nextFree;
+    private GlBufferSegment prevFree;
+
+    public GlBufferSegment(BufferSegmentAllocator allocator, int offset, int length) {
+        this.allocator = allocator;
         this.offset = offset;
         this.length = length;
     }
 
     public void delete() {
-        this.arena.free(this);
+        this.allocator.free(this);
     }
 
     protected int getEnd() {
@@ -73,6 +77,22 @@ public class GlBufferSegment {
         this.prev = prev;
     }
 
+    protected GlBufferSegment getNextFree() {
+        return this.nextFree;
+    }
+
+    protected void setNextFree(GlBufferSegment nextFree) {
+        this.nextFree = nextFree;
+    }
+
+    protected GlBufferSegment getPrevFree() {
+        return this.prevFree;
+    }
+
+    protected void setPrevFree(GlBufferSegment prevFree) {
+        this.prevFree = prevFree;
+    }
+
     protected void mergeInto(GlBufferSegment entry) {
         this.setLength(this.getLength() + entry.getLength());
         this.setNext(entry.getNext());
@@ -1,19 +1,36 @@
 package me.jellysquid.mods.sodium.client.gl.arena;
 
+import me.jellysquid.mods.sodium.client.gl.arena.staging.StagingRing;
 import me.jellysquid.mods.sodium.client.util.NativeBuffer;
+import org.jetbrains.annotations.Nullable;
 
 public class PendingUpload {
-    private final NativeBuffer data;
+    private final @Nullable NativeBuffer data;
+    private final StagingRing.@Nullable Region stagedData;
     private GlBufferSegment result;
 
     public PendingUpload(NativeBuffer data) {
         this.data = data;
+        this.stagedData = null;
     }
 
-    public NativeBuffer getDataBuffer() {
+    /**
+     * Creates an upload for data which was already written into a staging ring, and can be copied to the arena
+     * directly from there.
+     */
+    public PendingUpload(StagingRing.Region stagedData) {
+        this.data = null;
+        this.stagedData = stagedData;
+    }
+
+    public @Nullable NativeBuffer getDataBuffer() {
         return this.data;
     }
 
+    public StagingRing.@Nullable Region getStagedData() {
+        return this.stagedData;
+    }
+
     protected void setResult(GlBufferSegment result) {
         if (this.result != null) {
             throw new IllegalStateException("Result already provided");
@@ -22,6 +39,10 @@ public class PendingUpload {
         this.result = result;
     }
 
+    protected boolean hasResult() {
+        return this.result != null;
+    }
+
     public GlBufferSegment getResult() {
         if (this.result == null) {
             throw new IllegalStateException("Result not computed");
@@ -31,6 +52,6 @@ public class PendingUpload {
     }
 
     public int getLength() {
-        return this.data.getLength();
+        return this.data != null ? this.data.getLength() : this.stagedData.getLength();
     }
 }
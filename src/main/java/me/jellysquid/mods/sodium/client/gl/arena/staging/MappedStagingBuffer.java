@@ -8,6 +8,7 @@ import me.jellysquid.mods.sodium.client.gl.device.RenderDevice;
 import me.jellysquid.mods.sodium.client.gl.functions.BufferStorageFunctions;
 import me.jellysquid.mods.sodium.client.gl.sync.GlFence;
 import me.jellysquid.mods.sodium.client.gl.util.EnumBitField;
+import me.jellysquid.mods.sodium.client.render.metrics.RenderCounters;
 import me.jellysquid.mods.sodium.client.util.MathUtil;
 
 import java.nio.ByteBuffer;
@@ -57,6 +58,7 @@ public class MappedStagingBuffer implements StagingBuffer {
 
         if (length > this.remaining) {
             this.fallbackStagingBuffer.enqueueCopy(commandList, data, dst, writeOffset);
+            RenderCounters.onStagingFallback();
 
             return;
         }
@@ -0,0 +1,241 @@
+package me.jellysquid.mods.sodium.client.gl.arena.staging;
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.objects.ObjectArrayFIFOQueue;
+import me.jellysquid.mods.sodium.client.gl.buffer.*;
+import me.jellysquid.mods.sodium.client.gl.device.CommandList;
+import me.jellysquid.mods.sodium.client.gl.sync.GlFence;
+import me.jellysquid.mods.sodium.client.gl.util.EnumBitField;
+import me.jellysquid.mods.sodium.client.util.MathUtil;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A persistently mapped ring buffer which worker threads can write finished meshes into directly. The main thread then
+ * copies the data straight from the ring into the destination buffer on the GPU, which avoids first copying each mesh
+ * into a temporary allocation and then again into the {@link StagingBuffer}.
+ *
+ * Regions of the ring can be allocated and released from any thread, but all the OpenGL work (copying, fencing, and
+ * reclaiming memory) must happen on the main thread. Memory is always reclaimed in the order it was allocated, so a
+ * region which is held for a long time will stall the ring, and allocations will fail until it is released. Callers
+ * are expected to fall back to another upload path when that happens.
+ */
+public class StagingRing {
+    private static final EnumBitField<GlBufferStorageFlags> STORAGE_FLAGS =
+            EnumBitField.of(GlBufferStorageFlags.PERSISTENT, GlBufferStorageFlags.CLIENT_STORAGE, GlBufferStorageFlags.MAP_WRITE);
+
+    private static final EnumBitField<GlBufferMapFlags> MAP_FLAGS =
+            EnumBitField.of(GlBufferMapFlags.PERSISTENT, GlBufferMapFlags.INVALIDATE_BUFFER, GlBufferMapFlags.WRITE, GlBufferMapFlags.EXPLICIT_FLUSH);
+
+    private final GlImmutableBuffer buffer;
+    private final GlBufferMapping mapping;
+
+    private final int capacity;
+
+    // Guarded by this
+    private final ArrayDeque<Region> regions = new ArrayDeque<>();
+    private int head;
+    private int used;
+
+    // Main thread only
+    private final ObjectArrayFIFOQueue<GlFence> fences = new ObjectArrayFIFOQueue<>();
+    private final LongArrayFIFOQueue fenceSequences = new LongArrayFIFOQueue();
+
+    private long nextFenceSequence = 1;
+    private volatile long completedFenceSequence = 0;
+
+    private boolean hasPendingCopies;
+
+    public StagingRing(CommandList commandList) {
+        this(commandList, 1024 * 1024 * 32 /* 32 MB */);
+    }
+
+    public StagingRing(CommandList commandList, int capacity) {
+        this.buffer = commandList.createImmutableBuffer(capacity, STORAGE_FLAGS);
+        this.mapping = commandList.mapBuffer(this.buffer, 0, capacity, MAP_FLAGS);
+
+        this.capacity = capacity;
+    }
+
+    /**
+     * Allocates a contiguous region of the ring. This can be called from any thread.
+     *
+     * @return The region, or null if there isn't enough free space in the ring
+     */
+    public synchronized @Nullable Region allocate(int length) {
+        if (length <= 0 || length > this.capacity) {
+            return null;
+        }
+
+        int offset;
+
+        if (this.regions.isEmpty()) {
+            offset = 0;
+        } else {
+            int tail = this.regions.getFirst().offset;
+
+            if (this.head > tail) {
+                // The used space is [tail, head), so try the end of the buffer and then the start
+                if (this.capacity - this.head >= length) {
+                    offset = this.head;
+                } else if (tail > length) {
+                    offset = 0;
+                } else {
+                    return null;
+                }
+            } else if (tail - this.head > length) {
+                // The used space has wrapped around, so the only free space is [head, tail)
+                offset = this.head;
+            } else {
+                return null;
+            }
+        }
+
+        var region = new Region(this, offset, length);
+
+        this.regions.addLast(region);
+        this.head = offset + length;
+        this.used += length;
+
+        return region;
+    }
+
+    private synchronized void release(Region region) {
+        if (region.released) {
+            throw new IllegalStateException("Region already released");
+        }
+
+        region.released = true;
+    }
+
+    /**
+     * Copies the data in the given region into the destination buffer. The region can be released as soon as this
+     * returns, and its memory will be reclaimed once the GPU has finished the copy. This must be called on the main
+     * thread, followed by {@link #flush(CommandList)} once all copies for the frame have been made.
+     */
+    public void enqueueCopy(CommandList commandList, Region region, GlBuffer dst, long writeOffset) {
+        if (region.ring != this) {
+            throw new IllegalArgumentException("Region belongs to another ring");
+        }
+
+        commandList.flushMappedRange(this.mapping, region.offset, region.length);
+        commandList.copyBufferSubData(this.buffer, dst, region.offset, writeOffset, region.length);
+
+        synchronized (this) {
+            region.fenceSequence = this.nextFenceSequence;
+        }
+
+        this.hasPendingCopies = true;
+    }
+
+    /**
+     * Inserts a fence after all the copies which have been made since the last call.
+     */
+    public void flush(CommandList commandList) {
+        if (!this.hasPendingCopies) {
+            return;
+        }
+
+        this.fences.enqueue(commandList.createFence());
+        this.fenceSequences.enqueue(this.nextFenceSequence++);
+
+        this.hasPendingCopies = false;
+    }
+
+    /**
+     * Reclaims the memory of any regions which have been released, and are no longer being read by the GPU.
+     */
+    public void reclaim() {
+        while (!this.fences.isEmpty()) {
+            var fence = this.fences.first();
+
+            if (!fence.isCompleted()) {
+                break;
+            }
+
+            fence.delete();
+
+            this.fences.dequeue();
+            this.completedFenceSequence = this.fenceSequences.dequeueLong();
+        }
+
+        synchronized (this) {
+            while (!this.regions.isEmpty()) {
+                var region = this.regions.getFirst();
+
+                if (!region.released || region.fenceSequence > this.completedFenceSequence) {
+                    break;
+                }
+
+                this.regions.removeFirst();
+                this.used -= region.length;
+            }
+
+            if (this.regions.isEmpty()) {
+                this.head = 0;
+            }
+        }
+    }
+
+    public void delete(CommandList commandList) {
+        while (!this.fences.isEmpty()) {
+            this.fences.dequeue()
+                    .delete();
+        }
+
+        this.fenceSequences.clear();
+
+        commandList.unmap(this.mapping);
+        commandList.deleteBuffer(this.buffer);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Ring (%s/%s MiB)".formatted(MathUtil.toMib(this.capacity - this.used), MathUtil.toMib(this.capacity));
+    }
+
+    /**
+     * A region of the ring which is owned by whoever allocated it, until it is released.
+     */
+    public static final class Region {
+        private final StagingRing ring;
+
+        private final int offset;
+        private final int length;
+
+        // Guarded by the ring
+        private boolean released;
+        private long fenceSequence;
+
+        private Region(StagingRing ring, int offset, int length) {
+            this.ring = ring;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Returns the mapped memory of this region, which can only be written to.
+         */
+        public ByteBuffer getMemory() {
+            return MemoryUtil.memSlice(this.ring.mapping.getMemoryBuffer(), this.offset, this.length);
+        }
+
+        public StagingRing getRing() {
+            return this.ring;
+        }
+
+        public int getLength() {
+            return this.length;
+        }
+
+        /**
+         * Releases this region. Its memory will be reclaimed once any copies from it have completed.
+         */
+        public void release() {
+            this.ring.release(this);
+        }
+    }
+}
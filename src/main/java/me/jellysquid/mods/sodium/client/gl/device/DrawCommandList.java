@@ -1,10 +1,17 @@
 package me.jellysquid.mods.sodium.client.gl.device;
 
+import me.jellysquid.mods.sodium.client.gl.buffer.GlBuffer;
 import me.jellysquid.mods.sodium.client.gl.tessellation.GlIndexType;
 
 public interface DrawCommandList extends AutoCloseable {
     void multiDrawElementsBaseVertex(MultiDrawBatch batch, GlIndexType indexType);
 
+    /**
+     * Draws the commands which are stored in the given buffer, in the layout described by {@link IndirectDrawBatch}.
+     * This can only be used if the device supports indirect drawing.
+     */
+    void multiDrawElementsIndirect(GlBuffer commandBuffer, long offset, int commandCount, GlIndexType indexType);
+
     void endTessellating();
 
     void flush();
@@ -0,0 +1,126 @@
+package me.jellysquid.mods.sodium.client.gl.device;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides a growable queue for building a draw-command list usable with
+ * {@link org.lwjgl.opengl.GL43C#glMultiDrawElementsIndirect(int, int, long, int, int)}, along with a table of instance
+ * data. Each command draws a single instance, and its base instance selects which entry of the table it uses, so that
+ * data which would otherwise be set through a uniform can change between the commands of one draw call.
+ *
+ * Building the batch only writes to memory, so it can be done without a graphics context.
+ */
+public final class IndirectDrawBatch {
+    // struct { uint count; uint instanceCount; uint firstIndex; int baseVertex; uint baseInstance; }
+    public static final int COMMAND_STRIDE = 5 * Integer.BYTES;
+
+    private final int instanceStride;
+
+    private long pCommands;
+    private int commandCapacity;
+    private int commandCount;
+
+    private long pInstances;
+    private int instanceCapacity;
+    private int instanceCount;
+
+    private int maxElementCount;
+
+    public IndirectDrawBatch(int initialCapacity, int instanceStride) {
+        this.instanceStride = instanceStride;
+
+        this.pCommands = MemoryUtil.nmemAlloc((long) initialCapacity * COMMAND_STRIDE);
+        this.commandCapacity = initialCapacity;
+
+        this.pInstances = MemoryUtil.nmemAlloc((long) initialCapacity * instanceStride);
+        this.instanceCapacity = initialCapacity;
+    }
+
+    /**
+     * Adds an entry to the instance table, which is used by all the commands that are added after it.
+     *
+     * @return The address of the entry, which the caller must write the instance data into
+     */
+    public long addInstance() {
+        if (this.instanceCount >= this.instanceCapacity) {
+            this.instanceCapacity *= 2;
+            this.pInstances = MemoryUtil.nmemRealloc(this.pInstances,
+                    (long) this.instanceCapacity * this.instanceStride);
+        }
+
+        return this.pInstances + ((long) this.instanceCount++ * this.instanceStride);
+    }
+
+    /**
+     * Adds a command which draws the given number of elements from the start of the index buffer, using the most
+     * recently added instance.
+     */
+    public void addCommand(int elementCount, int baseVertex) {
+        if (this.instanceCount == 0) {
+            throw new IllegalStateException("No instance has been added");
+        }
+
+        if (this.commandCount >= this.commandCapacity) {
+            this.commandCapacity *= 2;
+            this.pCommands = MemoryUtil.nmemRealloc(this.pCommands, (long) this.commandCapacity * COMMAND_STRIDE);
+        }
+
+        long pCommand = this.pCommands + ((long) this.commandCount++ * COMMAND_STRIDE);
+
+        MemoryUtil.memPutInt(pCommand +  0, elementCount);
+        MemoryUtil.memPutInt(pCommand +  4, 1);
+        MemoryUtil.memPutInt(pCommand +  8, 0);
+        MemoryUtil.memPutInt(pCommand + 12, baseVertex);
+        MemoryUtil.memPutInt(pCommand + 16, this.instanceCount - 1);
+
+        this.maxElementCount = Math.max(this.maxElementCount, elementCount);
+    }
+
+    public int getCommandCount() {
+        return this.commandCount;
+    }
+
+    public int getInstanceCount() {
+        return this.instanceCount;
+    }
+
+    public long getCommandPointer(int index) {
+        return this.pCommands + ((long) index * COMMAND_STRIDE);
+    }
+
+    public long getInstancePointer(int index) {
+        return this.pInstances + ((long) index * this.instanceStride);
+    }
+
+    public ByteBuffer getCommandBuffer() {
+        return MemoryUtil.memByteBuffer(this.pCommands, this.commandCount * COMMAND_STRIDE);
+    }
+
+    public ByteBuffer getInstanceBuffer() {
+        return MemoryUtil.memByteBuffer(this.pInstances, this.instanceCount * this.instanceStride);
+    }
+
+    /**
+     * Returns the largest number of elements which any command draws, which the index buffer must be able to hold.
+     */
+    public int getIndexBufferSize() {
+        return this.maxElementCount;
+    }
+
+    public boolean isEmpty() {
+        return this.commandCount <= 0;
+    }
+
+    public void clear() {
+        this.commandCount = 0;
+        this.instanceCount = 0;
+        this.maxElementCount = 0;
+    }
+
+    public void delete() {
+        MemoryUtil.nmemFree(this.pCommands);
+        MemoryUtil.nmemFree(this.pInstances);
+    }
+}
@@ -4,12 +4,18 @@ import me.jellysquid.mods.sodium.client.gl.device.RenderDevice;
 
 public class DeviceFunctions {
     private final BufferStorageFunctions bufferStorageFunctions;
+    private final IndirectDrawFunctions indirectDrawFunctions;
 
     public DeviceFunctions(RenderDevice device) {
         this.bufferStorageFunctions = BufferStorageFunctions.pickBest(device);
+        this.indirectDrawFunctions = IndirectDrawFunctions.pickBest(device);
     }
 
     public BufferStorageFunctions getBufferStorageFunctions() {
         return this.bufferStorageFunctions;
     }
+
+    public IndirectDrawFunctions getIndirectDrawFunctions() {
+        return this.indirectDrawFunctions;
+    }
 }
@@ -0,0 +1,44 @@
+package me.jellysquid.mods.sodium.client.gl.functions;
+
+import me.jellysquid.mods.sodium.client.gl.device.RenderDevice;
+import org.lwjgl.opengl.ARBMultiDrawIndirect;
+import org.lwjgl.opengl.GL43C;
+import org.lwjgl.opengl.GLCapabilities;
+
+public enum IndirectDrawFunctions {
+    NONE {
+        @Override
+        public void multiDrawElementsIndirect(int mode, int type, long offset, int drawCount, int stride) {
+            throw new UnsupportedOperationException();
+        }
+    },
+    CORE {
+        @Override
+        public void multiDrawElementsIndirect(int mode, int type, long offset, int drawCount, int stride) {
+            GL43C.glMultiDrawElementsIndirect(mode, type, offset, drawCount, stride);
+        }
+    },
+    ARB {
+        @Override
+        public void multiDrawElementsIndirect(int mode, int type, long offset, int drawCount, int stride) {
+            ARBMultiDrawIndirect.glMultiDrawElementsIndirect(mode, type, offset, drawCount, stride);
+        }
+    };
+
+    public static IndirectDrawFunctions pickBest(RenderDevice device) {
+        GLCapabilities capabilities = device.getCapabilities();
+
+        if (capabilities.OpenGL43) {
+            return CORE;
+        } else if (capabilities.OpenGL33 && capabilities.GL_ARB_multi_draw_indirect &&
+                capabilities.GL_ARB_draw_indirect && capabilities.GL_ARB_base_instance) {
+            // The base instance of each command and instanced attributes are needed to select the data for each draw
+            return ARB;
+        } else {
+            return NONE;
+        }
+    }
+
+
+    public abstract void multiDrawElementsIndirect(int mode, int type, long offset, int drawCount, int stride);
+}
@@ -43,13 +43,19 @@ public class SodiumGameOptions {
         public boolean animateOnlyVisibleTextures = true;
         public boolean useEntityCulling = true;
         public boolean useFogOcclusion = true;
+        public boolean useParallelOcclusionCulling = false;
+        public boolean useMeshCache = false;
         public boolean useBlockFaceCulling = true;
         public boolean useNoErrorGLContext = true;
     }
 
     public static class AdvancedSettings {
         public boolean enableMemoryTracing = false;
+        public boolean enableFrameMetricsLog = false;
         public boolean useAdvancedStagingBuffers = true;
+        public boolean useSharedGeometryPool = false;
+        public boolean useIndirectDrawing = false;
+        public boolean useQuadMerging = false;
 
         public int cpuRenderAheadLimit = 3;
     }
@@ -144,6 +144,8 @@ public class SodiumWorldRenderer {
                              @Deprecated(forRemoval = true) int frame,
                              boolean spectator,
                              boolean updateChunksImmediately) {
+        this.renderSectionManager.recordFrameMetrics();
+
         NativeBuffer.reclaim(false);
 
         this.processChunkEvents();
@@ -426,10 +428,30 @@ public class SodiumWorldRenderer {
     }
 
     /**
-     * Schedules chunk rebuilds for all chunks in the specified block region.
+     * Schedules chunk rebuilds for all chunks in the specified block region. The region is extended by one block on
+     * every side, since the faces, ambient occlusion and smooth lighting of the neighboring blocks depend on the blocks
+     * within it.
      */
     public void scheduleRebuildForBlockArea(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, boolean important) {
-        this.scheduleRebuildForChunks(minX >> 4, minY >> 4, minZ >> 4, maxX >> 4, maxY >> 4, maxZ >> 4, important);
+        minX--;
+        minY--;
+        minZ--;
+
+        maxX++;
+        maxY++;
+        maxZ++;
+
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkY = minY >> 4; chunkY <= maxY >> 4; chunkY++) {
+                // The range of block layers within this section which are covered by the area
+                int minLayer = Math.max(minY - (chunkY << 4), 0);
+                int maxLayer = Math.min(maxY - (chunkY << 4), 15);
+
+                for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                    this.renderSectionManager.scheduleRebuildForBlocks(chunkX, chunkY, chunkZ, minLayer, maxLayer, important);
+                }
+            }
+        }
     }
 
     /**
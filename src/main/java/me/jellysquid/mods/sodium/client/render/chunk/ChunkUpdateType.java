@@ -1,14 +1,20 @@
 package me.jellysquid.mods.sodium.client.render.chunk;
 
 public enum ChunkUpdateType {
-    INITIAL_BUILD(128),
-    REBUILD(Integer.MAX_VALUE),
-    IMPORTANT_REBUILD(Integer.MAX_VALUE);
+    INITIAL_BUILD(128, 2),
+    REBUILD(Integer.MAX_VALUE, 1),
+    IMPORTANT_REBUILD(Integer.MAX_VALUE, 0),
+
+    // Sorting the translucent quads of an already built section. This is never used as a section's pending update,
+    // and runs after every kind of rebuild so that it can't hold up meshing.
+    SORT(0, 3);
 
     private final int maximumQueueSize;
+    private final int priority;
 
-    ChunkUpdateType(int maximumQueueSize) {
+    ChunkUpdateType(int maximumQueueSize, int priority) {
         this.maximumQueueSize = maximumQueueSize;
+        this.priority = priority;
     }
 
     public static boolean canPromote(ChunkUpdateType prev, ChunkUpdateType next) {
@@ -18,4 +24,13 @@ public enum ChunkUpdateType {
     public int getMaximumQueueSize() {
         return this.maximumQueueSize;
     }
+
+    /**
+     * Returns the priority class of this update type when it is scheduled on the chunk builder. Updates with a lower
+     * value are executed first, so that changes to already visible terrain are not held up by the initial meshing of
+     * new terrain.
+     */
+    public int getPriority() {
+        return this.priority;
+    }
 }
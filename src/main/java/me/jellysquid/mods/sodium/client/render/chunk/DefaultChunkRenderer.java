@@ -1,11 +1,20 @@
 package me.jellysquid.mods.sodium.client.render.chunk;
 
 import me.jellysquid.mods.sodium.client.SodiumClientMod;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
+import me.jellysquid.mods.sodium.client.gl.attribute.GlVertexAttribute;
 import me.jellysquid.mods.sodium.client.gl.attribute.GlVertexAttributeBinding;
+import me.jellysquid.mods.sodium.client.gl.attribute.GlVertexAttributeFormat;
+import me.jellysquid.mods.sodium.client.gl.buffer.GlBuffer;
+import me.jellysquid.mods.sodium.client.gl.buffer.GlBufferUsage;
+import me.jellysquid.mods.sodium.client.gl.buffer.GlMutableBuffer;
 import me.jellysquid.mods.sodium.client.gl.device.CommandList;
 import me.jellysquid.mods.sodium.client.gl.device.DrawCommandList;
+import me.jellysquid.mods.sodium.client.gl.device.IndirectDrawBatch;
 import me.jellysquid.mods.sodium.client.gl.device.MultiDrawBatch;
 import me.jellysquid.mods.sodium.client.gl.device.RenderDevice;
+import me.jellysquid.mods.sodium.client.gl.functions.IndirectDrawFunctions;
 import me.jellysquid.mods.sodium.client.gl.tessellation.GlIndexType;
 import me.jellysquid.mods.sodium.client.gl.tessellation.GlPrimitiveType;
 import me.jellysquid.mods.sodium.client.gl.tessellation.GlTessellation;
@@ -22,22 +31,62 @@ import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkMeshAttribute;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexType;
 import me.jellysquid.mods.sodium.client.render.viewport.CameraTransform;
-import me.jellysquid.mods.sodium.client.util.BitwiseMath;
+import me.jellysquid.mods.sodium.client.util.iterator.ByteIterator;
 import net.minecraft.util.math.ChunkSectionPos;
+import org.jetbrains.annotations.Nullable;
 import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.Pointer;
 
 import java.util.Iterator;
 
 public class DefaultChunkRenderer extends ShaderChunkRenderer {
     private final MultiDrawBatch batch;
+    private final MultiDrawBatch sortedBatch;
 
     private final SharedQuadIndexBuffer sharedIndexBuffer;
 
+    private final RegionCommandBufferBuilder commandBuilder = new RegionCommandBufferBuilder();
+
+    // The tessellation which is currently bound, which is kept bound between regions that share it
+    private GlTessellation activeTessellation;
+    private DrawCommandList activeDrawCommandList;
+
+    // The resources used for indirect drawing, which are null if it isn't enabled or supported
+    private final @Nullable IndirectDrawBatch indirectBatch;
+    private final @Nullable GlMutableBuffer indirectCommandBuffer;
+    private final @Nullable GlMutableBuffer indirectInstanceBuffer;
+
+    // The tessellation used by each range of commands in the indirect batch, and the first command of each range
+    private final ReferenceArrayList<GlTessellation> indirectTessellations = new ReferenceArrayList<>();
+    private final IntArrayList indirectRangeStarts = new IntArrayList();
+
     public DefaultChunkRenderer(RenderDevice device, ChunkVertexType vertexType) {
         super(device, vertexType);
 
+        CommandList commandList = device.createCommandList();
+
         this.batch = new MultiDrawBatch((ModelQuadFacing.COUNT * RenderRegion.REGION_SIZE) + 1);
-        this.sharedIndexBuffer = new SharedQuadIndexBuffer(device.createCommandList(), SharedQuadIndexBuffer.IndexType.INTEGER);
+        this.sortedBatch = new MultiDrawBatch(RenderRegion.REGION_SIZE + 1);
+        this.sharedIndexBuffer = new SharedQuadIndexBuffer(commandList, SharedQuadIndexBuffer.IndexType.INTEGER);
+
+        if (useIndirectDrawing(device)) {
+            this.indirectBatch = new IndirectDrawBatch(ModelQuadFacing.COUNT * RenderRegion.REGION_SIZE,
+                    INSTANCE_STRIDE);
+            this.indirectCommandBuffer = commandList.createMutableBuffer();
+            this.indirectInstanceBuffer = commandList.createMutableBuffer();
+        } else {
+            this.indirectBatch = null;
+            this.indirectCommandBuffer = null;
+            this.indirectInstanceBuffer = null;
+        }
+    }
+
+    // Each instance of the indirect batch holds the offset of a region, as three floats
+    private static final int INSTANCE_STRIDE = 3 * Float.BYTES;
+
+    private static boolean useIndirectDrawing(RenderDevice device) {
+        return SodiumClientMod.options().advanced.useIndirectDrawing &&
+                device.getDeviceFunctions().getIndirectDrawFunctions() != IndirectDrawFunctions.NONE;
     }
 
     @Override
@@ -46,7 +95,10 @@ public class DefaultChunkRenderer extends ShaderChunkRenderer {
                        ChunkRenderListIterable renderLists,
                        TerrainRenderPass renderPass,
                        CameraTransform camera) {
-        super.begin(renderPass);
+        // Sorted passes draw from the index buffer of each region, so they can't be drawn indirectly
+        boolean indirect = this.indirectBatch != null && !renderPass.isSorted();
+
+        super.begin(renderPass, indirect);
 
         boolean useBlockFaceCulling = SodiumClientMod.options().performance.useBlockFaceCulling;
 
@@ -54,6 +106,13 @@ public class DefaultChunkRenderer extends ShaderChunkRenderer {
         shader.setProjectionMatrix(matrices.projection());
         shader.setModelViewMatrix(matrices.modelView());
 
+        if (indirect) {
+            this.renderIndirect(commandList, renderLists, renderPass, camera, useBlockFaceCulling);
+
+            super.end(renderPass);
+            return;
+        }
+
         Iterator<ChunkRenderList> iterator = renderLists.iterator(renderPass.isReverseOrder());
 
         while (iterator.hasNext()) {
@@ -66,7 +125,12 @@ public class DefaultChunkRenderer extends ShaderChunkRenderer {
                 continue;
             }
 
-            fillCommandBuffer(this.batch, region, storage, renderList, camera, renderPass, useBlockFaceCulling);
+            if (renderPass.isSorted()) {
+                this.renderSorted(commandList, shader, region, storage, renderList, camera, renderPass);
+                continue;
+            }
+
+            this.fillCommandBuffer(this.batch, region, storage, renderList, camera, renderPass, useBlockFaceCulling);
 
             if (this.batch.isEmpty()) {
                 continue;
@@ -77,124 +141,205 @@ public class DefaultChunkRenderer extends ShaderChunkRenderer {
             var tessellation = this.prepareTessellation(commandList, region);
 
             setModelMatrixUniforms(shader, region, camera);
-            executeDrawBatch(commandList, tessellation, this.batch);
+            this.executeDrawBatch(commandList, tessellation, this.batch);
         }
 
+        this.endDrawing();
+
         super.end(renderPass);
     }
 
-    private static void fillCommandBuffer(MultiDrawBatch batch,
+    /**
+     * Writes the draw commands of every region into a single indirect batch, and then draws them with as few calls as
+     * possible. Regions which share a tessellation are drawn with one call, so when the geometry of every region is in
+     * the shared pool, the whole pass is drawn at once.
+     */
+    private void renderIndirect(CommandList commandList,
+                                ChunkRenderListIterable renderLists,
+                                TerrainRenderPass renderPass,
+                                CameraTransform camera,
+                                boolean useBlockFaceCulling) {
+        var batch = this.indirectBatch;
+        batch.clear();
+
+        this.indirectTessellations.clear();
+        this.indirectRangeStarts.clear();
+
+        Iterator<ChunkRenderList> iterator = renderLists.iterator(renderPass.isReverseOrder());
+
+        while (iterator.hasNext()) {
+            ChunkRenderList renderList = iterator.next();
+
+            var region = renderList.getRegion();
+            var storage = region.getStorage(renderPass);
+
+            if (storage == null) {
+                continue;
+            }
+
+            int firstCommand = batch.getCommandCount();
+
+            fillIndirectCommandBuffer(batch, this.commandBuilder, region, storage, renderList, camera, renderPass,
+                    useBlockFaceCulling);
+
+            if (batch.getCommandCount() == firstCommand) {
+                continue;
+            }
+
+            var tessellation = this.prepareTessellation(commandList, region);
+
+            if (this.indirectTessellations.isEmpty() || this.indirectTessellations.top() != tessellation) {
+                this.indirectTessellations.push(tessellation);
+                this.indirectRangeStarts.add(firstCommand);
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        this.sharedIndexBuffer.ensureCapacity(commandList, batch.getIndexBufferSize());
+
+        commandList.uploadData(this.indirectCommandBuffer, batch.getCommandBuffer(), GlBufferUsage.STREAM_DRAW);
+        commandList.uploadData(this.indirectInstanceBuffer, batch.getInstanceBuffer(), GlBufferUsage.STREAM_DRAW);
+
+        for (int i = 0; i < this.indirectTessellations.size(); i++) {
+            int start = this.indirectRangeStarts.getInt(i);
+            int end = i + 1 < this.indirectRangeStarts.size() ?
+                    this.indirectRangeStarts.getInt(i + 1) : batch.getCommandCount();
+
+            try (DrawCommandList drawCommandList = commandList.beginTessellating(this.indirectTessellations.get(i))) {
+                drawCommandList.multiDrawElementsIndirect(this.indirectCommandBuffer,
+                        (long) start * IndirectDrawBatch.COMMAND_STRIDE, end - start, GlIndexType.UNSIGNED_INT);
+            }
+        }
+    }
+
+    /**
+     * Writes the draw commands for the visible faces of a region's sections into the indirect batch, along with the
+     * offset of the region from the camera. This doesn't need a graphics context.
+     */
+    static void fillIndirectCommandBuffer(IndirectDrawBatch batch,
+                                          RegionCommandBufferBuilder builder,
                                           RenderRegion renderRegion,
                                           SectionRenderDataStorage renderDataStorage,
                                           ChunkRenderList renderList,
                                           CameraTransform camera,
                                           TerrainRenderPass pass,
                                           boolean useBlockFaceCulling) {
-        batch.clear();
-
         var iterator = renderList.sectionsWithGeometryIterator(pass.isReverseOrder());
 
         if (iterator == null) {
             return;
         }
 
-        int centerChunkX = ChunkSectionPos.getSectionCoord(camera.intX);
-        int centerChunkY = ChunkSectionPos.getSectionCoord(camera.intY);
-        int centerChunkZ = ChunkSectionPos.getSectionCoord(camera.intZ);
+        long pInstance = batch.addInstance();
 
-        int originX = renderRegion.getChunkX();
-        int originY = renderRegion.getChunkY();
-        int originZ = renderRegion.getChunkZ();
+        float x = getCameraTranslation(renderRegion.getOriginX(), camera.intX, camera.fracX);
+        float y = getCameraTranslation(renderRegion.getOriginY(), camera.intY, camera.fracY);
+        float z = getCameraTranslation(renderRegion.getOriginZ(), camera.intZ, camera.fracZ);
 
-        while (iterator.hasNext()) {
-            int sectionIndex = iterator.nextByteAsInt();
+        MemoryUtil.memPutFloat(pInstance + 0, x);
+        MemoryUtil.memPutFloat(pInstance + 4, y);
+        MemoryUtil.memPutFloat(pInstance + 8, z);
 
-            int chunkX = originX + LocalSectionIndex.unpackX(sectionIndex);
-            int chunkY = originY + LocalSectionIndex.unpackY(sectionIndex);
-            int chunkZ = originZ + LocalSectionIndex.unpackZ(sectionIndex);
+        prepareCommandBuilder(builder, renderRegion, renderDataStorage, iterator, camera, useBlockFaceCulling);
+        builder.writeCommands(batch);
+    }
 
-            var pMeshData = renderDataStorage.getDataPointer(sectionIndex);
+    /**
+     * Draws each section with its own sorted index buffer. Since the quads of every facing are sorted together, they
+     * are drawn with a single command, and block face culling can't be used.
+     */
+    private void renderSorted(CommandList commandList,
+                              ChunkShaderInterface shader,
+                              RenderRegion region,
+                              SectionRenderDataStorage storage,
+                              ChunkRenderList renderList,
+                              CameraTransform camera,
+                              TerrainRenderPass renderPass) {
+        fillSortedCommandBuffer(this.sortedBatch, storage, renderList, renderPass);
+
+        if (this.sortedBatch.isEmpty()) {
+            return;
+        }
 
-            int slices;
+        var tessellation = this.prepareSortedTessellation(commandList, region);
 
-            if (useBlockFaceCulling) {
-                slices = getVisibleFaces(centerChunkX, centerChunkY, centerChunkZ,
-                        chunkX, chunkY, chunkZ);
-            } else {
-                slices = ModelQuadFacing.ALL;
-            }
+        setModelMatrixUniforms(shader, region, camera);
+        this.executeDrawBatch(commandList, tessellation, this.sortedBatch);
+    }
 
-            slices &= SectionRenderDataUnsafe.getSliceMask(pMeshData);
+    private static void fillSortedCommandBuffer(MultiDrawBatch batch,
+                                                SectionRenderDataStorage renderDataStorage,
+                                                ChunkRenderList renderList,
+                                                TerrainRenderPass pass) {
+        batch.clear();
 
-            if (slices != 0) {
-                addDrawCommands(batch, pMeshData, slices);
-            }
+        var iterator = renderList.sectionsWithGeometryIterator(pass.isReverseOrder());
+
+        if (iterator == null) {
+            return;
         }
-    }
 
-    @SuppressWarnings("IntegerMultiplicationImplicitCastToLong")
-    private static void addDrawCommands(MultiDrawBatch batch, long pMeshData, int mask) {
-        final var pBaseVertex = batch.pBaseVertex;
-        final var pElementCount = batch.pElementCount;
+        int size = 0;
 
-        int size = batch.size;
+        while (iterator.hasNext()) {
+            var pMeshData = renderDataStorage.getDataPointer(iterator.nextByteAsInt());
+            var indexCount = SectionRenderDataUnsafe.getIndexCount(pMeshData);
+
+            if (indexCount == 0) {
+                continue;
+            }
 
-        for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
-            MemoryUtil.memPutInt(pBaseVertex + (size << 2), SectionRenderDataUnsafe.getVertexOffset(pMeshData, facing));
-            MemoryUtil.memPutInt(pElementCount + (size << 2), SectionRenderDataUnsafe.getElementCount(pMeshData, facing));
+            MemoryUtil.memPutAddress(batch.pElementPointer + ((long) size * Pointer.POINTER_SIZE),
+                    (long) SectionRenderDataUnsafe.getIndexOffset(pMeshData) * Integer.BYTES);
+            MemoryUtil.memPutInt(batch.pBaseVertex + ((long) size << 2),
+                    SectionRenderDataUnsafe.getVertexOffset(pMeshData, 0));
+            MemoryUtil.memPutInt(batch.pElementCount + ((long) size << 2), indexCount);
 
-            size += (mask >> facing) & 1;
+            size++;
         }
 
         batch.size = size;
     }
 
-    private static final int MODEL_UNASSIGNED = ModelQuadFacing.UNASSIGNED.ordinal();
-    private static final int MODEL_POS_X      = ModelQuadFacing.POS_X.ordinal();
-    private static final int MODEL_NEG_X      = ModelQuadFacing.NEG_X.ordinal();
-    private static final int MODEL_POS_Y      = ModelQuadFacing.POS_Y.ordinal();
-    private static final int MODEL_NEG_Y      = ModelQuadFacing.NEG_Y.ordinal();
-    private static final int MODEL_POS_Z      = ModelQuadFacing.POS_Z.ordinal();
-    private static final int MODEL_NEG_Z      = ModelQuadFacing.NEG_Z.ordinal();
-
-    private static int getVisibleFaces(int x1, int y1, int z1, int x2, int y2, int z2) {
-        // This is carefully written so that we can keep everything branch-less.
-        //
-        // Normally, this would be a ridiculous way to handle the problem. But the Hotspot VM's
-        // heuristic for generating SETcc/CMOV instructions is broken, and it will always create a
-        // branch even when a trivial ternary is encountered.
-        //
-        // For example, the following will never be transformed into a SETcc:
-        //   (a > b) ? 1 : 0
-        //
-        // So we have to instead rely on sign-bit extension and masking (which generates a ton
-        // of unnecessary instructions) to get this to be branch-less.
-        //
-        // To do this, we can transform the previous expression into the following.
-        //   (b - a) >> 31
-        //
-        // This works because if (a > b) then (b - a) will always create a negative number. We then shift the sign bit
-        // into the least significant bit's position (which also discards any bits following the sign bit) to get the
-        // output we are looking for.
-        //
-        // If you look at the output which LLVM produces for a series of ternaries, you will instantly become distraught,
-        // because it manages to a) correctly evaluate the cost of instructions, and b) go so far
-        // as to actually produce vector code.  (https://godbolt.org/z/GaaEx39T9)
-
-        int planes = 0;
-
-        planes |= BitwiseMath.lessThan(x2 - 1, x1) << MODEL_POS_X;
-        planes |= BitwiseMath.lessThan(y2 - 1, y1) << MODEL_POS_Y;
-        planes |= BitwiseMath.lessThan(z2 - 1, z1) << MODEL_POS_Z;
-
-        planes |= BitwiseMath.greaterThan(x2 + 1, x1) << MODEL_NEG_X;
-        planes |= BitwiseMath.greaterThan(y2 + 1, y1) << MODEL_NEG_Y;
-        planes |= BitwiseMath.greaterThan(z2 + 1, z1) << MODEL_NEG_Z;
-
-        // the "unassigned" plane is always front-facing, since we can't check it
-        planes |= (1 << MODEL_UNASSIGNED);
-
-        return planes;
+    private void fillCommandBuffer(MultiDrawBatch batch,
+                                   RenderRegion renderRegion,
+                                   SectionRenderDataStorage renderDataStorage,
+                                   ChunkRenderList renderList,
+                                   CameraTransform camera,
+                                   TerrainRenderPass pass,
+                                   boolean useBlockFaceCulling) {
+        batch.clear();
+
+        var iterator = renderList.sectionsWithGeometryIterator(pass.isReverseOrder());
+
+        if (iterator == null) {
+            return;
+        }
+
+        prepareCommandBuilder(this.commandBuilder, renderRegion, renderDataStorage, iterator, camera,
+                useBlockFaceCulling);
+
+        this.commandBuilder.writeCommands(batch);
+    }
+
+    private static void prepareCommandBuilder(RegionCommandBufferBuilder builder,
+                                              RenderRegion renderRegion,
+                                              SectionRenderDataStorage renderDataStorage,
+                                              ByteIterator sections,
+                                              CameraTransform camera,
+                                              boolean useBlockFaceCulling) {
+        int centerChunkX = ChunkSectionPos.getSectionCoord(camera.intX);
+        int centerChunkY = ChunkSectionPos.getSectionCoord(camera.intY);
+        int centerChunkZ = ChunkSectionPos.getSectionCoord(camera.intZ);
+
+        builder.prepare(renderDataStorage, sections,
+                renderRegion.getChunkX() - centerChunkX,
+                renderRegion.getChunkY() - centerChunkY,
+                renderRegion.getChunkZ() - centerChunkZ,
+                useBlockFaceCulling);
     }
 
     private static void setModelMatrixUniforms(ChunkShaderInterface shader, RenderRegion region, CameraTransform camera) {
@@ -220,26 +365,80 @@ public class DefaultChunkRenderer extends ShaderChunkRenderer {
         return tessellation;
     }
 
+    private GlTessellation prepareSortedTessellation(CommandList commandList, RenderRegion region) {
+        var resources = region.getResources();
+        var tessellation = resources.getSortedTessellation();
+
+        if (tessellation == null) {
+            resources.updateSortedTessellation(commandList, tessellation = this.createRegionTessellation(commandList,
+                    resources, resources.getIndexArena().getBufferObject()));
+        }
+
+        return tessellation;
+    }
+
     private GlTessellation createRegionTessellation(CommandList commandList, RenderRegion.DeviceResources resources) {
+        if (this.indirectInstanceBuffer != null) {
+            return this.createIndirectRegionTessellation(commandList, resources);
+        }
+
+        return this.createRegionTessellation(commandList, resources, this.sharedIndexBuffer.getBufferObject());
+    }
+
+    private GlTessellation createIndirectRegionTessellation(CommandList commandList,
+                                                            RenderRegion.DeviceResources resources) {
+        var regionOffset = new GlVertexAttribute(GlVertexAttributeFormat.FLOAT, 3, false, 0, INSTANCE_STRIDE, false);
+
         return commandList.createTessellation(GlPrimitiveType.TRIANGLES, new TessellationBinding[] {
-                TessellationBinding.forVertexBuffer(resources.getVertexBuffer(), new GlVertexAttributeBinding[] {
-                        new GlVertexAttributeBinding(ChunkShaderBindingPoints.ATTRIBUTE_POSITION_ID,
-                                this.vertexFormat.getAttribute(ChunkMeshAttribute.POSITION_MATERIAL_MESH)),
-                        new GlVertexAttributeBinding(ChunkShaderBindingPoints.ATTRIBUTE_COLOR,
-                                this.vertexFormat.getAttribute(ChunkMeshAttribute.COLOR_SHADE)),
-                        new GlVertexAttributeBinding(ChunkShaderBindingPoints.ATTRIBUTE_BLOCK_TEXTURE,
-                                this.vertexFormat.getAttribute(ChunkMeshAttribute.BLOCK_TEXTURE)),
-                        new GlVertexAttributeBinding(ChunkShaderBindingPoints.ATTRIBUTE_LIGHT_TEXTURE,
-                                this.vertexFormat.getAttribute(ChunkMeshAttribute.LIGHT_TEXTURE))
+                this.createVertexBinding(resources),
+                TessellationBinding.forVertexBuffer(this.indirectInstanceBuffer, new GlVertexAttributeBinding[] {
+                        new GlVertexAttributeBinding(ChunkShaderBindingPoints.ATTRIBUTE_REGION_OFFSET, regionOffset, 1)
                 }),
                 TessellationBinding.forElementBuffer(this.sharedIndexBuffer.getBufferObject())
         });
     }
 
-    private static void executeDrawBatch(CommandList commandList, GlTessellation tessellation, MultiDrawBatch batch) {
-        try (DrawCommandList drawCommandList = commandList.beginTessellating(tessellation)) {
-            drawCommandList.multiDrawElementsBaseVertex(batch, GlIndexType.UNSIGNED_INT);
+    private GlTessellation createRegionTessellation(CommandList commandList, RenderRegion.DeviceResources resources,
+                                                    GlBuffer indexBuffer) {
+        return commandList.createTessellation(GlPrimitiveType.TRIANGLES, new TessellationBinding[] {
+                this.createVertexBinding(resources),
+                TessellationBinding.forElementBuffer(indexBuffer)
+        });
+    }
+
+    private TessellationBinding createVertexBinding(RenderRegion.DeviceResources resources) {
+        return TessellationBinding.forVertexBuffer(resources.getVertexBuffer(), new GlVertexAttributeBinding[] {
+                new GlVertexAttributeBinding(ChunkShaderBindingPoints.ATTRIBUTE_POSITION_ID,
+                        this.vertexFormat.getAttribute(ChunkMeshAttribute.POSITION_MATERIAL_MESH)),
+                new GlVertexAttributeBinding(ChunkShaderBindingPoints.ATTRIBUTE_COLOR,
+                        this.vertexFormat.getAttribute(ChunkMeshAttribute.COLOR_SHADE)),
+                new GlVertexAttributeBinding(ChunkShaderBindingPoints.ATTRIBUTE_BLOCK_TEXTURE,
+                        this.vertexFormat.getAttribute(ChunkMeshAttribute.BLOCK_TEXTURE)),
+                new GlVertexAttributeBinding(ChunkShaderBindingPoints.ATTRIBUTE_LIGHT_TEXTURE,
+                        this.vertexFormat.getAttribute(ChunkMeshAttribute.LIGHT_TEXTURE))
+        });
+    }
+
+    private void executeDrawBatch(CommandList commandList, GlTessellation tessellation, MultiDrawBatch batch) {
+        // When the geometry of regions is held in the shared pool, they all use the same tessellation, so it only needs
+        // to be bound once for every region
+        if (this.activeTessellation != tessellation) {
+            this.endDrawing();
+
+            this.activeDrawCommandList = commandList.beginTessellating(tessellation);
+            this.activeTessellation = tessellation;
         }
+
+        this.activeDrawCommandList.multiDrawElementsBaseVertex(batch, GlIndexType.UNSIGNED_INT);
+    }
+
+    private void endDrawing() {
+        if (this.activeDrawCommandList != null) {
+            this.activeDrawCommandList.close();
+            this.activeDrawCommandList = null;
+        }
+
+        this.activeTessellation = null;
     }
 
     @Override
@@ -248,5 +447,12 @@ public class DefaultChunkRenderer extends ShaderChunkRenderer {
 
         this.sharedIndexBuffer.delete(commandList);
         this.batch.delete();
+        this.sortedBatch.delete();
+
+        if (this.indirectBatch != null) {
+            this.indirectBatch.delete();
+            commandList.deleteBuffer(this.indirectCommandBuffer);
+            commandList.deleteBuffer(this.indirectInstanceBuffer);
+        }
     }
 }
@@ -0,0 +1,162 @@
+package me.jellysquid.mods.sodium.client.render.chunk;
+
+import me.jellysquid.mods.sodium.client.gl.device.IndirectDrawBatch;
+import me.jellysquid.mods.sodium.client.gl.device.MultiDrawBatch;
+import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionRenderDataStorage;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionRenderDataUnsafe;
+import me.jellysquid.mods.sodium.client.render.chunk.region.RenderRegion;
+import me.jellysquid.mods.sodium.client.util.BitwiseMath;
+import me.jellysquid.mods.sodium.client.util.iterator.ByteIterator;
+import org.lwjgl.system.MemoryUtil;
+
+/**
+ * Builds the draw commands for the visible sections of a region in separate passes, rather than one section at a time.
+ * The sections are first gathered into flat arrays, then the faces which can be seen from the camera are worked out
+ * for all of them at once, and finally the commands for those faces are written out together.
+ *
+ * The face culling pass is a single loop of branch-less integer arithmetic over primitive arrays, which is the kind
+ * of loop that the JIT compiler is able to vectorize. The same work done per-section is interleaved with reads from
+ * native memory, which Hotspot refuses to vectorize (or even schedule well) because it can't prove they don't alias.
+ *
+ * Instances hold scratch arrays which are reused between regions, so they must only be used by one thread.
+ */
+public final class RegionCommandBufferBuilder {
+    private static final int MODEL_UNASSIGNED = ModelQuadFacing.UNASSIGNED.ordinal();
+    private static final int MODEL_POS_X      = ModelQuadFacing.POS_X.ordinal();
+    private static final int MODEL_NEG_X      = ModelQuadFacing.NEG_X.ordinal();
+    private static final int MODEL_POS_Y      = ModelQuadFacing.POS_Y.ordinal();
+    private static final int MODEL_NEG_Y      = ModelQuadFacing.NEG_Y.ordinal();
+    private static final int MODEL_POS_Z      = ModelQuadFacing.POS_Z.ordinal();
+    private static final int MODEL_NEG_Z      = ModelQuadFacing.NEG_Z.ordinal();
+
+    private final long[] meshData = new long[RenderRegion.REGION_SIZE];
+
+    // The position of each section in chunks, relative to the chunk which the camera is in
+    private final int[] sectionX = new int[RenderRegion.REGION_SIZE];
+    private final int[] sectionY = new int[RenderRegion.REGION_SIZE];
+    private final int[] sectionZ = new int[RenderRegion.REGION_SIZE];
+
+    // The mask of facings which will be drawn for each section
+    private final int[] faces = new int[RenderRegion.REGION_SIZE];
+
+    private int count;
+
+    /**
+     * Gathers the given sections of a region, and works out which of their faces need to be drawn.
+     *
+     * @param offsetX The position of the region's origin in chunks, relative to the chunk which the camera is in
+     * @param offsetY The position of the region's origin in chunks, relative to the chunk which the camera is in
+     * @param offsetZ The position of the region's origin in chunks, relative to the chunk which the camera is in
+     */
+    public void prepare(SectionRenderDataStorage storage, ByteIterator sections,
+                        int offsetX, int offsetY, int offsetZ,
+                        boolean useBlockFaceCulling) {
+        int count = 0;
+
+        while (sections.hasNext()) {
+            int sectionIndex = sections.nextByteAsInt();
+            long pMeshData = storage.getDataPointer(sectionIndex);
+
+            this.meshData[count] = pMeshData;
+            this.faces[count] = SectionRenderDataUnsafe.getSliceMask(pMeshData);
+
+            this.sectionX[count] = offsetX + LocalSectionIndex.unpackX(sectionIndex);
+            this.sectionY[count] = offsetY + LocalSectionIndex.unpackY(sectionIndex);
+            this.sectionZ[count] = offsetZ + LocalSectionIndex.unpackZ(sectionIndex);
+
+            count++;
+        }
+
+        this.count = count;
+
+        if (useBlockFaceCulling) {
+            cullFaces(this.faces, this.sectionX, this.sectionY, this.sectionZ, count);
+        }
+    }
+
+    private static void cullFaces(int[] faces, int[] x, int[] y, int[] z, int count) {
+        // This is carefully written so that we can keep everything branch-less.
+        //
+        // Normally, this would be a ridiculous way to handle the problem. But the Hotspot VM's
+        // heuristic for generating SETcc/CMOV instructions is broken, and it will always create a
+        // branch even when a trivial ternary is encountered.
+        //
+        // For example, the following will never be transformed into a SETcc:
+        //   (a > b) ? 1 : 0
+        //
+        // So we have to instead rely on sign-bit extension and masking (which generates a ton
+        // of unnecessary instructions) to get this to be branch-less.
+        //
+        // To do this, we can transform the previous expression into the following.
+        //   (b - a) >> 31
+        //
+        // This works because if (a > b) then (b - a) will always create a negative number. We then shift the sign
+        // bit into the least significant bit's position (which also discards any bits following the sign bit) to get
+        // the output we are looking for.
+        //
+        // Since there are no branches and every section is independent, the loop can also be unrolled and vectorized
+        // by the compiler, which it won't do while the loop also reads the mesh data of each section.
+        for (int i = 0; i < count; i++) {
+            // A face can only be seen if the section is not entirely in front of the camera along its normal. The
+            // "unassigned" plane is always front-facing, since we can't check it.
+            int planes = 1 << MODEL_UNASSIGNED;
+
+            planes |= BitwiseMath.lessThan(x[i], 1) << MODEL_POS_X;
+            planes |= BitwiseMath.lessThan(y[i], 1) << MODEL_POS_Y;
+            planes |= BitwiseMath.lessThan(z[i], 1) << MODEL_POS_Z;
+
+            planes |= BitwiseMath.greaterThan(x[i], -1) << MODEL_NEG_X;
+            planes |= BitwiseMath.greaterThan(y[i], -1) << MODEL_NEG_Y;
+            planes |= BitwiseMath.greaterThan(z[i], -1) << MODEL_NEG_Z;
+
+            faces[i] &= planes;
+        }
+    }
+
+    /**
+     * Appends a command for each visible face of the prepared sections to the batch.
+     */
+    @SuppressWarnings("IntegerMultiplicationImplicitCastToLong")
+    public void writeCommands(MultiDrawBatch batch) {
+        final var pBaseVertex = batch.pBaseVertex;
+        final var pElementCount = batch.pElementCount;
+
+        int size = batch.size;
+
+        for (int i = 0; i < this.count; i++) {
+            long pMeshData = this.meshData[i];
+            int mask = this.faces[i];
+
+            // Every facing is written, but the command is only kept if the facing is visible
+            for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+                MemoryUtil.memPutInt(pBaseVertex + (size << 2),
+                        SectionRenderDataUnsafe.getVertexOffset(pMeshData, facing));
+                MemoryUtil.memPutInt(pElementCount + (size << 2),
+                        SectionRenderDataUnsafe.getElementCount(pMeshData, facing));
+
+                size += (mask >> facing) & 1;
+            }
+        }
+
+        batch.size = size;
+    }
+
+    /**
+     * Appends a command for each visible face of the prepared sections to the batch, using its current instance.
+     */
+    public void writeCommands(IndirectDrawBatch batch) {
+        for (int i = 0; i < this.count; i++) {
+            long pMeshData = this.meshData[i];
+            int mask = this.faces[i];
+
+            while (mask != 0) {
+                int facing = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+
+                batch.addCommand(SectionRenderDataUnsafe.getElementCount(pMeshData, facing),
+                        SectionRenderDataUnsafe.getVertexOffset(pMeshData, facing));
+            }
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package me.jellysquid.mods.sodium.client.render.chunk;
 
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionInfo;
-import me.jellysquid.mods.sodium.client.render.chunk.occlusion.GraphDirection;
-import me.jellysquid.mods.sodium.client.render.chunk.occlusion.GraphDirectionSet;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionMeshSnapshot;
+import me.jellysquid.mods.sodium.client.render.chunk.data.TranslucentQuadData;
+import me.jellysquid.mods.sodium.client.render.chunk.occlusion.SectionGraph;
 import me.jellysquid.mods.sodium.client.render.chunk.occlusion.VisibilityEncoding;
 import me.jellysquid.mods.sodium.client.render.chunk.region.RenderRegion;
 import me.jellysquid.mods.sodium.client.util.task.CancellationToken;
@@ -14,8 +15,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * The render state object for a chunk section. This contains all the graphics state for each render pass along with
- * data about the render in the chunk visibility graph.
+ * The render state object for a chunk section. This contains all the graphics state for each render pass, and acts as
+ * a view over the section's slot in the {@link SectionGraph}, which holds its data for the chunk visibility graph.
  */
 public class RenderSection {
     // Render Region State
@@ -26,35 +27,36 @@ public class RenderSection {
     private final int chunkX, chunkY, chunkZ;
 
     // Occlusion Culling State
-    private long visibilityData = VisibilityEncoding.NULL;
-
-    private int incomingDirections;
-    private int lastVisibleFrame = -1;
-
-    private int adjacentMask;
-    public RenderSection
-            adjacentDown,
-            adjacentUp,
-            adjacentNorth,
-            adjacentSouth,
-            adjacentWest,
-            adjacentEast;
-
+    private final SectionGraph graph;
+    private int slot;
 
     // Rendering State
     private boolean built = false; // merge with the flags?
-    private int flags = RenderSectionFlags.NONE;
     private BlockEntity @Nullable[] globalBlockEntities;
     private BlockEntity @Nullable[] culledBlockEntities;
     private Sprite @Nullable[] animatedSprites;
-
+    private long contentHash;
 
     // Pending Update State
     @Nullable
     private CancellationToken buildCancellationToken = null;
 
+    private long pendingUpdateTime;
+
+    // The range of block layers which have changed since the pending update was requested, which can be re-meshed on
+    // their own if the section has a mesh snapshot
+    private int dirtyMinLayer = SectionMeshSnapshot.LAYERS, dirtyMaxLayer = -1;
+
+    // Partial Rebuild State
+    private boolean retainingMesh;
+    private @Nullable SectionMeshSnapshot meshSnapshot;
+
+    // Translucency Sorting State
+    private @Nullable TranslucentQuadData translucentQuads;
+    private long lastSortKey;
+
     @Nullable
-    private ChunkUpdateType pendingUpdateType;
+    private CancellationToken sortCancellationToken = null;
 
     private int lastBuiltFrame = -1;
     private int lastSubmittedFrame = -1;
@@ -62,7 +64,7 @@ public class RenderSection {
     // Lifetime state
     private boolean disposed;
 
-    public RenderSection(RenderRegion region, int chunkX, int chunkY, int chunkZ) {
+    public RenderSection(SectionGraph graph, RenderRegion region, int chunkX, int chunkY, int chunkZ) {
         this.chunkX = chunkX;
         this.chunkY = chunkY;
         this.chunkZ = chunkZ;
@@ -74,40 +76,28 @@ public class RenderSection {
         this.sectionIndex = LocalSectionIndex.pack(rX, rY, rZ);
 
         this.region = region;
+
+        this.graph = graph;
+        this.slot = graph.allocate(this, region, chunkX, chunkY, chunkZ);
+    }
+
+    /**
+     * Returns the slot which holds this section's state in the section graph.
+     */
+    public int getSlot() {
+        return this.slot;
     }
 
     public RenderSection getAdjacent(int direction) {
-        return switch (direction) {
-            case GraphDirection.DOWN -> this.adjacentDown;
-            case GraphDirection.UP -> this.adjacentUp;
-            case GraphDirection.NORTH -> this.adjacentNorth;
-            case GraphDirection.SOUTH -> this.adjacentSouth;
-            case GraphDirection.WEST -> this.adjacentWest;
-            case GraphDirection.EAST -> this.adjacentEast;
-            default -> null;
-        };
+        return this.graph.getSection(this.graph.getAdjacent(this.slot, direction));
     }
 
     public void setAdjacentNode(int direction, RenderSection node) {
-        if (node == null) {
-            this.adjacentMask &= ~GraphDirectionSet.of(direction);
-        } else {
-            this.adjacentMask |= GraphDirectionSet.of(direction);
-        }
-
-        switch (direction) {
-            case GraphDirection.DOWN -> this.adjacentDown = node;
-            case GraphDirection.UP -> this.adjacentUp = node;
-            case GraphDirection.NORTH -> this.adjacentNorth = node;
-            case GraphDirection.SOUTH -> this.adjacentSouth = node;
-            case GraphDirection.WEST -> this.adjacentWest = node;
-            case GraphDirection.EAST -> this.adjacentEast = node;
-            default -> { }
-        }
+        this.graph.setAdjacent(this.slot, direction, node == null ? SectionGraph.NULL : node.slot);
     }
 
     public int getAdjacentMask() {
-        return this.adjacentMask;
+        return this.graph.getAdjacentMask(this.slot);
     }
 
     /**
@@ -121,8 +111,17 @@ public class RenderSection {
             this.buildCancellationToken = null;
         }
 
+        if (this.sortCancellationToken != null) {
+            this.sortCancellationToken.setCancelled();
+            this.sortCancellationToken = null;
+        }
+
         this.clearRenderState();
         this.disposed = true;
+        this.retainingMesh = false;
+
+        this.graph.release(this.slot);
+        this.slot = SectionGraph.NULL;
     }
 
     public void setInfo(@Nullable BuiltSectionInfo info) {
@@ -135,20 +134,24 @@ public class RenderSection {
 
     private void setRenderState(@NotNull BuiltSectionInfo info) {
         this.built = true;
-        this.flags = info.flags;
-        this.visibilityData = info.visibilityData;
+        this.graph.setFlags(this.slot, info.flags);
+        this.graph.setVisibilityData(this.slot, info.visibilityData);
         this.globalBlockEntities = info.globalBlockEntities;
         this.culledBlockEntities = info.culledBlockEntities;
         this.animatedSprites = info.animatedSprites;
+        this.contentHash = info.contentHash;
     }
 
     private void clearRenderState() {
         this.built = false;
-        this.flags = RenderSectionFlags.NONE;
-        this.visibilityData = VisibilityEncoding.NULL;
+        this.graph.setFlags(this.slot, RenderSectionFlags.NONE);
+        this.graph.setVisibilityData(this.slot, VisibilityEncoding.NULL);
         this.globalBlockEntities = null;
         this.culledBlockEntities = null;
         this.animatedSprites = null;
+        this.contentHash = 0L;
+        this.meshSnapshot = null;
+        this.translucentQuads = null;
     }
 
     /**
@@ -256,37 +259,25 @@ public class RenderSection {
     }
 
     public void setLastVisibleFrame(int frame) {
-        this.lastVisibleFrame = frame;
+        this.graph.setLastVisibleFrame(this.slot, frame);
     }
 
     public int getLastVisibleFrame() {
-        return this.lastVisibleFrame;
-    }
-
-    public int getIncomingDirections() {
-        return this.incomingDirections;
-    }
-
-    public void addIncomingDirections(int directions) {
-        this.incomingDirections |= directions;
-    }
-
-    public void setIncomingDirections(int directions) {
-        this.incomingDirections = directions;
+        return this.graph.getLastVisibleFrame(this.slot);
     }
 
     /**
      * Returns a bitfield containing the {@link RenderSectionFlags} for this built section.
      */
     public int getFlags() {
-        return this.flags;
+        return this.graph.getFlags(this.slot);
     }
 
     /**
      * Returns the occlusion culling data which determines this chunk's connectedness on the visibility graph.
      */
     public long getVisibilityData() {
-        return this.visibilityData;
+        return this.graph.getVisibilityData(this.slot);
     }
 
     /**
@@ -311,20 +302,129 @@ public class RenderSection {
         return this.globalBlockEntities;
     }
 
+    /**
+     * Returns the content hash of the world slice which this section was last built from, or zero if it isn't known.
+     */
+    public long getContentHash() {
+        return this.contentHash;
+    }
+
     public @Nullable CancellationToken getBuildCancellationToken() {
         return this.buildCancellationToken;
     }
 
     public void setBuildCancellationToken(@Nullable CancellationToken token) {
         this.buildCancellationToken = token;
+        this.graph.setBuilding(this.slot, token != null);
     }
 
     public @Nullable ChunkUpdateType getPendingUpdate() {
-        return this.pendingUpdateType;
+        return this.graph.getPendingUpdate(this.slot);
     }
 
+    /**
+     * Sets the pending update for this section. If the section didn't already have a pending update, the current time
+     * is recorded as the time at which it started waiting, so that promoting an update to a more important type does
+     * not reset how long it has been waiting for.
+     */
     public void setPendingUpdate(@Nullable ChunkUpdateType type) {
-        this.pendingUpdateType = type;
+        if (this.graph.getPendingUpdate(this.slot) == null) {
+            this.pendingUpdateTime = System.nanoTime();
+        }
+
+        this.graph.setPendingUpdate(this.slot, type);
+    }
+
+    /**
+     * Returns the value of {@link System#nanoTime()} at which this section's pending update was first requested.
+     */
+    public long getPendingUpdateTime() {
+        return this.pendingUpdateTime;
+    }
+
+    /**
+     * Marks the given range of block layers as changed. These layers will be re-meshed by the next rebuild.
+     */
+    public void markLayersDirty(int minLayer, int maxLayer) {
+        this.dirtyMinLayer = Math.min(this.dirtyMinLayer, minLayer);
+        this.dirtyMaxLayer = Math.max(this.dirtyMaxLayer, maxLayer);
+    }
+
+    public int getDirtyMinLayer() {
+        return this.dirtyMinLayer;
+    }
+
+    public int getDirtyMaxLayer() {
+        return this.dirtyMaxLayer;
+    }
+
+    public void clearDirtyLayers() {
+        this.dirtyMinLayer = SectionMeshSnapshot.LAYERS;
+        this.dirtyMaxLayer = -1;
+    }
+
+    /**
+     * Returns whether a snapshot of the meshes should be kept for this section after it's built, so that it can be
+     * partially rebuilt later.
+     */
+    public boolean isRetainingMesh() {
+        return this.retainingMesh;
+    }
+
+    public void setRetainingMesh(boolean retainingMesh) {
+        this.retainingMesh = retainingMesh;
+
+        if (!retainingMesh) {
+            this.meshSnapshot = null;
+        }
+    }
+
+    /**
+     * Returns the snapshot of the section's current meshes, or null if it doesn't have one.
+     */
+    public @Nullable SectionMeshSnapshot getMeshSnapshot() {
+        return this.meshSnapshot;
+    }
+
+    public void setMeshSnapshot(@Nullable SectionMeshSnapshot snapshot) {
+        this.meshSnapshot = this.retainingMesh ? snapshot : null;
+    }
+
+    /**
+     * Returns the quads of the section's translucent mesh, or null if it doesn't have one.
+     */
+    public @Nullable TranslucentQuadData getTranslucentQuads() {
+        return this.translucentQuads;
+    }
+
+    /**
+     * Sets the quads of the section's translucent mesh, along with the sort key of the camera position which the
+     * uploaded index buffer was sorted from.
+     */
+    public void setTranslucentQuads(@Nullable TranslucentQuadData quads, long sortKey) {
+        this.translucentQuads = quads;
+        this.lastSortKey = sortKey;
+    }
+
+    /**
+     * Returns whether the translucent quads of this section are out of order for the given camera position, which is
+     * relative to the origin of the section.
+     */
+    public boolean needsSort(float cameraX, float cameraY, float cameraZ) {
+        if (this.translucentQuads == null || this.buildCancellationToken != null ||
+                this.sortCancellationToken != null) {
+            return false;
+        }
+
+        return this.translucentQuads.getSortKey(cameraX, cameraY, cameraZ) != this.lastSortKey;
+    }
+
+    public @Nullable CancellationToken getSortCancellationToken() {
+        return this.sortCancellationToken;
+    }
+
+    public void setSortCancellationToken(@Nullable CancellationToken token) {
+        this.sortCancellationToken = token;
     }
 
     public int getLastBuiltFrame() {
@@ -1,10 +1,12 @@
 package me.jellysquid.mods.sodium.client.render.chunk;
 
 import com.mojang.blaze3d.systems.RenderSystem;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
 import it.unimi.dsi.fastutil.longs.Long2ReferenceMap;
 import it.unimi.dsi.fastutil.longs.Long2ReferenceMaps;
 import it.unimi.dsi.fastutil.longs.Long2ReferenceOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Reference2ReferenceLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ReferenceSet;
 import it.unimi.dsi.fastutil.objects.ReferenceSets;
@@ -12,19 +14,29 @@ import me.jellysquid.mods.sodium.client.SodiumClientMod;
 import me.jellysquid.mods.sodium.client.gl.device.CommandList;
 import me.jellysquid.mods.sodium.client.gl.device.RenderDevice;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkBuildOutput;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkSortOutput;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.executor.ChunkBuilder;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.executor.ChunkJobResult;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.tasks.ChunkBuilderMeshingTask;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.tasks.ChunkBuilderSortingTask;
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionInfo;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionMeshCache;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionMeshSnapshot;
 import me.jellysquid.mods.sodium.client.render.chunk.lists.ChunkRenderList;
+import me.jellysquid.mods.sodium.client.render.chunk.lists.SectionRebuildQueue;
 import me.jellysquid.mods.sodium.client.render.chunk.lists.SortedRenderLists;
 import me.jellysquid.mods.sodium.client.render.chunk.lists.VisibleChunkCollector;
 import me.jellysquid.mods.sodium.client.render.chunk.occlusion.GraphDirection;
 import me.jellysquid.mods.sodium.client.render.chunk.occlusion.OcclusionCuller;
+import me.jellysquid.mods.sodium.client.render.chunk.occlusion.SectionGraph;
 import me.jellysquid.mods.sodium.client.render.chunk.region.RenderRegion;
 import me.jellysquid.mods.sodium.client.render.chunk.region.RenderRegionManager;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.DefaultTerrainRenderPasses;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.builder.ChunkMeshBufferPool;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkMeshFormats;
+import me.jellysquid.mods.sodium.client.render.metrics.ChunkUpdateTrace;
+import me.jellysquid.mods.sodium.client.render.metrics.FrameMetricsRecorder;
 import me.jellysquid.mods.sodium.client.render.texture.SpriteUtil;
 import me.jellysquid.mods.sodium.client.render.viewport.CameraTransform;
 import me.jellysquid.mods.sodium.client.render.viewport.Viewport;
@@ -33,13 +45,17 @@ import me.jellysquid.mods.sodium.client.util.task.CancellationToken;
 import me.jellysquid.mods.sodium.client.world.WorldSlice;
 import me.jellysquid.mods.sodium.client.world.cloned.ChunkRenderContext;
 import me.jellysquid.mods.sodium.client.world.cloned.ClonedChunkSectionCache;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.Camera;
+import net.minecraft.client.render.block.entity.BlockEntityRenderer;
 import net.minecraft.client.texture.Sprite;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.ChunkSection;
 import org.apache.commons.lang3.ArrayUtils;
@@ -50,14 +66,28 @@ import java.util.*;
 import java.util.concurrent.ConcurrentLinkedDeque;
 
 public class RenderSectionManager {
+    // The maximum number of recently updated sections which keep a copy of their meshes for partial rebuilds
+    private static final int MAX_RETAINED_MESHES = 256;
+
+    // The maximum number of translucency sorts which can be scheduled each frame, so that sorting can't take up the
+    // worker threads while there are sections waiting to be meshed
+    private static final int MAX_SORT_TASKS_PER_FRAME = 16;
+
     private final ChunkBuilder builder;
 
     private final RenderRegionManager regions;
     private final ClonedChunkSectionCache sectionCache;
 
+    @Nullable
+    private final SectionMeshCache meshCache;
+
+    private final FrameMetricsRecorder frameMetrics;
+
     private final Long2ReferenceMap<RenderSection> sectionByPosition = new Long2ReferenceOpenHashMap<>();
+    private final SectionGraph sectionGraph = new SectionGraph();
 
     private final ConcurrentLinkedDeque<ChunkJobResult<ChunkBuildOutput>> buildResults = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedDeque<ChunkJobResult<ChunkSortOutput>> sortResults = new ConcurrentLinkedDeque<>();
 
     private final ChunkRenderer chunkRenderer;
 
@@ -65,6 +95,9 @@ public class RenderSectionManager {
 
     private final ReferenceSet<RenderSection> sectionsWithGlobalEntities = new ReferenceOpenHashSet<>();
 
+    // Ordered from least to most recently updated
+    private final ReferenceLinkedOpenHashSet<RenderSection> sectionsRetainingMeshes = new ReferenceLinkedOpenHashSet<>();
+
     private final OcclusionCuller occlusionCuller;
 
     private final int renderDistance;
@@ -73,12 +106,15 @@ public class RenderSectionManager {
     private SortedRenderLists renderLists;
 
     @NotNull
-    private Map<ChunkUpdateType, ArrayDeque<RenderSection>> rebuildLists;
+    private Map<ChunkUpdateType, SectionRebuildQueue> rebuildLists;
 
     private int lastUpdatedFrame;
 
     private boolean needsUpdate;
 
+    @NotNull
+    private Vec3d cameraPosition = Vec3d.ZERO;
+
     public RenderSectionManager(ClientWorld world, int renderDistance, CommandList commandList) {
         this.chunkRenderer = new DefaultChunkRenderer(RenderDevice.INSTANCE, ChunkMeshFormats.COMPACT);
 
@@ -89,23 +125,46 @@ public class RenderSectionManager {
         this.renderDistance = renderDistance;
 
         this.regions = new RenderRegionManager(commandList);
+
+        this.frameMetrics = new FrameMetricsRecorder(this.builder.getStatistics(),
+                SodiumClientMod.options().advanced.enableFrameMetricsLog ? FabricLoader.getInstance().getGameDir()
+                        .resolve("logs") : null);
         this.sectionCache = new ClonedChunkSectionCache(this.world);
 
+        if (SodiumClientMod.options().performance.useMeshCache) {
+            this.meshCache = SectionMeshCache.open(FabricLoader.getInstance().getGameDir()
+                    .resolve("sodium-cache")
+                    .resolve("meshes.bin"), SectionMeshCache.createFingerprint(ChunkMeshFormats.COMPACT, this.world));
+        } else {
+            this.meshCache = null;
+        }
+
         this.renderLists = SortedRenderLists.empty();
-        this.occlusionCuller = new OcclusionCuller(Long2ReferenceMaps.unmodifiable(this.sectionByPosition), this.world);
+        this.occlusionCuller = new OcclusionCuller(Long2ReferenceMaps.unmodifiable(this.sectionByPosition),
+                this.sectionGraph, this.regions.getLoadedRegions(), this.world,
+                SodiumClientMod.options().performance.useParallelOcclusionCulling,
+                this.builder.getStatistics().getWorkerCount());
 
         this.rebuildLists = new EnumMap<>(ChunkUpdateType.class);
 
         for (var type : ChunkUpdateType.values()) {
-            this.rebuildLists.put(type, new ArrayDeque<>());
+            this.rebuildLists.put(type, new SectionRebuildQueue(type.getMaximumQueueSize()));
         }
     }
 
+    /**
+     * Records the metrics of the previous frame. This should be called once per frame, before any other work is done.
+     */
+    public void recordFrameMetrics() {
+        this.frameMetrics.endFrame();
+    }
+
     public void updateRenderLists(Camera camera, Viewport viewport, int frame, boolean spectator) {
         this.createTerrainRenderList(camera, viewport, frame, spectator);
 
         this.needsUpdate = false;
         this.lastUpdatedFrame = frame;
+        this.cameraPosition = camera.getPos();
     }
 
     private void createTerrainRenderList(Camera camera, Viewport viewport, int frame, boolean spectator) {
@@ -114,9 +173,14 @@ public class RenderSectionManager {
         final var searchDistance = this.getSearchDistance();
         final var useOcclusionCulling = this.shouldUseOcclusionCulling(camera, spectator);
 
-        var visitor = new VisibleChunkCollector(frame);
+        var visitor = new VisibleChunkCollector(this.sectionGraph, frame, viewport, camera.getHorizontalPlane());
+
+        long startTime = System.nanoTime();
 
-        this.occlusionCuller.findVisible(visitor, viewport, searchDistance, useOcclusionCulling, frame);
+        this.occlusionCuller.findVisible(visitor, viewport, camera.getHorizontalPlane(), searchDistance,
+                useOcclusionCulling, frame);
+
+        this.frameMetrics.recordCulling(System.nanoTime() - startTime, visitor.getVisitedSectionCount());
 
         this.renderLists = visitor.createRenderLists();
         this.rebuildLists = visitor.getRebuildLists();
@@ -165,7 +229,7 @@ public class RenderSectionManager {
 
         RenderRegion region = this.regions.createForChunk(x, y, z);
 
-        RenderSection renderSection = new RenderSection(region, x, y, z);
+        RenderSection renderSection = new RenderSection(this.sectionGraph, region, x, y, z);
         region.addSection(renderSection);
 
         this.sectionByPosition.put(key, renderSection);
@@ -180,6 +244,7 @@ public class RenderSectionManager {
         }
 
         this.connectNeighborNodes(renderSection);
+        this.occlusionCuller.onSectionAdded(renderSection);
 
         this.needsUpdate = true;
     }
@@ -197,6 +262,9 @@ public class RenderSectionManager {
             region.removeSection(section);
         }
 
+        this.occlusionCuller.onSectionRemoved(section);
+        this.sectionsRetainingMeshes.remove(section);
+
         this.disconnectNeighborNodes(section);
         this.updateSectionInfo(section, null);
 
@@ -264,6 +332,8 @@ public class RenderSectionManager {
         this.submitRebuildTasks(ChunkUpdateType.IMPORTANT_REBUILD, false);
         this.submitRebuildTasks(ChunkUpdateType.REBUILD, !updateImmediately);
         this.submitRebuildTasks(ChunkUpdateType.INITIAL_BUILD, !updateImmediately);
+
+        this.submitSortTasks();
     }
 
     public void uploadChunks() {
@@ -272,7 +342,7 @@ public class RenderSectionManager {
         var results = this.collectChunkBuildResults();
 
         if (!results.isEmpty()) {
-            this.processChunkBuildResults(results);
+            this.processChunkBuildResults(results, System.nanoTime());
 
             for (var result : results) {
                 result.delete();
@@ -280,15 +350,61 @@ public class RenderSectionManager {
 
             this.needsUpdate = true;
         }
+
+        // Sort results must be processed after the build results, so that any which were made outdated by a rebuild
+        // in the same frame are discarded
+        var sortResults = this.collectChunkSortResults();
+
+        if (!sortResults.isEmpty()) {
+            this.processChunkSortResults(sortResults);
+
+            for (var result : sortResults) {
+                result.delete();
+            }
+        }
+    }
+
+    private void processChunkSortResults(ArrayList<ChunkSortOutput> results) {
+        var filtered = new ArrayList<ChunkSortOutput>();
+
+        for (var result : results) {
+            result.render.setSortCancellationToken(null);
+
+            // The quads were sorted from a mesh which has since been replaced
+            if (result.render.isDisposed() || result.render.getTranslucentQuads() != result.quads) {
+                continue;
+            }
+
+            filtered.add(result);
+        }
+
+        this.regions.uploadSortedIndices(RenderDevice.INSTANCE.createCommandList(), filtered);
+
+        for (var result : filtered) {
+            result.render.setTranslucentQuads(result.quads, result.sortKey);
+        }
     }
 
-    private void processChunkBuildResults(ArrayList<ChunkBuildOutput> results) {
+    /**
+     * @param collectedTime The time at which the results were taken from the result queue
+     */
+    private void processChunkBuildResults(ArrayList<ChunkBuildOutput> results, long collectedTime) {
         var filtered = filterChunkBuildResults(results);
 
         this.regions.uploadMeshes(RenderDevice.INSTANCE.createCommandList(), filtered);
 
+        long uploadedTime = System.nanoTime();
+        var chunkLatency = this.frameMetrics.getChunkLatency();
+
         for (var result : filtered) {
             this.updateSectionInfo(result.render, result.info);
+            result.render.setMeshSnapshot(result.snapshot);
+
+            if (result.sortOutput != null) {
+                result.render.setTranslucentQuads(result.sortOutput.quads, result.sortOutput.sortKey);
+            } else {
+                result.render.setTranslucentQuads(null, 0L);
+            }
 
             var job = result.render.getBuildCancellationToken();
 
@@ -297,12 +413,22 @@ public class RenderSectionManager {
             }
 
             result.render.setLastBuiltFrame(result.buildTime);
+
+            if (result.trace != null) {
+                chunkLatency.record(result.trace, collectedTime, uploadedTime);
+            }
         }
     }
 
     private void updateSectionInfo(RenderSection render, BuiltSectionInfo info) {
+        long previousVisibility = render.getVisibilityData();
+
         render.setInfo(info);
 
+        if (render.getVisibilityData() != previousVisibility) {
+            this.occlusionCuller.onSectionVisibilityChanged(render);
+        }
+
         if (info == null || ArrayUtils.isEmpty(info.globalBlockEntities)) {
             this.sectionsWithGlobalEntities.remove(render);
         } else {
@@ -340,6 +466,17 @@ public class RenderSectionManager {
         return results;
     }
 
+    private ArrayList<ChunkSortOutput> collectChunkSortResults() {
+        ArrayList<ChunkSortOutput> results = new ArrayList<>();
+        ChunkJobResult<ChunkSortOutput> result;
+
+        while ((result = this.sortResults.poll()) != null) {
+            results.add(result.unwrap());
+        }
+
+        return results;
+    }
+
     private void waitForBlockingTasks() {
         boolean shouldContinue;
 
@@ -353,20 +490,50 @@ public class RenderSectionManager {
         var queue = this.rebuildLists.get(type);
 
         while (budget > 0 && !queue.isEmpty()) {
-            RenderSection section = queue.remove();
+            RenderSection section = queue.poll();
 
             if (section.isDisposed()) {
                 continue;
             }
 
+            // Any job which is still pending for this section will produce an outdated result, so cancel it now to
+            // keep the workers from wasting time on it
+            var previousToken = section.getBuildCancellationToken();
+
+            if (previousToken != null) {
+                previousToken.setCancelled();
+            }
+
             int frame = this.lastUpdatedFrame;
-            ChunkBuilderMeshingTask task = this.createRebuildTask(section, frame);
+            ChunkRenderContext context = WorldSlice.prepare(this.world, section.getChunkPos(), this.sectionCache);
+
+            var trace = new ChunkUpdateTrace(type, section.getPendingUpdateTime(), System.nanoTime());
+
+            // If nothing which the section's meshes depend on has changed since it was last built, the rebuild would
+            // produce the same result, so it can be skipped without using a worker
+            if (previousToken == null && context != null && isUnchanged(section, context)) {
+                section.setPendingUpdate(null);
+                section.clearDirtyLayers();
+                continue;
+            }
+
+            ChunkBuilderMeshingTask task = null;
+
+            if (context != null) {
+                // The section's mesh snapshot only matches its current meshes if there is no other job in flight
+                task = this.createRebuildTask(section, context, previousToken == null, frame, trace);
+            }
 
             if (task != null) {
-                CancellationToken token = this.builder.scheduleTask(task, asynchronous, this.buildResults::add);
+                var distance = section.getSquaredDistance((float) this.cameraPosition.x, (float) this.cameraPosition.y,
+                        (float) this.cameraPosition.z);
+
+                CancellationToken token = this.builder.scheduleTask(task, type, distance, asynchronous,
+                        this.buildResults::add);
                 section.setBuildCancellationToken(token);
             } else {
-                var result = ChunkJobResult.successfully(new ChunkBuildOutput(section, BuiltSectionInfo.EMPTY, Collections.emptyMap(), frame));
+                var result = ChunkJobResult.successfully(new ChunkBuildOutput(section, BuiltSectionInfo.EMPTY,
+                        Collections.emptyMap(), null, null, frame, trace));
                 this.buildResults.add(result);
 
                 section.setBuildCancellationToken(null);
@@ -374,19 +541,136 @@ public class RenderSectionManager {
 
             section.setLastSubmittedFrame(frame);
             section.setPendingUpdate(null);
+            section.clearDirtyLayers();
 
             budget--;
         }
     }
 
-    public @Nullable ChunkBuilderMeshingTask createRebuildTask(RenderSection render, int frame) {
-        ChunkRenderContext context = WorldSlice.prepare(this.world, render.getChunkPos(), this.sectionCache);
+    /**
+     * Schedules sorts for the visible sections whose translucent quads are out of order for the current camera
+     * position. Sorting only uses the part of the scheduling budget which is left over after the rebuilds, and at
+     * most {@link #MAX_SORT_TASKS_PER_FRAME} sorts are scheduled per frame. Any sections which don't fit into the
+     * budget will be found again on a later frame.
+     */
+    private void submitSortTasks() {
+        int budget = Math.min(MAX_SORT_TASKS_PER_FRAME, this.builder.getSchedulingBudget());
+
+        Iterator<ChunkRenderList> it = this.renderLists.iterator();
+
+        while (budget > 0 && it.hasNext()) {
+            ChunkRenderList renderList = it.next();
+
+            var region = renderList.getRegion();
+            var iterator = renderList.sectionsWithGeometryIterator(false);
+
+            if (iterator == null) {
+                continue;
+            }
+
+            while (budget > 0 && iterator.hasNext()) {
+                var section = region.getSection(iterator.nextByteAsInt());
+
+                if (section == null) {
+                    continue;
+                }
+
+                float cameraX = (float) (this.cameraPosition.x - section.getOriginX());
+                float cameraY = (float) (this.cameraPosition.y - section.getOriginY());
+                float cameraZ = (float) (this.cameraPosition.z - section.getOriginZ());
+
+                if (!section.needsSort(cameraX, cameraY, cameraZ)) {
+                    continue;
+                }
+
+                var task = new ChunkBuilderSortingTask(section, DefaultTerrainRenderPasses.TRANSLUCENT,
+                        section.getTranslucentQuads(), cameraX, cameraY, cameraZ);
+                var distance = section.getSquaredDistance((float) this.cameraPosition.x,
+                        (float) this.cameraPosition.y, (float) this.cameraPosition.z);
+
+                section.setSortCancellationToken(this.builder.scheduleTask(task, ChunkUpdateType.SORT, distance,
+                        true, this.sortResults::add));
+
+                budget--;
+            }
+        }
+    }
+
+    /**
+     * Creates a task to rebuild the given section. If {@param allowPartial} is true and the section has a snapshot of
+     * its meshes, only the layers of blocks which were marked as changed will be re-meshed.
+     */
+    public ChunkBuilderMeshingTask createRebuildTask(RenderSection render, ChunkRenderContext context,
+                                                     boolean allowPartial, int frame,
+                                                     ChunkUpdateTrace trace) {
+        int minLayer = render.getDirtyMinLayer();
+        int maxLayer = render.getDirtyMaxLayer();
+
+        SectionMeshSnapshot previousMesh = null;
+
+        if (allowPartial && render.isBuilt() && minLayer <= maxLayer &&
+                (minLayer > 0 || maxLayer < SectionMeshSnapshot.LAYERS - 1)) {
+            previousMesh = render.getMeshSnapshot();
+        }
+
+        return new ChunkBuilderMeshingTask(render, context, this.meshCache, this.regions.getStagingRing(),
+                previousMesh, minLayer, maxLayer, render.isRetainingMesh(), this.cameraPosition, frame, trace);
+    }
+
+    /**
+     * Returns whether the given context contains exactly the same world state that the section was last built from.
+     *
+     * The data of block entities isn't part of the content hash, and changes to it (such as the items in a hopper or
+     * the text of a sign) don't affect the meshes. However, the section holds the block entities which it renders, so
+     * it can only be skipped if the block entities with renderers in the context are still the same instances, and
+     * would be put into the same lists.
+     *
+     * Sections which have block entities that provide render data to the models of their blocks are always rebuilt,
+     * since that data can affect the meshes, and there is no way to compare it with the data used by the last build.
+     */
+    private static boolean isUnchanged(RenderSection section, ChunkRenderContext context) {
+        if (!section.isBuilt() || section.getContentHash() == 0L) {
+            return false;
+        }
+
+        if (context.hasBlockEntityAttachments() || section.getContentHash() != context.getContentHash()) {
+            return false;
+        }
+
+        return hasSameBlockEntities(section, context.getBlockEntities());
+    }
+
+    private static boolean hasSameBlockEntities(RenderSection section,
+                                                @Nullable Int2ReferenceMap<BlockEntity> blockEntities) {
+        BlockEntity[] culled = section.getCulledBlockEntities();
+        BlockEntity[] global = section.getGlobalBlockEntities();
+
+        int previousCount = (culled != null ? culled.length : 0) + (global != null ? global.length : 0);
+
+        if (blockEntities == null) {
+            return previousCount == 0;
+        }
+
+        var dispatcher = MinecraftClient.getInstance().getBlockEntityRenderDispatcher();
+        int count = 0;
+
+        for (BlockEntity entity : blockEntities.values()) {
+            BlockEntityRenderer<BlockEntity> renderer = dispatcher.get(entity);
+
+            if (renderer == null) {
+                continue;
+            }
 
-        if (context == null) {
-            return null;
+            // Block entities don't override equals, so this compares the instances
+            if (!ArrayUtils.contains(renderer.rendersOutsideBoundingBox(entity) ? global : culled, entity)) {
+                return false;
+            }
+
+            count++;
         }
 
-        return new ChunkBuilderMeshingTask(render, context, frame);
+        // Every block entity with a renderer was found in the previous lists, so they are the same if none were removed
+        return count == previousCount;
     }
 
     public void markGraphDirty() {
@@ -403,12 +687,23 @@ public class RenderSectionManager {
 
     public void destroy() {
         this.builder.shutdown(); // stop all the workers, and cancel any tasks
+        this.occlusionCuller.destroy();
+        this.frameMetrics.close();
+
+        if (this.meshCache != null) {
+            this.meshCache.close();
+        }
 
         for (var result : this.collectChunkBuildResults()) {
             result.delete(); // delete resources for any pending tasks (including those that were cancelled)
         }
 
+        for (var result : this.collectChunkSortResults()) {
+            result.delete();
+        }
+
         this.sectionsWithGlobalEntities.clear();
+        this.sectionsRetainingMeshes.clear();
         this.resetRenderLists();
 
         try (CommandList commandList = RenderDevice.INSTANCE.createCommandList()) {
@@ -434,11 +729,31 @@ public class RenderSectionManager {
     }
 
     public void scheduleRebuild(int x, int y, int z, boolean important) {
+        this.scheduleRebuild(x, y, z, 0, SectionMeshSnapshot.LAYERS - 1, false, important);
+    }
+
+    /**
+     * Schedules a rebuild of the section at the given position for changes to the blocks in the given range of
+     * layers. These sections keep a snapshot of their meshes for a while, so that later changes only need to re-mesh
+     * the affected layers.
+     */
+    public void scheduleRebuildForBlocks(int x, int y, int z, int minLayer, int maxLayer, boolean important) {
+        this.scheduleRebuild(x, y, z, minLayer, maxLayer, true, important);
+    }
+
+    private void scheduleRebuild(int x, int y, int z, int minLayer, int maxLayer, boolean retainMesh,
+                                 boolean important) {
         this.sectionCache.invalidate(x, y, z);
 
         RenderSection section = this.sectionByPosition.get(ChunkSectionPos.asLong(x, y, z));
 
         if (section != null && section.isBuilt()) {
+            section.markLayersDirty(minLayer, maxLayer);
+
+            if (retainMesh) {
+                this.retainMesh(section);
+            }
+
             ChunkUpdateType pendingUpdate;
 
             // TODO: Fix me
@@ -456,6 +771,16 @@ public class RenderSectionManager {
         this.needsUpdate = true;
     }
 
+    private void retainMesh(RenderSection section) {
+        this.sectionsRetainingMeshes.addAndMoveToLast(section);
+        section.setRetainingMesh(true);
+
+        if (this.sectionsRetainingMeshes.size() > MAX_RETAINED_MESHES) {
+            this.sectionsRetainingMeshes.removeFirst()
+                    .setRetainingMesh(false);
+        }
+    }
+
     private float getEffectiveRenderDistance() {
         var color = RenderSystem.getShaderFogColor();
         var distance = RenderSystem.getShaderFogEnd();
@@ -511,21 +836,47 @@ public class RenderSectionManager {
                 continue;
             }
 
-            var buffer = resources.getGeometryArena();
+            // The shared pool is counted once below, rather than once for every region using it
+            if (!resources.isGeometryShared()) {
+                var buffer = resources.getGeometryArena();
 
-            deviceUsed += buffer.getDeviceUsedMemory();
-            deviceAllocated += buffer.getDeviceAllocatedMemory();
+                deviceUsed += buffer.getDeviceUsedMemory();
+                deviceAllocated += buffer.getDeviceAllocatedMemory();
+            }
+
+            var indexBuffer = resources.getIndexArena();
+
+            if (indexBuffer != null) {
+                deviceUsed += indexBuffer.getDeviceUsedMemory();
+                deviceAllocated += indexBuffer.getDeviceAllocatedMemory();
+            }
 
             count++;
         }
 
+        var geometryPool = this.regions.getGeometryPool();
+
+        if (geometryPool != null) {
+            deviceUsed += geometryPool.getArena().getDeviceUsedMemory();
+            deviceAllocated += geometryPool.getArena().getDeviceAllocatedMemory();
+        }
+
         list.add(String.format("Geometry Pool: %d/%d MiB (%d buffers)", MathUtil.toMib(deviceUsed), MathUtil.toMib(deviceAllocated), count));
         list.add(String.format("Transfer Queue: %s", this.regions.getStagingBuffer().toString()));
 
+        if (this.regions.getStagingRing() != null) {
+            list.add(String.format("Mesh Staging: %s", this.regions.getStagingRing().toString()));
+        }
+
         list.add(String.format("Chunk Builder: Permits=%02d | Busy=%02d | Total=%02d",
                 this.builder.getScheduledJobCount(), this.builder.getBusyThreadCount(), this.builder.getTotalThreadCount())
         );
 
+        list.add(String.format("Chunk Builder Buffers: %d MiB (Peak: %d MiB)",
+                MathUtil.toMib(ChunkMeshBufferPool.getTotalAllocated()),
+                MathUtil.toMib(ChunkMeshBufferPool.getHighWaterMark()))
+        );
+
         list.add(String.format("Chunk Queues: U=%02d (P0=%03d | P1=%03d | P2=%03d)",
                 this.buildResults.size(),
                 this.rebuildLists.get(ChunkUpdateType.IMPORTANT_REBUILD).size(),
@@ -533,6 +884,9 @@ public class RenderSectionManager {
                 this.rebuildLists.get(ChunkUpdateType.INITIAL_BUILD).size())
         );
 
+        this.frameMetrics.getChunkLatency()
+                .addDebugStrings(list);
+
         return list;
     }
 
@@ -1,10 +1,12 @@
 package me.jellysquid.mods.sodium.client.render.chunk;
 
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import me.jellysquid.mods.sodium.client.SodiumClientMod;
 import me.jellysquid.mods.sodium.client.gl.attribute.GlVertexFormat;
 import me.jellysquid.mods.sodium.client.gl.device.CommandList;
 import me.jellysquid.mods.sodium.client.gl.device.RenderDevice;
 import me.jellysquid.mods.sodium.client.gl.shader.*;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.DefaultTerrainRenderPasses;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
 import me.jellysquid.mods.sodium.client.render.chunk.shader.*;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkMeshAttribute;
@@ -21,12 +23,16 @@ public abstract class ShaderChunkRenderer implements ChunkRenderer {
 
     protected final RenderDevice device;
 
+    // Whether the block faces of the solid render pass are merged when sections are built
+    private final boolean useQuadMerging;
+
     protected GlProgram<ChunkShaderInterface> activeProgram;
 
     public ShaderChunkRenderer(RenderDevice device, ChunkVertexType vertexType) {
         this.device = device;
         this.vertexType = vertexType;
         this.vertexFormat = vertexType.getVertexFormat();
+        this.useQuadMerging = SodiumClientMod.options().advanced.useQuadMerging;
     }
 
     protected GlProgram<ChunkShaderInterface> compileProgram(ChunkShaderOptions options) {
@@ -56,6 +62,7 @@ public abstract class ShaderChunkRenderer implements ChunkRenderer {
                     .bindAttribute("a_Color", ChunkShaderBindingPoints.ATTRIBUTE_COLOR)
                     .bindAttribute("a_TexCoord", ChunkShaderBindingPoints.ATTRIBUTE_BLOCK_TEXTURE)
                     .bindAttribute("a_LightCoord", ChunkShaderBindingPoints.ATTRIBUTE_LIGHT_TEXTURE)
+                    .bindAttribute("a_RegionOffset", ChunkShaderBindingPoints.ATTRIBUTE_REGION_OFFSET)
                     .bindFragmentData("fragColor", ChunkShaderBindingPoints.FRAG_COLOR)
                     .link((shader) -> new ChunkShaderInterface(shader, options));
         } finally {
@@ -65,9 +72,16 @@ public abstract class ShaderChunkRenderer implements ChunkRenderer {
     }
 
     protected void begin(TerrainRenderPass pass) {
+        this.begin(pass, false);
+    }
+
+    protected void begin(TerrainRenderPass pass, boolean indirect) {
         pass.startDrawing();
 
-        ChunkShaderOptions options = new ChunkShaderOptions(ChunkFogMode.SMOOTH, pass, this.vertexType);
+        boolean mergedQuads = this.useQuadMerging && pass == DefaultTerrainRenderPasses.SOLID;
+
+        ChunkShaderOptions options = new ChunkShaderOptions(ChunkFogMode.SMOOTH, pass, this.vertexType, indirect,
+                mergedQuads);
 
         this.activeProgram = this.compileProgram(options);
         this.activeProgram.bind();
@@ -1,18 +1,24 @@
 package me.jellysquid.mods.sodium.client.render.chunk.compile;
 
 import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
+import me.jellysquid.mods.sodium.client.gl.arena.staging.StagingRing;
 import me.jellysquid.mods.sodium.client.gl.util.VertexRange;
 import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.buffers.BakedChunkModelBuilder;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.buffers.ChunkModelBuilder;
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionInfo;
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionMeshParts;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionMeshSnapshot;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.DefaultTerrainRenderPasses;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.Material;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.builder.ChunkMeshBufferBuilder;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.builder.ChunkMeshBufferPool;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkMeshFormats;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexType;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.impl.CompactQuadMerger;
 import me.jellysquid.mods.sodium.client.util.NativeBuffer;
+import org.jetbrains.annotations.Nullable;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -20,22 +26,31 @@ import java.util.List;
 
 /**
  * A collection of temporary buffers for each worker thread which will be used to build chunk meshes for given render
- * passes. This makes a best-effort attempt to pick a suitable size for each scratch buffer, but will never try to
- * shrink a buffer.
+ * passes. The memory for the scratch buffers is shared through a {@link ChunkMeshBufferPool}, and is only allocated as
+ * it is needed.
  */
 public class ChunkBuildBuffers {
     private final Reference2ReferenceOpenHashMap<TerrainRenderPass, BakedChunkModelBuilder> builders = new Reference2ReferenceOpenHashMap<>();
 
+    private final ChunkMeshBufferPool pool = new ChunkMeshBufferPool();
+
     private final ChunkVertexType vertexType;
 
-    public ChunkBuildBuffers(ChunkVertexType vertexType) {
+    // Merges the block faces in the solid render pass, or null if quad merging is disabled
+    private final @Nullable CompactQuadMerger quadMerger;
+
+    // The layer of blocks which was last started
+    private int layer;
+
+    public ChunkBuildBuffers(ChunkVertexType vertexType, boolean mergeQuads) {
         this.vertexType = vertexType;
+        this.quadMerger = mergeQuads && vertexType == ChunkMeshFormats.COMPACT ? new CompactQuadMerger() : null;
 
         for (TerrainRenderPass pass : DefaultTerrainRenderPasses.ALL) {
             var vertexBuffers = new ChunkMeshBufferBuilder[ModelQuadFacing.COUNT];
 
             for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
-                vertexBuffers[facing] = new ChunkMeshBufferBuilder(this.vertexType, 128 * 1024);
+                vertexBuffers[facing] = new ChunkMeshBufferBuilder(this.vertexType, this.pool);
             }
 
             this.builders.put(pass, new BakedChunkModelBuilder(vertexBuffers));
@@ -46,6 +61,32 @@ public class ChunkBuildBuffers {
         for (var builder : this.builders.values()) {
             builder.begin(renderData, sectionIndex);
         }
+
+        this.pool.onBuildStarted();
+    }
+
+    /**
+     * Marks the start of the vertices for the given layer of blocks in every buffer. See
+     * {@link #createSnapshot(TerrainRenderPass, SectionMeshSnapshot.Pass, int, int)}.
+     */
+    public void beginLayer(int layer) {
+        this.layer = layer;
+
+        for (var builder : this.builders.values()) {
+            builder.beginLayer(layer);
+        }
+    }
+
+    /**
+     * Marks the end of the vertices for the layer of blocks which was last started. If quad merging is enabled, the
+     * block faces which were written into the solid render pass for the layer are merged here, since a merged quad
+     * can't span more than one layer without breaking the layers of the snapshots.
+     */
+    public void endLayer() {
+        if (this.quadMerger != null) {
+            this.builders.get(DefaultTerrainRenderPasses.SOLID)
+                    .mergeQuads(this.quadMerger, this.layer);
+        }
     }
 
     public ChunkModelBuilder get(Material material) {
@@ -56,8 +97,11 @@ public class ChunkBuildBuffers {
      * Creates immutable baked chunk meshes from all non-empty scratch buffers. This is used after all blocks
      * have been rendered to pass the finished meshes over to the graphics card. This function can be called multiple
      * times to return multiple copies.
+     *
+     * If a staging ring is given and has enough free space, the mesh is written directly into it, so that it can be
+     * copied to graphics memory without any further copies on the main thread.
      */
-    public BuiltSectionMeshParts createMesh(TerrainRenderPass pass) {
+    public BuiltSectionMeshParts createMesh(TerrainRenderPass pass, @Nullable StagingRing stagingRing) {
         var builder = this.builders.get(pass);
 
         List<ByteBuffer> vertexBuffers = new ArrayList<>();
@@ -82,8 +126,12 @@ public class ChunkBuildBuffers {
             return null;
         }
 
-        var mergedBuffer = new NativeBuffer(vertexCount * this.vertexType.getVertexFormat().getStride());
-        var mergedBufferBuilder = mergedBuffer.getDirectBuffer();
+        int length = vertexCount * this.vertexType.getVertexFormat().getStride();
+
+        var stagedBuffer = stagingRing != null ? stagingRing.allocate(length) : null;
+        var mergedBuffer = stagedBuffer == null ? new NativeBuffer(length) : null;
+
+        var mergedBufferBuilder = stagedBuffer != null ? stagedBuffer.getMemory() : mergedBuffer.getDirectBuffer();
 
         for (var buffer : vertexBuffers) {
             mergedBufferBuilder.put(buffer);
@@ -91,12 +139,85 @@ public class ChunkBuildBuffers {
 
         mergedBufferBuilder.flip();
 
+        if (stagedBuffer != null) {
+            return new BuiltSectionMeshParts(stagedBuffer, vertexRanges);
+        }
+
         return new BuiltSectionMeshParts(mergedBuffer, vertexRanges);
     }
 
+    /**
+     * Creates a snapshot of the vertex data for the given render pass. The scratch buffers must only contain the
+     * vertices for the layers from {@param minLayer} to {@param maxLayer} (inclusive), and the vertices of all other
+     * layers are copied from the previous snapshot. If there is no previous snapshot, the scratch buffers must contain
+     * every layer.
+     */
+    public SectionMeshSnapshot.Pass createSnapshot(TerrainRenderPass pass, SectionMeshSnapshot.@Nullable Pass previous,
+                                                   int minLayer, int maxLayer) {
+        var builder = this.builders.get(pass);
+        var stride = this.vertexType.getVertexFormat().getStride();
+
+        byte[][] vertexData = new byte[ModelQuadFacing.COUNT][];
+        int[][] layerStarts = new int[ModelQuadFacing.COUNT][SectionMeshSnapshot.LAYERS + 1];
+
+        for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+            var buffer = builder.getVertexBuffer(ModelQuadFacing.VALUES[facing]);
+
+            byte[] previousData = previous != null ? previous.getVertexData(facing) : null;
+
+            int headLength = getLayerStart(previous, facing, minLayer);
+            int tailStart = getLayerStart(previous, facing, maxLayer + 1);
+            int tailLength = getLayerStart(previous, facing, SectionMeshSnapshot.LAYERS) - tailStart;
+
+            int length = buffer.count() * stride;
+
+            byte[] data = new byte[headLength + length + tailLength];
+
+            if (previousData != null) {
+                System.arraycopy(previousData, 0, data, 0, headLength);
+                System.arraycopy(previousData, tailStart, data, headLength + length, tailLength);
+            }
+
+            if (length != 0) {
+                buffer.slice()
+                        .get(data, headLength, length);
+            }
+
+            int[] starts = layerStarts[facing];
+
+            for (int layer = 0; layer <= SectionMeshSnapshot.LAYERS; layer++) {
+                if (layer < minLayer) {
+                    starts[layer] = getLayerStart(previous, facing, layer);
+                } else if (layer <= maxLayer) {
+                    starts[layer] = headLength + (builder.getLayerStart(facing, layer) * stride);
+                } else {
+                    starts[layer] = headLength + length + (getLayerStart(previous, facing, layer) - tailStart);
+                }
+            }
+
+            vertexData[facing] = data;
+        }
+
+        return new SectionMeshSnapshot.Pass(vertexData, layerStarts);
+    }
+
+    private static int getLayerStart(SectionMeshSnapshot.@Nullable Pass pass, int facing, int layer) {
+        return pass != null ? pass.getLayerStart(facing, layer) : 0;
+    }
+
+    public int getVertexStride() {
+        return this.vertexType.getVertexFormat().getStride();
+    }
+
+    public ChunkVertexType getVertexType() {
+        return this.vertexType;
+    }
+
     public void destroy() {
         for (var builder : this.builders.values()) {
             builder.destroy();
         }
+
+        this.pool.destroy();
     }
 }
@@ -1,7 +1,9 @@
 package me.jellysquid.mods.sodium.client.render.chunk.compile;
 
+import me.jellysquid.mods.sodium.client.SodiumClientMod;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexType;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline.BlockRenderCache;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline.BlockRenderTable;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.world.World;
@@ -10,9 +12,9 @@ public class ChunkBuildContext {
     public final ChunkBuildBuffers buffers;
     public final BlockRenderCache cache;
 
-    public ChunkBuildContext(ClientWorld world, ChunkVertexType vertexType) {
-        this.buffers = new ChunkBuildBuffers(vertexType);
-        this.cache = new BlockRenderCache(MinecraftClient.getInstance(), world);
+    public ChunkBuildContext(ClientWorld world, ChunkVertexType vertexType, BlockRenderTable renderTable) {
+        this.buffers = new ChunkBuildBuffers(vertexType, SodiumClientMod.options().advanced.useQuadMerging);
+        this.cache = new BlockRenderCache(MinecraftClient.getInstance(), world, renderTable);
     }
 
     public void cleanup() {
@@ -4,6 +4,9 @@ import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionMeshParts;
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionInfo;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionMeshSnapshot;
+import me.jellysquid.mods.sodium.client.render.metrics.ChunkUpdateTrace;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 
@@ -18,14 +21,32 @@ public class ChunkBuildOutput {
     public final BuiltSectionInfo info;
     public final Map<TerrainRenderPass, BuiltSectionMeshParts> meshes;
 
+    // A copy of the meshes which is retained by the section for partial rebuilds, or null if it shouldn't be retained
+    public final @Nullable SectionMeshSnapshot snapshot;
+
+    // The sorted index buffer for the section's translucent quads, or null if it doesn't have any
+    public final @Nullable ChunkSortOutput sortOutput;
+
     public final int buildTime;
 
+    // The times at which the update passed through each stage, or null if they weren't recorded
+    public final @Nullable ChunkUpdateTrace trace;
+
     public ChunkBuildOutput(RenderSection render, BuiltSectionInfo info, Map<TerrainRenderPass, BuiltSectionMeshParts> meshes, int buildTime) {
+        this(render, info, meshes, null, null, buildTime, null);
+    }
+
+    public ChunkBuildOutput(RenderSection render, BuiltSectionInfo info, Map<TerrainRenderPass, BuiltSectionMeshParts> meshes,
+                            @Nullable SectionMeshSnapshot snapshot, @Nullable ChunkSortOutput sortOutput,
+                            int buildTime, @Nullable ChunkUpdateTrace trace) {
         this.render = render;
         this.info = info;
         this.meshes = meshes;
+        this.snapshot = snapshot;
+        this.sortOutput = sortOutput;
 
         this.buildTime = buildTime;
+        this.trace = trace;
     }
 
     public BuiltSectionMeshParts getMesh(TerrainRenderPass pass) {
@@ -34,8 +55,11 @@ public class ChunkBuildOutput {
 
     public void delete() {
         for (BuiltSectionMeshParts data : this.meshes.values()) {
-            data.getVertexData()
-                    .free();
+            data.delete();
+        }
+
+        if (this.sortOutput != null) {
+            this.sortOutput.delete();
         }
     }
 }
@@ -0,0 +1,35 @@
+package me.jellysquid.mods.sodium.client.render.chunk.compile;
+
+import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
+import me.jellysquid.mods.sodium.client.render.chunk.data.TranslucentQuadData;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
+import me.jellysquid.mods.sodium.client.util.NativeBuffer;
+
+/**
+ * The result of sorting the translucent quads of a section, which contains the index buffer that needs to be uploaded
+ * on the main thread. The result only applies to the quads it was sorted from, and must be discarded if the section
+ * has been rebuilt since.
+ */
+public class ChunkSortOutput {
+    public final RenderSection render;
+    public final TerrainRenderPass pass;
+
+    public final TranslucentQuadData quads;
+    public final NativeBuffer indexData;
+
+    // The sort key of the camera position which the quads were sorted from
+    public final long sortKey;
+
+    public ChunkSortOutput(RenderSection render, TerrainRenderPass pass, TranslucentQuadData quads,
+                           NativeBuffer indexData, long sortKey) {
+        this.render = render;
+        this.pass = pass;
+        this.quads = quads;
+        this.indexData = indexData;
+        this.sortKey = sortKey;
+    }
+
+    public void delete() {
+        this.indexData.free();
+    }
+}
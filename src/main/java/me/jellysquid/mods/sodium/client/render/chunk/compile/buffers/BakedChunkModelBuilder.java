@@ -3,11 +3,16 @@ package me.jellysquid.mods.sodium.client.render.chunk.compile.buffers;
 import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.builder.ChunkMeshBufferBuilder;
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionInfo;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionMeshSnapshot;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.impl.CompactQuadMerger;
 import net.minecraft.client.texture.Sprite;
 
 public class BakedChunkModelBuilder implements ChunkModelBuilder {
     private final ChunkMeshBufferBuilder[] vertexBuffers;
 
+    // int[facing][layer], which holds the number of vertices in each buffer when the layer was started
+    private final int[][] layerStarts = new int[ModelQuadFacing.COUNT][SectionMeshSnapshot.LAYERS];
+
     private BuiltSectionInfo.Builder renderData;
 
     public BakedChunkModelBuilder(ChunkMeshBufferBuilder[] vertexBuffers) {
@@ -24,6 +29,32 @@ public class BakedChunkModelBuilder implements ChunkModelBuilder {
         this.renderData.addSprite(sprite);
     }
 
+    /**
+     * Records the start of the vertices for the given layer of blocks in each buffer. Layers must be started in
+     * ascending order.
+     */
+    public void beginLayer(int layer) {
+        for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+            this.layerStarts[facing][layer] = this.vertexBuffers[facing].count();
+        }
+    }
+
+    /**
+     * Merges the quads which were written since the given layer was started. Quads which aren't aligned to an axis
+     * are never merged.
+     */
+    public void mergeQuads(CompactQuadMerger merger, int layer) {
+        for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+            if (facing != ModelQuadFacing.UNASSIGNED.ordinal()) {
+                this.vertexBuffers[facing].mergeQuads(merger, this.layerStarts[facing][layer]);
+            }
+        }
+    }
+
+    public int getLayerStart(int facing, int layer) {
+        return this.layerStarts[facing][layer];
+    }
+
     public void destroy() {
         for (ChunkMeshBufferBuilder builder : this.vertexBuffers) {
             builder.destroy();
@@ -1,10 +1,14 @@
 package me.jellysquid.mods.sodium.client.render.chunk.compile.executor;
 
 import me.jellysquid.mods.sodium.client.SodiumClientMod;
+import me.jellysquid.mods.sodium.client.render.chunk.ChunkUpdateType;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkBuildContext;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline.BlockRenderTable;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.tasks.ChunkBuilderTask;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexType;
+import me.jellysquid.mods.sodium.client.render.metrics.ChunkBuildJobEvent;
 import me.jellysquid.mods.sodium.client.util.task.CancellationToken;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.util.math.MathHelper;
 import org.apache.commons.lang3.Validate;
@@ -19,24 +23,37 @@ import java.util.function.Consumer;
 public class ChunkBuilder {
     static final Logger LOGGER = LogManager.getLogger("ChunkBuilder");
 
+    /**
+     * The number of jobs which can be queued for each worker thread before the scheduling budget is exhausted.
+     */
+    private static final int JOBS_PER_WORKER = 2;
+
     private volatile boolean isRunning;
 
-    private final ChunkJobQueue queue = new ChunkJobQueue();
+    private final ChunkJobScheduler queue;
 
     private final List<Thread> threads = new ArrayList<>();
 
     private final AtomicInteger busyThreadCount = new AtomicInteger();
 
+    private final ChunkBuilderStatistics statistics;
+
     private final ChunkBuildContext localContext;
 
     public ChunkBuilder(ClientWorld world, ChunkVertexType vertexType) {
         int count = getThreadCount();
 
+        this.queue = new ChunkJobScheduler(count);
+        this.statistics = new ChunkBuilderStatistics(count);
         this.isRunning = true;
 
+        // The table is shared by every worker, and must be created before any of them are started
+        var blockModels = MinecraftClient.getInstance().getBakedModelManager().getBlockModels();
+        var renderTable = BlockRenderTable.create(blockModels);
+
         for (int i = 0; i < count; i++) {
-            ChunkBuildContext context = new ChunkBuildContext(world, vertexType);
-            WorkerRunnable worker = new WorkerRunnable(context);
+            ChunkBuildContext context = new ChunkBuildContext(world, vertexType, renderTable);
+            WorkerRunnable worker = new WorkerRunnable(i, context);
 
             Thread thread = new Thread(worker, "Chunk Render Task Executor #" + i);
             thread.setPriority(Math.max(0, Thread.NORM_PRIORITY - 2));
@@ -47,15 +64,19 @@ public class ChunkBuilder {
 
         LOGGER.info("Started {} worker threads", this.threads.size());
 
-        this.localContext = new ChunkBuildContext(world, vertexType);
+        this.localContext = new ChunkBuildContext(world, vertexType, renderTable);
     }
 
     /**
      * Returns the remaining number of build tasks which should be scheduled this frame. If an attempt is made to
      * spawn more tasks than the budget allows, it will block until resources become available.
+     *
+     * Each worker is allowed to have a small backlog of jobs, so that it doesn't sit idle between the time it finishes
+     * its last job and the time that the next frame schedules more work. Since jobs which are made stale by a newer
+     * rebuild are dropped before they start, this doesn't cause any wasted work.
      */
     public int getSchedulingBudget() {
-        return Math.max(0, this.threads.size() - this.queue.size());
+        return Math.max(0, (this.threads.size() * JOBS_PER_WORKER) - this.queue.size());
     }
 
     /**
@@ -101,7 +122,20 @@ public class ChunkBuilder {
         this.threads.clear();
     }
 
-    public <TASK extends ChunkBuilderTask<OUTPUT>, OUTPUT> CancellationToken scheduleTask(TASK task, boolean asynchronous,
+    /**
+     * Schedules a task for execution on the worker threads. Jobs are executed in order of their update type's
+     * priority, and then in order of their distance to the camera.
+     *
+     * @param task The task to execute
+     * @param type The kind of update which the task performs, which determines its priority class
+     * @param distance The squared distance from the camera to the chunk section which the task updates
+     * @param asynchronous False if the main thread will block on the task's completion, otherwise true
+     * @param consumer The consumer which will receive the result of the task
+     * @return A token which can be used to cancel the task
+     */
+    public <TASK extends ChunkBuilderTask<OUTPUT>, OUTPUT> CancellationToken scheduleTask(TASK task, ChunkUpdateType type,
+                                                                                          float distance,
+                                                                                          boolean asynchronous,
                                                                                           Consumer<ChunkJobResult<OUTPUT>> consumer)
     {
         Validate.notNull(task, "Task must be non-null");
@@ -110,7 +144,7 @@ public class ChunkBuilder {
             throw new IllegalStateException("Executor is stopped");
         }
 
-        var job = new ChunkJobTyped<>(task, consumer);
+        var job = new ChunkJobTyped<>(task, consumer, type.getPriority(), distance);
 
         this.queue.add(job, asynchronous);
 
@@ -142,7 +176,7 @@ public class ChunkBuilder {
      * @return True if it was able to steal a task, otherwise false
      */
     public boolean stealBlockingTask() {
-        var job = this.queue.stealSynchronousJob();
+        var job = this.queue.stealBlockingJob();
 
         if (job == null) {
             return false;
@@ -175,12 +209,20 @@ public class ChunkBuilder {
         return this.threads.size();
     }
 
+    public ChunkBuilderStatistics getStatistics() {
+        return this.statistics;
+    }
+
     private class WorkerRunnable implements Runnable {
         // Making this thread-local provides a small boost to performance by avoiding the overhead in synchronizing
         // caches between different CPU cores
         private final ChunkBuildContext context;
 
-        public WorkerRunnable(ChunkBuildContext context) {
+        // The index of the queue which this worker takes jobs from before stealing from other workers
+        private final int index;
+
+        public WorkerRunnable(int index, ChunkBuildContext context) {
+            this.index = index;
             this.context = context;
         }
 
@@ -191,7 +233,7 @@ public class ChunkBuilder {
                 ChunkJob job;
 
                 try {
-                    job = ChunkBuilder.this.queue.waitForNextJob();
+                    job = ChunkBuilder.this.queue.waitForNextJob(this.index);
                 } catch (InterruptedException ignored) {
                     continue;
                 }
@@ -202,11 +244,28 @@ public class ChunkBuilder {
 
                 ChunkBuilder.this.busyThreadCount.getAndIncrement();
 
+                long startTime = System.nanoTime();
+                long queueLatency = startTime - job.getSubmitTime();
+
+                ChunkBuilder.this.statistics.onJobStarted(queueLatency);
+
+                var event = new ChunkBuildJobEvent();
+                event.begin();
+
                 try {
                     job.execute(this.context);
                 } finally {
                     this.context.cleanup();
 
+                    event.end();
+
+                    if (event.shouldCommit()) {
+                        event.queueLatency = queueLatency;
+                        event.priority = job.getPriority();
+                        event.commit();
+                    }
+
+                    ChunkBuilder.this.statistics.onJobFinished(this.index, System.nanoTime() - startTime);
                     ChunkBuilder.this.busyThreadCount.decrementAndGet();
                 }
             }
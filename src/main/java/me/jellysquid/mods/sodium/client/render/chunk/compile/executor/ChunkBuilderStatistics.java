@@ -0,0 +1,67 @@
+package me.jellysquid.mods.sodium.client.render.chunk.compile.executor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accumulates how long jobs wait in the queue and how long each worker spends executing them. The values are summed
+ * up by the workers as jobs run, and taken by the render thread once per frame, which resets them.
+ *
+ * The values are updated separately, so a job which starts while they are being taken may be counted in the total
+ * latency of one frame and the job count of the next. This only skews the average for that pair of frames slightly.
+ */
+public class ChunkBuilderStatistics {
+    private final AtomicLongArray workerBusyTime;
+
+    private final AtomicLong startedJobs = new AtomicLong();
+    private final AtomicLong totalQueueLatency = new AtomicLong();
+    private final AtomicLong maxQueueLatency = new AtomicLong();
+
+    ChunkBuilderStatistics(int workerCount) {
+        this.workerBusyTime = new AtomicLongArray(workerCount);
+    }
+
+    void onJobStarted(long queueLatency) {
+        this.startedJobs.incrementAndGet();
+        this.totalQueueLatency.addAndGet(queueLatency);
+        this.maxQueueLatency.accumulateAndGet(queueLatency, Math::max);
+    }
+
+    void onJobFinished(int worker, long busyTime) {
+        this.workerBusyTime.addAndGet(worker, busyTime);
+    }
+
+    public int getWorkerCount() {
+        return this.workerBusyTime.length();
+    }
+
+    /**
+     * Returns the time in nanoseconds which the worker has spent executing jobs since this was last called.
+     */
+    public long takeWorkerBusyTime(int worker) {
+        return this.workerBusyTime.getAndSet(worker, 0L);
+    }
+
+    /**
+     * Returns the number of jobs which workers have started since this was last called.
+     */
+    public long takeStartedJobs() {
+        return this.startedJobs.getAndSet(0L);
+    }
+
+    /**
+     * Returns the sum of the time in nanoseconds which jobs waited in the queue before starting, for the jobs which
+     * were started since this was last called.
+     */
+    public long takeTotalQueueLatency() {
+        return this.totalQueueLatency.getAndSet(0L);
+    }
+
+    /**
+     * Returns the longest time in nanoseconds which a job waited in the queue before starting, out of the jobs which
+     * were started since this was last called.
+     */
+    public long takeMaxQueueLatency() {
+        return this.maxQueueLatency.getAndSet(0L);
+    }
+}
@@ -5,4 +5,20 @@ import me.jellysquid.mods.sodium.client.util.task.CancellationToken;
 
 public interface ChunkJob extends CancellationToken {
     void execute(ChunkBuildContext context);
+
+    /**
+     * Returns the priority class of this job, where jobs with a lower value are executed first.
+     */
+    int getPriority();
+
+    /**
+     * Returns the squared distance from the camera to this job's chunk section at the time it was scheduled. Within a
+     * priority class, jobs which are closer to the camera are executed first.
+     */
+    float getDistance();
+
+    /**
+     * Returns the value of {@link System#nanoTime()} at the time this job was scheduled.
+     */
+    long getSubmitTime();
 }
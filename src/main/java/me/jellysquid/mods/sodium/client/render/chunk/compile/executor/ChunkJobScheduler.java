@@ -0,0 +1,192 @@
+package me.jellysquid.mods.sodium.client.render.chunk.compile.executor;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Distributes chunk jobs between the worker threads of a {@link ChunkBuilder}. Jobs are spread over several queues
+ * which are each ordered by priority class and then by distance to the camera, so that the workers don't all contend
+ * on a single lock. A worker looking for a job compares the heads of every queue and takes the most important one,
+ * which keeps the jobs close to their global order. Blocking jobs are kept in a separate shared queue, since they can
+ * also be stolen by the main thread while it waits for them to complete.
+ *
+ * The semaphore always holds one permit for each job which has been added and not yet removed, so a thread which
+ * acquires a permit is guaranteed that some queue contains a job for it.
+ */
+class ChunkJobScheduler {
+    private static final Comparator<ChunkJob> JOB_ORDER = Comparator.comparingInt(ChunkJob::getPriority)
+            .thenComparingDouble(ChunkJob::getDistance);
+
+    private final ConcurrentLinkedDeque<ChunkJob> blockingJobs = new ConcurrentLinkedDeque<>();
+    private final WorkerQueue[] workerQueues;
+
+    private final Semaphore semaphore = new Semaphore(0);
+
+    // Jobs are only ever added from the main thread, so this doesn't need to be synchronized
+    private int nextWorkerQueue;
+
+    public ChunkJobScheduler(int workerCount) {
+        this.workerQueues = new WorkerQueue[Math.max(1, workerCount)];
+
+        for (int i = 0; i < this.workerQueues.length; i++) {
+            this.workerQueues[i] = new WorkerQueue();
+        }
+    }
+
+    public void add(ChunkJob job, boolean asynchronous) {
+        if (asynchronous) {
+            // Spread jobs evenly over the queues to split up the lock contention. This doesn't decide which worker
+            // runs the job, since workers always take the best job out of all the queues.
+            this.workerQueues[this.nextWorkerQueue].add(job);
+            this.nextWorkerQueue = (this.nextWorkerQueue + 1) % this.workerQueues.length;
+        } else {
+            this.blockingJobs.add(job);
+        }
+
+        this.semaphore.release(1);
+    }
+
+    /**
+     * Blocks until a job is available for the given worker. Jobs which were cancelled while waiting in the queue are
+     * dropped here without ever being started, in which case null is returned.
+     */
+    @Nullable
+    public ChunkJob waitForNextJob(int workerIndex) throws InterruptedException {
+        this.semaphore.acquire();
+
+        return dropIfCancelled(this.takeJob(workerIndex));
+    }
+
+    @Nullable
+    public ChunkJob stealBlockingJob() {
+        while (this.semaphore.tryAcquire()) {
+            var job = this.blockingJobs.poll();
+
+            if (job == null) {
+                // If there was nothing in the blocking queue, that means the permit belongs to an asynchronous job,
+                // and we need to return it
+                this.semaphore.release(1);
+
+                return null;
+            }
+
+            if (!job.isCancelled()) {
+                return job;
+            }
+        }
+
+        return null;
+    }
+
+    private ChunkJob takeJob(int workerIndex) {
+        // We hold a permit, so a job must exist somewhere. It may be taken by a thief while we search for it, but in
+        // that case another job must still exist for the permit which we hold.
+        while (true) {
+            ChunkJob job;
+
+            if ((job = this.blockingJobs.poll()) != null) {
+                return job;
+            }
+
+            // Find the queue with the most important job at its head. Ties are broken in favor of the worker's own
+            // queue, since it is searched first.
+            WorkerQueue bestQueue = null;
+            ChunkJob bestJob = null;
+
+            for (int i = 0; i < this.workerQueues.length; i++) {
+                var queue = this.workerQueues[(workerIndex + i) % this.workerQueues.length];
+                var head = queue.peek();
+
+                if (head != null && (bestJob == null || JOB_ORDER.compare(head, bestJob) < 0)) {
+                    bestQueue = queue;
+                    bestJob = head;
+                }
+            }
+
+            // If another thread takes the head before we do, this returns the next job in the same queue instead,
+            // which is still a good choice
+            if (bestQueue != null && (job = bestQueue.poll()) != null) {
+                return job;
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Removes the jobs which were cancelled while waiting in the queues, so that they aren't counted by
+     * {@link #size()}. Each job is only removed if its permit can be taken back from the semaphore, since otherwise
+     * the permit belongs to a thread which is already searching for a job.
+     */
+    private void removeCancelledJobs() {
+        for (var job : this.blockingJobs) {
+            if (job.isCancelled() && this.semaphore.tryAcquire()) {
+                if (!this.blockingJobs.remove(job)) {
+                    // Another thread took the job first, so it owns the permit
+                    this.semaphore.release(1);
+                }
+            }
+        }
+
+        for (var queue : this.workerQueues) {
+            queue.removeCancelled(this.semaphore);
+        }
+    }
+
+    @Nullable
+    private static ChunkJob dropIfCancelled(ChunkJob job) {
+        return job.isCancelled() ? null : job;
+    }
+
+    public Collection<ChunkJob> removeAll() {
+        var list = new ArrayDeque<ChunkJob>();
+
+        while (this.semaphore.tryAcquire()) {
+            list.add(this.takeJob(0));
+        }
+
+        return list;
+    }
+
+    /**
+     * Returns the number of jobs which are waiting to be executed. Jobs which have been cancelled are removed first, so
+     * that they don't take up space in the scheduling budget of the chunk builder.
+     */
+    public int size() {
+        this.removeCancelledJobs();
+
+        return this.semaphore.availablePermits();
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    private static class WorkerQueue {
+        private final PriorityQueue<ChunkJob> jobs = new PriorityQueue<>(JOB_ORDER);
+
+        public synchronized void add(ChunkJob job) {
+            this.jobs.add(job);
+        }
+
+        @Nullable
+        public synchronized ChunkJob peek() {
+            return this.jobs.peek();
+        }
+
+        @Nullable
+        public synchronized ChunkJob poll() {
+            return this.jobs.poll();
+        }
+
+        public synchronized void removeCancelled(Semaphore permits) {
+            this.jobs.removeIf(job -> job.isCancelled() && permits.tryAcquire());
+        }
+    }
+}
@@ -11,11 +11,18 @@ public class ChunkJobTyped<TASK extends ChunkBuilderTask<OUTPUT>, OUTPUT>
     private final TASK task;
     private final Consumer<ChunkJobResult<OUTPUT>> consumer;
 
+    private final int priority;
+    private final float distance;
+    private final long submitTime;
+
     private volatile boolean cancelled;
 
-    ChunkJobTyped(TASK task, Consumer<ChunkJobResult<OUTPUT>> consumer) {
+    ChunkJobTyped(TASK task, Consumer<ChunkJobResult<OUTPUT>> consumer, int priority, float distance) {
         this.task = task;
         this.consumer = consumer;
+        this.priority = priority;
+        this.distance = distance;
+        this.submitTime = System.nanoTime();
     }
 
     @Override
@@ -28,6 +35,21 @@ public class ChunkJobTyped<TASK extends ChunkBuilderTask<OUTPUT>, OUTPUT>
         this.cancelled = true;
     }
 
+    @Override
+    public int getPriority() {
+        return this.priority;
+    }
+
+    @Override
+    public float getDistance() {
+        return this.distance;
+    }
+
+    @Override
+    public long getSubmitTime() {
+        return this.submitTime;
+    }
+
     @Override
     public void execute(ChunkBuildContext context) {
         // Task was cancelled before starting
@@ -6,7 +6,6 @@ import me.jellysquid.mods.sodium.client.model.light.data.ArrayLightDataCache;
 import me.jellysquid.mods.sodium.client.world.WorldSlice;
 import me.jellysquid.mods.sodium.client.world.cloned.ChunkRenderContext;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.render.block.BlockModels;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.world.World;
 
@@ -16,10 +15,10 @@ public class BlockRenderCache {
     private final BlockRenderer blockRenderer;
     private final FluidRenderer fluidRenderer;
 
-    private final BlockModels blockModels;
+    private final BlockRenderTable renderTable;
     private final WorldSlice worldSlice;
 
-    public BlockRenderCache(MinecraftClient client, ClientWorld world) {
+    public BlockRenderCache(MinecraftClient client, ClientWorld world, BlockRenderTable renderTable) {
         this.worldSlice = new WorldSlice(world);
         this.lightDataCache = new ArrayLightDataCache(this.worldSlice);
 
@@ -30,11 +29,11 @@ public class BlockRenderCache {
         this.blockRenderer = new BlockRenderer(colorRegistry, lightPipelineProvider);
         this.fluidRenderer = new FluidRenderer(colorRegistry, lightPipelineProvider);
 
-        this.blockModels = client.getBakedModelManager().getBlockModels();
+        this.renderTable = renderTable;
     }
 
-    public BlockModels getBlockModels() {
-        return this.blockModels;
+    public BlockRenderTable getRenderTable() {
+        return this.renderTable;
     }
 
     public BlockRenderer getBlockRenderer() {
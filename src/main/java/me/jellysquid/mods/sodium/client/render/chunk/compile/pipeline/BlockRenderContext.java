@@ -1,9 +1,11 @@
 package me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline;
 
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.Material;
 import me.jellysquid.mods.sodium.client.world.WorldSlice;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.render.model.BakedModel;
 import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
 import org.joml.Vector3f;
 import org.joml.Vector3fc;
 
@@ -16,6 +18,9 @@ public class BlockRenderContext {
 
     private BlockState state;
     private BakedModel model;
+    private SimpleCubeModel simpleCube;
+    private Material material;
+    private boolean hasModelOffset;
 
     private long seed;
 
@@ -24,12 +29,16 @@ public class BlockRenderContext {
         this.world = world;
     }
 
-    public void update(BlockPos pos, BlockPos origin, BlockState state, BakedModel model, long seed) {
+    public void update(BlockPos pos, BlockPos origin, BlockState state, BakedModel model,
+                       @Nullable SimpleCubeModel simpleCube, Material material, boolean hasModelOffset, long seed) {
         this.pos.set(pos);
         this.origin.set(origin.getX(), origin.getY(), origin.getZ());
 
         this.state = state;
         this.model = model;
+        this.simpleCube = simpleCube;
+        this.material = material;
+        this.hasModelOffset = hasModelOffset;
 
         this.seed = seed;
     }
@@ -62,6 +71,27 @@ public class BlockRenderContext {
         return this.model;
     }
 
+    /**
+     * @return The descriptor of the model if it's a simple cube, otherwise null
+     */
+    public @Nullable SimpleCubeModel simpleCube() {
+        return this.simpleCube;
+    }
+
+    /**
+     * @return The material which this block is rendered with
+     */
+    public Material material() {
+        return this.material;
+    }
+
+    /**
+     * @return True if the model of this block is offset depending on its position
+     */
+    public boolean hasModelOffset() {
+        return this.hasModelOffset;
+    }
+
     /**
      * @return The origin of the block within the model
      */
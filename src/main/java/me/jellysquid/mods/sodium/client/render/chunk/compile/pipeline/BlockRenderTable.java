@@ -0,0 +1,225 @@
+package me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline;
+
+import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.DefaultMaterials;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.Material;
+import me.jellysquid.mods.sodium.client.world.BlockStateExtended;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockRenderType;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.block.BlockModels;
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EmptyBlockView;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds the properties of every block state which the chunk meshing loop needs, so that they can be read with a single
+ * array access per block instead of a series of virtual calls. The flags of each state are packed into an int along
+ * with the index of its material, and its model is stored in a parallel array. If the model is a
+ * {@link SimpleCubeModel}, its descriptor is stored in another array, and shared by every state with the same model.
+ *
+ * The table is indexed by the raw ids of the block states in {@link Block#STATE_IDS}, which are stored into each state
+ * when the table is created. Since the models and render layers of the blocks can change whenever resources or options
+ * are reloaded, a new table is created along with every chunk builder.
+ *
+ * Block states which weren't registered when the table was created are handled by computing their properties each
+ * time they are requested.
+ */
+public class BlockRenderTable {
+    /**
+     * Indicates that the block state has none of the other flags, and that nothing needs to be done for it.
+     */
+    public static final int EMPTY = 0;
+
+    /**
+     * Indicates that the block state is rendered with its baked model.
+     */
+    public static final int HAS_MODEL = 1 << 0;
+
+    /**
+     * Indicates that the block state contains a non-empty fluid state.
+     */
+    public static final int HAS_FLUID = 1 << 1;
+
+    /**
+     * Indicates that the block state has a block entity.
+     */
+    public static final int HAS_BLOCK_ENTITY = 1 << 2;
+
+    /**
+     * Indicates that the block state is always an opaque full cube, regardless of its position.
+     */
+    public static final int IS_OPAQUE_FULL_CUBE = 1 << 3;
+
+    /**
+     * Indicates that the shape of the block state depends on its position, so whether it's an opaque full cube must be
+     * checked in the world.
+     */
+    public static final int HAS_DYNAMIC_SHAPE = 1 << 4;
+
+    /**
+     * Indicates that the model of the block state is offset randomly depending on its position.
+     */
+    public static final int HAS_MODEL_OFFSET = 1 << 5;
+
+    private static final int MATERIAL_SHIFT = 8;
+    private static final int MATERIAL_MASK = 0b11;
+
+    // The materials which blocks can be rendered with, in the order of their indices in the flags
+    private static final Material[] MATERIALS = new Material[] {
+            DefaultMaterials.SOLID,
+            DefaultMaterials.CUTOUT,
+            DefaultMaterials.CUTOUT_MIPPED,
+            DefaultMaterials.TRANSLUCENT
+    };
+
+    private final BlockModels blockModels;
+
+    private final int[] flags;
+    private final BakedModel[] models;
+    private final SimpleCubeModel[] simpleCubes;
+
+    private BlockRenderTable(BlockModels blockModels, int size) {
+        this.blockModels = blockModels;
+
+        this.flags = new int[size];
+        this.models = new BakedModel[size];
+        this.simpleCubes = new SimpleCubeModel[size];
+    }
+
+    /**
+     * Creates the table for every registered block state with their current models and render layers. This must be
+     * called before any thread uses the table, since it also updates the index stored in each block state.
+     */
+    public static BlockRenderTable create(BlockModels blockModels) {
+        var table = new BlockRenderTable(blockModels, Block.STATE_IDS.size());
+        var simpleCubes = new Reference2ReferenceOpenHashMap<BakedModel, SimpleCubeModel>();
+
+        for (int index = 0; index < table.flags.length; index++) {
+            BlockState state = Block.STATE_IDS.get(index);
+
+            if (state == null) {
+                continue;
+            }
+
+            int flags = createFlags(state);
+
+            table.flags[index] = flags;
+
+            if (contains(flags, HAS_MODEL)) {
+                BakedModel model = blockModels.getModel(state);
+
+                table.models[index] = model;
+
+                // Models which aren't simple cubes are stored as null, so that they are also only checked once
+                if (!simpleCubes.containsKey(model)) {
+                    simpleCubes.put(model, SimpleCubeModel.create(state, model));
+                }
+
+                table.simpleCubes[index] = simpleCubes.get(model);
+            }
+
+            BlockStateExtended.of(state)
+                    .sodium$setRenderTableIndex(index);
+        }
+
+        return table;
+    }
+
+    /**
+     * @return The flags of the block state, including the index of its material
+     */
+    public int getFlags(BlockState state) {
+        int index = BlockStateExtended.of(state)
+                .sodium$getRenderTableIndex();
+
+        if (index >= 0 && index < this.flags.length) {
+            return this.flags[index];
+        }
+
+        return createFlags(state);
+    }
+
+    /**
+     * @return The model of the block state, which must have the flag {@link #HAS_MODEL}
+     */
+    public BakedModel getModel(BlockState state) {
+        int index = BlockStateExtended.of(state)
+                .sodium$getRenderTableIndex();
+
+        if (index >= 0 && index < this.models.length) {
+            return this.models[index];
+        }
+
+        return this.blockModels.getModel(state);
+    }
+
+    /**
+     * @return The descriptor of the block state's model if it's a simple cube, otherwise null
+     */
+    public @Nullable SimpleCubeModel getSimpleCube(BlockState state) {
+        int index = BlockStateExtended.of(state)
+                .sodium$getRenderTableIndex();
+
+        if (index >= 0 && index < this.simpleCubes.length) {
+            return this.simpleCubes[index];
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The material which the block state is rendered with, given its flags from this table
+     */
+    public static Material getMaterial(int flags) {
+        return MATERIALS[(flags >>> MATERIAL_SHIFT) & MATERIAL_MASK];
+    }
+
+    /**
+     * @return True if the flags of a block state contain the given flag
+     */
+    public static boolean contains(int flags, int mask) {
+        return (flags & mask) != 0;
+    }
+
+    private static int createFlags(BlockState state) {
+        int flags = EMPTY;
+
+        if (state.getRenderType() == BlockRenderType.MODEL) {
+            flags |= HAS_MODEL;
+            flags |= getMaterialIndex(DefaultMaterials.forBlockState(state)) << MATERIAL_SHIFT;
+
+            if (state.hasModelOffset()) {
+                flags |= HAS_MODEL_OFFSET;
+            }
+        }
+
+        if (!state.getFluidState().isEmpty()) {
+            flags |= HAS_FLUID;
+        }
+
+        if (state.hasBlockEntity()) {
+            flags |= HAS_BLOCK_ENTITY;
+        }
+
+        // Block states without dynamic bounds cache their shapes, and ignore the world and position they are given
+        if (state.getBlock().hasDynamicBounds()) {
+            flags |= HAS_DYNAMIC_SHAPE;
+        } else if (state.isOpaqueFullCube(EmptyBlockView.INSTANCE, BlockPos.ORIGIN)) {
+            flags |= IS_OPAQUE_FULL_CUBE;
+        }
+
+        return flags;
+    }
+
+    private static int getMaterialIndex(Material material) {
+        for (int index = 0; index < MATERIALS.length; index++) {
+            if (MATERIALS[index] == material) {
+                return index;
+            }
+        }
+
+        throw new IllegalArgumentException("Material is not one of the default materials");
+    }
+}
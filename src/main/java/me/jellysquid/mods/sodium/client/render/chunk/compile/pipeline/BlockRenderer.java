@@ -11,7 +11,6 @@ import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
 import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadOrientation;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkBuildBuffers;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.buffers.ChunkModelBuilder;
-import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.DefaultMaterials;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.Material;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexEncoder;
 import me.jellysquid.mods.sodium.client.util.DirectionUtil;
@@ -54,20 +53,27 @@ public class BlockRenderer {
     }
 
     public void renderModel(BlockRenderContext ctx, ChunkBuildBuffers buffers) {
-        var material = DefaultMaterials.forBlockState(ctx.state());
+        var material = ctx.material();
         var meshBuilder = buffers.get(material);
 
-        ColorProvider<BlockState> colorizer = this.colorProviderRegistry.getColorProvider(ctx.state().getBlock());
-
         LightPipeline lighter = this.lighters.getLighter(this.getLightingMode(ctx.state(), ctx.model()));
         Vec3d renderOffset;
         
-        if (ctx.state().hasModelOffset()) {
+        if (ctx.hasModelOffset()) {
             renderOffset = ctx.state().getModelOffset(ctx.world(), ctx.pos());
         } else {
             renderOffset = Vec3d.ZERO;
         }
 
+        var simpleCube = ctx.simpleCube();
+
+        if (simpleCube != null) {
+            this.renderSimpleCube(ctx, simpleCube, material, lighter, renderOffset, meshBuilder);
+            return;
+        }
+
+        ColorProvider<BlockState> colorizer = this.colorProviderRegistry.getColorProvider(ctx.state().getBlock());
+
         for (Direction face : DirectionUtil.ALL_DIRECTIONS) {
             List<BakedQuad> quads = this.getGeometry(ctx, face);
 
@@ -83,6 +89,39 @@ public class BlockRenderer {
         }
     }
 
+    /**
+     * Renders a model which has exactly one quad on each face and doesn't depend on the random seed. The quads are
+     * taken from the descriptor, so the model never needs to be queried, and the color provider is only looked up if
+     * one of the quads is tinted.
+     */
+    private void renderSimpleCube(BlockRenderContext ctx, SimpleCubeModel model, Material material,
+                                  LightPipeline lighter, Vec3d offset, ChunkModelBuilder builder) {
+        ColorProvider<BlockState> colorizer = null;
+
+        if (model.isTinted()) {
+            colorizer = this.colorProviderRegistry.getColorProvider(ctx.state().getBlock());
+        }
+
+        for (Direction face : DirectionUtil.ALL_DIRECTIONS) {
+            if (!this.isFaceVisible(ctx, face)) {
+                continue;
+            }
+
+            BakedQuadView quad = model.getFace(face);
+
+            final var lightData = this.getVertexLight(ctx, lighter, face, quad);
+            final var vertexColors = this.getVertexColors(ctx, colorizer, quad);
+
+            this.writeGeometry(ctx, builder, offset, material, quad, vertexColors, lightData);
+
+            Sprite sprite = quad.getSprite();
+
+            if (sprite != null) {
+                builder.addSprite(sprite);
+            }
+        }
+    }
+
     private List<BakedQuad> getGeometry(BlockRenderContext ctx, Direction face) {
         var random = this.random;
         random.setSeed(ctx.seed());
@@ -0,0 +1,83 @@
+package me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline;
+
+import me.jellysquid.mods.sodium.client.model.quad.BakedQuadView;
+import me.jellysquid.mods.sodium.client.util.DirectionUtil;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.BakedQuad;
+import net.minecraft.client.render.model.BasicBakedModel;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.random.LocalRandom;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Describes a model which has exactly one quad on each face of the block and no quads which are never culled, and
+ * which returns the same quads regardless of the block state and random seed it is rendered with. Most full blocks,
+ * such as stone or planks, have models like this.
+ *
+ * The quads of these models can be taken directly from the descriptor, instead of seeding the random number generator
+ * and querying the model for each face.
+ */
+public class SimpleCubeModel {
+    private final BakedQuadView[] faces;
+    private final boolean tinted;
+
+    private SimpleCubeModel(BakedQuadView[] faces, boolean tinted) {
+        this.faces = faces;
+        this.tinted = tinted;
+    }
+
+    /**
+     * Creates the descriptor for the given model, if it's a simple cube.
+     *
+     * @param state The block state which the model belongs to
+     * @return The descriptor of the model, or null if it isn't a simple cube
+     */
+    public static @Nullable SimpleCubeModel create(BlockState state, BakedModel model) {
+        // Only vanilla's basic models are known to ignore the random seed, since subclasses and other models can
+        // choose their quads however they want
+        if (model.getClass() != BasicBakedModel.class) {
+            return null;
+        }
+
+        var random = new LocalRandom(42L);
+
+        if (!model.getQuads(state, null, random).isEmpty()) {
+            return null;
+        }
+
+        var faces = new BakedQuadView[DirectionUtil.ALL_DIRECTIONS.length];
+        boolean tinted = false;
+
+        for (Direction face : DirectionUtil.ALL_DIRECTIONS) {
+            List<BakedQuad> quads = model.getQuads(state, face, random);
+
+            if (quads.size() != 1) {
+                return null;
+            }
+
+            var quad = (BakedQuadView) quads.get(0);
+            faces[face.ordinal()] = quad;
+
+            tinted |= quad.hasColor();
+        }
+
+        return new SimpleCubeModel(faces, tinted);
+    }
+
+    /**
+     * @return The quad on the given face of the block
+     */
+    public BakedQuadView getFace(Direction face) {
+        return this.faces[face.ordinal()];
+    }
+
+    /**
+     * @return True if any of the quads are tinted by the block's color provider
+     */
+    public boolean isTinted() {
+        return this.tinted;
+    }
+}
@@ -1,32 +1,46 @@
 package me.jellysquid.mods.sodium.client.render.chunk.compile.tasks;
 
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMaps;
 import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
+import me.jellysquid.mods.sodium.client.gl.arena.staging.StagingRing;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkBuildContext;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.DefaultTerrainRenderPasses;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.Material;
 import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkBuildBuffers;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkBuildOutput;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkSortOutput;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline.BlockRenderCache;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline.BlockRenderContext;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline.BlockRenderTable;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.pipeline.SimpleCubeModel;
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionMeshParts;
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionInfo;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionMeshCache;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionMeshSnapshot;
+import me.jellysquid.mods.sodium.client.render.chunk.data.TranslucentQuadData;
+import me.jellysquid.mods.sodium.client.render.chunk.occlusion.VisibilityBuilder;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexType;
+import me.jellysquid.mods.sodium.client.render.metrics.ChunkUpdateTrace;
 import me.jellysquid.mods.sodium.client.util.task.CancellationToken;
 import me.jellysquid.mods.sodium.client.world.WorldSlice;
 import me.jellysquid.mods.sodium.client.world.cloned.ChunkRenderContext;
-import net.minecraft.block.BlockRenderType;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.block.entity.BlockEntityRenderer;
-import net.minecraft.client.render.chunk.ChunkOcclusionDataBuilder;
 import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.texture.Sprite;
 import net.minecraft.fluid.FluidState;
 import net.minecraft.util.crash.CrashException;
 import net.minecraft.util.crash.CrashReport;
 import net.minecraft.util.crash.CrashReportSection;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.math.random.Random;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 
@@ -36,23 +50,99 @@ import java.util.Map;
  *
  * This task takes a slice of the world from the thread it is created on. Since these slices require rather large
  * array allocations, they are pooled to ensure that the garbage collector doesn't become overloaded.
+ *
+ * If a {@link SectionMeshCache} is given, the meshes are restored from it when the contents of the slice haven't
+ * changed since they were last built, and are otherwise stored into it after being built.
+ *
+ * If the meshes are retained, a {@link SectionMeshSnapshot} of them is passed back with the result. When the snapshot
+ * of the section's current meshes is given to a later task, only the given range of block layers is re-meshed, and the
+ * rest of the meshes are copied from the snapshot. The occlusion data and block entities are always collected from the
+ * whole section, since they are cheap to find compared to meshing the blocks.
+ *
+ * The quads of render passes which need to be sorted are sorted from the camera position the task was created with,
+ * and their meshes are never written into the staging ring, since they need to be read back for sorting.
  */
 public class ChunkBuilderMeshingTask extends ChunkBuilderTask<ChunkBuildOutput> {
     private final RenderSection render;
     private final ChunkRenderContext renderContext;
 
+    private final @Nullable SectionMeshCache meshCache;
+    private final @Nullable StagingRing stagingRing;
+
+    private final @Nullable SectionMeshSnapshot previousMesh;
+    private final int minLayer, maxLayer;
+    private final boolean retainMesh;
+
+    private final Vec3d cameraPosition;
+
     private final int buildTime;
 
-    public ChunkBuilderMeshingTask(RenderSection render, ChunkRenderContext renderContext, int time) {
+    private final @Nullable ChunkUpdateTrace trace;
+
+    /**
+     * @param stagingRing The ring to write the finished meshes into, or null if they should be kept in native buffers
+     * @param previousMesh The snapshot of the section's current meshes, or null if every layer should be re-meshed
+     * @param minLayer The first layer of blocks to re-mesh if a previous snapshot is given
+     * @param maxLayer The last layer of blocks (inclusive) to re-mesh if a previous snapshot is given
+     * @param retainMesh True if a snapshot of the built meshes should be returned with the result
+     * @param cameraPosition The position of the camera to sort translucent quads from
+     * @param trace The trace to record the start and finish of the build into, or null if it shouldn't be recorded
+     */
+    public ChunkBuilderMeshingTask(RenderSection render, ChunkRenderContext renderContext,
+                                   @Nullable SectionMeshCache meshCache, @Nullable StagingRing stagingRing,
+                                   @Nullable SectionMeshSnapshot previousMesh, int minLayer, int maxLayer,
+                                   boolean retainMesh, Vec3d cameraPosition, int time,
+                                   @Nullable ChunkUpdateTrace trace) {
         this.render = render;
         this.renderContext = renderContext;
+        this.meshCache = meshCache;
+        this.stagingRing = stagingRing;
+
+        this.previousMesh = previousMesh;
+        this.minLayer = previousMesh != null ? minLayer : 0;
+        this.maxLayer = previousMesh != null ? maxLayer : SectionMeshSnapshot.LAYERS - 1;
+        this.retainMesh = retainMesh || previousMesh != null;
+
+        this.cameraPosition = cameraPosition;
         this.buildTime = time;
+        this.trace = trace;
     }
 
     @Override
     public ChunkBuildOutput execute(ChunkBuildContext buildContext, CancellationToken cancellationToken) {
+        if (this.trace != null) {
+            this.trace.markStarted();
+        }
+
+        var output = this.build(buildContext, cancellationToken);
+
+        if (this.trace != null) {
+            this.trace.markFinished();
+        }
+
+        return output;
+    }
+
+    private ChunkBuildOutput build(ChunkBuildContext buildContext, CancellationToken cancellationToken) {
+        long position = this.renderContext.getOrigin().asLong();
+        long contentHash = this.renderContext.getContentHash();
+
+        boolean cacheable = this.meshCache != null && !this.renderContext.hasBlockEntityAttachments();
+
+        // Meshes restored from the cache can't be retained, since the layers they are split into are not stored
+        if (cacheable && !this.retainMesh) {
+            SectionMeshCache.Entry entry = this.meshCache.load(position, contentHash);
+
+            if (entry != null) {
+                var sortOutput = this.sortTranslucentMeshes(buildContext.buffers.getVertexType(), entry.meshes());
+
+                return new ChunkBuildOutput(this.render, entry.info(), entry.meshes(), null, sortOutput,
+                        this.buildTime, this.trace);
+            }
+        }
+
         BuiltSectionInfo.Builder renderData = new BuiltSectionInfo.Builder();
-        ChunkOcclusionDataBuilder occluder = new ChunkOcclusionDataBuilder();
+        VisibilityBuilder occluder = new VisibilityBuilder();
 
         ChunkBuildBuffers buffers = buildContext.buffers;
         buffers.init(renderData, this.render.getSectionIndex());
@@ -61,6 +151,7 @@ public class ChunkBuilderMeshingTask extends ChunkBuilderTask<ChunkBuildOutput>
         cache.init(this.renderContext);
 
         WorldSlice slice = cache.getWorldSlice();
+        BlockRenderTable renderTable = cache.getRenderTable();
 
         int minX = this.render.getOriginX();
         int minY = this.render.getOriginY();
@@ -82,35 +173,49 @@ public class ChunkBuilderMeshingTask extends ChunkBuilderTask<ChunkBuildOutput>
                     return null;
                 }
 
+                int layer = y & 15;
+                boolean remesh = layer >= this.minLayer && layer <= this.maxLayer;
+
+                if (remesh) {
+                    buffers.beginLayer(layer);
+                    renderData.beginLayer(layer);
+                }
+
                 for (int z = minZ; z < maxZ; z++) {
                     for (int x = minX; x < maxX; x++) {
                         BlockState blockState = slice.getBlockState(x, y, z);
+                        int flags = renderTable.getFlags(blockState);
 
-                        if (blockState.isAir()) {
+                        // Air, and any other block which is never rendered and never occludes anything, is skipped
+                        if (flags == BlockRenderTable.EMPTY) {
                             continue;
                         }
 
                         blockPos.set(x, y, z);
                         modelOffset.set(x & 15, y & 15, z & 15);
 
-                        if (blockState.getRenderType() == BlockRenderType.MODEL) {
-                            BakedModel model = cache.getBlockModels()
-                                .getModel(blockState);
+                        if (remesh && BlockRenderTable.contains(flags, BlockRenderTable.HAS_MODEL)) {
+                            BakedModel model = renderTable.getModel(blockState);
+                            SimpleCubeModel simpleCube = renderTable.getSimpleCube(blockState);
+
+                            Material material = BlockRenderTable.getMaterial(flags);
+                            boolean hasOffset = BlockRenderTable.contains(flags, BlockRenderTable.HAS_MODEL_OFFSET);
 
                             long seed = blockState.getRenderingSeed(blockPos);
 
-                            context.update(blockPos, modelOffset, blockState, model, seed);
+                            context.update(blockPos, modelOffset, blockState, model, simpleCube, material, hasOffset,
+                                    seed);
                             cache.getBlockRenderer()
                                 .renderModel(context, buffers);
                         }
 
-                        FluidState fluidState = blockState.getFluidState();
+                        if (remesh && BlockRenderTable.contains(flags, BlockRenderTable.HAS_FLUID)) {
+                            FluidState fluidState = blockState.getFluidState();
 
-                        if (!fluidState.isEmpty()) {
                             cache.getFluidRenderer().render(slice, fluidState, blockPos, modelOffset, buffers);
                         }
 
-                        if (blockState.hasBlockEntity()) {
+                        if (BlockRenderTable.contains(flags, BlockRenderTable.HAS_BLOCK_ENTITY)) {
                             BlockEntity entity = slice.getBlockEntity(blockPos);
 
                             if (entity != null) {
@@ -122,11 +227,17 @@ public class ChunkBuilderMeshingTask extends ChunkBuilderTask<ChunkBuildOutput>
                             }
                         }
 
-                        if (blockState.isOpaqueFullCube(slice, blockPos)) {
-                            occluder.markClosed(blockPos);
+                        if (BlockRenderTable.contains(flags, BlockRenderTable.IS_OPAQUE_FULL_CUBE) ||
+                                (BlockRenderTable.contains(flags, BlockRenderTable.HAS_DYNAMIC_SHAPE) &&
+                                        blockState.isOpaqueFullCube(slice, blockPos))) {
+                            occluder.markClosed(x, y, z);
                         }
                     }
                 }
+
+                if (remesh) {
+                    buffers.endLayer();
+                }
             }
         } catch (CrashException ex) {
             // Propagate existing crashes (add context)
@@ -137,9 +248,28 @@ public class ChunkBuilderMeshingTask extends ChunkBuilderTask<ChunkBuildOutput>
         }
 
         Map<TerrainRenderPass, BuiltSectionMeshParts> meshes = new Reference2ReferenceOpenHashMap<>();
+        Map<TerrainRenderPass, SectionMeshSnapshot.Pass> snapshotPasses = new Reference2ReferenceOpenHashMap<>();
+
+        // Meshes in the staging ring can't be read back, so they can only be written there if they won't be cached
+        StagingRing stagingRing = cacheable ? null : this.stagingRing;
 
         for (TerrainRenderPass pass : DefaultTerrainRenderPasses.ALL) {
-            BuiltSectionMeshParts mesh = buffers.createMesh(pass);
+            BuiltSectionMeshParts mesh;
+            StagingRing passStagingRing = pass.isSorted() ? null : stagingRing;
+
+            if (this.retainMesh) {
+                var previous = this.previousMesh != null ? this.previousMesh.getPass(pass) : null;
+                var snapshot = buffers.createSnapshot(pass, previous, this.minLayer, this.maxLayer);
+
+                if (snapshot.isEmpty()) {
+                    continue;
+                }
+
+                snapshotPasses.put(pass, snapshot);
+                mesh = snapshot.createMesh(buffers.getVertexStride(), passStagingRing);
+            } else {
+                mesh = buffers.createMesh(pass, passStagingRing);
+            }
 
             if (mesh != null) {
                 meshes.put(pass, mesh);
@@ -147,9 +277,61 @@ public class ChunkBuilderMeshingTask extends ChunkBuilderTask<ChunkBuildOutput>
             }
         }
 
-        renderData.setOcclusionData(occluder.build());
+        if (this.previousMesh != null) {
+            // The re-meshed layers have already added the sprites they use, so only the sprites of the layers which
+            // were copied from the snapshot are carried over
+            int copiedLayers = ~(((1 << (this.maxLayer + 1)) - 1) & -(1 << this.minLayer));
+
+            for (Reference2IntMap.Entry<Sprite> entry :
+                    Reference2IntMaps.fastIterable(this.previousMesh.getAnimatedSpriteLayers())) {
+                int layers = entry.getIntValue() & copiedLayers;
+
+                if (layers != 0) {
+                    renderData.addAnimatedSprite(entry.getKey(), layers);
+                }
+            }
+        }
+
+        renderData.setVisibilityData(occluder.build());
+        renderData.setContentHash(contentHash);
+
+        BuiltSectionInfo info = renderData.build();
+
+        if (cacheable) {
+            this.meshCache.store(position, contentHash, info, meshes);
+        }
+
+        SectionMeshSnapshot snapshot = null;
+
+        if (this.retainMesh) {
+            snapshot = new SectionMeshSnapshot(snapshotPasses, renderData.getAnimatedSpriteLayers());
+        }
+
+        var sortOutput = this.sortTranslucentMeshes(buffers.getVertexType(), meshes);
+
+        return new ChunkBuildOutput(this.render, info, meshes, snapshot, sortOutput, this.buildTime, this.trace);
+    }
+
+    private @Nullable ChunkSortOutput sortTranslucentMeshes(ChunkVertexType vertexType,
+                                                            Map<TerrainRenderPass, BuiltSectionMeshParts> meshes) {
+        for (TerrainRenderPass pass : DefaultTerrainRenderPasses.ALL) {
+            BuiltSectionMeshParts mesh;
+
+            if (!pass.isSorted() || (mesh = meshes.get(pass)) == null) {
+                continue;
+            }
+
+            float cameraX = (float) (this.cameraPosition.x - this.render.getOriginX());
+            float cameraY = (float) (this.cameraPosition.y - this.render.getOriginY());
+            float cameraZ = (float) (this.cameraPosition.z - this.render.getOriginZ());
+
+            var quads = TranslucentQuadData.create(vertexType, mesh);
+
+            return new ChunkSortOutput(this.render, pass, quads, quads.sort(cameraX, cameraY, cameraZ),
+                    quads.getSortKey(cameraX, cameraY, cameraZ));
+        }
 
-        return new ChunkBuildOutput(this.render, renderData.build(), meshes, this.buildTime);
+        return null;
     }
 
     private CrashException fillCrashInfo(CrashReport report, WorldSlice slice, BlockPos pos) {
@@ -0,0 +1,43 @@
+package me.jellysquid.mods.sodium.client.render.chunk.compile.tasks;
+
+import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkBuildContext;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkSortOutput;
+import me.jellysquid.mods.sodium.client.render.chunk.data.TranslucentQuadData;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
+import me.jellysquid.mods.sodium.client.util.task.CancellationToken;
+
+/**
+ * Sorts the translucent quads of an already built section for a new camera position, without rebuilding its meshes.
+ */
+public class ChunkBuilderSortingTask extends ChunkBuilderTask<ChunkSortOutput> {
+    private final RenderSection render;
+    private final TerrainRenderPass pass;
+    private final TranslucentQuadData quads;
+
+    // The position of the camera relative to the origin of the section
+    private final float cameraX, cameraY, cameraZ;
+
+    public ChunkBuilderSortingTask(RenderSection render, TerrainRenderPass pass, TranslucentQuadData quads,
+                                   float cameraX, float cameraY, float cameraZ) {
+        this.render = render;
+        this.pass = pass;
+        this.quads = quads;
+
+        this.cameraX = cameraX;
+        this.cameraY = cameraY;
+        this.cameraZ = cameraZ;
+    }
+
+    @Override
+    public ChunkSortOutput execute(ChunkBuildContext context, CancellationToken cancellationToken) {
+        if (cancellationToken.isCancelled()) {
+            return null;
+        }
+
+        long sortKey = this.quads.getSortKey(this.cameraX, this.cameraY, this.cameraZ);
+
+        return new ChunkSortOutput(this.render, this.pass, this.quads,
+                this.quads.sort(this.cameraX, this.cameraY, this.cameraZ), sortKey);
+    }
+}
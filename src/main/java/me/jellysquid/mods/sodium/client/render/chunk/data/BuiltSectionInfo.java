@@ -1,14 +1,14 @@
 package me.jellysquid.mods.sodium.client.render.chunk.data;
 
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import me.jellysquid.mods.sodium.client.render.chunk.RenderSectionFlags;
+import me.jellysquid.mods.sodium.client.render.chunk.occlusion.GraphDirectionSet;
 import me.jellysquid.mods.sodium.client.render.chunk.occlusion.VisibilityEncoding;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
 import me.jellysquid.mods.sodium.client.render.texture.SpriteUtil;
 import net.minecraft.block.entity.BlockEntity;
-import net.minecraft.client.render.chunk.ChunkOcclusionData;
 import net.minecraft.client.texture.Sprite;
-import net.minecraft.util.math.Direction;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -29,11 +29,18 @@ public class BuiltSectionInfo {
     public final BlockEntity @Nullable[] culledBlockEntities;
     public final Sprite @Nullable[] animatedSprites;
 
+    /**
+     * The content hash of the world slice which this section was built from, or zero if it isn't known. See
+     * {@link me.jellysquid.mods.sodium.client.world.cloned.ChunkRenderContext#getContentHash()}.
+     */
+    public final long contentHash;
+
     private BuiltSectionInfo(@NotNull Collection<TerrainRenderPass> blockRenderPasses,
                              @NotNull Collection<BlockEntity> globalBlockEntities,
                              @NotNull Collection<BlockEntity> culledBlockEntities,
                              @NotNull Collection<Sprite> animatedSprites,
-                             @NotNull ChunkOcclusionData occlusionData) {
+                             long visibilityData,
+                             long contentHash) {
         this.globalBlockEntities = toArray(globalBlockEntities, BlockEntity[]::new);
         this.culledBlockEntities = toArray(culledBlockEntities, BlockEntity[]::new);
         this.animatedSprites = toArray(animatedSprites, Sprite[]::new);
@@ -54,23 +61,67 @@ public class BuiltSectionInfo {
 
         this.flags = flags;
 
-        this.visibilityData = VisibilityEncoding.encode(occlusionData);
+        this.visibilityData = visibilityData;
+        this.contentHash = contentHash;
+    }
+
+    private BuiltSectionInfo(int flags, long visibilityData, Sprite @Nullable[] animatedSprites, long contentHash) {
+        this.flags = flags;
+        this.visibilityData = visibilityData;
+        this.contentHash = contentHash;
+
+        this.globalBlockEntities = null;
+        this.culledBlockEntities = null;
+        this.animatedSprites = animatedSprites;
+    }
+
+    /**
+     * Re-creates the info of a section which has no block entities from its previously built state, such as when it is
+     * restored from the {@link SectionMeshCache}.
+     */
+    public static BuiltSectionInfo restore(int flags, long visibilityData, Sprite @Nullable[] animatedSprites,
+                                           long contentHash) {
+        if ((flags & (1 << RenderSectionFlags.HAS_BLOCK_ENTITIES)) != 0) {
+            throw new IllegalArgumentException("Sections with block entities can't be restored");
+        }
+
+        return new BuiltSectionInfo(flags, visibilityData, animatedSprites, contentHash);
     }
 
     public static class Builder {
         private final List<TerrainRenderPass> blockRenderPasses = new ArrayList<>();
         private final List<BlockEntity> globalBlockEntities = new ArrayList<>();
         private final List<BlockEntity> culledBlockEntities = new ArrayList<>();
-        private final Set<Sprite> animatedSprites = new ObjectOpenHashSet<>();
+        // The animated sprites, mapped to a bit mask of the layers of blocks which use them
+        private final Reference2IntOpenHashMap<Sprite> animatedSprites = new Reference2IntOpenHashMap<>();
 
-        private ChunkOcclusionData occlusionData;
+        private int layer;
+
+        private long visibilityData;
+        private long contentHash;
 
         public void addRenderPass(TerrainRenderPass pass) {
             this.blockRenderPasses.add(pass);
         }
 
-        public void setOcclusionData(ChunkOcclusionData data) {
-            this.occlusionData = data;
+        /**
+         * Sets which faces of the section can be seen through from which other faces, encoded with
+         * {@link VisibilityEncoding}.
+         */
+        public void setVisibilityData(long visibilityData) {
+            this.visibilityData = visibilityData;
+        }
+
+        public void setContentHash(long hash) {
+            this.contentHash = hash;
+        }
+
+        /**
+         * Sets the layer of blocks which the sprites added after this are used by. See
+         * {@link #getAnimatedSpriteLayers()}.
+         */
+        public void beginLayer(int layer) {
+            this.layer = layer;
         }
 
         /**
@@ -80,10 +131,28 @@ public class BuiltSectionInfo {
          */
         public void addSprite(Sprite sprite) {
             if (SpriteUtil.hasAnimation(sprite)) {
-                this.animatedSprites.add(sprite);
+                this.addAnimatedSprite(sprite, 1 << this.layer);
             }
         }
 
+        /**
+         * Adds an animated sprite which is used by the given layers of blocks, such as one which is carried over from
+         * the layers of a previous build that weren't re-meshed.
+         * @param sprite The sprite
+         * @param layers The bit mask of the layers which use the sprite
+         */
+        public void addAnimatedSprite(Sprite sprite, int layers) {
+            this.animatedSprites.put(sprite, this.animatedSprites.getInt(sprite) | layers);
+        }
+
+        /**
+         * Returns the animated sprites which have been added, mapped to a bit mask of the layers of blocks which use
+         * them.
+         */
+        public Reference2IntMap<Sprite> getAnimatedSpriteLayers() {
+            return this.animatedSprites;
+        }
+
         /**
          * Adds a block entity to the data container.
          * @param entity The block entity itself
@@ -94,16 +163,13 @@ public class BuiltSectionInfo {
         }
 
         public BuiltSectionInfo build() {
-            return new BuiltSectionInfo(this.blockRenderPasses, this.globalBlockEntities, this.culledBlockEntities, this.animatedSprites, this.occlusionData);
+            return new BuiltSectionInfo(this.blockRenderPasses, this.globalBlockEntities, this.culledBlockEntities, this.animatedSprites.keySet(), this.visibilityData, this.contentHash);
         }
     }
 
     private static BuiltSectionInfo createEmptyData() {
-        ChunkOcclusionData occlusionData = new ChunkOcclusionData();
-        occlusionData.addOpenEdgeFaces(EnumSet.allOf(Direction.class));
-
         BuiltSectionInfo.Builder meshInfo = new BuiltSectionInfo.Builder();
-        meshInfo.setOcclusionData(occlusionData);
+        meshInfo.setVisibilityData(VisibilityEncoding.connectAll(GraphDirectionSet.ALL));
 
         return meshInfo.build();
     }
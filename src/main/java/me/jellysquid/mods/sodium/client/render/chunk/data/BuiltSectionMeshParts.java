@@ -1,22 +1,57 @@
 package me.jellysquid.mods.sodium.client.render.chunk.data;
 
+import me.jellysquid.mods.sodium.client.gl.arena.staging.StagingRing;
 import me.jellysquid.mods.sodium.client.gl.util.VertexRange;
 import me.jellysquid.mods.sodium.client.util.NativeBuffer;
+import org.jetbrains.annotations.Nullable;
 
+/**
+ * The vertex data of a built mesh, which is either held in its own native buffer, or was written directly into a
+ * region of the {@link StagingRing} by the worker thread which built it.
+ */
 public class BuiltSectionMeshParts {
     private final VertexRange[] ranges;
-    private final NativeBuffer buffer;
+
+    private final @Nullable NativeBuffer buffer;
+    private final StagingRing.@Nullable Region stagedBuffer;
 
     public BuiltSectionMeshParts(NativeBuffer buffer, VertexRange[] ranges) {
         this.ranges = ranges;
         this.buffer = buffer;
+        this.stagedBuffer = null;
     }
 
-    public NativeBuffer getVertexData() {
+    public BuiltSectionMeshParts(StagingRing.Region stagedBuffer, VertexRange[] ranges) {
+        this.ranges = ranges;
+        this.buffer = null;
+        this.stagedBuffer = stagedBuffer;
+    }
+
+    /**
+     * Returns the buffer holding the vertex data, or null if the vertex data was written into the staging ring.
+     */
+    public @Nullable NativeBuffer getVertexData() {
         return this.buffer;
     }
 
+    /**
+     * Returns the region of the staging ring holding the vertex data, or null if it is held in a native buffer.
+     */
+    public StagingRing.@Nullable Region getStagedVertexData() {
+        return this.stagedBuffer;
+    }
+
     public VertexRange[] getVertexRanges() {
         return this.ranges;
     }
+
+    public void delete() {
+        if (this.buffer != null) {
+            this.buffer.free();
+        }
+
+        if (this.stagedBuffer != null) {
+            this.stagedBuffer.release();
+        }
+    }
 }
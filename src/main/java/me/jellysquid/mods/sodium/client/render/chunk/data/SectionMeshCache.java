@@ -0,0 +1,512 @@
+package me.jellysquid.mods.sodium.client.render.chunk.data;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
+import me.jellysquid.mods.sodium.client.SodiumClientMod;
+import me.jellysquid.mods.sodium.client.gl.util.VertexRange;
+import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.DefaultTerrainRenderPasses;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexType;
+import me.jellysquid.mods.sodium.client.util.ContentHash;
+import me.jellysquid.mods.sodium.client.util.NativeBuffer;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.block.Block;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * A persistent cache of built section meshes, which is stored in a memory-mapped file. This allows sections which were
+ * already built before reconnecting to a server, changing dimensions, or restarting the game to be restored without
+ * meshing them again.
+ *
+ * Entries are keyed by the position of a section and the content hash of the world slice it was built from, so an
+ * entry is only ever used when the blocks, light and biomes around the section are unchanged. Sections with block
+ * entities are never cached, since the block entities can't be restored from disk.
+ *
+ * Entries are appended to the end of the file as they are stored, and once the file is full, it is cleared and filled
+ * again from the start. The file header contains a fingerprint of all the other state which affects how meshes are
+ * built, such as the enabled resource packs and graphics settings, and the file is cleared if it doesn't match. Since
+ * the file is shared by every world and server, the fingerprint also covers the state of the world which isn't part of
+ * the content hash, such as the colors of its biomes.
+ *
+ * The file is locked while the cache is open, so that another instance of the game can't write into it at the same
+ * time. If the lock can't be taken, the cache isn't used.
+ *
+ * All methods can be called from any thread.
+ */
+public class SectionMeshCache {
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int FILE_MAGIC = 0x534D4331; // "SMC1"
+    private static final int RECORD_MAGIC = 0x52454331; // "REC1"
+
+    private static final long FILE_SIZE = 256L * 1024L * 1024L;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC_OFFSET = 0;
+    private static final int HEADER_VERSION_OFFSET = 4;
+    private static final int HEADER_FINGERPRINT_OFFSET = 8;
+    private static final int HEADER_WRITE_POSITION_OFFSET = 16;
+
+    // magic (int), length (int), section position (long), content hash (long)
+    private static final int RECORD_HEADER_SIZE = 24;
+
+    private static final int NO_VERTEX_RANGE = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private final long fingerprint;
+
+    // The offset of the record for each entry in the file, keyed by getKey(position, hash)
+    private final Long2LongOpenHashMap index = new Long2LongOpenHashMap();
+
+    private int writePosition;
+    private boolean closed;
+
+    private SectionMeshCache(FileChannel channel, long fingerprint) throws IOException {
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        this.fingerprint = fingerprint;
+
+        this.index.defaultReturnValue(-1L);
+
+        if (this.isHeaderValid()) {
+            this.readIndex();
+        } else {
+            this.clear();
+        }
+    }
+
+    /**
+     * Opens the cache file at the given path, creating it if it doesn't exist yet.
+     *
+     * @param fingerprint The fingerprint of the current game state, see
+     *                    {@link #createFingerprint(ChunkVertexType, ClientWorld)}
+     * @return The cache, or null if the file could not be opened or is in use by another instance of the game
+     */
+    public static @Nullable SectionMeshCache open(Path path, long fingerprint) {
+        try {
+            Files.createDirectories(path.getParent());
+
+            var channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            try {
+                // The lock is held until the channel is closed
+                FileLock lock = channel.tryLock();
+
+                if (lock == null) {
+                    SodiumClientMod.logger().warn("The mesh cache at {} is in use by another instance of the game, " +
+                            "it will not be used", path);
+                    channel.close();
+
+                    return null;
+                }
+
+                return new SectionMeshCache(channel, fingerprint);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            SodiumClientMod.logger().warn("Failed to open the mesh cache at {}, it will not be used", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a fingerprint of the state outside the section contents which affects how sections are meshed. Meshes
+     * which were built with a different fingerprint can't be re-used.
+     */
+    public static long createFingerprint(ChunkVertexType vertexType, ClientWorld world) {
+        var client = MinecraftClient.getInstance();
+        var options = client.options;
+
+        long hash = ContentHash.combine(0L, FORMAT_VERSION);
+        hash = ContentHash.combine(hash, SodiumClientMod.getVersion());
+        hash = ContentHash.combine(hash, vertexType.getVertexFormat().getStride());
+
+        // Block state ids, models, and texture atlas layouts depend on the loaded mods and resource packs
+        for (var mod : FabricLoader.getInstance().getAllMods()) {
+            hash = ContentHash.combine(hash, mod.getMetadata().getId());
+            hash = ContentHash.combine(hash, mod.getMetadata().getVersion().getFriendlyString());
+        }
+
+        for (var pack : client.getResourcePackManager().getEnabledNames()) {
+            hash = ContentHash.combine(hash, pack);
+        }
+
+        hash = ContentHash.combine(hash, Block.STATE_IDS.size());
+
+        hash = ContentHash.combine(hash, options.getAo().getValue() ? 1L : 0L);
+        hash = ContentHash.combine(hash, options.getBiomeBlendRadius().getValue());
+        hash = ContentHash.combine(hash, options.getMipmapLevels().getValue());
+        hash = ContentHash.combine(hash, options.getGraphicsMode().getValue().ordinal());
+        hash = ContentHash.combine(hash, SodiumClientMod.options().quality.leavesQuality.ordinal());
+        hash = ContentHash.combine(hash, SodiumClientMod.options().advanced.useQuadMerging ? 1L : 0L);
+
+        hash = ContentHash.combine(hash, createWorldFingerprint(world));
+
+        return hash;
+    }
+
+    /**
+     * Creates a fingerprint of the state of the world which affects how sections are meshed. The content hash of a
+     * section only identifies its biomes by their ids, but servers and worlds can define the same biome id with
+     * different colors, and the shading of block faces depends on the dimension.
+     */
+    private static long createWorldFingerprint(ClientWorld world) {
+        long hash = ContentHash.combine(0L, world.getRegistryKey().getValue().toString());
+        hash = ContentHash.combine(hash, world.getDimensionEffects().isDarkened() ? 1L : 0L);
+
+        var biomes = world.getRegistryManager().get(RegistryKeys.BIOME);
+
+        // Biomes are visited in the order of their raw ids, which is the same every time for the same registry
+        for (var biome : biomes) {
+            hash = ContentHash.combine(hash, String.valueOf(biomes.getId(biome)));
+            hash = ContentHash.combine(hash, Float.floatToIntBits(biome.getTemperature()));
+            hash = ContentHash.combine(hash, biome.getGrassColorAt(0.0, 0.0));
+            hash = ContentHash.combine(hash, biome.getEffects().getGrassColorModifier().ordinal());
+            hash = ContentHash.combine(hash, biome.getFoliageColor());
+            hash = ContentHash.combine(hash, biome.getWaterColor());
+        }
+
+        return hash;
+    }
+
+    /**
+     * Returns the cached meshes for the section at the given position, or null if there is no entry for the section
+     * with the given content hash. The caller takes ownership of the returned vertex data.
+     */
+    public synchronized @Nullable Entry load(long position, long contentHash) {
+        if (this.closed) {
+            return null;
+        }
+
+        long key = getKey(position, contentHash);
+        long offset = this.index.get(key);
+
+        if (offset < 0) {
+            return null;
+        }
+
+        var record = this.buffer.slice((int) offset, this.buffer.getInt((int) offset + 4))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        if (record.getLong(8) != position || record.getLong(16) != contentHash) {
+            return null;
+        }
+
+        record.position(RECORD_HEADER_SIZE);
+
+        try {
+            return readEntry(record, contentHash);
+        } catch (RuntimeException e) {
+            SodiumClientMod.logger().warn("Failed to read a mesh cache entry, it will be discarded", e);
+            this.index.remove(key);
+
+            return null;
+        }
+    }
+
+    /**
+     * Stores the built meshes of a section. Sections with block entities can't be stored, and will be ignored.
+     */
+    public void store(long position, long contentHash, BuiltSectionInfo info,
+                      Map<TerrainRenderPass, BuiltSectionMeshParts> meshes) {
+        if (info.globalBlockEntities != null || info.culledBlockEntities != null) {
+            return;
+        }
+
+        // Meshes which were written into the staging ring can't be read back
+        for (var mesh : meshes.values()) {
+            if (mesh.getVertexData() == null) {
+                return;
+            }
+        }
+
+        byte[][] sprites = encodeSprites(info.animatedSprites);
+
+        if (sprites == null) {
+            return;
+        }
+
+        int length = getRecordLength(sprites, meshes);
+
+        if (length > FILE_SIZE - HEADER_SIZE) {
+            return;
+        }
+
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+
+            long key = getKey(position, contentHash);
+
+            if (this.index.containsKey(key)) {
+                return;
+            }
+
+            if (this.writePosition + length > FILE_SIZE) {
+                this.clear();
+            }
+
+            var record = this.buffer.slice(this.writePosition, length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            record.putInt(RECORD_MAGIC);
+            record.putInt(length);
+            record.putLong(position);
+            record.putLong(contentHash);
+
+            writeEntry(record, info, sprites, meshes);
+
+            this.index.put(key, this.writePosition);
+            this.writePosition += length;
+
+            // The write position is only updated after the record has been written, so a partially written record is
+            // never read back
+            this.buffer.putInt(HEADER_WRITE_POSITION_OFFSET, this.writePosition);
+        }
+    }
+
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        this.index.clear();
+
+        try {
+            this.buffer.force();
+            this.channel.close();
+        } catch (IOException e) {
+            SodiumClientMod.logger().warn("Failed to close the mesh cache", e);
+        }
+    }
+
+    private boolean isHeaderValid() {
+        return this.buffer.getInt(HEADER_MAGIC_OFFSET) == FILE_MAGIC &&
+                this.buffer.getInt(HEADER_VERSION_OFFSET) == FORMAT_VERSION &&
+                this.buffer.getLong(HEADER_FINGERPRINT_OFFSET) == this.fingerprint;
+    }
+
+    private void clear() {
+        this.index.clear();
+        this.writePosition = HEADER_SIZE;
+
+        this.buffer.putInt(HEADER_MAGIC_OFFSET, FILE_MAGIC);
+        this.buffer.putInt(HEADER_VERSION_OFFSET, FORMAT_VERSION);
+        this.buffer.putLong(HEADER_FINGERPRINT_OFFSET, this.fingerprint);
+        this.buffer.putInt(HEADER_WRITE_POSITION_OFFSET, this.writePosition);
+    }
+
+    private void readIndex() {
+        int end = (int) Math.min(this.buffer.getInt(HEADER_WRITE_POSITION_OFFSET), FILE_SIZE);
+        int offset = HEADER_SIZE;
+
+        while (offset + RECORD_HEADER_SIZE <= end) {
+            int magic = this.buffer.getInt(offset);
+            int length = this.buffer.getInt(offset + 4);
+
+            if (magic != RECORD_MAGIC || length < RECORD_HEADER_SIZE || length > end - offset) {
+                break;
+            }
+
+            long position = this.buffer.getLong(offset + 8);
+            long contentHash = this.buffer.getLong(offset + 16);
+
+            this.index.put(getKey(position, contentHash), offset);
+
+            offset += length;
+        }
+
+        // Anything after the last valid record is discarded
+        this.writePosition = offset;
+        this.buffer.putInt(HEADER_WRITE_POSITION_OFFSET, this.writePosition);
+    }
+
+    private static long getKey(long position, long contentHash) {
+        return HashCommon.mix(position) ^ contentHash;
+    }
+
+    private static int getRecordLength(byte[][] sprites, Map<TerrainRenderPass, BuiltSectionMeshParts> meshes) {
+        int length = RECORD_HEADER_SIZE;
+        length += Integer.BYTES + Long.BYTES; // flags, visibility data
+
+        length += Short.BYTES;
+
+        for (byte[] sprite : sprites) {
+            length += Short.BYTES + sprite.length;
+        }
+
+        length += Byte.BYTES;
+
+        for (var mesh : meshes.values()) {
+            length += Byte.BYTES; // pass index
+            length += ModelQuadFacing.COUNT * (Integer.BYTES * 2);
+            length += Integer.BYTES + mesh.getVertexData().getLength();
+        }
+
+        return length;
+    }
+
+    private static void writeEntry(ByteBuffer record, BuiltSectionInfo info, byte[][] sprites,
+                                   Map<TerrainRenderPass, BuiltSectionMeshParts> meshes) {
+        record.putInt(info.flags);
+        record.putLong(info.visibilityData);
+
+        record.putShort((short) sprites.length);
+
+        for (byte[] sprite : sprites) {
+            record.putShort((short) sprite.length);
+            record.put(sprite);
+        }
+
+        record.put((byte) meshes.size());
+
+        for (var entry : meshes.entrySet()) {
+            record.put((byte) getPassIndex(entry.getKey()));
+
+            for (VertexRange range : entry.getValue().getVertexRanges()) {
+                record.putInt(range != null ? range.vertexStart() : NO_VERTEX_RANGE);
+                record.putInt(range != null ? range.vertexCount() : 0);
+            }
+
+            var vertexData = entry.getValue().getVertexData().getDirectBuffer();
+
+            record.putInt(vertexData.remaining());
+            record.put(vertexData);
+        }
+    }
+
+    private static Entry readEntry(ByteBuffer record, long contentHash) {
+        int flags = record.getInt();
+        long visibilityData = record.getLong();
+
+        Sprite[] sprites = null;
+        int spriteCount = record.getShort();
+
+        if (spriteCount > 0) {
+            sprites = new Sprite[spriteCount];
+
+            for (int i = 0; i < spriteCount; i++) {
+                byte[] bytes = new byte[record.getShort()];
+                record.get(bytes);
+
+                sprites[i] = decodeSprite(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+
+        var meshes = new Reference2ReferenceOpenHashMap<TerrainRenderPass, BuiltSectionMeshParts>();
+        int meshCount = record.get();
+
+        try {
+            for (int i = 0; i < meshCount; i++) {
+                var pass = DefaultTerrainRenderPasses.ALL[record.get()];
+                var ranges = new VertexRange[ModelQuadFacing.COUNT];
+
+                for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+                    int start = record.getInt();
+                    int count = record.getInt();
+
+                    if (start != NO_VERTEX_RANGE) {
+                        ranges[facing] = new VertexRange(start, count);
+                    }
+                }
+
+                int length = record.getInt();
+
+                var vertexData = new NativeBuffer(length);
+                meshes.put(pass, new BuiltSectionMeshParts(vertexData, ranges));
+
+                vertexData.getDirectBuffer()
+                        .put(record.slice(record.position(), length));
+                record.position(record.position() + length);
+            }
+        } catch (RuntimeException e) {
+            for (var mesh : meshes.values()) {
+                mesh.delete();
+            }
+
+            throw e;
+        }
+
+        return new Entry(BuiltSectionInfo.restore(flags, visibilityData, sprites, contentHash), meshes);
+    }
+
+    private static int getPassIndex(TerrainRenderPass pass) {
+        for (int i = 0; i < DefaultTerrainRenderPasses.ALL.length; i++) {
+            if (DefaultTerrainRenderPasses.ALL[i] == pass) {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown render pass: " + pass);
+    }
+
+    // Returns the encoded name of each sprite, or null if any of the sprites can't be encoded
+    private static byte @Nullable[][] encodeSprites(Sprite @Nullable[] sprites) {
+        if (sprites == null) {
+            return new byte[0][];
+        }
+
+        byte[][] encoded = new byte[sprites.length][];
+
+        for (int i = 0; i < sprites.length; i++) {
+            var bytes = (sprites[i].getAtlasId() + " " + sprites[i].getContents().getId())
+                    .getBytes(StandardCharsets.UTF_8);
+
+            if (bytes.length > Short.MAX_VALUE) {
+                return null;
+            }
+
+            encoded[i] = bytes;
+        }
+
+        return encoded;
+    }
+
+    private static Sprite decodeSprite(String name) {
+        int separator = name.indexOf(' ');
+
+        if (separator < 0) {
+            throw new IllegalStateException("Invalid sprite name: " + name);
+        }
+
+        var atlas = new Identifier(name.substring(0, separator));
+        var sprite = new Identifier(name.substring(separator + 1));
+
+        return MinecraftClient.getInstance()
+                .getBakedModelManager()
+                .getAtlas(atlas)
+                .getSprite(sprite);
+    }
+
+    public record Entry(BuiltSectionInfo info, Map<TerrainRenderPass, BuiltSectionMeshParts> meshes) {
+
+    }
+}
@@ -0,0 +1,137 @@
+package me.jellysquid.mods.sodium.client.render.chunk.data;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMaps;
+import me.jellysquid.mods.sodium.client.gl.arena.staging.StagingRing;
+import me.jellysquid.mods.sodium.client.gl.util.VertexRange;
+import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
+import me.jellysquid.mods.sodium.client.util.NativeBuffer;
+import net.minecraft.client.texture.Sprite;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * A copy of the built meshes of a section which is kept in heap memory, so that a later rebuild can re-mesh only the
+ * layers of blocks which were touched by an update and splice them together with the rest of the previous meshes.
+ *
+ * Since the meshing task walks the blocks of a section in Y-major order, the vertices of each facing are already
+ * sorted by the layer of the block that produced them, and the snapshot only needs to remember where each layer starts.
+ * Snapshots are immutable, so they can be shared with any number of worker threads without synchronization.
+ */
+public class SectionMeshSnapshot {
+    public static final int LAYERS = 16;
+
+    private final Map<TerrainRenderPass, Pass> passes;
+    private final Reference2IntMap<Sprite> animatedSprites;
+
+    public SectionMeshSnapshot(Map<TerrainRenderPass, Pass> passes, Reference2IntMap<Sprite> animatedSprites) {
+        this.passes = passes;
+        this.animatedSprites = Reference2IntMaps.unmodifiable(animatedSprites);
+    }
+
+    public @Nullable Pass getPass(TerrainRenderPass pass) {
+        return this.passes.get(pass);
+    }
+
+    /**
+     * Returns the animated sprites which were used by the meshes, mapped to a bit mask of the layers of blocks which
+     * use them. During a partial rebuild, only the sprites which are used by the layers that aren't re-meshed are
+     * carried over into the rebuilt section.
+     */
+    public Reference2IntMap<Sprite> getAnimatedSpriteLayers() {
+        return this.animatedSprites;
+    }
+
+    /**
+     * Returns the number of bytes of vertex data held by this snapshot.
+     */
+    public long getSize() {
+        long size = 0;
+
+        for (Pass pass : this.passes.values()) {
+            for (byte[] data : pass.vertexData) {
+                size += data.length;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * The vertex data of a single render pass, which is stored separately for each facing.
+     */
+    public static class Pass {
+        // byte[facing][offset]
+        private final byte[][] vertexData;
+
+        // int[facing][layer], which holds the offset in bytes at which each layer starts, plus the length of the data
+        private final int[][] layerStarts;
+
+        public Pass(byte[][] vertexData, int[][] layerStarts) {
+            this.vertexData = vertexData;
+            this.layerStarts = layerStarts;
+        }
+
+        public byte[] getVertexData(int facing) {
+            return this.vertexData[facing];
+        }
+
+        public int getLayerStart(int facing, int layer) {
+            return this.layerStarts[facing][layer];
+        }
+
+        public boolean isEmpty() {
+            for (byte[] data : this.vertexData) {
+                if (data.length != 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Merges the vertex data of every facing into a mesh which can be uploaded to graphics memory. If a staging
+         * ring is given and has enough free space, the mesh is written directly into it.
+         */
+        public BuiltSectionMeshParts createMesh(int stride, @Nullable StagingRing stagingRing) {
+            VertexRange[] vertexRanges = new VertexRange[ModelQuadFacing.COUNT];
+
+            int length = 0;
+
+            for (byte[] data : this.vertexData) {
+                length += data.length;
+            }
+
+            var stagedBuffer = stagingRing != null ? stagingRing.allocate(length) : null;
+            var mergedBuffer = stagedBuffer == null ? new NativeBuffer(length) : null;
+
+            var mergedBufferBuilder = stagedBuffer != null ? stagedBuffer.getMemory() : mergedBuffer.getDirectBuffer();
+
+            int vertexCount = 0;
+
+            for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+                byte[] data = this.vertexData[facing];
+
+                if (data.length == 0) {
+                    continue;
+                }
+
+                mergedBufferBuilder.put(data);
+                vertexRanges[facing] = new VertexRange(vertexCount, data.length / stride);
+
+                vertexCount += data.length / stride;
+            }
+
+            mergedBufferBuilder.flip();
+
+            if (stagedBuffer != null) {
+                return new BuiltSectionMeshParts(stagedBuffer, vertexRanges);
+            }
+
+            return new BuiltSectionMeshParts(mergedBuffer, vertexRanges);
+        }
+    }
+}
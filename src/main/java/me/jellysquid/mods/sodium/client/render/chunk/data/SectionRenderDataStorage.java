@@ -10,8 +10,13 @@ import java.util.Arrays;
 public class SectionRenderDataStorage {
     private final GlBufferSegment[] allocations = new GlBufferSegment[RenderRegion.REGION_SIZE];
 
+    // The sorted index buffers of each section, which are only used by render passes that need to be sorted
+    private final GlBufferSegment[] indexAllocations = new GlBufferSegment[RenderRegion.REGION_SIZE];
+
     private final long pMeshDataArray;
 
+    private int meshCount;
+
     public SectionRenderDataStorage() {
         this.pMeshDataArray = SectionRenderDataUnsafe.allocateHeap(RenderRegion.REGION_SIZE);
     }
@@ -21,6 +26,8 @@ public class SectionRenderDataStorage {
         if (this.allocations[localSectionIndex] != null) {
             this.allocations[localSectionIndex].delete();
             this.allocations[localSectionIndex] = null;
+        } else {
+            this.meshCount++;
         }
 
         this.allocations[localSectionIndex] = allocation;
@@ -53,7 +60,29 @@ public class SectionRenderDataStorage {
         SectionRenderDataUnsafe.setSliceMask(pMeshData, sliceMask);
     }
 
+    /**
+     * Sets the index buffer which draws the quads of a section's mesh in sorted order. Each element of the allocation
+     * is a single index, relative to the first vertex of the mesh.
+     */
+    public void setIndices(int localSectionIndex, GlBufferSegment allocation) {
+        if (this.indexAllocations[localSectionIndex] != null) {
+            this.indexAllocations[localSectionIndex].delete();
+        }
+
+        this.indexAllocations[localSectionIndex] = allocation;
+
+        var pMeshData = this.getDataPointer(localSectionIndex);
+
+        SectionRenderDataUnsafe.setIndexOffset(pMeshData, allocation.getOffset());
+        SectionRenderDataUnsafe.setIndexCount(pMeshData, allocation.getLength());
+    }
+
     public void removeMeshes(int localSectionIndex) {
+        if (this.indexAllocations[localSectionIndex] != null) {
+            this.indexAllocations[localSectionIndex].delete();
+            this.indexAllocations[localSectionIndex] = null;
+        }
+
         if (this.allocations[localSectionIndex] == null) {
             return;
         }
@@ -61,9 +90,15 @@ public class SectionRenderDataStorage {
         this.allocations[localSectionIndex].delete();
         this.allocations[localSectionIndex] = null;
 
+        this.meshCount--;
+
         SectionRenderDataUnsafe.clear(this.getDataPointer(localSectionIndex));
     }
 
+    public boolean isEmpty() {
+        return this.meshCount == 0;
+    }
+
     public void onBufferResized() {
         for (int sectionIndex = 0; sectionIndex < RenderRegion.REGION_SIZE; sectionIndex++) {
             this.updateMeshes(sectionIndex);
@@ -80,6 +115,12 @@ public class SectionRenderDataStorage {
         var offset = allocation.getOffset();
         var data = this.getDataPointer(sectionIndex);
 
+        var indexAllocation = this.indexAllocations[sectionIndex];
+
+        if (indexAllocation != null) {
+            SectionRenderDataUnsafe.setIndexOffset(data, indexAllocation.getOffset());
+        }
+
         for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
             SectionRenderDataUnsafe.setVertexOffset(data, facing, offset);
 
@@ -101,6 +142,16 @@ public class SectionRenderDataStorage {
 
         Arrays.fill(this.allocations, null);
 
+        this.meshCount = 0;
+
+        for (var allocation : this.indexAllocations) {
+            if (allocation != null) {
+                allocation.delete();
+            }
+        }
+
+        Arrays.fill(this.indexAllocations, null);
+
         SectionRenderDataUnsafe.freeHeap(this.pMeshDataArray);
     }
 }
\ No newline at end of file
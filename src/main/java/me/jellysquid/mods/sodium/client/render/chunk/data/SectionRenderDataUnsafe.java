@@ -17,8 +17,10 @@ import org.lwjgl.system.MemoryUtil;
 public class SectionRenderDataUnsafe {
     private static final long OFFSET_SLICE_MASK = 0;
     private static final long OFFSET_SLICE_RANGES = 8;
+    private static final long OFFSET_INDEX_OFFSET = 64;
+    private static final long OFFSET_INDEX_COUNT = 68;
 
-    private static final long STRIDE = 64;
+    private static final long STRIDE = 72;
 
     public static long allocateHeap(int count) {
         return MemoryUtil.nmemCalloc(count, STRIDE);
@@ -59,4 +61,20 @@ public class SectionRenderDataUnsafe {
     public static int getElementCount(long ptr, int facing) {
         return MemoryUtil.memGetInt(ptr + OFFSET_SLICE_RANGES + (facing * 8L) + 4L);
     }
+
+    public static void setIndexOffset(long ptr, int value) {
+        MemoryUtil.memPutInt(ptr + OFFSET_INDEX_OFFSET, value);
+    }
+
+    public static int getIndexOffset(long ptr) {
+        return MemoryUtil.memGetInt(ptr + OFFSET_INDEX_OFFSET);
+    }
+
+    public static void setIndexCount(long ptr, int value) {
+        MemoryUtil.memPutInt(ptr + OFFSET_INDEX_COUNT, value);
+    }
+
+    public static int getIndexCount(long ptr) {
+        return MemoryUtil.memGetInt(ptr + OFFSET_INDEX_COUNT);
+    }
 }
\ No newline at end of file
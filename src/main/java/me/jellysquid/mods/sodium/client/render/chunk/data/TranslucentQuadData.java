@@ -0,0 +1,186 @@
+package me.jellysquid.mods.sodium.client.render.chunk.data;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.floats.FloatOpenHashSet;
+import me.jellysquid.mods.sodium.client.gl.util.VertexRange;
+import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkMeshAttribute;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexType;
+import me.jellysquid.mods.sodium.client.util.NativeBuffer;
+import me.jellysquid.mods.sodium.client.util.sorting.VertexSorters;
+import net.minecraft.util.math.MathHelper;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.Arrays;
+
+/**
+ * The geometry of a translucent mesh which is needed to sort its quads back-to-front, so that they blend correctly.
+ * All coordinates are relative to the origin of the section.
+ *
+ * Sorting is only needed again once the camera crosses one of the planes which the quads lie on, since that is the
+ * only time the order in which two axis-aligned quads overlap can change. To find out when that happens, the planes
+ * of each axis are kept in sorted order, and the number of planes below the camera on each axis is packed into a key.
+ * Quads which aren't aligned to an axis don't have a plane that can be checked, so meshes containing them are also
+ * sorted again whenever the camera moves into another block.
+ *
+ * Instances are immutable, so they can be shared with any number of worker threads without synchronization.
+ */
+public class TranslucentQuadData {
+    private static final int ELEMENTS_PER_QUAD = 6;
+    private static final int VERTICES_PER_QUAD = 4;
+
+    // float[quad * 3], holding the center of each quad in the order they appear in the vertex buffer
+    private final float[] centers;
+
+    // float[axis][plane], holding the distinct coordinates of the axis-aligned quads in ascending order
+    private final float[][] planes;
+
+    private final boolean hasUnalignedQuads;
+
+    private TranslucentQuadData(float[] centers, float[][] planes, boolean hasUnalignedQuads) {
+        this.centers = centers;
+        this.planes = planes;
+        this.hasUnalignedQuads = hasUnalignedQuads;
+    }
+
+    /**
+     * Reads the quads of the given mesh. The vertex data of the mesh must be held in a native buffer.
+     */
+    public static TranslucentQuadData create(ChunkVertexType vertexType, BuiltSectionMeshParts mesh) {
+        NativeBuffer vertexData = mesh.getVertexData();
+
+        if (vertexData == null) {
+            throw new IllegalArgumentException("Mesh data must be held in a native buffer to be sorted");
+        }
+
+        var format = vertexType.getVertexFormat();
+
+        int stride = format.getStride();
+        int positionOffset = format.getAttribute(ChunkMeshAttribute.POSITION_MATERIAL_MESH).getPointer();
+
+        float scale = vertexType.getPositionScale();
+        float offset = vertexType.getPositionOffset();
+
+        long pVertexData = MemoryUtil.memAddress(vertexData.getDirectBuffer());
+
+        var centers = new FloatArrayList();
+        var planes = new FloatOpenHashSet[] { new FloatOpenHashSet(), new FloatOpenHashSet(), new FloatOpenHashSet() };
+
+        boolean hasUnalignedQuads = false;
+
+        VertexRange[] ranges = mesh.getVertexRanges();
+
+        for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+            VertexRange range = ranges[facing];
+
+            if (range == null) {
+                continue;
+            }
+
+            boolean aligned = facing != ModelQuadFacing.UNASSIGNED.ordinal();
+            hasUnalignedQuads |= !aligned;
+
+            for (int vertex = 0; vertex < range.vertexCount(); vertex += VERTICES_PER_QUAD) {
+                float x = 0.0f, y = 0.0f, z = 0.0f;
+
+                for (int corner = 0; corner < VERTICES_PER_QUAD; corner++) {
+                    int index = range.vertexStart() + vertex + corner;
+                    long pPosition = pVertexData + ((long) index * stride) + positionOffset;
+
+                    x += decodePosition(MemoryUtil.memGetShort(pPosition + 0), scale, offset);
+                    y += decodePosition(MemoryUtil.memGetShort(pPosition + 2), scale, offset);
+                    z += decodePosition(MemoryUtil.memGetShort(pPosition + 4), scale, offset);
+                }
+
+                x /= VERTICES_PER_QUAD;
+                y /= VERTICES_PER_QUAD;
+                z /= VERTICES_PER_QUAD;
+
+                centers.add(x);
+                centers.add(y);
+                centers.add(z);
+
+                if (aligned) {
+                    // The facings of each axis are three apart (POS_X, POS_Y, POS_Z, NEG_X, ...)
+                    int axis = facing % 3;
+                    planes[axis].add(axis == 0 ? x : (axis == 1 ? y : z));
+                }
+            }
+        }
+
+        var sortedPlanes = new float[3][];
+
+        for (int axis = 0; axis < 3; axis++) {
+            sortedPlanes[axis] = planes[axis].toFloatArray();
+            Arrays.sort(sortedPlanes[axis]);
+        }
+
+        return new TranslucentQuadData(centers.toFloatArray(), sortedPlanes, hasUnalignedQuads);
+    }
+
+    private static float decodePosition(short value, float scale, float offset) {
+        return (Short.toUnsignedInt(value) * scale) + offset;
+    }
+
+    public int getQuadCount() {
+        return this.centers.length / 3;
+    }
+
+    /**
+     * Returns a key which identifies the cell between the planes of the quads which the camera is in. If the key for a
+     * new camera position is the same as the one the quads were last sorted with, they don't need to be sorted again.
+     */
+    public long getSortKey(float cameraX, float cameraY, float cameraZ) {
+        long key = ((long) countPlanesBelow(this.planes[0], cameraX)) |
+                ((long) countPlanesBelow(this.planes[1], cameraY) << 16) |
+                ((long) countPlanesBelow(this.planes[2], cameraZ) << 32);
+
+        if (this.hasUnalignedQuads) {
+            long cell = ((long) (MathHelper.floor(cameraX) & 0xFFFF)) |
+                    ((long) (MathHelper.floor(cameraY) & 0xFFFF) << 16) |
+                    ((long) (MathHelper.floor(cameraZ) & 0xFFFF) << 32);
+
+            key = HashCommon.mix(key) ^ cell;
+        }
+
+        return key;
+    }
+
+    private static int countPlanesBelow(float[] planes, float coord) {
+        int index = Arrays.binarySearch(planes, coord);
+
+        if (index < 0) {
+            index = -(index + 1);
+        }
+
+        return Math.min(index, 0xFFFF);
+    }
+
+    /**
+     * Sorts the quads back-to-front from the given camera position, and returns an index buffer which draws them in
+     * that order. The indices are relative to the first vertex of the mesh.
+     */
+    public NativeBuffer sort(float cameraX, float cameraY, float cameraZ) {
+        int[] order = VertexSorters.sortByDistance(this.centers, cameraX, cameraY, cameraZ);
+
+        var buffer = new NativeBuffer(order.length * ELEMENTS_PER_QUAD * Integer.BYTES);
+        long pIndices = MemoryUtil.memAddress(buffer.getDirectBuffer());
+
+        for (int quad : order) {
+            int vertexOffset = quad * VERTICES_PER_QUAD;
+
+            MemoryUtil.memPutInt(pIndices +  0, vertexOffset + 0);
+            MemoryUtil.memPutInt(pIndices +  4, vertexOffset + 1);
+            MemoryUtil.memPutInt(pIndices +  8, vertexOffset + 2);
+
+            MemoryUtil.memPutInt(pIndices + 12, vertexOffset + 2);
+            MemoryUtil.memPutInt(pIndices + 16, vertexOffset + 3);
+            MemoryUtil.memPutInt(pIndices + 20, vertexOffset + 0);
+
+            pIndices += ELEMENTS_PER_QUAD * Integer.BYTES;
+        }
+
+        return buffer;
+    }
+}
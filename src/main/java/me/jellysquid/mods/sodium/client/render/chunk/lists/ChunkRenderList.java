@@ -1,6 +1,5 @@
 package me.jellysquid.mods.sodium.client.render.chunk.lists;
 
-import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
 import me.jellysquid.mods.sodium.client.render.chunk.RenderSectionFlags;
 import me.jellysquid.mods.sodium.client.util.iterator.ByteIterator;
 import me.jellysquid.mods.sodium.client.util.iterator.ReversibleByteArrayIterator;
@@ -37,16 +36,13 @@ public class ChunkRenderList {
         this.lastVisibleFrame = frame;
     }
 
-    public void add(RenderSection render) {
+    public void add(int index, int flags) {
         if (this.size >= RenderRegion.REGION_SIZE) {
             throw new ArrayIndexOutOfBoundsException("Render list is full");
         }
 
         this.size++;
 
-        int index = render.getSectionIndex();
-        int flags = render.getFlags();
-
         this.sectionsWithGeometry[this.sectionsWithGeometryCount] = (byte) index;
         this.sectionsWithGeometryCount += (flags >>> RenderSectionFlags.HAS_BLOCK_GEOMETRY) & 1;
 
@@ -0,0 +1,148 @@
+package me.jellysquid.mods.sodium.client.render.chunk.lists;
+
+import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A bounded queue of sections which are waiting to be rebuilt, ordered by a floating-point priority where lower values
+ * are dequeued first. The keys are stored in a primitive array alongside the sections, so that ordering them never
+ * requires boxing or comparator calls.
+ *
+ * While sections are being added, the queue is a max-heap which holds the best sections seen so far, and when the
+ * queue is full, the worst section is evicted to make room for a better one. The first call to {@link #poll()} sorts
+ * the heap in-place, after which no more sections can be added.
+ */
+public class SectionRebuildQueue {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maximumSize;
+
+    private float[] keys = new float[INITIAL_CAPACITY];
+    private RenderSection[] sections = new RenderSection[INITIAL_CAPACITY];
+
+    private int size;
+
+    // The index of the next section to be dequeued, or -1 if the queue has not been sorted yet
+    private int next = -1;
+
+    public SectionRebuildQueue(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public void add(RenderSection section, float key) {
+        if (this.next != -1) {
+            throw new IllegalStateException("Sections can't be added after the queue has been sorted");
+        }
+
+        if (this.size < this.maximumSize) {
+            if (this.size == this.keys.length) {
+                this.grow();
+            }
+
+            this.keys[this.size] = key;
+            this.sections[this.size] = section;
+
+            this.siftUp(this.size++);
+        } else if (this.size > 0 && key < this.keys[0]) {
+            // The root holds the worst section in the queue, so replace it with the better one
+            this.keys[0] = key;
+            this.sections[0] = section;
+
+            this.siftDown(0, this.size);
+        }
+    }
+
+    @Nullable
+    public RenderSection poll() {
+        if (this.next == -1) {
+            this.sort();
+        }
+
+        if (this.next >= this.size) {
+            return null;
+        }
+
+        var section = this.sections[this.next];
+        this.sections[this.next++] = null;
+
+        return section;
+    }
+
+    public int size() {
+        return this.next == -1 ? this.size : this.size - this.next;
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(this.sections, 0, this.size, null);
+
+        this.size = 0;
+        this.next = -1;
+    }
+
+    private void sort() {
+        // Heap sort, which leaves the keys in ascending order since the heap is a max-heap
+        for (int end = this.size - 1; end > 0; end--) {
+            this.swap(0, end);
+            this.siftDown(0, end);
+        }
+
+        this.next = 0;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+
+            if (this.keys[parent] >= this.keys[index]) {
+                break;
+            }
+
+            this.swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int end) {
+        while (true) {
+            int child = (index << 1) + 1;
+
+            if (child >= end) {
+                break;
+            }
+
+            if (child + 1 < end && this.keys[child + 1] > this.keys[child]) {
+                child++;
+            }
+
+            if (this.keys[index] >= this.keys[child]) {
+                break;
+            }
+
+            this.swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        float key = this.keys[a];
+        this.keys[a] = this.keys[b];
+        this.keys[b] = key;
+
+        RenderSection section = this.sections[a];
+        this.sections[a] = this.sections[b];
+        this.sections[b] = section;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min((long) this.keys.length * 2, this.maximumSize);
+
+        this.keys = Arrays.copyOf(this.keys, capacity);
+        this.sections = Arrays.copyOf(this.sections, capacity);
+    }
+}
@@ -1,7 +1,6 @@
 package me.jellysquid.mods.sodium.client.render.chunk.lists;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
-import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
 import me.jellysquid.mods.sodium.client.util.iterator.ReversibleObjectArrayIterator;
 import me.jellysquid.mods.sodium.client.render.chunk.region.RenderRegion;
 
@@ -31,8 +30,7 @@ public class SortedRenderLists implements ChunkRenderListIterable {
             this.frame = frame;
         }
 
-        public void add(RenderSection section) {
-            RenderRegion region = section.getRegion();
+        public void add(RenderRegion region, int sectionIndex, int flags) {
             ChunkRenderList list = region.getRenderList();
 
             if (list.getLastVisibleFrame() != this.frame) {
@@ -41,7 +39,7 @@ public class SortedRenderLists implements ChunkRenderListIterable {
                 this.lists.add(list);
             }
 
-            list.add(section);
+            list.add(sectionIndex, flags);
         }
 
         public SortedRenderLists build() {
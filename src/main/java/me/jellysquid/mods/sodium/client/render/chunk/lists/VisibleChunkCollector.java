@@ -2,52 +2,121 @@ package me.jellysquid.mods.sodium.client.render.chunk.lists;
 
 import me.jellysquid.mods.sodium.client.render.chunk.ChunkUpdateType;
 import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
+import me.jellysquid.mods.sodium.client.render.chunk.RenderSectionFlags;
+import me.jellysquid.mods.sodium.client.render.chunk.occlusion.OcclusionCuller;
+import me.jellysquid.mods.sodium.client.render.chunk.occlusion.SectionGraph;
+import me.jellysquid.mods.sodium.client.render.viewport.CameraTransform;
+import me.jellysquid.mods.sodium.client.render.viewport.Viewport;
+import org.joml.Vector3fc;
 
-import java.util.ArrayDeque;
 import java.util.EnumMap;
 import java.util.Map;
-import java.util.Queue;
-import java.util.function.Consumer;
 
-public class VisibleChunkCollector implements Consumer<RenderSection> {
+public class VisibleChunkCollector implements OcclusionCuller.Visitor {
+    /**
+     * How much more distant a section directly behind the camera is treated as being, compared to a section which is
+     * directly in front of the camera.
+     */
+    private static final float ANGLE_WEIGHT = 1.0f;
+
+    /**
+     * How quickly a section is promoted for each nanosecond it has been waiting to be rebuilt. After waiting for one
+     * second, a section is treated as being half as distant. The age is measured in time rather than frames, so that
+     * sections are promoted at the same rate regardless of the frame rate.
+     */
+    private static final float AGE_WEIGHT = 1.0f / 1_000_000_000.0f;
+
+    private final SectionGraph graph;
+
     private final SortedRenderLists.Builder sortedRenderLists;
-    private final EnumMap<ChunkUpdateType, ArrayDeque<RenderSection>> sortedRebuildLists;
+    private final EnumMap<ChunkUpdateType, SectionRebuildQueue> sortedRebuildLists;
+
+    // The value of System#nanoTime() when the search started, which the age of each pending update is measured from
+    private final long time;
+
+    private final float cameraX, cameraY, cameraZ;
+    private final float forwardX, forwardY, forwardZ;
+
+    private int visitedSections;
+
+    public VisibleChunkCollector(SectionGraph graph, int frame, Viewport viewport, Vector3fc forward) {
+        this.graph = graph;
 
-    public VisibleChunkCollector(int frame) {
         this.sortedRenderLists = new SortedRenderLists.Builder(frame);
         this.sortedRebuildLists = new EnumMap<>(ChunkUpdateType.class);
 
         for (var type : ChunkUpdateType.values()) {
-            this.sortedRebuildLists.put(type, new ArrayDeque<>());
+            this.sortedRebuildLists.put(type, new SectionRebuildQueue(type.getMaximumQueueSize()));
         }
+
+        this.time = System.nanoTime();
+
+        CameraTransform transform = viewport.getTransform();
+        this.cameraX = transform.intX + transform.fracX;
+        this.cameraY = transform.intY + transform.fracY;
+        this.cameraZ = transform.intZ + transform.fracZ;
+
+        this.forwardX = forward.x();
+        this.forwardY = forward.y();
+        this.forwardZ = forward.z();
     }
 
     @Override
-    public void accept(RenderSection section) {
-        if (section.getFlags() != 0) {
-            this.sortedRenderLists.add(section);
+    public void visit(int slot) {
+        this.visitedSections++;
+
+        var graph = this.graph;
+        int flags = graph.getFlags(slot);
+
+        if (flags != RenderSectionFlags.NONE) {
+            this.sortedRenderLists.add(graph.getRegion(slot), graph.getSectionIndex(slot), flags);
         }
 
-        this.addToRebuildLists(section);
+        // Only sections which are waiting to be rebuilt need to be looked up
+        if (graph.needsRebuild(slot)) {
+            this.addToRebuildLists(graph.getSection(slot), graph.getPendingUpdate(slot));
+        }
+    }
+
+    private void addToRebuildLists(RenderSection section, ChunkUpdateType type) {
+        this.sortedRebuildLists.get(type)
+                .add(section, this.getRebuildPriority(section));
     }
 
-    private void addToRebuildLists(RenderSection section) {
-        ChunkUpdateType type = section.getPendingUpdate();
+    /**
+     * Returns the priority of rebuilding the given section, where sections with a lower value should be rebuilt first.
+     * This is the distance from the camera to the section, scaled up for sections which are further away from the view
+     * direction, and scaled down for sections which have been waiting for longer.
+     */
+    private float getRebuildPriority(RenderSection section) {
+        float dx = section.getCenterX() - this.cameraX;
+        float dy = section.getCenterY() - this.cameraY;
+        float dz = section.getCenterZ() - this.cameraZ;
 
-        if (type != null && section.getBuildCancellationToken() == null) {
-            Queue<RenderSection> queue = this.sortedRebuildLists.get(type);
+        float distance = (float) Math.sqrt((dx * dx) + (dy * dy) + (dz * dz));
 
-            if (queue.size() < type.getMaximumQueueSize()) {
-                queue.add(section);
-            }
+        // The cosine of the angle between the view direction and the direction to the section, in the range [-1, 1]
+        float cosine = 1.0f;
+
+        if (distance > 0.0f) {
+            cosine = ((dx * this.forwardX) + (dy * this.forwardY) + (dz * this.forwardZ)) / distance;
         }
+
+        float angleFactor = 1.0f + (ANGLE_WEIGHT * (1.0f - cosine));
+        float ageFactor = 1.0f + (AGE_WEIGHT * Math.max(0L, this.time - section.getPendingUpdateTime()));
+
+        return (distance * angleFactor) / ageFactor;
     }
 
     public SortedRenderLists createRenderLists() {
         return this.sortedRenderLists.build();
     }
 
-    public Map<ChunkUpdateType, ArrayDeque<RenderSection>> getRebuildLists() {
+    public Map<ChunkUpdateType, SectionRebuildQueue> getRebuildLists() {
         return this.sortedRebuildLists;
     }
+
+    public int getVisitedSectionCount() {
+        return this.visitedSections;
+    }
 }
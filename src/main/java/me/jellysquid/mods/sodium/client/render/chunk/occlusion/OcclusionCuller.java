@@ -1,165 +1,895 @@
 package me.jellysquid.mods.sodium.client.render.chunk.occlusion;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.longs.Long2ReferenceMap;
 import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
-import me.jellysquid.mods.sodium.client.util.collections.DoubleBufferedQueue;
-import me.jellysquid.mods.sodium.client.util.collections.ReadQueue;
-import me.jellysquid.mods.sodium.client.util.collections.WriteQueue;
+import me.jellysquid.mods.sodium.client.render.chunk.region.RegionVisibility;
+import me.jellysquid.mods.sodium.client.render.chunk.region.RenderRegion;
 import me.jellysquid.mods.sodium.client.render.viewport.Viewport;
 import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.World;
-import org.jetbrains.annotations.NotNull;
-
-import java.util.function.Consumer;
-
+import org.jetbrains.annotations.Nullable;
+import org.joml.FrustumIntersection;
+import org.joml.Vector3fc;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the sections which are visible from the camera by searching outwards through the visibility graph.
+ *
+ * The search itself does not depend on the camera's exact position within the origin section, and only roughly on its
+ * rotation, so the set of reachable sections is cached between frames and only filtered against the viewport each
+ * frame. The cache is thrown away when the camera moves into another section, turns too far away from the direction it
+ * was facing during the search, or the search parameters change. When the visibility data of
+ * a section changes, or sections are added or removed, only the part of the graph which lies beyond those sections is
+ * searched again.
+ *
+ * The search works entirely on the slot ids of the {@link SectionGraph}, and never touches the section objects.
+ *
+ * Before the reachable sections are filtered, each render region is tested against the viewport as a whole. Sections
+ * in regions which are entirely outside the viewport are skipped, and sections in regions which are entirely inside
+ * it don't need to be tested individually.
+ */
 public class OcclusionCuller {
+    /**
+     * The camera can move anywhere within the origin section without invalidating the cache, so the distance limit of
+     * the cached search is extended by the furthest distance the camera can be from the center of that section.
+     *
+     * The search distance can also grow by this much without invalidating the cache, since the fog distance changes
+     * slightly from frame to frame while it transitions between environments.
+     */
+    private static final float CACHE_DISTANCE_MARGIN = 16.0f;
+
+    /**
+     * The angle (in radians) by which the camera can turn away from the direction it was facing during the search
+     * without invalidating the cache.
+     */
+    private static final float CACHE_ANGLE_MARGIN = (float) Math.toRadians(30.0);
+    private static final float CACHE_ANGLE_MARGIN_COS = (float) Math.cos(CACHE_ANGLE_MARGIN);
+
+    /**
+     * The search doesn't enter sections which lie entirely behind the camera for every direction within this angle of
+     * the direction it was facing during the search. This is slightly wider than the angle at which the cache is
+     * invalidated, so that view bobbing and other effects which tilt the frustum can't reveal a skipped section.
+     */
+    private static final float BEHIND_CAMERA_ANGLE = CACHE_ANGLE_MARGIN + (float) Math.toRadians(10.0);
+    private static final float BEHIND_CAMERA_ANGLE_COS = (float) Math.cos(BEHIND_CAMERA_ANGLE);
+    private static final float BEHIND_CAMERA_ANGLE_SIN = (float) Math.sin(BEHIND_CAMERA_ANGLE);
+
+    /**
+     * How far behind the camera plane the center of a section must be before it can be skipped. This covers both the
+     * extent of the section and how far the camera can be from the center of the origin section.
+     */
+    private static final float BEHIND_CAMERA_MARGIN = 2.0f * 8.0f * (float) Math.sqrt(3.0);
+
+    /**
+     * The minimum number of sections in a layer of the search (or in the list of reachable sections) before the work
+     * is split across the worker pool. Below this, the overhead of waking the workers outweighs the benefit.
+     */
+    private static final int PARALLEL_THRESHOLD = 2048;
+
+    /**
+     * The minimum number of sections which each task will process when the work is split across the worker pool.
+     */
+    private static final int MIN_SLICE_SIZE = 512;
+
     private final Long2ReferenceMap<RenderSection> sections;
+    private final SectionGraph graph;
+    private final Collection<RenderRegion> regions;
     private final World world;
 
-    private final DoubleBufferedQueue<RenderSection> queue = new DoubleBufferedQueue<>();
+    // The current and next layers of the search
+    private IntArrayList layer = new IntArrayList();
+    private IntArrayList nextLayer = new IntArrayList();
+
+    // The sections which were reachable during the cached search, in the order of their distance through the graph
+    private IntArrayList reachable = new IntArrayList();
+
+    // The sections whose state in the graph has changed since the last search
+    private final IntLinkedOpenHashSet dirtySections = new IntLinkedOpenHashSet();
+    private boolean hasRemovedSections;
+
+    private boolean cacheValid;
+    private int searchId;
+
+    // The pool used to split the search across multiple threads, or null if the search is always single-threaded
+    private final @Nullable ForkJoinPool pool;
+
+    private final SearchSlice[] searchSlices;
+    private final FilterSlice[] filterSlices;
 
-    public OcclusionCuller(Long2ReferenceMap<RenderSection> sections, World world) {
+    private int originX, originY, originZ;
+    private float cacheForwardX, cacheForwardY, cacheForwardZ;
+    // The largest search distance which the cached search covers, including the margin for it to grow by
+    private float cacheSearchDistance;
+    private boolean cacheOcclusionCulling;
+    private boolean cacheWithinWorld;
+
+    public OcclusionCuller(Long2ReferenceMap<RenderSection> sections, SectionGraph graph,
+                           Collection<RenderRegion> regions, World world, boolean useParallelSearch,
+                           int builderThreads) {
         this.sections = sections;
+        this.graph = graph;
+        this.regions = regions;
         this.world = world;
+
+        int threads = getParallelThreadCount(builderThreads);
+
+        if (useParallelSearch && threads > 1) {
+            this.pool = new ForkJoinPool(threads, OcclusionCuller::createWorkerThread, null, false);
+        } else {
+            this.pool = null;
+        }
+
+        // Create a few more slices than there are threads, so that the work can be balanced when some sections take
+        // longer to process than others
+        int slices = this.pool != null ? threads * 4 : 0;
+
+        this.searchSlices = new SearchSlice[slices];
+        this.filterSlices = new FilterSlice[slices];
+
+        for (int i = 0; i < slices; i++) {
+            this.searchSlices[i] = new SearchSlice();
+            this.filterSlices[i] = new FilterSlice();
+        }
+    }
+
+    /**
+     * Returns the number of threads to search with, using only the cores which aren't used by the chunk builder. The
+     * render thread waits for the search to finish, so its core can be used by the search.
+     */
+    private static int getParallelThreadCount(int builderThreads) {
+        return MathHelper.clamp(Runtime.getRuntime().availableProcessors() - builderThreads, 1, 8);
+    }
+
+    private static ForkJoinWorkerThread createWorkerThread(ForkJoinPool pool) {
+        var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Occlusion Culling Worker #" + thread.getPoolIndex());
+
+        return thread;
+    }
+
+    /**
+     * Stops the worker threads used by the parallel search, if any. The culler can no longer be used afterwards.
+     */
+    public void destroy() {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+        }
     }
 
-    public void findVisible(Consumer<RenderSection> visitor,
+    /**
+     * @param forward The unit vector which points in the direction the camera is facing
+     */
+    public void findVisible(Visitor visitor,
                             Viewport viewport,
+                            Vector3fc forward,
                             float searchDistance,
                             boolean useOcclusionCulling,
                             int frame)
     {
-        final var queues = this.queue;
-        queues.reset();
+        if (!this.isCacheValid(viewport, forward, searchDistance, useOcclusionCulling)) {
+            this.search(viewport, forward, searchDistance, useOcclusionCulling);
+        } else if (!this.dirtySections.isEmpty() || this.hasRemovedSections) {
+            this.updateDirtySections();
+        }
+
+        this.dirtySections.clear();
+
+        // Nothing holds onto the slots of removed sections anymore, so they can be given to new sections
+        this.graph.reclaimSlots();
+
+        this.updateRegionVisibility(viewport, searchDistance);
+
+        var graph = this.graph;
+        var reachable = this.reachable;
+
+        if (this.pool != null && reachable.size() >= PARALLEL_THRESHOLD) {
+            this.filterVisibleParallel(visitor, viewport, searchDistance, frame);
+            return;
+        }
+
+        for (int i = 0; i < reachable.size(); i++) {
+            int slot = reachable.getInt(i);
+
+            if (!isSectionVisible(viewport, graph, slot, searchDistance)) {
+                continue;
+            }
+
+            graph.setLastVisibleFrame(slot, frame);
+
+            visitor.visit(slot);
+        }
+    }
+
+    /**
+     * Receives the slot of each section which is visible from the camera, in the order of their distance through the
+     * graph.
+     */
+    public interface Visitor {
+        void visit(int slot);
+    }
+
+    /**
+     * Notifies the culler that the visibility data of a section has changed.
+     */
+    public void onSectionVisibilityChanged(RenderSection section) {
+        if (this.cacheValid) {
+            this.dirtySections.add(section.getSlot());
+        }
+    }
+
+    /**
+     * Notifies the culler that a section has been added to the graph. This must be called after the section has been
+     * connected to its neighbors.
+     */
+    public void onSectionAdded(RenderSection section) {
+        if (this.cacheValid) {
+            this.dirtySections.add(section.getSlot());
+        }
+    }
+
+    /**
+     * Notifies the culler that a section is being removed from the graph. This must be called before the section has
+     * been disconnected from its neighbors, since any neighbor which could be reached through it will need updating.
+     */
+    public void onSectionRemoved(RenderSection section) {
+        if (!this.cacheValid) {
+            return;
+        }
 
-        this.init(visitor, queues.write(), viewport, searchDistance, useOcclusionCulling, frame);
+        int slot = section.getSlot();
 
-        while (queues.flip()) {
-            processQueue(visitor, viewport, searchDistance, useOcclusionCulling, frame, queues.read(), queues.write());
+        this.graph.setReachable(slot, false);
+
+        this.dirtySections.remove(slot);
+        this.hasRemovedSections = true;
+
+        for (int direction = 0; direction < GraphDirection.COUNT; direction++) {
+            int adj = this.graph.getAdjacent(slot, direction);
+
+            if (adj != SectionGraph.NULL) {
+                this.dirtySections.add(adj);
+            }
         }
     }
 
-    private static void processQueue(Consumer<RenderSection> visitor,
-                                     Viewport viewport,
-                                     float searchDistance,
-                                     boolean useOcclusionCulling,
-                                     int frame,
-                                     ReadQueue<RenderSection> readQueue,
-                                     WriteQueue<RenderSection> writeQueue)
+    private boolean isCacheValid(Viewport viewport, Vector3fc forward, float searchDistance,
+                                 boolean useOcclusionCulling) {
+        var origin = viewport.getChunkCoord();
+
+        float cosine = (forward.x() * this.cacheForwardX) + (forward.y() * this.cacheForwardY) +
+                (forward.z() * this.cacheForwardZ);
+
+        return this.cacheValid &&
+                this.originX == origin.getX() && this.originY == origin.getY() && this.originZ == origin.getZ() &&
+                cosine >= CACHE_ANGLE_MARGIN_COS &&
+                searchDistance <= this.cacheSearchDistance &&
+                this.cacheOcclusionCulling == useOcclusionCulling;
+    }
+
+    private void search(Viewport viewport, Vector3fc forward, float searchDistance, boolean useOcclusionCulling) {
+        var origin = viewport.getChunkCoord();
+
+        this.originX = origin.getX();
+        this.originY = origin.getY();
+        this.originZ = origin.getZ();
+
+        this.cacheForwardX = forward.x();
+        this.cacheForwardY = forward.y();
+        this.cacheForwardZ = forward.z();
+
+        this.cacheSearchDistance = searchDistance + CACHE_DISTANCE_MARGIN;
+        this.cacheOcclusionCulling = useOcclusionCulling;
+        this.cacheWithinWorld = this.originY >= this.world.getBottomSectionCoord() &&
+                this.originY < this.world.getTopSectionCoord();
+
+        this.cacheValid = true;
+
+        this.searchFromOrigin();
+    }
+
+    private void searchFromOrigin() {
+        this.searchId++;
+
+        this.reachable.clear();
+        this.hasRemovedSections = false;
+
+        this.layer.clear();
+        this.nextLayer.clear();
+
+        this.init(this.nextLayer);
+
+        while (!this.nextLayer.isEmpty()) {
+            var swap = this.layer;
+            this.layer = this.nextLayer;
+            this.nextLayer = swap;
+            this.nextLayer.clear();
+
+            this.processLayer(this.layer, this.nextLayer);
+        }
+    }
+
+    private void filterVisibleParallel(Visitor visitor,
+                                       Viewport viewport,
+                                       float searchDistance,
+                                       int frame)
     {
-        RenderSection section;
+        var reachable = this.reachable;
+        var slices = this.prepareSlices(this.filterSlices, reachable.size());
 
-        while ((section = readQueue.dequeue()) != null) {
-            if (isOutsideRenderDistance(viewport, section, searchDistance)) {
-                continue;
+        for (int i = 0; i < slices.size(); i++) {
+            slices.get(i).init(this.graph, reachable, viewport, searchDistance, frame);
+        }
+
+        this.invokeAll(slices);
+
+        // Each slice covers a contiguous range of the reachable sections, so visiting the results of each slice in
+        // order gives the same order as the single-threaded path, and the visitor never needs to be synchronized
+        for (int i = 0; i < slices.size(); i++) {
+            var visible = slices.get(i).visible;
+
+            for (int j = 0; j < visible.size(); j++) {
+                visitor.visit(visible.getInt(j));
             }
+        }
+    }
+
+    private void processLayer(IntArrayList layer, IntArrayList nextLayer) {
+        if (this.pool != null && layer.size() >= PARALLEL_THRESHOLD) {
+            this.processLayerParallel(layer, nextLayer);
+            return;
+        }
+
+        for (int i = 0; i < layer.size(); i++) {
+            int slot = layer.getInt(i);
 
-            if (isOutsideFrustum(viewport, section)) {
+            if (this.isExcludedFromSearch(slot)) {
                 continue;
             }
 
-            visitor.accept(section);
+            this.graph.setReachable(slot, true);
+            this.reachable.add(slot);
 
-            int connections;
+            this.visitNeighbors(nextLayer, slot, this.getOutgoingDirections(slot), false);
+        }
+    }
+
+    private void processLayerParallel(IntArrayList layer, IntArrayList nextLayer) {
+        var slices = this.prepareSlices(this.searchSlices, layer.size());
+
+        for (int i = 0; i < slices.size(); i++) {
+            slices.get(i).init(layer);
+        }
+
+        this.invokeAll(slices);
 
-            {
-                if (useOcclusionCulling) {
-                    // When using occlusion culling, we can only traverse into neighbors for which there is a path of
-                    // visibility through this chunk. This is determined by taking all the incoming paths to this chunk and
-                    // creating a union of the outgoing paths from those.
-                    connections = VisibilityEncoding.getConnections(section.getVisibilityData(), section.getIncomingDirections());
-                } else {
-                    // Not using any occlusion culling, so traversing in any direction is legal.
-                    connections = GraphDirectionSet.ALL;
+        // Merge the results of each slice on this thread, so that the shared lists are never written to concurrently
+        for (int i = 0; i < slices.size(); i++) {
+            var slice = slices.get(i);
+
+            this.reachable.addAll(slice.reachable);
+            nextLayer.addAll(slice.next);
+        }
+    }
+
+    /**
+     * Assigns a contiguous range of the given number of elements to each of the slices which will be used, and
+     * returns those slices.
+     */
+    private <T extends Slice> List<T> prepareSlices(T[] slices, int count) {
+        int numSlices = Math.min(slices.length, Math.max(1, count / MIN_SLICE_SIZE));
+        int sliceSize = (count + numSlices - 1) / numSlices;
+
+        for (int i = 0; i < numSlices; i++) {
+            var slice = slices[i];
+            slice.reinitialize();
+            slice.setRange(Math.min(i * sliceSize, count), Math.min((i + 1) * sliceSize, count));
+        }
+
+        return Arrays.asList(slices).subList(0, numSlices);
+    }
+
+    private void invokeAll(List<? extends Slice> slices) {
+        // The slices must be forked from within the pool, otherwise they would be executed by the common pool
+        Objects.requireNonNull(this.pool)
+                .invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(slices)));
+    }
+
+    private static abstract class Slice extends RecursiveAction {
+        protected int start, end;
+
+        void setRange(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Processes part of a layer of the search. The sections which are found to be reachable, and the sections which
+     * are visited for the first time in the next layer, are buffered in the slice until they are merged.
+     */
+    private final class SearchSlice extends Slice {
+        private final IntArrayList reachable = new IntArrayList();
+        private final IntArrayList next = new IntArrayList();
+
+        private IntArrayList layer;
+
+        void init(IntArrayList layer) {
+            this.layer = layer;
+
+            this.reachable.clear();
+            this.next.clear();
+        }
+
+        @Override
+        protected void compute() {
+            var culler = OcclusionCuller.this;
+
+            for (int i = this.start; i < this.end; i++) {
+                int slot = this.layer.getInt(i);
+
+                if (culler.isExcludedFromSearch(slot)) {
+                    continue;
                 }
 
-                // We can only traverse *outwards* from the center of the graph search, so mask off any invalid
-                // directions.
-                connections &= getOutwardDirections(viewport.getChunkCoord(), section);
+                culler.graph.setReachableConcurrently(slot);
+                this.reachable.add(slot);
+
+                culler.visitNeighbors(this.next, slot, culler.getOutgoingDirections(slot), true);
             }
 
-            visitNeighbors(writeQueue, section, connections, frame);
+            this.layer = null;
         }
     }
 
-    private static void visitNeighbors(final WriteQueue<RenderSection> queue, RenderSection section, int outgoing, int frame) {
+    /**
+     * Filters part of the list of reachable sections against the viewport.
+     */
+    private static final class FilterSlice extends Slice {
+        private final IntArrayList visible = new IntArrayList();
+
+        private SectionGraph graph;
+        private IntArrayList reachable;
+        private Viewport viewport;
+        private float searchDistance;
+        private int frame;
+
+        void init(SectionGraph graph, IntArrayList reachable, Viewport viewport, float searchDistance, int frame) {
+            this.graph = graph;
+            this.reachable = reachable;
+            this.viewport = viewport;
+            this.searchDistance = searchDistance;
+            this.frame = frame;
+
+            this.visible.clear();
+        }
+
+        @Override
+        protected void compute() {
+            var graph = this.graph;
+
+            for (int i = this.start; i < this.end; i++) {
+                int slot = this.reachable.getInt(i);
+
+                if (!isSectionVisible(this.viewport, graph, slot, this.searchDistance)) {
+                    continue;
+                }
+
+                graph.setLastVisibleFrame(slot, this.frame);
+
+                this.visible.add(slot);
+            }
+
+            this.graph = null;
+            this.reachable = null;
+            this.viewport = null;
+        }
+    }
+
+    private void visitNeighbors(final IntArrayList queue, int slot, int outgoing, boolean concurrent) {
+        var graph = this.graph;
+
         // Only traverse into neighbors which are actually present.
-        // This avoids a null-check on each invocation to enqueue, and since the compiler will see that a null
-        // is never encountered (after profiling), it will optimize it away.
-        outgoing &= section.getAdjacentMask();
+        outgoing &= graph.getAdjacentMask(slot);
 
         // Check if there are any valid connections left, and if not, early-exit.
         if (outgoing == GraphDirectionSet.NONE) {
             return;
         }
 
-        // This helps the compiler move the checks for some invariants upwards.
-        queue.ensureCapacity(6);
+        int searchId = this.searchId;
 
-        if (GraphDirectionSet.contains(outgoing, GraphDirection.DOWN)) {
-            visitNode(queue, section.adjacentDown, GraphDirectionSet.of(GraphDirection.UP), frame);
+        for (int direction = 0; direction < GraphDirection.COUNT; direction++) {
+            if (GraphDirectionSet.contains(outgoing, direction)) {
+                visitNode(queue, graph, graph.getAdjacent(slot, direction),
+                        GraphDirectionSet.of(GraphDirection.opposite(direction)), searchId, concurrent);
+            }
         }
+    }
 
-        if (GraphDirectionSet.contains(outgoing, GraphDirection.UP)) {
-            visitNode(queue, section.adjacentUp, GraphDirectionSet.of(GraphDirection.DOWN), frame);
+    private static void visitNode(final IntArrayList queue, SectionGraph graph, int slot, int incoming,
+                                  int searchId, boolean concurrent)
+    {
+        // Only the first visit during the given search will enqueue the section. When other threads may be visiting
+        // the same section, this needs to be decided atomically.
+        boolean first = concurrent ?
+                graph.visitConcurrently(slot, searchId, incoming) :
+                graph.visit(slot, searchId, incoming);
+
+        if (first) {
+            queue.add(slot);
         }
+    }
+
+    /**
+     * Returns the directions in which the search can leave the given section, which must be reachable.
+     */
+    private int getOutgoingDirections(int slot) {
+        int connections;
+
+        if (this.cacheWithinWorld && this.isOrigin(slot)) {
+            if (this.cacheOcclusionCulling) {
+                // Since the camera is located inside this chunk, there are no "incoming" directions. So we need to
+                // instead find any possible paths out of this chunk and enqueue those neighbors.
+                connections = VisibilityEncoding.getConnections(this.graph.getVisibilityData(slot));
+            } else {
+                // Occlusion culling is disabled, so we can traverse into any neighbor.
+                connections = GraphDirectionSet.ALL;
+            }
+        } else {
+            if (this.cacheOcclusionCulling) {
+                // When using occlusion culling, we can only traverse into neighbors for which there is a path of
+                // visibility through this chunk. This is determined by taking all the incoming paths to this chunk
+                // and creating a union of the outgoing paths from those.
+                connections = VisibilityEncoding.getConnections(this.graph.getVisibilityData(slot),
+                        this.graph.getIncomingDirections(slot));
+            } else {
+                // Not using any occlusion culling, so traversing in any direction is legal.
+                connections = GraphDirectionSet.ALL;
+            }
 
-        if (GraphDirectionSet.contains(outgoing, GraphDirection.NORTH)) {
-            visitNode(queue, section.adjacentNorth, GraphDirectionSet.of(GraphDirection.SOUTH), frame);
+            // We can only traverse *outwards* from the center of the graph search, so mask off any invalid
+            // directions.
+            connections &= this.getOutwardDirections(slot);
         }
 
-        if (GraphDirectionSet.contains(outgoing, GraphDirection.SOUTH)) {
-            visitNode(queue, section.adjacentSouth, GraphDirectionSet.of(GraphDirection.NORTH), frame);
+        return connections & this.graph.getAdjacentMask(slot);
+    }
+
+    /**
+     * Searches the graph again starting from the dirty sections. Since the search only ever moves outwards from the
+     * origin, every edge in the graph connects a section to one which is exactly one step further away, so the
+     * sections can be updated layer by layer. A section is only updated if one of the sections in the layer before it
+     * has changed, which limits the work to the part of the graph which can actually be affected.
+     */
+    private void updateDirtySections() {
+        if (!this.cacheWithinWorld) {
+            // The search starts from a whole layer of sections when outside the world, which isn't worth handling
+            // incrementally since it only happens when flying far above or below the world
+            this.searchFromOrigin();
+
+            return;
         }
 
-        if (GraphDirectionSet.contains(outgoing, GraphDirection.WEST)) {
-            visitNode(queue, section.adjacentWest, GraphDirectionSet.of(GraphDirection.EAST), frame);
+        var graph = this.graph;
+        var seeds = new IntArrayList(this.dirtySections.size());
+
+        for (int slot : this.dirtySections) {
+            if (graph.isPresent(slot)) {
+                seeds.add(slot);
+            }
         }
 
-        if (GraphDirectionSet.contains(outgoing, GraphDirection.EAST)) {
-            visitNode(queue, section.adjacentEast, GraphDirectionSet.of(GraphDirection.WEST), frame);
+        seeds.sort((int a, int b) -> Integer.compare(this.getLayer(a), this.getLayer(b)));
+
+        var added = new IntArrayList();
+        boolean removed = this.hasRemovedSections;
+
+        var current = new IntLinkedOpenHashSet();
+        var next = new IntLinkedOpenHashSet();
+
+        int seedIndex = 0;
+        int layer = seeds.isEmpty() ? 0 : this.getLayer(seeds.getInt(0));
+
+        while (!current.isEmpty() || seedIndex < seeds.size()) {
+            while (seedIndex < seeds.size() && this.getLayer(seeds.getInt(seedIndex)) == layer) {
+                current.add(seeds.getInt(seedIndex++));
+            }
+
+            for (int slot : current) {
+                boolean wasReachable = this.isReachable(slot);
+                int prevOutgoing = wasReachable ? this.getOutgoingDirections(slot) : GraphDirectionSet.NONE;
+
+                this.updateSection(slot);
+
+                boolean isReachable = this.isReachable(slot);
+                int outgoing = isReachable ? this.getOutgoingDirections(slot) : GraphDirectionSet.NONE;
+
+                if (isReachable && !wasReachable) {
+                    added.add(slot);
+                } else if (wasReachable && !isReachable) {
+                    removed = true;
+                }
+
+                // The outgoing directions of a dirty section may have changed even if the section itself didn't,
+                // since its visibility data has changed
+                int changed = this.dirtySections.contains(slot) ? GraphDirectionSet.ALL : prevOutgoing ^ outgoing;
+                changed &= this.getOutwardDirections(slot) & graph.getAdjacentMask(slot);
+
+                for (int direction = 0; direction < GraphDirection.COUNT; direction++) {
+                    if (GraphDirectionSet.contains(changed, direction)) {
+                        next.add(graph.getAdjacent(slot, direction));
+                    }
+                }
+            }
+
+            var swap = current;
+            current = next;
+            next = swap;
+            next.clear();
+
+            layer++;
         }
+
+        if (!added.isEmpty() || removed) {
+            this.mergeReachable(added);
+        }
+
+        this.hasRemovedSections = false;
     }
 
-    private static void visitNode(final WriteQueue<RenderSection> queue, @NotNull RenderSection render, int incoming, int frame) {
-        if (render.getLastVisibleFrame() != frame) {
-            // This is the first time we are visiting this section during the given frame, so we must
-            // reset the state.
-            render.setLastVisibleFrame(frame);
-            render.setIncomingDirections(GraphDirectionSet.NONE);
+    /**
+     * Re-computes the incoming directions of a section from the sections in the layer before it.
+     */
+    private void updateSection(int slot) {
+        var graph = this.graph;
+
+        if (this.isOrigin(slot)) {
+            graph.setSearchState(slot, this.searchId, GraphDirectionSet.NONE, true);
+
+            return;
+        }
+
+        int incoming = GraphDirectionSet.NONE;
 
-            queue.enqueue(render);
+        for (int direction = 0; direction < GraphDirection.COUNT; direction++) {
+            int adj = graph.getAdjacent(slot, direction);
+
+            if (adj == SectionGraph.NULL || !this.isReachable(adj) || this.getLayer(adj) >= this.getLayer(slot)) {
+                continue;
+            }
+
+            if (GraphDirectionSet.contains(this.getOutgoingDirections(adj), GraphDirection.opposite(direction))) {
+                incoming |= GraphDirectionSet.of(direction);
+            }
         }
 
-        render.addIncomingDirections(incoming);
+        graph.setSearchState(slot, this.searchId, incoming,
+                incoming != GraphDirectionSet.NONE && !this.isExcludedFromSearch(slot));
+    }
+
+    /**
+     * Removes any sections which are no longer reachable from the cached list, and inserts the sections which have
+     * become reachable, while keeping the list ordered by distance through the graph.
+     */
+    private void mergeReachable(IntArrayList added) {
+        var previous = this.reachable;
+        var merged = new IntArrayList(previous.size() + added.size());
+
+        int addedIndex = 0;
+
+        for (int i = 0; i < previous.size(); i++) {
+            int slot = previous.getInt(i);
+
+            // The slots of removed sections are not re-used until the search has finished, so they are never
+            // reachable here
+            if (!this.isReachable(slot)) {
+                continue;
+            }
+
+            int layer = this.getLayer(slot);
+
+            while (addedIndex < added.size() && this.getLayer(added.getInt(addedIndex)) <= layer) {
+                merged.add(added.getInt(addedIndex++));
+            }
+
+            merged.add(slot);
+        }
+
+        while (addedIndex < added.size()) {
+            merged.add(added.getInt(addedIndex++));
+        }
+
+        this.reachable = merged;
+    }
+
+    private boolean isReachable(int slot) {
+        return this.graph.getLastSearchId(slot) == this.searchId && this.graph.isReachable(slot);
+    }
+
+    private boolean isOrigin(int slot) {
+        return this.graph.getChunkX(slot) == this.originX &&
+                this.graph.getChunkY(slot) == this.originY &&
+                this.graph.getChunkZ(slot) == this.originZ;
+    }
+
+    // Returns the number of steps through the graph which are needed to reach the section from the origin
+    private int getLayer(int slot) {
+        return Math.abs(this.graph.getChunkX(slot) - this.originX) +
+                Math.abs(this.graph.getChunkY(slot) - this.originY) +
+                Math.abs(this.graph.getChunkZ(slot) - this.originZ);
     }
 
-    private static int getOutwardDirections(ChunkSectionPos origin, RenderSection section) {
+    private int getOutwardDirections(int slot) {
+        int x = this.graph.getChunkX(slot);
+        int y = this.graph.getChunkY(slot);
+        int z = this.graph.getChunkZ(slot);
+
         int planes = 0;
 
-        planes |= section.getChunkX() <= origin.getX() ? 1 << GraphDirection.WEST  : 0;
-        planes |= section.getChunkX() >= origin.getX() ? 1 << GraphDirection.EAST  : 0;
+        planes |= x <= this.originX ? 1 << GraphDirection.WEST  : 0;
+        planes |= x >= this.originX ? 1 << GraphDirection.EAST  : 0;
 
-        planes |= section.getChunkY() <= origin.getY() ? 1 << GraphDirection.DOWN  : 0;
-        planes |= section.getChunkY() >= origin.getY() ? 1 << GraphDirection.UP    : 0;
+        planes |= y <= this.originY ? 1 << GraphDirection.DOWN  : 0;
+        planes |= y >= this.originY ? 1 << GraphDirection.UP    : 0;
 
-        planes |= section.getChunkZ() <= origin.getZ() ? 1 << GraphDirection.NORTH : 0;
-        planes |= section.getChunkZ() >= origin.getZ() ? 1 << GraphDirection.SOUTH : 0;
+        planes |= z <= this.originZ ? 1 << GraphDirection.NORTH : 0;
+        planes |= z >= this.originZ ? 1 << GraphDirection.SOUTH : 0;
 
         return planes;
     }
 
+    private void updateRegionVisibility(Viewport viewport, float searchDistance) {
+        for (RenderRegion region : this.regions) {
+            region.setVisibility(getRegionVisibility(viewport, region, searchDistance));
+        }
+    }
+
+    private static int getRegionVisibility(Viewport viewport, RenderRegion region, float maxDistance) {
+        int minX = region.getOriginX();
+        int minY = region.getOriginY();
+        int minZ = region.getOriginZ();
+
+        int maxX = minX + (RenderRegion.REGION_WIDTH << 4);
+        int maxY = minY + (RenderRegion.REGION_HEIGHT << 4);
+        int maxZ = minZ + (RenderRegion.REGION_LENGTH << 4);
+
+        var transform = viewport.getTransform();
+
+        // The distance from the camera to each side of the region on each axis
+        float minDistanceX = (minX - transform.intX) - transform.fracX;
+        float minDistanceY = (minY - transform.intY) - transform.fracY;
+        float minDistanceZ = (minZ - transform.intZ) - transform.fracZ;
+
+        float maxDistanceX = (maxX - transform.intX) - transform.fracX;
+        float maxDistanceY = (maxY - transform.intY) - transform.fracY;
+        float maxDistanceZ = (maxZ - transform.intZ) - transform.fracZ;
+
+        var distanceLimitSq = MathHelper.square(maxDistance);
+
+        // The point in each section which is tested by isOutsideRenderDistance always lies within the region, so the
+        // region can only be rejected if its closest point is out of range, and only accepted if its furthest point
+        // is in range
+        float nearX = getNearestDistance(minDistanceX, maxDistanceX);
+        float nearY = getNearestDistance(minDistanceY, maxDistanceY);
+        float nearZ = getNearestDistance(minDistanceZ, maxDistanceZ);
+
+        if (getCylindricalDistanceSq(nearX, nearY, nearZ) > distanceLimitSq) {
+            return RegionVisibility.OUTSIDE;
+        }
+
+        float farX = Math.max(Math.abs(minDistanceX), Math.abs(maxDistanceX));
+        float farY = Math.max(Math.abs(minDistanceY), Math.abs(maxDistanceY));
+        float farZ = Math.max(Math.abs(minDistanceZ), Math.abs(maxDistanceZ));
+
+        boolean insideRenderDistance = getCylindricalDistanceSq(farX, farY, farZ) <= distanceLimitSq;
+
+        int intersection = viewport.getBoxIntersection(minX, minY, minZ, maxX, maxY, maxZ);
+
+        if (intersection == FrustumIntersection.INSIDE) {
+            return insideRenderDistance ? RegionVisibility.INSIDE : RegionVisibility.INTERSECTING;
+        } else if (intersection == FrustumIntersection.INTERSECT) {
+            return RegionVisibility.INTERSECTING;
+        } else {
+            return RegionVisibility.OUTSIDE;
+        }
+    }
+
+    // Returns the distance from zero to the closest point in the range [min, max]
+    private static float getNearestDistance(float min, float max) {
+        return Math.max(0.0f, Math.max(min, -max));
+    }
+
+    // vanilla's "cylindrical fog" algorithm, see isOutsideRenderDistance
+    private static float getCylindricalDistanceSq(float distanceX, float distanceY, float distanceZ) {
+        return Math.max((distanceX * distanceX) + (distanceZ * distanceZ), distanceY * distanceY);
+    }
+
+    private static boolean isSectionVisible(Viewport viewport, SectionGraph graph, int slot, float maxDistance) {
+        int visibility = graph.getRegion(slot).getVisibility();
+
+        if (visibility != RegionVisibility.INTERSECTING) {
+            return visibility == RegionVisibility.INSIDE;
+        }
+
+        return !isOutsideRenderDistance(viewport, graph, slot, maxDistance) && !isOutsideFrustum(viewport, graph, slot);
+    }
+
+    // Returns true if the search shouldn't enter the section, since it can't be visible while the cache is valid
+    private boolean isExcludedFromSearch(int slot) {
+        return this.isOutsideSearchDistance(slot) || this.isBehindCamera(slot);
+    }
+
+    // Returns true if the section lies entirely behind the camera for any camera position within the origin section,
+    // and for any direction within BEHIND_CAMERA_ANGLE of the direction the camera was facing during the search
+    private boolean isBehindCamera(int slot) {
+        float distanceX = this.graph.getCenterX(slot) - ((this.originX << 4) + 8);
+        float distanceY = this.graph.getCenterY(slot) - ((this.originY << 4) + 8);
+        float distanceZ = this.graph.getCenterZ(slot) - ((this.originZ << 4) + 8);
+
+        // The distance to the section along the direction the camera was facing, and perpendicular to it
+        float along = (distanceX * this.cacheForwardX) + (distanceY * this.cacheForwardY) +
+                (distanceZ * this.cacheForwardZ);
+
+        if (along >= 0.0f) {
+            return false;
+        }
+
+        float lengthSq = (distanceX * distanceX) + (distanceY * distanceY) + (distanceZ * distanceZ);
+        float across = (float) Math.sqrt(Math.max(0.0f, lengthSq - (along * along)));
+
+        // The furthest the section can be in front of the camera after turning by BEHIND_CAMERA_ANGLE towards it
+        float furthest = (along * BEHIND_CAMERA_ANGLE_COS) + (across * BEHIND_CAMERA_ANGLE_SIN);
+
+        return furthest < -BEHIND_CAMERA_MARGIN;
+    }
+
+    // Same as isOutsideRenderDistance, but measured from the center of the origin section with the distance limit
+    // extended so that the result holds for any camera position within the origin section
+    private boolean isOutsideSearchDistance(int slot) {
+        int originX = (this.originX << 4) + 8;
+        int originY = (this.originY << 4) + 8;
+        int originZ = (this.originZ << 4) + 8;
+
+        int pointX = this.graph.getCenterX(slot);
+        int pointY = this.graph.getCenterY(slot);
+        int pointZ = this.graph.getCenterZ(slot);
+
+        pointX += Integer.signum(originX - pointX) * 8;
+        pointY += Integer.signum(originY - pointY) * 8;
+        pointZ += Integer.signum(originZ - pointZ) * 8;
+
+        float distanceX = pointX - originX;
+        float distanceY = pointY - originY;
+        float distanceZ = pointZ - originZ;
+
+        var distanceSq = Math.max((distanceX * distanceX) + (distanceZ * distanceZ), distanceY * distanceY);
+        var distanceLimitSq = MathHelper.square(this.cacheSearchDistance + CACHE_DISTANCE_MARGIN);
+
+        return distanceSq > distanceLimitSq;
+    }
+
     // picks the closest vertex to the camera of the chunk render bounds, and returns the distance of the vertex from
     // the camera position
-    private static boolean isOutsideRenderDistance(Viewport viewport, RenderSection section, float maxDistance) {
+    private static boolean isOutsideRenderDistance(Viewport viewport, SectionGraph graph, int slot,
+                                                   float maxDistance) {
         var origin = viewport.getBlockCoord();
         var transform = viewport.getTransform();
 
         // The position of the point which will be used for distance calculations
-        int pointX = section.getCenterX();
-        int pointY = section.getCenterY();
-        int pointZ = section.getCenterZ();
+        int pointX = graph.getCenterX(slot);
+        int pointY = graph.getCenterY(slot);
+        int pointZ = graph.getCenterZ(slot);
 
         pointX += Integer.signum(origin.getX() - pointX) * 8; // (chunk.x > center.x) ? -8 : +8
         pointY += Integer.signum(origin.getY() - pointY) * 8; // (chunk.y > center.y) ? -8 : +8
@@ -178,85 +908,58 @@ public class OcclusionCuller {
         return distanceSq > distanceLimitSq;
     }
 
-    public static boolean isOutsideFrustum(Viewport viewport, RenderSection section) {
-        return !viewport.isBoxVisible(section.getCenterX(), section.getCenterY(), section.getCenterZ(), 8.0f);
+    public static boolean isOutsideFrustum(Viewport viewport, SectionGraph graph, int slot) {
+        return !viewport.isBoxVisible(graph.getCenterX(slot), graph.getCenterY(slot), graph.getCenterZ(slot), 8.0f);
     }
 
-    private void init(Consumer<RenderSection> visitor,
-                      WriteQueue<RenderSection> queue,
-                      Viewport viewport,
-                      float searchDistance,
-                      boolean useOcclusionCulling,
-                      int frame)
-    {
-        var origin = viewport.getChunkCoord();
-
-        if (origin.getY() < this.world.getBottomSectionCoord()) {
+    private void init(IntArrayList queue) {
+        if (this.originY < this.world.getBottomSectionCoord()) {
             // below the world
-            this.initOutsideWorldHeight(queue, viewport, searchDistance, frame,
-                    this.world.getBottomSectionCoord(), GraphDirection.DOWN);
-        } else if (origin.getY() >= this.world.getTopSectionCoord()) {
+            this.initOutsideWorldHeight(queue, this.world.getBottomSectionCoord(), GraphDirection.DOWN);
+        } else if (this.originY >= this.world.getTopSectionCoord()) {
             // above the world
-            this.initOutsideWorldHeight(queue, viewport, searchDistance, frame,
-                    this.world.getTopSectionCoord() - 1, GraphDirection.UP);
+            this.initOutsideWorldHeight(queue, this.world.getTopSectionCoord() - 1, GraphDirection.UP);
         } else {
-            this.initWithinWorld(visitor, queue, viewport, useOcclusionCulling, frame);
+            this.initWithinWorld(queue);
         }
     }
 
-    private void initWithinWorld(Consumer<RenderSection> visitor, WriteQueue<RenderSection> queue, Viewport viewport, boolean useOcclusionCulling, int frame) {
-        var origin = viewport.getChunkCoord();
-        var section = this.getRenderSection(origin.getX(), origin.getY(), origin.getZ());
+    private void initWithinWorld(IntArrayList queue) {
+        int slot = this.getSlot(this.originX, this.originY, this.originZ);
 
-        if (section == null) {
+        if (slot == SectionGraph.NULL) {
             return;
         }
 
-        section.setLastVisibleFrame(frame);
-        section.setIncomingDirections(GraphDirectionSet.NONE);
-
-        visitor.accept(section);
+        this.graph.setSearchState(slot, this.searchId, GraphDirectionSet.NONE, true);
 
-        int outgoing;
+        this.reachable.add(slot);
 
-        if (useOcclusionCulling) {
-            // Since the camera is located inside this chunk, there are no "incoming" directions. So we need to instead
-            // find any possible paths out of this chunk and enqueue those neighbors.
-            outgoing = VisibilityEncoding.getConnections(section.getVisibilityData());
-        } else {
-            // Occlusion culling is disabled, so we can traverse into any neighbor.
-            outgoing = GraphDirectionSet.ALL;
-        }
-
-        visitNeighbors(queue, section, outgoing, frame);
+        this.visitNeighbors(queue, slot, this.getOutgoingDirections(slot), false);
     }
 
-    // Enqueues sections that are inside the viewport using diamond spiral iteration to avoid sorting and ensure a
-    // consistent order. Innermost layers are enqueued first. Within each layer, iteration starts at the northernmost
+    // Enqueues sections that are inside the search distance using diamond spiral iteration to avoid sorting and ensure
+    // a consistent order. Innermost layers are enqueued first. Within each layer, iteration starts at the northernmost
     // section and proceeds counterclockwise (N->W->S->E).
-    private void initOutsideWorldHeight(WriteQueue<RenderSection> queue,
-                                        Viewport viewport,
-                                        float searchDistance,
-                                        int frame,
+    private void initOutsideWorldHeight(IntArrayList queue,
                                         int height,
                                         int direction)
     {
-        var origin = viewport.getChunkCoord();
-        var radius = MathHelper.ceil(searchDistance / 16.0f);
+        var radius = MathHelper.ceil((this.cacheSearchDistance + CACHE_DISTANCE_MARGIN) / 16.0f);
 
         // Layer 0
-        this.tryVisitNode(queue, origin.getX(), height, origin.getZ(), direction, frame, viewport);
+        this.tryVisitNode(queue, this.originX, height, this.originZ, direction);
 
         // Complete layers, excluding layer 0
         for (int layer = 1; layer <= radius; layer++) {
             for (int z = -layer; z < layer; z++) {
                 int x = Math.abs(z) - layer;
-                this.tryVisitNode(queue, origin.getX() + x, height, origin.getZ() + z, direction, frame, viewport);
+                this.tryVisitNode(queue, this.originX + x, height, this.originZ + z, direction);
             }
 
             for (int z = layer; z > -layer; z--) {
                 int x = layer - Math.abs(z);
-                this.tryVisitNode(queue, origin.getX() + x, height, origin.getZ() + z, direction, frame, viewport);
+                this.tryVisitNode(queue, this.originX + x, height, this.originZ + z, direction);
             }
         }
 
@@ -266,37 +969,39 @@ public class OcclusionCuller {
 
             for (int z = -radius; z <= -l; z++) {
                 int x = -z - layer;
-                this.tryVisitNode(queue, origin.getX() + x, height, origin.getZ() + z, direction, frame, viewport);
+                this.tryVisitNode(queue, this.originX + x, height, this.originZ + z, direction);
             }
 
             for (int z = l; z <= radius; z++) {
                 int x = z - layer;
-                this.tryVisitNode(queue, origin.getX() + x, height, origin.getZ() + z, direction, frame, viewport);
+                this.tryVisitNode(queue, this.originX + x, height, this.originZ + z, direction);
             }
 
             for (int z = radius; z >= l; z--) {
                 int x = layer - z;
-                this.tryVisitNode(queue, origin.getX() + x, height, origin.getZ() + z, direction, frame, viewport);
+                this.tryVisitNode(queue, this.originX + x, height, this.originZ + z, direction);
             }
 
             for (int z = -l; z >= -radius; z--) {
                 int x = layer + z;
-                this.tryVisitNode(queue, origin.getX() + x, height, origin.getZ() + z, direction, frame, viewport);
+                this.tryVisitNode(queue, this.originX + x, height, this.originZ + z, direction);
             }
         }
     }
 
-    private void tryVisitNode(WriteQueue<RenderSection> queue, int x, int y, int z, int direction, int frame, Viewport viewport) {
-        RenderSection section = this.getRenderSection(x, y, z);
+    private void tryVisitNode(IntArrayList queue, int x, int y, int z, int direction) {
+        int slot = this.getSlot(x, y, z);
 
-        if (section == null || isOutsideFrustum(viewport, section)) {
+        if (slot == SectionGraph.NULL) {
             return;
         }
 
-        visitNode(queue, section, GraphDirectionSet.of(direction), frame);
+        visitNode(queue, this.graph, slot, GraphDirectionSet.of(direction), this.searchId, false);
     }
 
-    private RenderSection getRenderSection(int x, int y, int z) {
-        return this.sections.get(ChunkSectionPos.asLong(x, y, z));
+    private int getSlot(int x, int y, int z) {
+        RenderSection section = this.sections.get(ChunkSectionPos.asLong(x, y, z));
+
+        return section != null ? section.getSlot() : SectionGraph.NULL;
     }
 }
@@ -0,0 +1,346 @@
+package me.jellysquid.mods.sodium.client.render.chunk.occlusion;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import me.jellysquid.mods.sodium.client.render.chunk.ChunkUpdateType;
+import me.jellysquid.mods.sodium.client.render.chunk.LocalSectionIndex;
+import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
+import me.jellysquid.mods.sodium.client.render.chunk.RenderSectionFlags;
+import me.jellysquid.mods.sodium.client.render.chunk.region.RenderRegion;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * The graph of chunk sections which is searched by the occlusion culler. Each section is assigned a dense slot id when
+ * it is created, and all the state which is needed to search the graph and collect the visible sections is stored in
+ * primitive arrays indexed by that slot. This keeps the search from chasing pointers through scattered heap objects,
+ * and {@link RenderSection} only acts as a view over its slot for this state.
+ *
+ * Slots which are released are not re-used until {@link #reclaimSlots()} is called, so that any slot ids which are
+ * still held by the culler can't start referring to a different section in the meantime.
+ */
+public class SectionGraph {
+    public static final int NULL = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // The search state holds the id of the last search which visited a section in the upper 32 bits, and the
+    // directions through which it was entered in the lower bits, along with whether it was found to be reachable.
+    // These are packed together so that they can be updated by a single atomic operation when the search runs on
+    // multiple threads.
+    private static final long SEARCH_STATE_NONE = (long) NULL << 32;
+    private static final long SEARCH_STATE_REACHABLE = 1L << 31;
+
+    private static final VarHandle SEARCH_STATE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final byte NO_PENDING_UPDATE = 0;
+    private static final ChunkUpdateType[] UPDATE_TYPES = ChunkUpdateType.values();
+
+    private RenderSection[] sections = new RenderSection[0];
+    private RenderRegion[] regions = new RenderRegion[0];
+
+    private int[] chunkX = new int[0], chunkY = new int[0], chunkZ = new int[0];
+
+    private long[] visibilityData = new long[0];
+    private int[] flags = new int[0];
+
+    private int[] adjacent = new int[0]; // int[slot * GraphDirection.COUNT + direction]
+    private byte[] adjacentMask = new byte[0];
+
+    private int[] lastVisibleFrame = new int[0];
+    private long[] searchState = new long[0];
+
+    private byte[] pendingUpdate = new byte[0]; // ChunkUpdateType.ordinal() + 1, or NO_PENDING_UPDATE
+    private boolean[] building = new boolean[0];
+
+    private int capacity;
+    private int highestSlot;
+
+    private final IntArrayList freeSlots = new IntArrayList();
+    private final IntArrayList releasedSlots = new IntArrayList();
+
+    public SectionGraph() {
+        this.resize(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Allocates a slot for the given section. The section must not be connected to any neighbors yet.
+     */
+    public int allocate(RenderSection section, RenderRegion region, int x, int y, int z) {
+        int slot;
+
+        if (!this.freeSlots.isEmpty()) {
+            slot = this.freeSlots.popInt();
+        } else {
+            if (this.highestSlot == this.capacity) {
+                this.resize(this.capacity * 2);
+            }
+
+            slot = this.highestSlot++;
+        }
+
+        this.sections[slot] = section;
+        this.regions[slot] = region;
+
+        this.chunkX[slot] = x;
+        this.chunkY[slot] = y;
+        this.chunkZ[slot] = z;
+
+        return slot;
+    }
+
+    /**
+     * Releases the slot of a section which has been removed. The section must already be disconnected from all of its
+     * neighbors.
+     */
+    public void release(int slot) {
+        this.sections[slot] = null;
+        this.regions[slot] = null;
+
+        this.clear(slot);
+
+        this.releasedSlots.add(slot);
+    }
+
+    /**
+     * Makes the slots of any sections which have been released since the last call available for re-use. This should
+     * only be called once nothing holds onto the ids of those slots anymore.
+     */
+    public void reclaimSlots() {
+        this.freeSlots.addAll(this.releasedSlots);
+        this.releasedSlots.clear();
+    }
+
+    private void clear(int slot) {
+        this.visibilityData[slot] = VisibilityEncoding.NULL;
+        this.flags[slot] = RenderSectionFlags.NONE;
+
+        Arrays.fill(this.adjacent, slot * GraphDirection.COUNT, (slot + 1) * GraphDirection.COUNT, NULL);
+        this.adjacentMask[slot] = GraphDirectionSet.NONE;
+
+        this.lastVisibleFrame[slot] = -1;
+        this.searchState[slot] = SEARCH_STATE_NONE;
+
+        this.pendingUpdate[slot] = NO_PENDING_UPDATE;
+        this.building[slot] = false;
+    }
+
+    private void resize(int capacity) {
+        this.sections = Arrays.copyOf(this.sections, capacity);
+        this.regions = Arrays.copyOf(this.regions, capacity);
+
+        this.chunkX = Arrays.copyOf(this.chunkX, capacity);
+        this.chunkY = Arrays.copyOf(this.chunkY, capacity);
+        this.chunkZ = Arrays.copyOf(this.chunkZ, capacity);
+
+        this.visibilityData = Arrays.copyOf(this.visibilityData, capacity);
+        this.flags = Arrays.copyOf(this.flags, capacity);
+
+        this.adjacent = Arrays.copyOf(this.adjacent, capacity * GraphDirection.COUNT);
+        this.adjacentMask = Arrays.copyOf(this.adjacentMask, capacity);
+
+        this.lastVisibleFrame = Arrays.copyOf(this.lastVisibleFrame, capacity);
+        this.searchState = Arrays.copyOf(this.searchState, capacity);
+
+        this.pendingUpdate = Arrays.copyOf(this.pendingUpdate, capacity);
+        this.building = Arrays.copyOf(this.building, capacity);
+
+        for (int slot = this.capacity; slot < capacity; slot++) {
+            this.clear(slot);
+        }
+
+        this.capacity = capacity;
+    }
+
+    public @Nullable RenderSection getSection(int slot) {
+        return slot == NULL ? null : this.sections[slot];
+    }
+
+    public RenderRegion getRegion(int slot) {
+        return this.regions[slot];
+    }
+
+    public int getChunkX(int slot) {
+        return this.chunkX[slot];
+    }
+
+    public int getChunkY(int slot) {
+        return this.chunkY[slot];
+    }
+
+    public int getChunkZ(int slot) {
+        return this.chunkZ[slot];
+    }
+
+    public int getCenterX(int slot) {
+        return (this.chunkX[slot] << 4) + 8;
+    }
+
+    public int getCenterY(int slot) {
+        return (this.chunkY[slot] << 4) + 8;
+    }
+
+    public int getCenterZ(int slot) {
+        return (this.chunkZ[slot] << 4) + 8;
+    }
+
+    /**
+     * Returns the index of the section within its render region.
+     */
+    public int getSectionIndex(int slot) {
+        return LocalSectionIndex.pack(
+                this.chunkX[slot] & (RenderRegion.REGION_WIDTH - 1),
+                this.chunkY[slot] & (RenderRegion.REGION_HEIGHT - 1),
+                this.chunkZ[slot] & (RenderRegion.REGION_LENGTH - 1));
+    }
+
+    public boolean isPresent(int slot) {
+        return this.sections[slot] != null;
+    }
+
+    public long getVisibilityData(int slot) {
+        return this.visibilityData[slot];
+    }
+
+    public void setVisibilityData(int slot, long data) {
+        this.visibilityData[slot] = data;
+    }
+
+    public int getFlags(int slot) {
+        return this.flags[slot];
+    }
+
+    public void setFlags(int slot, int flags) {
+        this.flags[slot] = flags;
+    }
+
+    public int getAdjacent(int slot, int direction) {
+        return this.adjacent[(slot * GraphDirection.COUNT) + direction];
+    }
+
+    public void setAdjacent(int slot, int direction, int adjacent) {
+        this.adjacent[(slot * GraphDirection.COUNT) + direction] = adjacent;
+
+        if (adjacent == NULL) {
+            this.adjacentMask[slot] &= (byte) ~GraphDirectionSet.of(direction);
+        } else {
+            this.adjacentMask[slot] |= (byte) GraphDirectionSet.of(direction);
+        }
+    }
+
+    public int getAdjacentMask(int slot) {
+        return this.adjacentMask[slot];
+    }
+
+    public int getLastVisibleFrame(int slot) {
+        return this.lastVisibleFrame[slot];
+    }
+
+    public void setLastVisibleFrame(int slot, int frame) {
+        this.lastVisibleFrame[slot] = frame;
+    }
+
+    public @Nullable ChunkUpdateType getPendingUpdate(int slot) {
+        int value = this.pendingUpdate[slot];
+        return value == NO_PENDING_UPDATE ? null : UPDATE_TYPES[value - 1];
+    }
+
+    public void setPendingUpdate(int slot, @Nullable ChunkUpdateType type) {
+        this.pendingUpdate[slot] = type == null ? NO_PENDING_UPDATE : (byte) (type.ordinal() + 1);
+    }
+
+    /**
+     * Returns true if the section has a pending update, and it is not already being built.
+     */
+    public boolean needsRebuild(int slot) {
+        return this.pendingUpdate[slot] != NO_PENDING_UPDATE && !this.building[slot];
+    }
+
+    public void setBuilding(int slot, boolean building) {
+        this.building[slot] = building;
+    }
+
+    public int getLastSearchId(int slot) {
+        return (int) (this.searchState[slot] >>> 32);
+    }
+
+    public int getIncomingDirections(int slot) {
+        return (int) this.searchState[slot] & GraphDirectionSet.ALL;
+    }
+
+    /**
+     * Returns whether the section was reachable from the camera during the occlusion culler's last search. This is
+     * only meaningful if {@link #getLastSearchId(int)} matches the culler's current search.
+     */
+    public boolean isReachable(int slot) {
+        return (this.searchState[slot] & SEARCH_STATE_REACHABLE) != 0;
+    }
+
+    public void setSearchState(int slot, int searchId, int incomingDirections, boolean reachable) {
+        this.searchState[slot] = packSearchState(searchId, incomingDirections) |
+                (reachable ? SEARCH_STATE_REACHABLE : 0L);
+    }
+
+    public void setReachable(int slot, boolean reachable) {
+        if (reachable) {
+            this.searchState[slot] |= SEARCH_STATE_REACHABLE;
+        } else {
+            this.searchState[slot] &= ~SEARCH_STATE_REACHABLE;
+        }
+    }
+
+    /**
+     * Same as calling {@link #setReachable(int, boolean)} with true, but can be called while other threads are visiting
+     * the section.
+     */
+    public void setReachableConcurrently(int slot) {
+        SEARCH_STATE.getAndBitwiseOr(this.searchState, slot, SEARCH_STATE_REACHABLE);
+    }
+
+    /**
+     * Records that the given search has entered the section through the given directions.
+     *
+     * @return True if this is the first time the section has been visited during the search, otherwise false
+     */
+    public boolean visit(int slot, int searchId, int incomingDirections) {
+        long state = this.searchState[slot];
+
+        if ((int) (state >>> 32) != searchId) {
+            this.searchState[slot] = packSearchState(searchId, incomingDirections);
+            return true;
+        }
+
+        this.searchState[slot] = state | Integer.toUnsignedLong(incomingDirections);
+
+        return false;
+    }
+
+    /**
+     * Same as {@link #visit(int, int, int)}, but can be called by multiple threads at once. Exactly one of the callers
+     * for a given search will see a return value of true.
+     */
+    public boolean visitConcurrently(int slot, int searchId, int incomingDirections) {
+        while (true) {
+            long state = (long) SEARCH_STATE.getVolatile(this.searchState, slot);
+            long next;
+
+            boolean first = (int) (state >>> 32) != searchId;
+
+            if (first) {
+                next = packSearchState(searchId, incomingDirections);
+            } else {
+                next = state | Integer.toUnsignedLong(incomingDirections);
+            }
+
+            if (state == next || SEARCH_STATE.compareAndSet(this.searchState, slot, state, next)) {
+                return first;
+            }
+        }
+    }
+
+    private static long packSearchState(int searchId, int incomingDirections) {
+        return ((long) searchId << 32) | Integer.toUnsignedLong(incomingDirections);
+    }
+}
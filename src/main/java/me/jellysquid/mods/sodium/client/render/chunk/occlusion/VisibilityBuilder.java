@@ -0,0 +1,245 @@
+package me.jellysquid.mods.sodium.client.render.chunk.occlusion;
+
+import net.minecraft.client.render.chunk.ChunkOcclusionDataBuilder;
+
+/**
+ * Computes which faces of a section can be seen through from which other faces, given the blocks in the section which
+ * are opaque. This produces the same results as vanilla's {@link ChunkOcclusionDataBuilder}, but encoded directly with
+ * {@link VisibilityEncoding}, and much faster.
+ *
+ * <p>Rather than filling the open space one block at a time, the blocks of the section are stored as a bitset of 64
+ * words, with each word holding 4 rows of 16 blocks along the X axis, and the 4 words of each Y layer holding its 16
+ * rows. The flood fill then grows each region of open space in every direction at once, a whole word at a time.</p>
+ */
+public class VisibilityBuilder {
+    private static final int WORD_COUNT = 64;
+
+    // The number of words which hold each layer on the Y axis
+    private static final int WORDS_PER_LAYER = 4;
+
+    // The blocks in each word which are at the start and end of their row on the X axis
+    private static final long ROW_START_MASK = 0x0001_0001_0001_0001L;
+    private static final long ROW_END_MASK = 0x8000_8000_8000_8000L;
+
+    // The blocks in each word which are in its first and last row
+    private static final long FIRST_ROW_MASK = 0x0000_0000_0000_FFFFL;
+    private static final long LAST_ROW_MASK = 0xFFFF_0000_0000_0000L;
+
+    // If fewer blocks than this are opaque, the section is considered to be visible through from every face
+    private static final int MIN_CLOSED_BLOCKS = 256;
+
+    // The blocks in each word which are on the faces of the section
+    private static final long[] EDGE_MASK = new long[WORD_COUNT];
+
+    static {
+        for (int word = 0; word < WORD_COUNT; word++) {
+            int y = word / WORDS_PER_LAYER;
+            int row = word % WORDS_PER_LAYER;
+
+            long mask = ROW_START_MASK | ROW_END_MASK;
+
+            if (y == 0 || y == 15) {
+                mask = -1L;
+            } else if (row == 0) {
+                mask |= FIRST_ROW_MASK;
+            } else if (row == WORDS_PER_LAYER - 1) {
+                mask |= LAST_ROW_MASK;
+            }
+
+            EDGE_MASK[word] = mask;
+        }
+    }
+
+    // The blocks which are opaque
+    private final long[] closed = new long[WORD_COUNT];
+
+    // The blocks which are open, and haven't been reached by any flood fill yet
+    private final long[] unvisited = new long[WORD_COUNT];
+
+    // The blocks reached by the current flood fill, which is empty between fills
+    private final long[] region = new long[WORD_COUNT];
+
+    /**
+     * Marks the block at the given position as opaque. Only the lowest 4 bits of each coordinate are used, so
+     * positions in the world can be passed directly.
+     */
+    public void markClosed(int x, int y, int z) {
+        int index = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+
+        this.closed[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Returns the visibility data of the section, encoded with {@link VisibilityEncoding}. This should be called after
+     * every opaque block has been marked.
+     */
+    public long build() {
+        int closedCount = 0;
+
+        for (int word = 0; word < WORD_COUNT; word++) {
+            closedCount += Long.bitCount(this.closed[word]);
+            this.unvisited[word] = ~this.closed[word];
+        }
+
+        if (closedCount < MIN_CLOSED_BLOCKS) {
+            return VisibilityEncoding.connectAll(GraphDirectionSet.ALL);
+        }
+
+        long visibilityData = VisibilityEncoding.NULL;
+
+        // Each region of open space which touches a face of the section is found by flood filling from one of its
+        // blocks on the faces, and connects all the faces which it touches. Regions which don't touch any face can be
+        // ignored, since they can't be seen through.
+        for (int word = 0; word < WORD_COUNT; word++) {
+            long seeds;
+
+            while ((seeds = this.unvisited[word] & EDGE_MASK[word]) != 0L) {
+                visibilityData |= VisibilityEncoding.connectAll(this.fill(word, Long.lowestOneBit(seeds)));
+            }
+        }
+
+        return visibilityData;
+    }
+
+    /**
+     * Fills the region of unvisited blocks which contains the given block, removes it from the unvisited blocks, and
+     * returns the set of faces which it touches.
+     */
+    private int fill(int seedWord, long seedBit) {
+        final long[] region = this.region;
+        final long[] open = this.unvisited;
+
+        region[seedWord] = seedBit;
+
+        // The range of words which the region has reached, so that small regions don't need to visit every word
+        int minWord = seedWord;
+        int maxWord = seedWord;
+
+        boolean changed;
+
+        // Sweeping forward and then backward over the words lets the region grow across many words in a single pass,
+        // so only twisting regions need more than a few passes.
+        do {
+            changed = false;
+
+            // The region can only grow into the words which are at most one layer away from the words it has reached
+            int start = Math.max(minWord - WORDS_PER_LAYER, 0);
+            int end = Math.min(maxWord + WORDS_PER_LAYER, WORD_COUNT - 1);
+
+            for (int word = start; word <= end; word++) {
+                changed |= this.grow(word);
+            }
+
+            for (int word = end; word >= start; word--) {
+                changed |= this.grow(word);
+            }
+
+            // The region is never empty, since it always contains the seed
+            while (region[start] == 0L) {
+                start++;
+            }
+
+            while (region[end] == 0L) {
+                end--;
+            }
+
+            minWord = start;
+            maxWord = end;
+        } while (changed);
+
+        int faces = GraphDirectionSet.NONE;
+
+        long rowStart = 0L, rowEnd = 0L, firstRow = 0L, lastRow = 0L, bottom = 0L, top = 0L;
+
+        for (int word = minWord; word <= maxWord; word++) {
+            long bits = region[word];
+
+            // Clear the region as it's read, so that it's empty for the next fill
+            region[word] = 0L;
+            open[word] &= ~bits;
+
+            rowStart |= bits & ROW_START_MASK;
+            rowEnd |= bits & ROW_END_MASK;
+
+            int row = word % WORDS_PER_LAYER;
+
+            if (row == 0) {
+                firstRow |= bits & FIRST_ROW_MASK;
+            } else if (row == WORDS_PER_LAYER - 1) {
+                lastRow |= bits & LAST_ROW_MASK;
+            }
+
+            if (word < WORDS_PER_LAYER) {
+                bottom |= bits;
+            } else if (word >= WORD_COUNT - WORDS_PER_LAYER) {
+                top |= bits;
+            }
+        }
+
+        faces |= rowStart != 0L ? GraphDirectionSet.of(GraphDirection.WEST) : 0;
+        faces |= rowEnd != 0L ? GraphDirectionSet.of(GraphDirection.EAST) : 0;
+        faces |= firstRow != 0L ? GraphDirectionSet.of(GraphDirection.NORTH) : 0;
+        faces |= lastRow != 0L ? GraphDirectionSet.of(GraphDirection.SOUTH) : 0;
+        faces |= bottom != 0L ? GraphDirectionSet.of(GraphDirection.DOWN) : 0;
+        faces |= top != 0L ? GraphDirectionSet.of(GraphDirection.UP) : 0;
+
+        return faces;
+    }
+
+    /**
+     * Grows the region into the open blocks of the word which neighbor it, and returns whether any blocks were added.
+     */
+    private boolean grow(int word) {
+        final long[] region = this.region;
+        final long open = this.unvisited[word];
+
+        long prev = region[word];
+
+        // Blocks in the neighboring words, moved into the rows and layers which they neighbor in this word
+        long neighbors = 0L;
+
+        if (word % WORDS_PER_LAYER != 0) {
+            neighbors |= region[word - 1] >>> 48;
+        }
+
+        if (word % WORDS_PER_LAYER != WORDS_PER_LAYER - 1) {
+            neighbors |= region[word + 1] << 48;
+        }
+
+        if (word >= WORDS_PER_LAYER) {
+            neighbors |= region[word - WORDS_PER_LAYER];
+        }
+
+        if (word < WORD_COUNT - WORDS_PER_LAYER) {
+            neighbors |= region[word + WORDS_PER_LAYER];
+        }
+
+        long next = (prev | neighbors) & open;
+
+        if (next == 0L) {
+            return false;
+        }
+
+        // Spread through the rows of this word until nothing more can be reached within it
+        long spread;
+
+        while (true) {
+            spread = next;
+            spread |= (next << 1) & ~ROW_START_MASK;
+            spread |= (next >>> 1) & ~ROW_END_MASK;
+            spread |= next << 16;
+            spread |= next >>> 16;
+            spread &= open;
+
+            if (spread == next) {
+                break;
+            }
+
+            next = spread;
+        }
+
+        region[word] = next;
+
+        return next != prev;
+    }
+}
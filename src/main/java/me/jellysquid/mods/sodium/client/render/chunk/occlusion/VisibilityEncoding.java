@@ -21,6 +21,19 @@ public class VisibilityEncoding {
         return visibilityData;
     }
 
+    // Returns the visibility data where each of the given directions can be seen through from all the others
+    public static long connectAll(int directions) {
+        long visibilityData = 0;
+
+        for (int from = 0; from < GraphDirection.COUNT; from++) {
+            if (GraphDirectionSet.contains(directions, from)) {
+                visibilityData |= Integer.toUnsignedLong(directions) << bit(from, 0);
+            }
+        }
+
+        return visibilityData;
+    }
+
     private static int bit(int from, int to) {
         return (from * 8) + to;
     }
@@ -0,0 +1,15 @@
+package me.jellysquid.mods.sodium.client.render.chunk.region;
+
+/**
+ * The result of testing the bounds of a render region against the viewport and the render distance.
+ */
+public class RegionVisibility {
+    // The region lies entirely outside the viewport or the render distance, so none of its sections are visible
+    public static final int OUTSIDE         = 0;
+
+    // The region crosses the edge of the viewport or the render distance, so each section needs to be tested
+    public static final int INTERSECTING    = 1;
+
+    // The region lies entirely inside the viewport and the render distance, so all of its sections are visible
+    public static final int INSIDE          = 2;
+}
@@ -14,6 +14,7 @@ import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkMeshForm
 import me.jellysquid.mods.sodium.client.util.MathUtil;
 import net.minecraft.util.math.ChunkSectionPos;
 import org.apache.commons.lang3.Validate;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 import java.util.Map;
@@ -40,6 +41,7 @@ public class RenderRegion {
     }
 
     private final StagingBuffer stagingBuffer;
+    private final @Nullable SharedGeometryPool geometryPool;
     private final int x, y, z;
 
     private final ChunkRenderList renderList;
@@ -50,12 +52,15 @@ public class RenderRegion {
     private final Map<TerrainRenderPass, SectionRenderDataStorage> sectionRenderData = new Reference2ReferenceOpenHashMap<>();
     private DeviceResources resources;
 
-    public RenderRegion(int x, int y, int z, StagingBuffer stagingBuffer) {
+    private int visibility = RegionVisibility.OUTSIDE;
+
+    public RenderRegion(int x, int y, int z, StagingBuffer stagingBuffer, @Nullable SharedGeometryPool geometryPool) {
         this.x = x;
         this.y = y;
         this.z = z;
 
         this.stagingBuffer = stagingBuffer;
+        this.geometryPool = geometryPool;
         this.renderList = new ChunkRenderList(this);
     }
 
@@ -125,11 +130,53 @@ public class RenderRegion {
             this.resources.deleteTessellations(commandList);
         }
 
+        this.updateSectionOffsets();
+    }
+
+    /**
+     * Updates the offsets of the region's sections after their segments have been moved within the same buffers.
+     */
+    public void updateSectionOffsets() {
         for (var storage : this.sectionRenderData.values()) {
             storage.onBufferResized();
         }
     }
 
+    /**
+     * Moves up to the given number of bytes of the region's geometry into the holes of its buffers.
+     *
+     * @return The number of bytes which were moved
+     */
+    public int defragment(CommandList commandList, int maxBytes) {
+        if (this.resources == null) {
+            return 0;
+        }
+
+        int moved = this.resources.defragment(commandList, maxBytes);
+
+        // The buffers haven't changed, so only the offsets of the sections need to be updated
+        if (moved > 0) {
+            this.updateSectionOffsets();
+        }
+
+        return moved;
+    }
+
+    /**
+     * Shrinks the buffers of the region if they have been underused for a while.
+     *
+     * @return True if any of the buffers were re-allocated
+     */
+    public boolean tryShrink(CommandList commandList) {
+        if (this.resources == null || !this.resources.tryShrink(commandList)) {
+            return false;
+        }
+
+        this.refresh(commandList);
+
+        return true;
+    }
+
     public void addSection(RenderSection section) {
         var sectionIndex = section.getSectionIndex();
         var prev = this.sections[sectionIndex];
@@ -170,33 +217,76 @@ public class RenderRegion {
 
     public DeviceResources createResources(CommandList commandList) {
         if (this.resources == null) {
-            this.resources = new DeviceResources(commandList, this.stagingBuffer);
+            this.resources = new DeviceResources(commandList, this.stagingBuffer, this.geometryPool);
         }
 
         return this.resources;
     }
 
     public void update(CommandList commandList) {
-        if (this.resources != null && this.resources.shouldDelete()) {
+        if (this.resources != null && !this.hasMeshes() && this.resources.shouldDelete()) {
             this.resources.delete(commandList);
             this.resources = null;
         }
     }
 
+    private boolean hasMeshes() {
+        for (var storage : this.sectionRenderData.values()) {
+            if (!storage.isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public ChunkRenderList getRenderList() {
         return this.renderList;
     }
 
+    /**
+     * Returns the {@link RegionVisibility} of this region, as determined by the occlusion culler for the current frame.
+     */
+    public int getVisibility() {
+        return this.visibility;
+    }
+
+    public void setVisibility(int visibility) {
+        this.visibility = visibility;
+    }
+
     public static class DeviceResources {
+        private final StagingBuffer stagingBuffer;
+
+        // The pool which the region's geometry is allocated from, or null if the region has an arena of its own
+        private final @Nullable SharedGeometryPool geometryPool;
+
         private final GlBufferArena geometryArena;
         private GlTessellation tessellation;
 
-        public DeviceResources(CommandList commandList, StagingBuffer stagingBuffer) {
-            int stride = ChunkMeshFormats.COMPACT.getVertexFormat().getStride();
-            this.geometryArena = new GlBufferArena(commandList, REGION_SIZE * 756, stride, stagingBuffer);
+        // The sorted index buffers of the region's sections, which are only created once a section needs them
+        private @Nullable GlBufferArena indexArena;
+        private GlTessellation sortedTessellation;
+
+        public DeviceResources(CommandList commandList, StagingBuffer stagingBuffer,
+                               @Nullable SharedGeometryPool geometryPool) {
+            this.stagingBuffer = stagingBuffer;
+            this.geometryPool = geometryPool;
+
+            if (geometryPool != null) {
+                this.geometryArena = geometryPool.getArena();
+            } else {
+                int stride = ChunkMeshFormats.COMPACT.getVertexFormat().getStride();
+                this.geometryArena = new GlBufferArena(commandList, REGION_SIZE * 756, stride, stagingBuffer);
+            }
         }
 
         public void updateTessellation(CommandList commandList, GlTessellation tessellation) {
+            if (this.geometryPool != null) {
+                this.geometryPool.updateTessellation(commandList, tessellation);
+                return;
+            }
+
             if (this.tessellation != null) {
                 this.tessellation.delete(commandList);
             }
@@ -204,15 +294,43 @@ public class RenderRegion {
             this.tessellation = tessellation;
         }
 
+        /**
+         * Returns the tessellation which draws from the region's vertex buffer. If the geometry of the region is held
+         * in the shared pool, then this is the same tessellation for every region.
+         */
         public GlTessellation getTessellation() {
+            if (this.geometryPool != null) {
+                return this.geometryPool.getTessellation();
+            }
+
             return this.tessellation;
         }
 
+        public void updateSortedTessellation(CommandList commandList, GlTessellation tessellation) {
+            if (this.sortedTessellation != null) {
+                this.sortedTessellation.delete(commandList);
+            }
+
+            this.sortedTessellation = tessellation;
+        }
+
+        /**
+         * Returns the tessellation which draws from the region's sorted index buffers instead of the shared one.
+         */
+        public GlTessellation getSortedTessellation() {
+            return this.sortedTessellation;
+        }
+
         public void deleteTessellations(CommandList commandList) {
             if (this.tessellation != null) {
                 this.tessellation.delete(commandList);
                 this.tessellation = null;
             }
+
+            if (this.sortedTessellation != null) {
+                this.sortedTessellation.delete(commandList);
+                this.sortedTessellation = null;
+            }
         }
 
         public GlBuffer getVertexBuffer() {
@@ -221,15 +339,60 @@ public class RenderRegion {
 
         public void delete(CommandList commandList) {
             this.deleteTessellations(commandList);
-            this.geometryArena.delete(commandList);
+
+            if (this.geometryPool == null) {
+                this.geometryArena.delete(commandList);
+            }
+
+            if (this.indexArena != null) {
+                this.indexArena.delete(commandList);
+            }
         }
 
         public GlBufferArena getGeometryArena() {
             return this.geometryArena;
         }
 
+        public boolean isGeometryShared() {
+            return this.geometryPool != null;
+        }
+
+        public @Nullable GlBufferArena getIndexArena() {
+            return this.indexArena;
+        }
+
+        public GlBufferArena createIndexArena(CommandList commandList) {
+            if (this.indexArena == null) {
+                this.indexArena = new GlBufferArena(commandList, REGION_SIZE * 384, Integer.BYTES, this.stagingBuffer);
+            }
+
+            return this.indexArena;
+        }
+
+        private int defragment(CommandList commandList, int maxBytes) {
+            // The shared pool is defragmented on its own, since moving its segments affects every region
+            int moved = this.geometryPool == null ? this.geometryArena.defragment(commandList, maxBytes) : 0;
+
+            if (this.indexArena != null) {
+                moved += this.indexArena.defragment(commandList, maxBytes - moved);
+            }
+
+            return moved;
+        }
+
+        private boolean tryShrink(CommandList commandList) {
+            boolean shrunk = this.geometryPool == null && this.geometryArena.tryShrink(commandList);
+
+            if (this.indexArena != null) {
+                shrunk |= this.indexArena.tryShrink(commandList);
+            }
+
+            return shrunk;
+        }
+
         public boolean shouldDelete() {
-            return this.geometryArena.isEmpty();
+            return (this.geometryPool != null || this.geometryArena.isEmpty()) &&
+                    (this.indexArena == null || this.indexArena.isEmpty());
         }
     }
 }
@@ -8,29 +8,47 @@ import me.jellysquid.mods.sodium.client.gl.arena.PendingUpload;
 import me.jellysquid.mods.sodium.client.gl.arena.staging.FallbackStagingBuffer;
 import me.jellysquid.mods.sodium.client.gl.arena.staging.MappedStagingBuffer;
 import me.jellysquid.mods.sodium.client.gl.arena.staging.StagingBuffer;
+import me.jellysquid.mods.sodium.client.gl.arena.staging.StagingRing;
 import me.jellysquid.mods.sodium.client.gl.device.CommandList;
 import me.jellysquid.mods.sodium.client.gl.device.RenderDevice;
 import me.jellysquid.mods.sodium.client.render.chunk.RenderSection;
 import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkBuildOutput;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.ChunkSortOutput;
 import me.jellysquid.mods.sodium.client.render.chunk.data.BuiltSectionMeshParts;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.DefaultTerrainRenderPasses;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
 public class RenderRegionManager {
+    // The number of bytes which can be moved each frame to defragment the buffers of regions
+    private static final int DEFRAGMENT_BYTES_PER_FRAME = 1024 * 1024; /* 1 MB */
+
     private final Long2ReferenceOpenHashMap<RenderRegion> regions = new Long2ReferenceOpenHashMap<>();
 
     private final StagingBuffer stagingBuffer;
 
+    @Nullable
+    private final StagingRing stagingRing;
+
+    @Nullable
+    private final SharedGeometryPool geometryPool;
+
     public RenderRegionManager(CommandList commandList) {
         this.stagingBuffer = createStagingBuffer(commandList);
+        this.stagingRing = createStagingRing(commandList);
+        this.geometryPool = createGeometryPool(commandList, this.stagingBuffer);
     }
 
     public void update() {
         this.stagingBuffer.flip();
 
+        if (this.stagingRing != null) {
+            this.stagingRing.reclaim();
+        }
+
         try (CommandList commandList = RenderDevice.INSTANCE.createCommandList()) {
             Iterator<RenderRegion> it = this.regions.values()
                     .iterator();
@@ -45,6 +63,42 @@ public class RenderRegionManager {
                     it.remove();
                 }
             }
+
+            this.compactRegions(commandList);
+        }
+    }
+
+    private void compactRegions(CommandList commandList) {
+        int defragmentBudget = DEFRAGMENT_BYTES_PER_FRAME;
+        boolean shrunk = false;
+
+        if (this.geometryPool != null) {
+            var arena = this.geometryPool.getArena();
+            int moved = arena.defragment(commandList, defragmentBudget);
+
+            if (moved > 0) {
+                for (RenderRegion region : this.regions.values()) {
+                    region.updateSectionOffsets();
+                }
+
+                defragmentBudget -= moved;
+            }
+
+            if (arena.tryShrink(commandList)) {
+                this.onSharedBufferChanged(commandList);
+                shrunk = true;
+            }
+        }
+
+        for (RenderRegion region : this.regions.values()) {
+            if (defragmentBudget > 0) {
+                defragmentBudget -= region.defragment(commandList, defragmentBudget);
+            }
+
+            // Shrinking copies all of a region's geometry at once, so only one region is shrunk each frame
+            if (!shrunk) {
+                shrunk = region.tryShrink(commandList);
+            }
         }
     }
 
@@ -52,12 +106,22 @@ public class RenderRegionManager {
         for (var entry : this.createMeshUploadQueues(results)) {
             this.uploadMeshes(commandList, entry.getKey(), entry.getValue());
         }
+
+        if (this.stagingRing != null) {
+            this.stagingRing.flush(commandList);
+        }
     }
 
     private void uploadMeshes(CommandList commandList, RenderRegion region, Collection<ChunkBuildOutput> results) {
         var uploads = new ArrayList<PendingSectionUpload>();
+        var indexUploads = new ArrayList<PendingIndexUpload>();
 
         for (ChunkBuildOutput result : results) {
+            if (result.sortOutput != null) {
+                var indexUpload = new PendingUpload(result.sortOutput.indexData);
+                indexUploads.add(new PendingIndexUpload(result.sortOutput, indexUpload));
+            }
+
             for (TerrainRenderPass pass : DefaultTerrainRenderPasses.ALL) {
                 var storage = region.getStorage(pass);
 
@@ -68,8 +132,10 @@ public class RenderRegionManager {
                 BuiltSectionMeshParts mesh = result.getMesh(pass);
 
                 if (mesh != null) {
-                    uploads.add(new PendingSectionUpload(result.render, mesh, pass,
-                            new PendingUpload(mesh.getVertexData())));
+                    var stagedData = mesh.getStagedVertexData();
+                    var upload = stagedData != null ? new PendingUpload(stagedData) : new PendingUpload(mesh.getVertexData());
+
+                    uploads.add(new PendingSectionUpload(result.render, mesh, pass, upload));
                 }
             }
         }
@@ -82,13 +148,22 @@ public class RenderRegionManager {
         var resources = region.createResources(commandList);
         var arena = resources.getGeometryArena();
 
-        boolean bufferChanged = arena.upload(commandList, uploads.stream()
-                .map(upload -> upload.vertexUpload));
+        var vertexUploads = new ArrayList<PendingUpload>(uploads.size());
+
+        for (PendingSectionUpload upload : uploads) {
+            vertexUploads.add(upload.vertexUpload);
+        }
+
+        boolean bufferChanged = arena.upload(commandList, vertexUploads);
 
         // If any of the buffers changed, the tessellation will need to be updated
         // Once invalidated the tessellation will be re-created on the next attempted use
         if (bufferChanged) {
-            region.refresh(commandList);
+            if (resources.isGeometryShared()) {
+                this.onSharedBufferChanged(commandList);
+            } else {
+                region.refresh(commandList);
+            }
         }
 
         // Collect the upload results
@@ -97,6 +172,63 @@ public class RenderRegionManager {
             storage.setMeshes(upload.section.getSectionIndex(),
                     upload.vertexUpload.getResult(), upload.meshData.getVertexRanges());
         }
+
+        // The index buffers must be uploaded after the meshes, since replacing a mesh removes its index buffer
+        this.uploadIndices(commandList, region, indexUploads);
+    }
+
+    /**
+     * Invalidates the tessellations of every region after the buffer of the shared geometry pool was re-allocated,
+     * since the segments of any region could have been moved.
+     */
+    private void onSharedBufferChanged(CommandList commandList) {
+        this.geometryPool.deleteTessellation(commandList);
+
+        for (RenderRegion region : this.regions.values()) {
+            region.refresh(commandList);
+        }
+    }
+
+    /**
+     * Uploads the sorted index buffers of sections whose quads were sorted again without rebuilding their meshes.
+     */
+    public void uploadSortedIndices(CommandList commandList, Collection<ChunkSortOutput> results) {
+        var map = new Reference2ReferenceOpenHashMap<RenderRegion, List<PendingIndexUpload>>();
+
+        for (var result : results) {
+            var queue = map.computeIfAbsent(result.render.getRegion(), k -> new ArrayList<>());
+            queue.add(new PendingIndexUpload(result, new PendingUpload(result.indexData)));
+        }
+
+        for (var entry : map.reference2ReferenceEntrySet()) {
+            this.uploadIndices(commandList, entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void uploadIndices(CommandList commandList, RenderRegion region, List<PendingIndexUpload> uploads) {
+        if (uploads.isEmpty()) {
+            return;
+        }
+
+        var resources = region.createResources(commandList);
+        var arena = resources.createIndexArena(commandList);
+
+        var indexUploads = new ArrayList<PendingUpload>(uploads.size());
+
+        for (PendingIndexUpload upload : uploads) {
+            indexUploads.add(upload.indexUpload);
+        }
+
+        boolean bufferChanged = arena.upload(commandList, indexUploads);
+
+        if (bufferChanged) {
+            region.refresh(commandList);
+        }
+
+        for (PendingIndexUpload upload : uploads) {
+            var storage = region.createStorage(upload.result.pass);
+            storage.setIndices(upload.result.render.getSectionIndex(), upload.indexUpload.getResult());
+        }
     }
 
     private Reference2ReferenceMap.FastEntrySet<RenderRegion, List<ChunkBuildOutput>> createMeshUploadQueues(Collection<ChunkBuildOutput> results) {
@@ -116,7 +248,16 @@ public class RenderRegionManager {
         }
 
         this.regions.clear();
+
+        if (this.geometryPool != null) {
+            this.geometryPool.delete(commandList);
+        }
+
         this.stagingBuffer.delete(commandList);
+
+        if (this.stagingRing != null) {
+            this.stagingRing.delete(commandList);
+        }
     }
 
     public Collection<RenderRegion> getLoadedRegions() {
@@ -127,6 +268,22 @@ public class RenderRegionManager {
         return this.stagingBuffer;
     }
 
+    /**
+     * Returns the ring which chunk builder threads can write their finished meshes into, or null if the device doesn't
+     * support persistently mapped buffers.
+     */
+    public @Nullable StagingRing getStagingRing() {
+        return this.stagingRing;
+    }
+
+    /**
+     * Returns the pool which the geometry of every region is allocated from, or null if each region has its own
+     * buffers.
+     */
+    public @Nullable SharedGeometryPool getGeometryPool() {
+        return this.geometryPool;
+    }
+
     public RenderRegion createForChunk(int chunkX, int chunkY, int chunkZ) {
         return this.create(chunkX >> RenderRegion.REGION_WIDTH_SH,
                 chunkY >> RenderRegion.REGION_HEIGHT_SH,
@@ -139,7 +296,7 @@ public class RenderRegionManager {
         var instance = this.regions.get(key);
 
         if (instance == null) {
-            this.regions.put(key, instance = new RenderRegion(x, y, z, this.stagingBuffer));
+            this.regions.put(key, instance = new RenderRegion(x, y, z, this.stagingBuffer, this.geometryPool));
         }
 
         return instance;
@@ -148,6 +305,9 @@ public class RenderRegionManager {
     private record PendingSectionUpload(RenderSection section, BuiltSectionMeshParts meshData, TerrainRenderPass pass, PendingUpload vertexUpload) {
     }
 
+    private record PendingIndexUpload(ChunkSortOutput result, PendingUpload indexUpload) {
+    }
+
 
     private static StagingBuffer createStagingBuffer(CommandList commandList) {
         if (SodiumClientMod.options().advanced.useAdvancedStagingBuffers && MappedStagingBuffer.isSupported(RenderDevice.INSTANCE)) {
@@ -156,4 +316,21 @@ public class RenderRegionManager {
 
         return new FallbackStagingBuffer(commandList);
     }
+
+    private static @Nullable SharedGeometryPool createGeometryPool(CommandList commandList,
+                                                                   StagingBuffer stagingBuffer) {
+        if (SodiumClientMod.options().advanced.useSharedGeometryPool) {
+            return new SharedGeometryPool(commandList, stagingBuffer);
+        }
+
+        return null;
+    }
+
+    private static @Nullable StagingRing createStagingRing(CommandList commandList) {
+        if (SodiumClientMod.options().advanced.useAdvancedStagingBuffers && MappedStagingBuffer.isSupported(RenderDevice.INSTANCE)) {
+            return new StagingRing(commandList);
+        }
+
+        return null;
+    }
 }
@@ -0,0 +1,57 @@
+package me.jellysquid.mods.sodium.client.render.chunk.region;
+
+import me.jellysquid.mods.sodium.client.gl.arena.GlBufferArena;
+import me.jellysquid.mods.sodium.client.gl.arena.staging.StagingBuffer;
+import me.jellysquid.mods.sodium.client.gl.device.CommandList;
+import me.jellysquid.mods.sodium.client.gl.tessellation.GlTessellation;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkMeshFormats;
+
+/**
+ * A single large arena which the geometry of every region is allocated from, instead of each region having an arena of
+ * its own. Sparse regions then don't hold on to memory they aren't using, and since every region uses the same vertex
+ * buffer, they can also share one tessellation, which avoids switching vertex arrays between each region.
+ *
+ * Whenever the buffer of the pool is re-allocated or its segments are moved, the offsets of every region's sections
+ * must be updated, since any of them could have changed.
+ */
+public class SharedGeometryPool {
+    // The initial capacity of the pool, in vertices, which is the same as the initial capacity of eight regions
+    private static final int INITIAL_CAPACITY = RenderRegion.REGION_SIZE * 756 * 8;
+
+    // Every resize copies all the geometry in the pool, so it grows in much larger steps than the arena of a region
+    private static final int RESIZE_INCREMENT = INITIAL_CAPACITY / 2;
+
+    private final GlBufferArena arena;
+    private GlTessellation tessellation;
+
+    public SharedGeometryPool(CommandList commandList, StagingBuffer stagingBuffer) {
+        int stride = ChunkMeshFormats.COMPACT.getVertexFormat().getStride();
+
+        this.arena = new GlBufferArena(commandList, INITIAL_CAPACITY, RESIZE_INCREMENT, stride, stagingBuffer);
+    }
+
+    public GlBufferArena getArena() {
+        return this.arena;
+    }
+
+    public GlTessellation getTessellation() {
+        return this.tessellation;
+    }
+
+    public void updateTessellation(CommandList commandList, GlTessellation tessellation) {
+        this.deleteTessellation(commandList);
+        this.tessellation = tessellation;
+    }
+
+    public void deleteTessellation(CommandList commandList) {
+        if (this.tessellation != null) {
+            this.tessellation.delete(commandList);
+            this.tessellation = null;
+        }
+    }
+
+    public void delete(CommandList commandList) {
+        this.deleteTessellation(commandList);
+        this.arena.delete(commandList);
+    }
+}
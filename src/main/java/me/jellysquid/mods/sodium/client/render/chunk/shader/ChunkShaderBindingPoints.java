@@ -5,6 +5,7 @@ public class ChunkShaderBindingPoints {
     public static final int ATTRIBUTE_COLOR = 2;
     public static final int ATTRIBUTE_BLOCK_TEXTURE = 3;
     public static final int ATTRIBUTE_LIGHT_TEXTURE = 4;
+    public static final int ATTRIBUTE_REGION_OFFSET = 5;
 
     public static final int FRAG_COLOR = 0;
 }
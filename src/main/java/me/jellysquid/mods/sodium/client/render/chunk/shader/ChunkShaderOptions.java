@@ -4,7 +4,14 @@ import me.jellysquid.mods.sodium.client.gl.shader.ShaderConstants;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexType;
 
-public record ChunkShaderOptions(ChunkFogMode fog, TerrainRenderPass pass, ChunkVertexType vertexType) {
+/**
+ * @param indirect Whether the program is used for indirect drawing, where the offset of each region is passed in as an
+ *                 instanced vertex attribute instead of a uniform
+ * @param mergedQuads Whether the program draws quads which may have been merged, and so must repeat the block texture
+ *                    across them
+ */
+public record ChunkShaderOptions(ChunkFogMode fog, TerrainRenderPass pass, ChunkVertexType vertexType,
+                                 boolean indirect, boolean mergedQuads) {
     public ShaderConstants constants() {
         ShaderConstants.Builder constants = ShaderConstants.builder();
         constants.addAll(this.fog.getDefines());
@@ -13,6 +20,14 @@ public record ChunkShaderOptions(ChunkFogMode fog, TerrainRenderPass pass, Chunk
             constants.add("USE_FRAGMENT_DISCARD");
         }
 
+        if (this.indirect) {
+            constants.add("USE_INDIRECT_DRAWING");
+        }
+
+        if (this.mergedQuads) {
+            constants.add("USE_QUAD_MERGING");
+        }
+
         constants.add("USE_VERTEX_COMPRESSION"); // TODO: allow compact vertex format to be disabled
         constants.add("VERT_POS_SCALE", String.valueOf(this.vertexType.getPositionScale()));
         constants.add("VERT_POS_OFFSET", String.valueOf(this.vertexType.getPositionOffset()));
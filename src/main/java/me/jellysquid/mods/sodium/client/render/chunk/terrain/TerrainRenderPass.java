@@ -20,6 +20,14 @@ public class TerrainRenderPass {
         return this.useReverseOrder;
     }
 
+    /**
+     * Returns whether the quads within each section need to be drawn back-to-front, which is the case for any pass
+     * which is drawn in reverse order so that it blends correctly.
+     */
+    public boolean isSorted() {
+        return this.useReverseOrder;
+    }
+
     @Deprecated
     public void startDrawing() {
         this.layer.startDrawing();
@@ -3,37 +3,48 @@ package me.jellysquid.mods.sodium.client.render.chunk.vertex.builder;
 import me.jellysquid.mods.sodium.client.render.chunk.terrain.material.Material;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexEncoder;
 import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.ChunkVertexType;
+import me.jellysquid.mods.sodium.client.render.chunk.vertex.format.impl.CompactQuadMerger;
 import org.lwjgl.system.MemoryUtil;
 
 import java.nio.ByteBuffer;
 
+/**
+ * A scratch buffer which collects the vertices for one facing of a render pass while a section is built. The native
+ * memory for the buffer is only taken from the {@link ChunkMeshBufferPool} once the first vertices are written, and is
+ * returned to the pool when the next build starts.
+ */
 public class ChunkMeshBufferBuilder {
     private final ChunkVertexEncoder encoder;
     private final int stride;
 
-    private final int initialCapacity;
+    private final ChunkMeshBufferPool pool;
 
     private ByteBuffer buffer;
     private int count;
-    private int capacity;
+    private int capacity; // in vertices
     private int sectionIndex;
 
-    public ChunkMeshBufferBuilder(ChunkVertexType vertexType, int initialCapacity) {
+    public ChunkMeshBufferBuilder(ChunkVertexType vertexType, ChunkMeshBufferPool pool) {
         this.encoder = vertexType.getEncoder();
         this.stride = vertexType.getVertexFormat().getStride();
 
-        this.buffer = null;
+        this.pool = pool;
 
-        this.capacity = initialCapacity;
-        this.initialCapacity = initialCapacity;
+        this.buffer = null;
+        this.capacity = 0;
     }
 
     public void push(ChunkVertexEncoder.Vertex[] vertices, Material material) {
         var vertexStart = this.count;
         var vertexCount = vertices.length;
 
-        if (this.count + vertexCount >= this.capacity) {
-            this.grow(this.stride * vertexCount);
+        if (this.buffer == null) {
+            this.buffer = this.pool.acquire();
+            this.capacity = this.buffer.capacity() / this.stride;
+        }
+
+        if (this.count + vertexCount > this.capacity) {
+            this.grow(vertexCount);
         }
 
         long ptr = MemoryUtil.memAddress(this.buffer, this.count * this.stride);
@@ -45,32 +56,49 @@ public class ChunkMeshBufferBuilder {
         this.count += vertexCount;
     }
 
-    private void grow(int len) {
-        // The new capacity will at least as large as the write it needs to service
-        int cap = Math.max(this.capacity * 2, this.capacity + len);
+    /**
+     * Merges the quads from the given vertex to the end of the buffer, and discards the vertices which are no longer
+     * needed. See {@link CompactQuadMerger}.
+     */
+    public void mergeQuads(CompactQuadMerger merger, int start) {
+        int vertexCount = this.count - start;
 
-        // Update the buffer and capacity now
-        this.setBufferSize(cap * this.stride);
+        if (vertexCount < 8) {
+            return;
+        }
+
+        long ptr = MemoryUtil.memAddress(this.buffer, start * this.stride);
+
+        this.count = start + merger.merge(ptr, vertexCount);
     }
 
-    private void setBufferSize(int capacity) {
-        this.buffer = MemoryUtil.memRealloc(this.buffer, capacity * this.stride);
-        this.capacity = capacity;
+    private void grow(int vertexCount) {
+        // The new capacity will at least as large as the write it needs to service
+        int cap = Math.max(this.capacity * 2, this.count + vertexCount);
+
+        // Update the buffer and capacity now
+        this.buffer = this.pool.resize(this.buffer, cap * this.stride);
+        this.capacity = cap;
     }
 
     public void start(int sectionIndex) {
+        this.release();
+
         this.count = 0;
         this.sectionIndex = sectionIndex;
-
-        this.setBufferSize(this.initialCapacity);
     }
 
-    public void destroy() {
+    private void release() {
         if (this.buffer != null) {
-            MemoryUtil.memFree(this.buffer);
+            this.pool.release(this.buffer, this.count * this.stride);
         }
 
         this.buffer = null;
+        this.capacity = 0;
+    }
+
+    public void destroy() {
+        this.release();
     }
 
     public boolean isEmpty() {
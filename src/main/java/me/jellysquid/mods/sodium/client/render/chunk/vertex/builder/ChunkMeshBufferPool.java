@@ -0,0 +1,168 @@
+package me.jellysquid.mods.sodium.client.render.chunk.vertex.builder;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of native scratch buffers which is shared by all the {@link ChunkMeshBufferBuilder}s of a worker thread,
+ * regardless of which render pass or facing they belong to. A builder only takes a buffer from the pool once it first
+ * receives vertices during a build, and returns it when the next build starts. A worker therefore only holds as many
+ * buffers as the sections it has recently built needed, and each of them only grows as large as it had to.
+ *
+ * Every {@link #SHRINK_INTERVAL} builds, any free buffers which weren't needed during that time are released, and the
+ * remaining buffers are shrunk if they are much larger than anything that was written to them.
+ *
+ * Pools are not thread-safe, and each worker thread must use its own. The memory statistics are shared by all pools.
+ */
+public class ChunkMeshBufferPool {
+    private static final int SHRINK_INTERVAL = 64;
+
+    private static final int MIN_CAPACITY = 16 * 1024;
+
+    private static final AtomicLong ALLOCATED = new AtomicLong();
+    private static final AtomicLong HIGH_WATER_MARK = new AtomicLong();
+
+    private final ArrayList<ByteBuffer> freeBuffers = new ArrayList<>();
+
+    private int acquiredBuffers;
+
+    // The most buffers which were in use at once, and the most bytes which were written to any of them, since the
+    // last time the pool was shrunk
+    private int peakAcquiredBuffers;
+    private int peakUsedBytes;
+
+    private int buildsSinceShrink;
+
+    /**
+     * Takes the largest free buffer from the pool, or allocates a new buffer if there are none.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer;
+
+        if (this.freeBuffers.isEmpty()) {
+            buffer = allocate(MIN_CAPACITY);
+        } else {
+            int largest = 0;
+
+            for (int i = 1; i < this.freeBuffers.size(); i++) {
+                if (this.freeBuffers.get(i).capacity() > this.freeBuffers.get(largest).capacity()) {
+                    largest = i;
+                }
+            }
+
+            buffer = this.freeBuffers.remove(largest);
+        }
+
+        this.acquiredBuffers++;
+        this.peakAcquiredBuffers = Math.max(this.peakAcquiredBuffers, this.acquiredBuffers);
+
+        return buffer;
+    }
+
+    /**
+     * Resizes a buffer which was taken from this pool, keeping its contents.
+     */
+    public ByteBuffer resize(ByteBuffer buffer, int capacity) {
+        return reallocate(buffer, capacity);
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     *
+     * @param usedBytes The number of bytes which were written into the buffer while it was held
+     */
+    public void release(ByteBuffer buffer, int usedBytes) {
+        this.acquiredBuffers--;
+        this.peakUsedBytes = Math.max(this.peakUsedBytes, usedBytes);
+
+        this.freeBuffers.add(buffer);
+    }
+
+    /**
+     * Called at the start of every build, after the builders have returned their buffers from the previous build.
+     */
+    public void onBuildStarted() {
+        if (++this.buildsSinceShrink < SHRINK_INTERVAL) {
+            return;
+        }
+
+        this.shrink();
+
+        this.buildsSinceShrink = 0;
+        this.peakAcquiredBuffers = this.acquiredBuffers;
+        this.peakUsedBytes = 0;
+    }
+
+    private void shrink() {
+        this.freeBuffers.sort(Comparator.comparingInt(ByteBuffer::capacity).reversed());
+
+        int keep = Math.max(0, this.peakAcquiredBuffers - this.acquiredBuffers);
+
+        while (this.freeBuffers.size() > keep) {
+            free(this.freeBuffers.remove(this.freeBuffers.size() - 1));
+        }
+
+        int capacity = Math.max(MIN_CAPACITY, HashCommon.nextPowerOfTwo(this.peakUsedBytes));
+
+        for (int i = 0; i < this.freeBuffers.size(); i++) {
+            var buffer = this.freeBuffers.get(i);
+
+            if (buffer.capacity() > capacity * 2) {
+                this.freeBuffers.set(i, reallocate(buffer, capacity));
+            }
+        }
+    }
+
+    public void destroy() {
+        for (var buffer : this.freeBuffers) {
+            free(buffer);
+        }
+
+        this.freeBuffers.clear();
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        var buffer = MemoryUtil.memAlloc(capacity);
+        onAllocated(capacity);
+
+        return buffer;
+    }
+
+    private static ByteBuffer reallocate(ByteBuffer buffer, int capacity) {
+        int previousCapacity = buffer.capacity();
+
+        var resized = MemoryUtil.memRealloc(buffer, capacity);
+        onAllocated(capacity - previousCapacity);
+
+        return resized;
+    }
+
+    private static void free(ByteBuffer buffer) {
+        onAllocated(-buffer.capacity());
+        MemoryUtil.memFree(buffer);
+    }
+
+    private static void onAllocated(long bytes) {
+        long allocated = ALLOCATED.addAndGet(bytes);
+        HIGH_WATER_MARK.accumulateAndGet(allocated, Math::max);
+    }
+
+    /**
+     * Returns the number of bytes currently allocated for scratch buffers by all pools.
+     */
+    public static long getTotalAllocated() {
+        return ALLOCATED.get();
+    }
+
+    /**
+     * Returns the largest number of bytes which were allocated for scratch buffers by all pools at any one time.
+     */
+    public static long getHighWaterMark() {
+        return HIGH_WATER_MARK.get();
+    }
+}
@@ -26,6 +26,12 @@ public class CompactChunkVertex implements ChunkVertexType {
 
     private static final float MODEL_SCALE_INV = POSITION_MAX_VALUE / MODEL_RANGE;
 
+    // The difference between the encoded positions of two points which are one block apart
+    public static final int POSITION_BLOCK_SIZE = (int) (POSITION_MAX_VALUE / MODEL_RANGE);
+
+    // The encoded position of the origin of the section
+    public static final int POSITION_ORIGIN = (int) (MODEL_ORIGIN * POSITION_BLOCK_SIZE);
+
     private static final float TEXTURE_SCALE = (1.0f / TEXTURE_MAX_VALUE);
 
     private static short encodeBlockTexture(float value) {
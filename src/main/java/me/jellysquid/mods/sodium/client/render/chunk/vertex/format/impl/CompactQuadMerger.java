@@ -0,0 +1,484 @@
+package me.jellysquid.mods.sodium.client.render.chunk.vertex.format.impl;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.Arrays;
+
+/**
+ * Merges quads written with {@link CompactChunkVertex} which each cover exactly one block face into larger quads
+ * covering rectangles of block faces. Quads are only merged if they lie on the same plane, and are identical in every
+ * attribute other than their position, so a merged quad never spans a change in color, ambient occlusion or light.
+ *
+ * <p>The block texture of each face is only one sprite in the block atlas, so it can't simply be stretched across the
+ * merged quad. Instead, the upper byte of each light coordinate (of which only the lower byte is used for light)
+ * describes how many times the texture repeats along that axis of the texture, and which end of the quad the vertex is
+ * on. The shader then repeats the texture coordinates of a single face across the quad. See chunk_vertex.glsl.</p>
+ *
+ * <p>Instances are not thread-safe, so each worker must have its own.</p>
+ */
+public class CompactQuadMerger {
+    private static final int INTS_PER_VERTEX = CompactChunkVertex.STRIDE / Integer.BYTES;
+    private static final int INTS_PER_QUAD = INTS_PER_VERTEX * 4;
+
+    // The number of blocks on each axis of the grid which quads are merged on, which is the size of a section
+    private static final int GRID_SIZE = 16;
+
+    // The layout of the upper byte of each light coordinate for vertices of merged quads
+    private static final int TILE_COUNT_MASK = 0b1111;
+    private static final int TILE_CORNER_BIT = 1 << 4;
+    private static final int TILE_MERGED_BIT = 1 << 5;
+
+    private static final int LIGHT_UPPER_BYTES_MASK = 0xFF00FF00;
+
+    // The layout of the bits which describe each quad that can be merged
+    private static final int INFO_CELL_MASK = 0xFF;
+    private static final int INFO_TEXTURE_U_ON_A_SHIFT = 8;
+    private static final int INFO_CORNERS_SHIFT = 9;
+    private static final int INFO_PLANE_AXIS_SHIFT = 17;
+
+    // The vertex data of the quads being merged
+    private int[] vertexData = new int[0];
+
+    // The description of each quad, or -1 if it can't be merged
+    private int[] quadInfo = new int[0];
+
+    // The texture coordinates of each corner of each quad which can be merged
+    private int[] cornerTexture = new int[0];
+
+    // The quads which can be merged, sorted by the plane which they lie on
+    private long[] candidates = new long[0];
+
+    // The quad which covers each cell of the plane being merged, or -1 if there is none
+    private final int[] grid = new int[GRID_SIZE * GRID_SIZE];
+
+    private final int[] vertex = new int[INTS_PER_VERTEX];
+
+    /**
+     * Merges the quads in the given range of vertices, and writes the quads which are left back into the start of the
+     * range. The quads which couldn't be merged are written first, in their original order.
+     *
+     * @param ptr The address of the first vertex
+     * @param vertexCount The number of vertices, which must be a multiple of 4
+     * @return The number of vertices which are left
+     */
+    public int merge(long ptr, int vertexCount) {
+        int quadCount = vertexCount / 4;
+
+        if (quadCount < 2) {
+            return vertexCount;
+        }
+
+        this.ensureCapacity(quadCount);
+
+        final int[] data = this.vertexData;
+
+        for (int i = 0; i < quadCount * INTS_PER_QUAD; i++) {
+            data[i] = MemoryUtil.memGetInt(ptr + (i * (long) Integer.BYTES));
+        }
+
+        int candidateCount = 0;
+
+        for (int quad = 0; quad < quadCount; quad++) {
+            long plane = this.classify(quad);
+
+            if (plane >= 0L) {
+                this.candidates[candidateCount++] = (plane << 32) | quad;
+            }
+        }
+
+        if (candidateCount < 2) {
+            return vertexCount;
+        }
+
+        Arrays.sort(this.candidates, 0, candidateCount);
+
+        long out = ptr;
+
+        for (int quad = 0; quad < quadCount; quad++) {
+            if (this.quadInfo[quad] == -1) {
+                out = this.writeQuad(out, quad);
+            }
+        }
+
+        for (int start = 0, end; start < candidateCount; start = end) {
+            long plane = this.candidates[start] >>> 32;
+
+            end = start + 1;
+
+            while (end < candidateCount && (this.candidates[end] >>> 32) == plane) {
+                end++;
+            }
+
+            out = this.mergePlane(out, start, end);
+        }
+
+        return (int) ((out - ptr) / CompactChunkVertex.STRIDE);
+    }
+
+    /**
+     * Returns the plane which the quad lies on if it can be merged, or -1 if it can't be.
+     */
+    private long classify(int quad) {
+        final int[] data = this.vertexData;
+        final int base = quad * INTS_PER_QUAD;
+
+        this.quadInfo[quad] = -1;
+
+        int material = getMaterial(data, base);
+        int color = getColor(data, base);
+        int light = getLight(data, base);
+
+        // The upper byte of each light coordinate is needed to describe how the texture repeats
+        if ((light & LIGHT_UPPER_BYTES_MASK) != 0) {
+            return -1L;
+        }
+
+        for (int i = 1; i < 4; i++) {
+            int vertex = base + (i * INTS_PER_VERTEX);
+
+            if (getMaterial(data, vertex) != material || getColor(data, vertex) != color ||
+                    getLight(data, vertex) != light) {
+                return -1L;
+            }
+        }
+
+        int planeAxis = -1;
+
+        for (int axis = 0; axis < 3; axis++) {
+            if (isOnPlane(data, base, axis)) {
+                if (planeAxis != -1) {
+                    return -1L;
+                }
+
+                planeAxis = axis;
+            }
+        }
+
+        if (planeAxis == -1) {
+            return -1L;
+        }
+
+        int axisA = planeAxis == 0 ? 1 : 0;
+        int axisB = planeAxis == 2 ? 1 : 2;
+
+        int minA = Integer.MAX_VALUE;
+        int minB = Integer.MAX_VALUE;
+
+        for (int i = 0; i < 4; i++) {
+            minA = Math.min(minA, getPosition(data, base + (i * INTS_PER_VERTEX), axisA));
+            minB = Math.min(minB, getPosition(data, base + (i * INTS_PER_VERTEX), axisB));
+        }
+
+        int cellA = getCell(minA);
+        int cellB = getCell(minB);
+
+        if (cellA == -1 || cellB == -1) {
+            return -1L;
+        }
+
+        // Each vertex must be at a different corner of the block face
+        int corners = 0;
+        int visitedCorners = 0;
+
+        for (int i = 0; i < 4; i++) {
+            int vertex = base + (i * INTS_PER_VERTEX);
+
+            int cornerA = getCorner(getPosition(data, vertex, axisA) - minA);
+            int cornerB = getCorner(getPosition(data, vertex, axisB) - minB);
+
+            if (cornerA == -1 || cornerB == -1) {
+                return -1L;
+            }
+
+            int corner = cornerA | (cornerB << 1);
+
+            if ((visitedCorners & (1 << corner)) != 0) {
+                return -1L;
+            }
+
+            visitedCorners |= 1 << corner;
+            corners |= corner << (i * 2);
+
+            this.cornerTexture[(quad * 4) + corner] = getTexture(data, vertex);
+        }
+
+        // Each axis of the texture must run along one of the axes of the face, so that it can be repeated along it
+        int texture00 = this.cornerTexture[(quad * 4)];
+        int texture10 = this.cornerTexture[(quad * 4) + 1];
+        int texture01 = this.cornerTexture[(quad * 4) + 2];
+        int texture11 = this.cornerTexture[(quad * 4) + 3];
+
+        boolean textureUOnA;
+
+        if (isTextureAxisAligned(texture00, texture10, texture01, texture11, 0) &&
+                isTextureAxisAligned(texture00, texture01, texture10, texture11, 16)) {
+            textureUOnA = true;
+        } else if (isTextureAxisAligned(texture00, texture01, texture10, texture11, 0) &&
+                isTextureAxisAligned(texture00, texture10, texture01, texture11, 16)) {
+            textureUOnA = false;
+        } else {
+            return -1L;
+        }
+
+        this.quadInfo[quad] = cellA | (cellB << 4) |
+                ((textureUOnA ? 1 : 0) << INFO_TEXTURE_U_ON_A_SHIFT) |
+                (corners << INFO_CORNERS_SHIFT) |
+                (planeAxis << INFO_PLANE_AXIS_SHIFT);
+
+        return ((long) planeAxis << 16) | getPosition(data, base, planeAxis);
+    }
+
+    /**
+     * Greedily merges the quads which lie on one plane, starting from the corner of the plane with the lowest
+     * coordinates, and writes the merged quads.
+     */
+    private long mergePlane(long out, int start, int end) {
+        final int[] grid = this.grid;
+        Arrays.fill(grid, -1);
+
+        for (int i = start; i < end; i++) {
+            int quad = (int) this.candidates[i];
+            int cell = this.quadInfo[quad] & INFO_CELL_MASK;
+
+            // If more than one quad covers the same face, only one of them can be merged
+            if (grid[cell] != -1) {
+                out = this.writeQuad(out, quad);
+            } else {
+                grid[cell] = quad;
+            }
+        }
+
+        for (int b = 0; b < GRID_SIZE; b++) {
+            for (int a = 0; a < GRID_SIZE; a++) {
+                int quad = grid[getCellIndex(a, b)];
+
+                if (quad == -1) {
+                    continue;
+                }
+
+                int width = 1;
+
+                while (a + width < GRID_SIZE && this.canMerge(quad, grid[getCellIndex(a + width, b)])) {
+                    width++;
+                }
+
+                int height = 1;
+
+                extend:
+                while (b + height < GRID_SIZE) {
+                    for (int i = 0; i < width; i++) {
+                        if (!this.canMerge(quad, grid[getCellIndex(a + i, b + height)])) {
+                            break extend;
+                        }
+                    }
+
+                    height++;
+                }
+
+                for (int j = 0; j < height; j++) {
+                    Arrays.fill(grid, getCellIndex(a, b + j), getCellIndex(a + width, b + j), -1);
+                }
+
+                if (width == 1 && height == 1) {
+                    out = this.writeQuad(out, quad);
+                } else {
+                    out = this.writeMergedQuad(out, quad, width, height);
+                }
+            }
+        }
+
+        return out;
+    }
+
+    private boolean canMerge(int quad, int other) {
+        if (other == -1) {
+            return false;
+        }
+
+        final int[] data = this.vertexData;
+
+        int base = quad * INTS_PER_QUAD;
+        int otherBase = other * INTS_PER_QUAD;
+
+        if (getMaterial(data, base) != getMaterial(data, otherBase) ||
+                getColor(data, base) != getColor(data, otherBase) ||
+                getLight(data, base) != getLight(data, otherBase)) {
+            return false;
+        }
+
+        if (((this.quadInfo[quad] ^ this.quadInfo[other]) & (1 << INFO_TEXTURE_U_ON_A_SHIFT)) != 0) {
+            return false;
+        }
+
+        for (int corner = 0; corner < 4; corner++) {
+            if (this.cornerTexture[(quad * 4) + corner] != this.cornerTexture[(other * 4) + corner]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private long writeQuad(long out, int quad) {
+        final int[] data = this.vertexData;
+        final int base = quad * INTS_PER_QUAD;
+
+        for (int i = 0; i < INTS_PER_QUAD; i++) {
+            MemoryUtil.memPutInt(out + (i * (long) Integer.BYTES), data[base + i]);
+        }
+
+        return out + (INTS_PER_QUAD * Integer.BYTES);
+    }
+
+    /**
+     * Writes the quad which covers the given number of faces on each axis, starting from the given quad.
+     */
+    private long writeMergedQuad(long out, int quad, int width, int height) {
+        final int[] data = this.vertexData;
+        final int[] vertex = this.vertex;
+
+        final int base = quad * INTS_PER_QUAD;
+        final int info = this.quadInfo[quad];
+
+        int planeAxis = info >>> INFO_PLANE_AXIS_SHIFT;
+
+        int axisA = planeAxis == 0 ? 1 : 0;
+        int axisB = planeAxis == 2 ? 1 : 2;
+
+        int minA = getCellPosition(info & 0xF);
+        int minB = getCellPosition((info >>> 4) & 0xF);
+
+        boolean textureUOnA = ((info >>> INFO_TEXTURE_U_ON_A_SHIFT) & 1) != 0;
+
+        for (int i = 0; i < 4; i++) {
+            System.arraycopy(data, base + (i * INTS_PER_VERTEX), vertex, 0, INTS_PER_VERTEX);
+
+            int corner = (info >>> (INFO_CORNERS_SHIFT + (i * 2))) & 0b11;
+            int cornerA = corner & 1;
+            int cornerB = corner >>> 1;
+
+            setPosition(vertex, axisA, minA + (cornerA * width * CompactChunkVertex.POSITION_BLOCK_SIZE));
+            setPosition(vertex, axisB, minB + (cornerB * height * CompactChunkVertex.POSITION_BLOCK_SIZE));
+
+            int tileU = textureUOnA ? encodeTile(width, cornerA) : encodeTile(height, cornerB);
+            int tileV = textureUOnA ? encodeTile(height, cornerB) : encodeTile(width, cornerA);
+
+            vertex[4] |= (tileU << 8) | (tileV << 24);
+
+            for (int j = 0; j < INTS_PER_VERTEX; j++) {
+                MemoryUtil.memPutInt(out + (j * (long) Integer.BYTES), vertex[j]);
+            }
+
+            out += CompactChunkVertex.STRIDE;
+        }
+
+        return out;
+    }
+
+    private static int encodeTile(int count, int corner) {
+        return TILE_MERGED_BIT | (corner != 0 ? TILE_CORNER_BIT : 0) | ((count - 1) & TILE_COUNT_MASK);
+    }
+
+    /**
+     * Returns whether the given component of the texture coordinates changes between the first two corners, and
+     * doesn't change between either of them and the corner next to it on the other axis.
+     */
+    private static boolean isTextureAxisAligned(int corner0, int corner1, int corner0Next, int corner1Next,
+                                                int shift) {
+        int value0 = (corner0 >>> shift) & 0xFFFF;
+        int value1 = (corner1 >>> shift) & 0xFFFF;
+
+        return value0 != value1 &&
+                value0 == ((corner0Next >>> shift) & 0xFFFF) &&
+                value1 == ((corner1Next >>> shift) & 0xFFFF);
+    }
+
+    private static boolean isOnPlane(int[] data, int base, int axis) {
+        int position = getPosition(data, base, axis);
+
+        for (int i = 1; i < 4; i++) {
+            if (getPosition(data, base + (i * INTS_PER_VERTEX), axis) != position) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Returns the cell of the grid which the position is at the start of, or -1 if it isn't at the start of any cell
+    private static int getCell(int position) {
+        int offset = position - CompactChunkVertex.POSITION_ORIGIN;
+
+        if (offset < 0 || offset % CompactChunkVertex.POSITION_BLOCK_SIZE != 0) {
+            return -1;
+        }
+
+        int cell = offset / CompactChunkVertex.POSITION_BLOCK_SIZE;
+
+        return cell < GRID_SIZE ? cell : -1;
+    }
+
+    private static int getCellPosition(int cell) {
+        return CompactChunkVertex.POSITION_ORIGIN + (cell * CompactChunkVertex.POSITION_BLOCK_SIZE);
+    }
+
+    // Returns which end of a block face an offset from its start is at, or -1 if it isn't at either end
+    private static int getCorner(int offset) {
+        if (offset == 0) {
+            return 0;
+        } else if (offset == CompactChunkVertex.POSITION_BLOCK_SIZE) {
+            return 1;
+        } else {
+            return -1;
+        }
+    }
+
+    private static int getCellIndex(int a, int b) {
+        return a + (b * GRID_SIZE);
+    }
+
+    // The vertex data is read as integers, which are laid out as [x, y], [z, material], [color], [u, v], [light]
+
+    private static int getPosition(int[] data, int vertex, int axis) {
+        return switch (axis) {
+            case 0 -> data[vertex] & 0xFFFF;
+            case 1 -> data[vertex] >>> 16;
+            default -> data[vertex + 1] & 0xFFFF;
+        };
+    }
+
+    private static void setPosition(int[] vertex, int axis, int position) {
+        switch (axis) {
+            case 0 -> vertex[0] = (vertex[0] & 0xFFFF0000) | position;
+            case 1 -> vertex[0] = (vertex[0] & 0x0000FFFF) | (position << 16);
+            default -> vertex[1] = (vertex[1] & 0xFFFF0000) | position;
+        }
+    }
+
+    private static int getMaterial(int[] data, int vertex) {
+        return data[vertex + 1] >>> 16;
+    }
+
+    private static int getColor(int[] data, int vertex) {
+        return data[vertex + 2];
+    }
+
+    private static int getTexture(int[] data, int vertex) {
+        return data[vertex + 3];
+    }
+
+    private static int getLight(int[] data, int vertex) {
+        return data[vertex + 4];
+    }
+
+    private void ensureCapacity(int quadCount) {
+        if (this.quadInfo.length < quadCount) {
+            int capacity = Math.max(quadCount, this.quadInfo.length * 2);
+
+            this.vertexData = new int[capacity * INTS_PER_QUAD];
+            this.quadInfo = new int[capacity];
+            this.cornerTexture = new int[capacity * 4];
+            this.candidates = new long[capacity];
+        }
+    }
+}
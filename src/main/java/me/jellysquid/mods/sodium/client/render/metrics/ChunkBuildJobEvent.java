@@ -0,0 +1,21 @@
+package me.jellysquid.mods.sodium.client.render.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * The execution of a single chunk builder job on a worker thread. The duration of the event is the time spent
+ * executing the job, so the busy time of each worker can be found by grouping these events by thread.
+ */
+@Name("sodium.ChunkBuildJob")
+@Label("Chunk Build Job")
+@Category({ "Sodium", "Chunk Builder" })
+@StackTrace(false)
+public class ChunkBuildJobEvent extends Event {
+    @Label("Queue Latency")
+    @Description("The time which the job waited in the queue before it was started")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueLatency;
+
+    @Label("Priority")
+    public int priority;
+}
@@ -0,0 +1,146 @@
+package me.jellysquid.mods.sodium.client.render.metrics;
+
+import me.jellysquid.mods.sodium.client.render.chunk.ChunkUpdateType;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Aggregates how long section updates spend in each stage between a section being marked as needing an update and its
+ * new meshes being uploaded, separately for each kind of update. Only updates whose results were actually uploaded are
+ * counted, since those are the only ones which become visible.
+ *
+ * Instances must only be used from the render thread.
+ */
+public class ChunkLatencyTracker {
+    // The number of the most recent updates of each type which the percentiles are computed from
+    private static final int HISTORY_SIZE = 1024;
+
+    public enum Stage {
+        // Waiting in the rebuild lists to be submitted to the chunk builder
+        PENDING("pending"),
+        // Waiting in the chunk builder's queue for a worker
+        QUEUED("queued"),
+        // Being built by a worker
+        BUILDING("building"),
+        // Waiting in the result queue for the render thread to collect it
+        COLLECTING("collecting"),
+        // Being uploaded into the region's buffers
+        UPLOADING("uploading"),
+        // From the section being marked as needing the update to its meshes being uploaded
+        TOTAL("total");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final EnumMap<ChunkUpdateType, MetricHistogram[]> histograms = new EnumMap<>(ChunkUpdateType.class);
+
+    public ChunkLatencyTracker() {
+        for (var type : ChunkUpdateType.values()) {
+            var stages = new MetricHistogram[STAGES.length];
+
+            for (var stage : STAGES) {
+                stages[stage.ordinal()] = new MetricHistogram(stage.getName(), HISTORY_SIZE);
+            }
+
+            this.histograms.put(type, stages);
+        }
+    }
+
+    /**
+     * Records the latency of each stage of an update whose meshes have been uploaded.
+     *
+     * @param collectedTime The time at which the render thread took the result from the result queue
+     * @param uploadedTime The time at which the meshes finished uploading
+     */
+    public void record(ChunkUpdateTrace trace, long collectedTime, long uploadedTime) {
+        var stages = this.histograms.get(trace.getType());
+
+        stages[Stage.PENDING.ordinal()].record(trace.getSubmittedTime() - trace.getScheduledTime());
+        stages[Stage.QUEUED.ordinal()].record(trace.getStartedTime() - trace.getSubmittedTime());
+        stages[Stage.BUILDING.ordinal()].record(trace.getFinishedTime() - trace.getStartedTime());
+        stages[Stage.COLLECTING.ordinal()].record(collectedTime - trace.getFinishedTime());
+        stages[Stage.UPLOADING.ordinal()].record(uploadedTime - collectedTime);
+        stages[Stage.TOTAL.ordinal()].record(uploadedTime - trace.getScheduledTime());
+    }
+
+    public MetricHistogram getHistogram(ChunkUpdateType type, Stage stage) {
+        return this.histograms.get(type)[stage.ordinal()];
+    }
+
+    /**
+     * Adds a line to the list for each type of update which has been recorded, with the median and 99th percentile of
+     * the total latency, and of the stage which contributes the most to the 99th percentile.
+     */
+    public void addDebugStrings(List<String> list) {
+        for (var type : ChunkUpdateType.values()) {
+            var total = this.getHistogram(type, Stage.TOTAL);
+
+            if (total.size() == 0) {
+                continue;
+            }
+
+            Stage slowest = Stage.PENDING;
+            long slowestTime = Long.MIN_VALUE;
+
+            for (var stage : STAGES) {
+                if (stage == Stage.TOTAL) {
+                    continue;
+                }
+
+                long time = this.getHistogram(type, stage).getPercentile(0.99);
+
+                if (time > slowestTime) {
+                    slowest = stage;
+                    slowestTime = time;
+                }
+            }
+
+            list.add(String.format(Locale.ROOT, "Latency %s: p50=%.1fms p99=%.1fms (%s p99=%.1fms)",
+                    type.name(), toMillis(total.getPercentile(0.5)), toMillis(total.getPercentile(0.99)),
+                    slowest.getName(), toMillis(slowestTime)));
+        }
+    }
+
+    /**
+     * Creates a CSV report with the percentiles of every stage of every type of update which has been recorded.
+     */
+    public String createReport() {
+        var report = new StringBuilder("update_type,stage,samples,p50_ns,p90_ns,p99_ns,max_ns\n");
+
+        for (var type : ChunkUpdateType.values()) {
+            for (var stage : STAGES) {
+                var histogram = this.getHistogram(type, stage);
+
+                if (histogram.size() == 0) {
+                    continue;
+                }
+
+                report.append(type.name()).append(',')
+                        .append(stage.getName()).append(',')
+                        .append(histogram.size()).append(',')
+                        .append(histogram.getPercentile(0.5)).append(',')
+                        .append(histogram.getPercentile(0.9)).append(',')
+                        .append(histogram.getPercentile(0.99)).append(',')
+                        .append(histogram.getMax()).append('\n');
+            }
+        }
+
+        return report.toString();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,57 @@
+package me.jellysquid.mods.sodium.client.render.metrics;
+
+import me.jellysquid.mods.sodium.client.render.chunk.ChunkUpdateType;
+
+/**
+ * The times at which an update to a section passed through each stage before its meshes were uploaded. All times are
+ * values of {@link System#nanoTime()}.
+ *
+ * The start and finish times are written by the worker thread which builds the section, and are only read by the
+ * render thread after the result has been passed back to it through the result queue, which makes them visible.
+ */
+public class ChunkUpdateTrace {
+    private final ChunkUpdateType type;
+
+    // When the section was first marked as needing the update, and when the update was given to the chunk builder
+    private final long scheduledTime;
+    private final long submittedTime;
+
+    private long startedTime;
+    private long finishedTime;
+
+    public ChunkUpdateTrace(ChunkUpdateType type, long scheduledTime, long submittedTime) {
+        this.type = type;
+        this.scheduledTime = scheduledTime;
+        this.submittedTime = submittedTime;
+        this.startedTime = submittedTime;
+        this.finishedTime = submittedTime;
+    }
+
+    public void markStarted() {
+        this.startedTime = System.nanoTime();
+    }
+
+    public void markFinished() {
+        this.finishedTime = System.nanoTime();
+    }
+
+    public ChunkUpdateType getType() {
+        return this.type;
+    }
+
+    public long getScheduledTime() {
+        return this.scheduledTime;
+    }
+
+    public long getSubmittedTime() {
+        return this.submittedTime;
+    }
+
+    public long getStartedTime() {
+        return this.startedTime;
+    }
+
+    public long getFinishedTime() {
+        return this.finishedTime;
+    }
+}
@@ -0,0 +1,51 @@
+package me.jellysquid.mods.sodium.client.render.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A summary of the work which the renderer did in a single frame. These are only committed while a flight recording
+ * which enables them is running, and cost almost nothing otherwise.
+ */
+@Name("sodium.FrameMetrics")
+@Label("Frame Metrics")
+@Category({ "Sodium", "Rendering" })
+@Description("The work done by the chunk renderer in a single frame")
+@StackTrace(false)
+public class FrameMetricsEvent extends Event {
+    @Label("Frame Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long frameTime;
+
+    @Label("Culling Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long cullingTime;
+
+    @Label("Sections Visited")
+    public int sectionsVisited;
+
+    @Label("Uploaded Bytes")
+    @DataAmount
+    public long uploadedBytes;
+
+    @Label("Arena Resizes")
+    public int arenaResizes;
+
+    @Label("Staging Buffer Fallbacks")
+    public int stagingFallbacks;
+
+    @Label("Build Jobs Started")
+    public long buildJobsStarted;
+
+    @Label("Mean Build Queue Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    public long meanQueueLatency;
+
+    @Label("Max Build Queue Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    public long maxQueueLatency;
+
+    @Label("Worker Busy Time")
+    @Description("The total time which all chunk builder workers spent executing jobs")
+    @Timespan(Timespan.NANOSECONDS)
+    public long workerBusyTime;
+}
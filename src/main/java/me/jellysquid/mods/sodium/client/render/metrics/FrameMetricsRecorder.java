@@ -0,0 +1,287 @@
+package me.jellysquid.mods.sodium.client.render.metrics;
+
+import me.jellysquid.mods.sodium.client.SodiumClientMod;
+import me.jellysquid.mods.sodium.client.render.chunk.compile.executor.ChunkBuilderStatistics;
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects metrics about the work done by the renderer in each frame, so that stutters can be attributed to the
+ * subsystem which caused them. The metrics of the most recent frames are kept in a {@link MetricHistogram} for each
+ * metric, and the metrics of every frame are also committed as a {@link FrameMetricsEvent} for flight recordings.
+ *
+ * The latency of section updates is also tracked by a {@link ChunkLatencyTracker}, since it needs to be reported
+ * alongside the frame metrics.
+ *
+ * If a log directory is given, the metrics of every frame are also written to a CSV file in it, with one row per frame.
+ * To avoid writing to the file every frame, the rows are written in batches whenever the histograms have been filled
+ * with new frames, and the writes are done on the IO worker threads. A report of the section update latencies is
+ * written into another file at the same time, replacing the previous report.
+ *
+ * A new recorder is created whenever the renderer is reloaded, so the log file is named after the time the game was
+ * started, and every recorder in the same session appends to it. If the columns of a recorder don't match the header of
+ * the file (because the number of worker threads changed), it appends to a new file for the session instead. The frame
+ * numbers in the log start from zero again with each recorder.
+ *
+ * Instances must only be used from the render thread.
+ */
+public class FrameMetricsRecorder {
+    // The number of frames which the histograms hold, which is also the number of rows written to the log at once
+    private static final int HISTORY_SIZE = 1024;
+
+    private static final String FRAME_LOG_PREFIX = "sodium-frame-metrics-";
+    private static final String LATENCY_REPORT_NAME = "sodium-chunk-latency.csv";
+
+    // Identifies the frame logs of this session of the game
+    private static final String SESSION_NAME = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH.mm.ss")
+            .format(LocalDateTime.now());
+
+    private final ChunkBuilderStatistics builderStatistics;
+
+    private final MetricHistogram frameTime = new MetricHistogram("frame_time_ns", HISTORY_SIZE);
+    private final MetricHistogram cullingTime = new MetricHistogram("culling_time_ns", HISTORY_SIZE);
+    private final MetricHistogram sectionsVisited = new MetricHistogram("sections_visited", HISTORY_SIZE);
+    private final MetricHistogram uploadedBytes = new MetricHistogram("uploaded_bytes", HISTORY_SIZE);
+    private final MetricHistogram arenaResizes = new MetricHistogram("arena_resizes", HISTORY_SIZE);
+    private final MetricHistogram stagingFallbacks = new MetricHistogram("staging_fallbacks", HISTORY_SIZE);
+    private final MetricHistogram startedJobs = new MetricHistogram("build_jobs_started", HISTORY_SIZE);
+    private final MetricHistogram meanQueueLatency = new MetricHistogram("build_queue_latency_mean_ns", HISTORY_SIZE);
+    private final MetricHistogram maxQueueLatency = new MetricHistogram("build_queue_latency_max_ns", HISTORY_SIZE);
+    private final MetricHistogram[] workerBusyTime;
+
+    // Every histogram, in the order of the columns in the log file
+    private final List<MetricHistogram> histograms = new ArrayList<>();
+
+    private final ChunkLatencyTracker chunkLatency = new ChunkLatencyTracker();
+
+    private final @Nullable Path logDirectory;
+    private CompletableFuture<Void> pendingWrite = CompletableFuture.completedFuture(null);
+    private volatile boolean logFailed;
+
+    // The file which the frames are written into, which is only accessed by the writes once it has been chosen
+    private Path logPath;
+
+    // The number of frames which have been recorded, but not yet written to the log file
+    private int unwrittenFrames;
+
+    private long lastFrameTime;
+
+    private long frameCullingTime;
+    private int frameSectionsVisited;
+
+    /**
+     * @param logDirectory The directory to write the metrics into, or null if they shouldn't be written
+     */
+    public FrameMetricsRecorder(ChunkBuilderStatistics builderStatistics, @Nullable Path logDirectory) {
+        this.builderStatistics = builderStatistics;
+        this.workerBusyTime = new MetricHistogram[builderStatistics.getWorkerCount()];
+
+        for (int i = 0; i < this.workerBusyTime.length; i++) {
+            this.workerBusyTime[i] = new MetricHistogram("worker_" + i + "_busy_time_ns", HISTORY_SIZE);
+        }
+
+        Collections.addAll(this.histograms, this.frameTime, this.cullingTime, this.sectionsVisited,
+                this.uploadedBytes, this.arenaResizes, this.stagingFallbacks,
+                this.startedJobs, this.meanQueueLatency, this.maxQueueLatency);
+        Collections.addAll(this.histograms, this.workerBusyTime);
+
+        this.logDirectory = logDirectory;
+
+        if (logDirectory != null) {
+            this.startLog(logDirectory);
+        }
+    }
+
+    /**
+     * Records the time spent finding the visible sections in this frame, and the number of sections which were visited.
+     */
+    public void recordCulling(long time, int sectionsVisited) {
+        this.frameCullingTime += time;
+        this.frameSectionsVisited += sectionsVisited;
+    }
+
+    /**
+     * Records the metrics of the frame which just finished, and resets the counters for the next frame.
+     */
+    public void endFrame() {
+        long now = System.nanoTime();
+        long frameTime = this.lastFrameTime != 0L ? now - this.lastFrameTime : 0L;
+
+        this.lastFrameTime = now;
+
+        var stats = this.builderStatistics;
+
+        long startedJobs = stats.takeStartedJobs();
+        long totalQueueLatency = stats.takeTotalQueueLatency();
+        long meanQueueLatency = startedJobs > 0 ? totalQueueLatency / startedJobs : 0L;
+        long maxQueueLatency = stats.takeMaxQueueLatency();
+
+        long totalBusyTime = 0L;
+
+        for (int i = 0; i < this.workerBusyTime.length; i++) {
+            long busyTime = stats.takeWorkerBusyTime(i);
+
+            this.workerBusyTime[i].record(busyTime);
+            totalBusyTime += busyTime;
+        }
+
+        long uploadedBytes = RenderCounters.takeUploadedBytes();
+        int arenaResizes = RenderCounters.takeArenaResizes();
+        int stagingFallbacks = RenderCounters.takeStagingFallbacks();
+
+        this.frameTime.record(frameTime);
+        this.cullingTime.record(this.frameCullingTime);
+        this.sectionsVisited.record(this.frameSectionsVisited);
+        this.uploadedBytes.record(uploadedBytes);
+        this.arenaResizes.record(arenaResizes);
+        this.stagingFallbacks.record(stagingFallbacks);
+        this.startedJobs.record(startedJobs);
+        this.meanQueueLatency.record(meanQueueLatency);
+        this.maxQueueLatency.record(maxQueueLatency);
+
+        var event = new FrameMetricsEvent();
+
+        if (event.shouldCommit()) {
+            event.frameTime = frameTime;
+            event.cullingTime = this.frameCullingTime;
+            event.sectionsVisited = this.frameSectionsVisited;
+            event.uploadedBytes = uploadedBytes;
+            event.arenaResizes = arenaResizes;
+            event.stagingFallbacks = stagingFallbacks;
+            event.buildJobsStarted = startedJobs;
+            event.meanQueueLatency = meanQueueLatency;
+            event.maxQueueLatency = maxQueueLatency;
+            event.workerBusyTime = totalBusyTime;
+            event.commit();
+        }
+
+        this.frameCullingTime = 0L;
+        this.frameSectionsVisited = 0;
+
+        if (this.logDirectory != null && ++this.unwrittenFrames == HISTORY_SIZE) {
+            this.writeLog(this.logDirectory);
+        }
+    }
+
+    /**
+     * Returns the histogram of every metric which is recorded.
+     */
+    public List<MetricHistogram> getHistograms() {
+        return Collections.unmodifiableList(this.histograms);
+    }
+
+    public ChunkLatencyTracker getChunkLatency() {
+        return this.chunkLatency;
+    }
+
+    /**
+     * Writes any frames which haven't been written to the log file yet, and waits for all writes to finish.
+     */
+    public void close() {
+        if (this.logDirectory != null && this.unwrittenFrames > 0) {
+            this.writeLog(this.logDirectory);
+        }
+
+        this.pendingWrite.join();
+    }
+
+    private void startLog(Path directory) {
+        var columns = new StringBuilder("frame");
+
+        for (var histogram : this.histograms) {
+            columns.append(',').append(histogram.getName());
+        }
+
+        String header = columns.toString();
+
+        this.submitWrite(directory, () -> {
+            Path path = findLogFile(directory, header);
+
+            // The header is only written into new files, so that the frames of earlier recorders are kept
+            if (Files.notExists(path)) {
+                Files.writeString(path, header + '\n', StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+
+            this.logPath = path;
+        });
+    }
+
+    /**
+     * Returns the first log file of this session which either doesn't exist yet, or has the given header.
+     */
+    private static Path findLogFile(Path directory, String header) throws IOException {
+        for (int index = 0; ; index++) {
+            String suffix = index == 0 ? "" : "-" + index;
+            Path path = directory.resolve(FRAME_LOG_PREFIX + SESSION_NAME + suffix + ".csv");
+
+            if (Files.notExists(path)) {
+                return path;
+            }
+
+            try (var reader = Files.newBufferedReader(path)) {
+                if (header.equals(reader.readLine())) {
+                    return path;
+                }
+            }
+        }
+    }
+
+    private void writeLog(Path directory) {
+        var rows = new StringBuilder();
+
+        long totalFrames = this.frameTime.getTotalCount();
+
+        for (int age = this.unwrittenFrames - 1; age >= 0; age--) {
+            rows.append(totalFrames - 1 - age);
+
+            for (var histogram : this.histograms) {
+                rows.append(',').append(histogram.get(age));
+            }
+
+            rows.append('\n');
+        }
+
+        this.unwrittenFrames = 0;
+
+        String report = this.chunkLatency.createReport();
+
+        this.submitWrite(directory, () -> {
+            Files.writeString(this.logPath, rows, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+            Files.writeString(directory.resolve(LATENCY_REPORT_NAME), report,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        });
+    }
+
+    private void submitWrite(Path directory, LogWrite write) {
+        // Each write is chained onto the previous one, so that the rows are written in order
+        this.pendingWrite = this.pendingWrite.thenRunAsync(() -> {
+            if (this.logFailed) {
+                return;
+            }
+
+            try {
+                Files.createDirectories(directory);
+                write.run();
+            } catch (IOException e) {
+                this.logFailed = true;
+                SodiumClientMod.logger().warn("Failed to write frame metrics to {}, no more will be written",
+                        directory, e);
+            }
+        }, Util.getIoWorkerExecutor());
+    }
+
+    private interface LogWrite {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,98 @@
+package me.jellysquid.mods.sodium.client.render.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Holds a fixed number of the most recent samples of a metric in a ring buffer, with older samples being overwritten
+ * once it is full. Percentiles are computed from a sorted copy of the samples, so they should only be read
+ * occasionally, such as when the debug HUD is drawn.
+ *
+ * Instances are not thread-safe.
+ */
+public class MetricHistogram {
+    private final String name;
+    private final long[] samples;
+
+    private int next;
+    private long count;
+
+    public MetricHistogram(String name, int capacity) {
+        this.name = name;
+        this.samples = new long[capacity];
+    }
+
+    public void record(long value) {
+        this.samples[this.next] = value;
+        this.next = (this.next + 1) % this.samples.length;
+        this.count++;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the number of samples which are held, which is at most the capacity of the histogram.
+     */
+    public int size() {
+        return (int) Math.min(this.count, this.samples.length);
+    }
+
+    /**
+     * Returns the total number of samples which have been recorded, including those which have been overwritten.
+     */
+    public long getTotalCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the sample which was recorded {@code age} samples ago, where zero is the most recent sample.
+     */
+    public long get(int age) {
+        if (age < 0 || age >= this.size()) {
+            throw new IndexOutOfBoundsException(age);
+        }
+
+        int index = this.next - 1 - age;
+
+        if (index < 0) {
+            index += this.samples.length;
+        }
+
+        return this.samples[index];
+    }
+
+    /**
+     * Returns the smallest sample which is greater than or equal to the given fraction of all held samples, or zero if
+     * there are no samples.
+     */
+    public long getPercentile(double fraction) {
+        int size = this.size();
+
+        if (size == 0) {
+            return 0L;
+        }
+
+        long[] sorted = Arrays.copyOf(this.samples, size);
+        Arrays.sort(sorted);
+
+        int index = (int) Math.ceil(fraction * size) - 1;
+
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    public long getMax() {
+        long max = 0L;
+
+        for (int i = 0, size = this.size(); i < size; i++) {
+            max = Math.max(max, this.samples[i]);
+        }
+
+        return max;
+    }
+
+    public void clear() {
+        this.next = 0;
+        this.count = 0;
+    }
+}
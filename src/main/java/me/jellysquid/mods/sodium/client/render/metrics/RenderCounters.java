@@ -0,0 +1,56 @@
+package me.jellysquid.mods.sodium.client.render.metrics;
+
+/**
+ * Counts events on the render thread which are reported once per frame by the {@link FrameMetricsRecorder}. These
+ * happen deep inside the buffer management code, which has no reference to the renderer, so the counters are global.
+ * Incrementing them is cheap enough that they are always updated.
+ *
+ * The counters must only be used from the render thread.
+ */
+public class RenderCounters {
+    private static long uploadedBytes;
+    private static int arenaResizes;
+    private static int stagingFallbacks;
+
+    /**
+     * Called when data is copied into an arena, through either a staging buffer or a staging ring.
+     */
+    public static void onUpload(long bytes) {
+        uploadedBytes += bytes;
+    }
+
+    /**
+     * Called when an arena is re-allocated, which copies all of its contents into a new buffer.
+     */
+    public static void onArenaResized() {
+        arenaResizes++;
+    }
+
+    /**
+     * Called when a staging buffer runs out of space and has to upload data through a slower path instead.
+     */
+    public static void onStagingFallback() {
+        stagingFallbacks++;
+    }
+
+    static long takeUploadedBytes() {
+        long value = uploadedBytes;
+        uploadedBytes = 0L;
+
+        return value;
+    }
+
+    static int takeArenaResizes() {
+        int value = arenaResizes;
+        arenaResizes = 0;
+
+        return value;
+    }
+
+    static int takeStagingFallbacks() {
+        int value = stagingFallbacks;
+        stagingFallbacks = 0;
+
+        return value;
+    }
+}
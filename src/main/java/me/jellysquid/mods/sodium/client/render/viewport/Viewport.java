@@ -40,6 +40,25 @@ public final class Viewport {
         );
     }
 
+    /**
+     * Tests the given box, in world coordinates, against the frustum.
+     *
+     * @return {@link FrustumIntersection#INSIDE} if the box is entirely inside the frustum,
+     * {@link FrustumIntersection#INTERSECT} if it crosses the frustum's boundary, and any other value if it is entirely
+     * outside the frustum
+     */
+    public int getBoxIntersection(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return this.frustum.intersectAab(
+                (minX - this.transform.intX) - this.transform.fracX,
+                (minY - this.transform.intY) - this.transform.fracY,
+                (minZ - this.transform.intZ) - this.transform.fracZ,
+
+                (maxX - this.transform.intX) - this.transform.fracX,
+                (maxY - this.transform.intY) - this.transform.fracY,
+                (maxZ - this.transform.intZ) - this.transform.fracZ
+        );
+    }
+
     public CameraTransform getTransform() {
         return this.transform;
     }
@@ -0,0 +1,43 @@
+package me.jellysquid.mods.sodium.client.util;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Functions for building 64-bit hashes which identify some content, such as the blocks in a chunk section. These are
+ * fast and well distributed, but are not suitable for use where collisions could be deliberately created.
+ */
+public class ContentHash {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Added after each step, so that runs of zeroes still change the hash
+    private static final long INCREMENT = 0x9E3779B97F4A7C15L;
+
+    public static long combine(long hash, long value) {
+        return HashCommon.mix(hash ^ value) + INCREMENT;
+    }
+
+    public static long combine(long hash, byte[] bytes) {
+        hash = combine(hash, bytes.length);
+
+        int index = 0;
+
+        for (; index + Long.BYTES <= bytes.length; index += Long.BYTES) {
+            hash = combine(hash, (long) LONGS.get(bytes, index));
+        }
+
+        for (; index < bytes.length; index++) {
+            hash = combine(hash, bytes[index]);
+        }
+
+        return hash;
+    }
+
+    public static long combine(long hash, String string) {
+        return combine(hash, string.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -8,6 +8,27 @@ public class VertexSorters {
         return new SortByDistance(origin);
     }
 
+    /**
+     * Sorts a list of points by their distance to the origin, from farthest to nearest. This avoids the need to
+     * allocate a vector for each point when sorting large meshes.
+     *
+     * @param positions The points to sort, packed as (x, y, z) triples
+     * @return The indices of the points in sorted order
+     */
+    public static int[] sortByDistance(float[] positions, float originX, float originY, float originZ) {
+        final var keys = new float[positions.length / 3];
+
+        for (int index = 0; index < keys.length; index++) {
+            float dx = positions[(index * 3) + 0] - originX;
+            float dy = positions[(index * 3) + 1] - originY;
+            float dz = positions[(index * 3) + 2] - originZ;
+
+            keys[index] = (dx * dx) + (dy * dy) + (dz * dz);
+        }
+
+        return MergeSort.mergeSort(keys);
+    }
+
     private static class SortByDistance extends AbstractVertexSorter {
         private final Vector3f origin;
 
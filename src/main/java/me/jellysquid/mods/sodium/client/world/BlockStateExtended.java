@@ -0,0 +1,17 @@
+package me.jellysquid.mods.sodium.client.world;
+
+import net.minecraft.block.BlockState;
+
+public interface BlockStateExtended {
+    static BlockStateExtended of(BlockState state) {
+        return (BlockStateExtended) state;
+    }
+
+    /**
+     * @return The index of this state in the most recently created block render table, or -1 if it has never been
+     * given one
+     */
+    int sodium$getRenderTableIndex();
+
+    void sodium$setRenderTableIndex(int index);
+}
@@ -2,6 +2,8 @@ package me.jellysquid.mods.sodium.client.world;
 
 import net.minecraft.world.chunk.ReadableContainer;
 
+import java.util.function.ToLongFunction;
+
 public interface ReadableContainerExtended<T> {
     @SuppressWarnings("unchecked")
     static <T> ReadableContainerExtended<T> of(ReadableContainer<T> container) {
@@ -20,4 +22,11 @@ public interface ReadableContainerExtended<T> {
     void sodium$unpack(T[] values, int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
 
     ReadableContainer<T> sodium$copy();
+
+    /**
+     * Returns a hash of the values in this container, where each value is identified by the given key function. The
+     * hash also depends on the layout of the container's palette, so two containers holding the same values can have
+     * different hashes, but two containers with the same hash will always hold the same values.
+     */
+    long sodium$getContentHash(ToLongFunction<T> keyFunction);
 }
@@ -42,12 +42,15 @@ import java.util.Objects;
 public final class WorldSlice implements BlockRenderView, RenderAttachedBlockView, BiomeColorView {
     private static final LightType[] LIGHT_TYPES = LightType.values();
 
-    // The number of blocks in a section.
-    private static final int SECTION_BLOCK_COUNT = 16 * 16 * 16;
-
     // The radius of blocks around the origin chunk that should be copied.
     private static final int NEIGHBOR_BLOCK_RADIUS = 2;
 
+    // The number of blocks on each axis of the volume copied by this slice.
+    private static final int BLOCK_ARRAY_LENGTH = 16 + (NEIGHBOR_BLOCK_RADIUS * 2);
+
+    // The size of the (Local Block -> Block State) array.
+    private static final int BLOCK_ARRAY_SIZE = BLOCK_ARRAY_LENGTH * BLOCK_ARRAY_LENGTH * BLOCK_ARRAY_LENGTH;
+
     // The radius of chunks around the origin chunk that should be copied.
     private static final int NEIGHBOR_CHUNK_RADIUS = MathHelper.roundUpToMultiple(NEIGHBOR_BLOCK_RADIUS, 16) >> 4;
 
@@ -69,8 +72,8 @@ public final class WorldSlice implements BlockRenderView, RenderAttachedBlockVie
     // The biome blend cache
     private final BiomeColorCache biomeColors;
 
-    // (Local Section -> Block States) table.
-    private final BlockState[][] blockArrays;
+    // (Local Block -> Block State) table, covering only the blocks within the volume of the slice.
+    private final BlockState[] blockArray;
 
     // (Local Section -> Light Arrays) table.
     private final @Nullable ChunkNibbleArray[][] lightArrays;
@@ -81,9 +84,12 @@ public final class WorldSlice implements BlockRenderView, RenderAttachedBlockVie
     // (Local Section -> Block Entity Attachment) table.
     private final @Nullable Int2ReferenceMap<Object>[] blockEntityAttachmentArrays;
 
-    // The starting point from which this slice captures blocks
+    // The starting point from which this slice captures sections
     private int originX, originY, originZ;
 
+    // The starting point from which this slice captures blocks, which is the minimum corner of its volume
+    private int blockOriginX, blockOriginY, blockOriginZ;
+
     public static ChunkRenderContext prepare(World world, ChunkSectionPos origin, ClonedChunkSectionCache sectionCache) {
         WorldChunk chunk = world.getChunk(origin.getX(), origin.getZ());
         ChunkSection section = chunk.getSectionArray()[world.sectionCoordToIndex(origin.getY())];
@@ -129,7 +135,7 @@ public final class WorldSlice implements BlockRenderView, RenderAttachedBlockVie
     public WorldSlice(ClientWorld world) {
         this.world = world;
 
-        this.blockArrays = new BlockState[SECTION_ARRAY_SIZE][SECTION_BLOCK_COUNT];
+        this.blockArray = new BlockState[BLOCK_ARRAY_SIZE];
         this.lightArrays = new ChunkNibbleArray[SECTION_ARRAY_SIZE][LIGHT_TYPES.length];
 
         this.blockEntityArrays = new Int2ReferenceMap[SECTION_ARRAY_SIZE];
@@ -144,6 +150,10 @@ public final class WorldSlice implements BlockRenderView, RenderAttachedBlockVie
         this.originY = (context.getOrigin().getY() - NEIGHBOR_CHUNK_RADIUS) << 4;
         this.originZ = (context.getOrigin().getZ() - NEIGHBOR_CHUNK_RADIUS) << 4;
 
+        this.blockOriginX = context.getVolume().getMinX();
+        this.blockOriginY = context.getVolume().getMinY();
+        this.blockOriginZ = context.getVolume().getMinZ();
+
         for (int x = 0; x < SECTION_ARRAY_LENGTH; x++) {
             for (int y = 0; y < SECTION_ARRAY_LENGTH; y++) {
                 for (int z = 0; z < SECTION_ARRAY_LENGTH; z++) {
@@ -161,7 +171,7 @@ public final class WorldSlice implements BlockRenderView, RenderAttachedBlockVie
 
         Objects.requireNonNull(section, "Chunk section must be non-null");
 
-        this.unpackBlockData(this.blockArrays[sectionIndex], context, section);
+        this.copyBlockData(context, section);
 
         this.lightArrays[sectionIndex][LightType.BLOCK.ordinal()] = section.getLightArray(LightType.BLOCK);
         this.lightArrays[sectionIndex][LightType.SKY.ordinal()] = section.getLightArray(LightType.SKY);
@@ -170,33 +180,42 @@ public final class WorldSlice implements BlockRenderView, RenderAttachedBlockVie
         this.blockEntityAttachmentArrays[sectionIndex] = section.getBlockEntityAttachmentMap();
     }
 
-    private void unpackBlockData(BlockState[] blockArray, ChunkRenderContext context, ClonedChunkSection section) {
-        if (section.getBlockData() == null) {
-            Arrays.fill(blockArray, Blocks.AIR.getDefaultState());
-            return;
-        }
+    private void copyBlockData(ChunkRenderContext context, ClonedChunkSection section) {
+        var bounds = context.getVolume();
+        var pos = section.getPosition();
+
+        // The part of the section which is within the volume of the slice
+        int minBlockX = Math.max(bounds.getMinX(), pos.getMinX());
+        int maxBlockX = Math.min(bounds.getMaxX(), pos.getMaxX());
+
+        int minBlockY = Math.max(bounds.getMinY(), pos.getMinY());
+        int maxBlockY = Math.min(bounds.getMaxY(), pos.getMaxY());
 
-        var container = ReadableContainerExtended.of(section.getBlockData());
+        int minBlockZ = Math.max(bounds.getMinZ(), pos.getMinZ());
+        int maxBlockZ = Math.min(bounds.getMaxZ(), pos.getMaxZ());
 
-        ChunkSectionPos origin = context.getOrigin();
-        ChunkSectionPos pos = section.getPosition();
+        if (minBlockX > maxBlockX || minBlockY > maxBlockY || minBlockZ > maxBlockZ) {
+            return;
+        }
 
-        if (origin.equals(pos))  {
-            container.sodium$unpack(blockArray);
-        } else {
-            var bounds = context.getVolume();
+        // The section's unpacked block states are shared with every other slice which uses it, so only the rows of
+        // blocks within the volume are copied out of it, rather than unpacking the whole section again.
+        BlockState[] blockData = section.getUnpackedBlockData();
 
-            int minBlockX = Math.max(bounds.getMinX(), pos.getMinX());
-            int maxBlockX = Math.min(bounds.getMaxX(), pos.getMaxX());
+        int rowLength = maxBlockX - minBlockX + 1;
 
-            int minBlockY = Math.max(bounds.getMinY(), pos.getMinY());
-            int maxBlockY = Math.min(bounds.getMaxY(), pos.getMaxY());
+        for (int y = minBlockY; y <= maxBlockY; y++) {
+            for (int z = minBlockZ; z <= maxBlockZ; z++) {
+                int dstIndex = this.getLocalBlockArrayIndex(minBlockX, y, z);
 
-            int minBlockZ = Math.max(bounds.getMinZ(), pos.getMinZ());
-            int maxBlockZ = Math.min(bounds.getMaxZ(), pos.getMaxZ());
+                if (blockData == null) {
+                    Arrays.fill(this.blockArray, dstIndex, dstIndex + rowLength, Blocks.AIR.getDefaultState());
+                } else {
+                    int srcIndex = getLocalBlockIndex(minBlockX & 15, y & 15, z & 15);
 
-            container.sodium$unpack(blockArray, minBlockX & 15, minBlockY & 15, minBlockZ & 15,
-                    maxBlockX & 15, maxBlockY & 15, maxBlockZ & 15);
+                    System.arraycopy(blockData, srcIndex, this.blockArray, dstIndex, rowLength);
+                }
+            }
         }
     }
 
@@ -204,7 +223,7 @@ public final class WorldSlice implements BlockRenderView, RenderAttachedBlockVie
         // erase any pointers to resources we no longer need
         // no point in cleaning the pre-allocated arrays (such as block state storage) since we hold the
         // only reference.
-        for (int sectionIndex = 0; sectionIndex < SECTION_ARRAY_LENGTH; sectionIndex++) {
+        for (int sectionIndex = 0; sectionIndex < SECTION_ARRAY_SIZE; sectionIndex++) {
             Arrays.fill(this.lightArrays[sectionIndex], null);
 
             this.blockEntityArrays[sectionIndex] = null;
@@ -218,12 +237,16 @@ public final class WorldSlice implements BlockRenderView, RenderAttachedBlockVie
     }
 
     public BlockState getBlockState(int x, int y, int z) {
-        int relX = x - this.originX;
-        int relY = y - this.originY;
-        int relZ = z - this.originZ;
+        int relX = x - this.blockOriginX;
+        int relY = y - this.blockOriginY;
+        int relZ = z - this.blockOriginZ;
+
+        // Blocks outside the volume are never copied, and are treated as air
+        if (!isInsideBlockArray(relX) || !isInsideBlockArray(relY) || !isInsideBlockArray(relZ)) {
+            return Blocks.AIR.getDefaultState();
+        }
 
-        return this.blockArrays[getLocalSectionIndex(relX >> 4, relY >> 4, relZ >> 4)]
-                [getLocalBlockIndex(relX & 15, relY & 15, relZ & 15)];
+        return this.blockArray[getBlockArrayIndex(relX, relY, relZ)];
     }
 
     @Override
@@ -334,6 +357,19 @@ public final class WorldSlice implements BlockRenderView, RenderAttachedBlockVie
         return this.biomeColors.getColor(source, x, y, z);
     }
 
+    private int getLocalBlockArrayIndex(int x, int y, int z) {
+        return getBlockArrayIndex(x - this.blockOriginX, y - this.blockOriginY, z - this.blockOriginZ);
+    }
+
+    private static int getBlockArrayIndex(int x, int y, int z) {
+        return (y * BLOCK_ARRAY_LENGTH * BLOCK_ARRAY_LENGTH) + (z * BLOCK_ARRAY_LENGTH) + x;
+    }
+
+    private static boolean isInsideBlockArray(int coord) {
+        // Negative coordinates wrap around to values larger than the length when compared as unsigned
+        return Integer.compareUnsigned(coord, BLOCK_ARRAY_LENGTH) < 0;
+    }
+
     public static int getLocalBlockIndex(int x, int y, int z) {
         return (y << LOCAL_XYZ_BITS << LOCAL_XYZ_BITS) | (z << LOCAL_XYZ_BITS) | x;
     }
@@ -1,5 +1,8 @@
 package me.jellysquid.mods.sodium.client.world.cloned;
 
+import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
+import me.jellysquid.mods.sodium.client.util.ContentHash;
+import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.ChunkSectionPos;
 import org.jetbrains.annotations.Nullable;
@@ -26,4 +29,43 @@ public class ChunkRenderContext {
     public BlockBox getVolume() {
         return this.volume;
     }
+
+    /**
+     * Returns the block entities in the section being built, or null if it has none.
+     */
+    public @Nullable Int2ReferenceMap<BlockEntity> getBlockEntities() {
+        // The sections are stored in a cube with an odd number of sections on each axis, which has the origin section
+        // at its center
+        ClonedChunkSection section = this.sections[this.sections.length / 2];
+
+        return section != null ? section.getBlockEntityMap() : null;
+    }
+
+    /**
+     * Returns a hash of the contents of every section in this context, which identifies all the world state that can
+     * affect the meshes built from it, other than the render data of block entities. The hash is never zero.
+     */
+    public long getContentHash() {
+        long hash = ContentHash.combine(0L, this.origin.asLong());
+
+        for (ClonedChunkSection section : this.sections) {
+            hash = ContentHash.combine(hash, section != null ? section.getContentHash() : 0L);
+        }
+
+        return hash != 0L ? hash : 1L;
+    }
+
+    /**
+     * Returns whether any section in this context has block entities which provide render data to the models of their
+     * blocks. This data can affect the meshes built from the context, but isn't part of its content hash.
+     */
+    public boolean hasBlockEntityAttachments() {
+        for (ClonedChunkSection section : this.sections) {
+            if (section != null && section.getBlockEntityAttachmentMap() != null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
@@ -3,9 +3,11 @@ package me.jellysquid.mods.sodium.client.world.cloned;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMaps;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
+import me.jellysquid.mods.sodium.client.util.ContentHash;
 import me.jellysquid.mods.sodium.client.world.ReadableContainerExtended;
 import me.jellysquid.mods.sodium.client.world.WorldSlice;
 import net.fabricmc.fabric.api.rendering.data.v1.RenderAttachmentBlockEntity;
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.registry.entry.RegistryEntry;
@@ -37,10 +39,16 @@ public class ClonedChunkSection {
 
     private final @Nullable ReadableContainer<BlockState> blockData;
 
+    // The block states of this section in the order of WorldSlice#getLocalBlockIndex, which are unpacked when they are
+    // first needed and then shared by every world slice which copies from this section
+    private volatile BlockState[] unpackedBlockData;
+
     private final @Nullable ReadableContainer<RegistryEntry<Biome>> biomeData;
 
     private long lastUsedTimestamp = Long.MAX_VALUE;
 
+    private final long contentHash;
+
     public ClonedChunkSection(World world, WorldChunk chunk, @Nullable ChunkSection section, ChunkSectionPos pos) {
         this.pos = pos;
 
@@ -70,6 +78,8 @@ public class ClonedChunkSection {
         this.blockEntityAttachmentMap = blockEntityAttachmentMap;
 
         this.lightDataArrays = copyLightData(world, pos);
+
+        this.contentHash = this.computeContentHash();
     }
 
     @NotNull
@@ -158,6 +168,34 @@ public class ClonedChunkSection {
         return this.blockData;
     }
 
+    /**
+     * Returns the block states of this section, indexed by {@link WorldSlice#getLocalBlockIndex(int, int, int)}, or
+     * null if the section contains no blocks. The array is unpacked from the block data the first time this is called,
+     * and the same array is returned to every caller afterward, so it must never be modified.
+     *
+     * This is safe to call from multiple threads at once. If more than one thread unpacks the array at the same time,
+     * they will each produce an identical array, and only one of them will be kept.
+     */
+    public @Nullable BlockState[] getUnpackedBlockData() {
+        var blockData = this.blockData;
+
+        if (blockData == null) {
+            return null;
+        }
+
+        var unpackedBlockData = this.unpackedBlockData;
+
+        if (unpackedBlockData == null) {
+            unpackedBlockData = new BlockState[16 * 16 * 16];
+            ReadableContainerExtended.of(blockData)
+                    .sodium$unpack(unpackedBlockData);
+
+            this.unpackedBlockData = unpackedBlockData;
+        }
+
+        return unpackedBlockData;
+    }
+
     public @Nullable ReadableContainer<RegistryEntry<Biome>> getBiomeData() {
         return this.biomeData;
     }
@@ -174,6 +212,41 @@ public class ClonedChunkSection {
         return this.lightDataArrays[lightType.ordinal()];
     }
 
+    /**
+     * Returns a hash of the block, light and biome data in this section. This is computed once when the section is
+     * copied, and is never zero.
+     */
+    public long getContentHash() {
+        return this.contentHash;
+    }
+
+    private long computeContentHash() {
+        long hash = 0L;
+
+        if (this.blockData != null) {
+            hash = ContentHash.combine(hash, ReadableContainerExtended.of(this.blockData)
+                    .sodium$getContentHash(Block::getRawIdFromState));
+        }
+
+        if (this.biomeData != null) {
+            hash = ContentHash.combine(hash, ReadableContainerExtended.of(this.biomeData)
+                    .sodium$getContentHash(ClonedChunkSection::getBiomeKey));
+        }
+
+        for (ChunkNibbleArray array : this.lightDataArrays) {
+            hash = array != null ? ContentHash.combine(hash, array.asByteArray()) : ContentHash.combine(hash, 0L);
+        }
+
+        // Zero is reserved to mean that the contents of a section are unknown
+        return hash != 0L ? hash : 1L;
+    }
+
+    private static long getBiomeKey(RegistryEntry<Biome> entry) {
+        return entry.getKey()
+                .map(key -> (long) key.getValue().hashCode())
+                .orElse(0L);
+    }
+
     public long getLastUsedTimestamp() {
         return this.lastUsedTimestamp;
     }
@@ -0,0 +1,22 @@
+package me.jellysquid.mods.sodium.mixin.core.world.block;
+
+import me.jellysquid.mods.sodium.client.world.BlockStateExtended;
+import net.minecraft.block.BlockState;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+@Mixin(BlockState.class)
+public class BlockStateMixin implements BlockStateExtended {
+    @Unique
+    private int renderTableIndex = -1;
+
+    @Override
+    public int sodium$getRenderTableIndex() {
+        return this.renderTableIndex;
+    }
+
+    @Override
+    public void sodium$setRenderTableIndex(int index) {
+        this.renderTableIndex = index;
+    }
+}
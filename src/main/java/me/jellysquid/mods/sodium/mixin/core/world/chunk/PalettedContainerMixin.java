@@ -1,7 +1,9 @@
 package me.jellysquid.mods.sodium.mixin.core.world.chunk;
 
 import me.jellysquid.mods.sodium.client.world.PaletteStorageExtended;
+import me.jellysquid.mods.sodium.client.util.ContentHash;
 import me.jellysquid.mods.sodium.client.world.ReadableContainerExtended;
+import net.minecraft.world.chunk.IdListPalette;
 import net.minecraft.world.chunk.PalettedContainer;
 import net.minecraft.world.chunk.ReadableContainer;
 import org.spongepowered.asm.mixin.Final;
@@ -9,6 +11,7 @@ import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 
 import java.util.Objects;
+import java.util.function.ToLongFunction;
 
 @Mixin(PalettedContainer.class)
 public abstract class PalettedContainerMixin<T> implements ReadableContainerExtended<T> {
@@ -68,4 +71,27 @@ public abstract class PalettedContainerMixin<T> implements ReadableContainerExte
     public ReadableContainer<T> sodium$copy() {
         return this.copy();
     }
+
+    @Override
+    public long sodium$getContentHash(ToLongFunction<T> keyFunction) {
+        var data = Objects.requireNonNull(this.data, "PalettedContainer must have data");
+
+        var storage = data.storage();
+        var palette = data.palette();
+
+        long hash = ContentHash.combine(0L, storage.getElementBits());
+
+        // The values in the storage of a global palette are already the raw ids of each value
+        if (!(palette instanceof IdListPalette<T>)) {
+            for (int i = 0; i < palette.getSize(); i++) {
+                hash = ContentHash.combine(hash, keyFunction.applyAsLong(palette.get(i)));
+            }
+        }
+
+        for (long word : storage.getData()) {
+            hash = ContentHash.combine(hash, word);
+        }
+
+        return hash;
+    }
 }
@@ -16,6 +16,13 @@ uint _draw_id;
 // The material bits for the primitive
 uint _material_params;
 
+#ifdef USE_QUAD_MERGING
+// The end of the quad which the vertex is at along each axis of the block texture, and the number of times the block
+// texture repeats along each axis of the quad, or zero if the quad is a single block face which hasn't been merged
+vec2 _vert_tex_tile_corner;
+vec2 _vert_tex_tile_count;
+#endif
+
 #ifdef USE_VERTEX_COMPRESSION
 in uvec4 a_PosId;
 in vec4 a_Color;
@@ -33,7 +40,18 @@ in ivec2 a_LightCoord;
 void _vert_init() {
     _vert_position = (vec3(a_PosId.xyz) * VERT_POS_SCALE + VERT_POS_OFFSET);
     _vert_tex_diffuse_coord = (a_TexCoord * VERT_TEX_SCALE);
+#ifdef USE_QUAD_MERGING
+    // The upper byte of each light coordinate describes how the block texture repeats along one of its axes, with the
+    // number of repeats minus one in the lowest 4 bits, the end of the quad in the next bit, and whether the quad was
+    // merged at all in the bit after that
+    uvec2 tile = uvec2(a_LightCoord) >> 8u;
+
+    _vert_tex_light_coord = a_LightCoord & 0xFF;
+    _vert_tex_tile_corner = vec2((tile >> 4u) & 1u);
+    _vert_tex_tile_count = vec2(((tile & 0xFu) + 1u) * ((tile >> 5u) & 1u));
+#else
     _vert_tex_light_coord = a_LightCoord;
+#endif
     _vert_color = a_Color;
 
     _draw_id = (a_PosId.w >> 8u) & 0xFFu;
@@ -0,0 +1,282 @@
+package me.jellysquid.mods.sodium.client.gl.arena;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs random sequences of operations on a {@link BufferSegmentAllocator} with its consistency checks enabled, and
+ * compares the results against a brute-force model which finds the free space by sorting the used segments.
+ */
+public class BufferSegmentAllocatorTest {
+    private static final int CAPACITY = 1 << 16;
+
+    @Test
+    public void randomAllocAndFree() {
+        var random = new Random(5678L);
+        var allocator = new BufferSegmentAllocator(CAPACITY, true);
+        var live = new ArrayList<GlBufferSegment>();
+
+        for (int i = 0; i < 5_000; i++) {
+            if (live.isEmpty() || random.nextInt(5) < 3) {
+                int size = randomSize(random);
+                int largest = getLargestGap(live, allocator.getCapacity());
+
+                GlBufferSegment segment = allocator.alloc(size);
+
+                // The allocator must find space whenever any free segment is large enough
+                if (size > largest) {
+                    assertNull(segment, "allocated %d elements with no gap large enough".formatted(size));
+                    continue;
+                }
+
+                assertNotNull(segment, "failed to allocate %d elements with a gap of %d".formatted(size, largest));
+                assertEquals(size, segment.getLength());
+                assertFitsIntoGap(live, allocator.getCapacity(), segment);
+
+                live.add(segment);
+            } else {
+                allocator.free(live.remove(random.nextInt(live.size())));
+            }
+
+            assertFreeListsMatch(allocator, live);
+        }
+    }
+
+    @Test
+    public void defragmentMovesSegmentsIntoHoles() {
+        var random = new Random(8765L);
+
+        for (int run = 0; run < 50; run++) {
+            var allocator = new BufferSegmentAllocator(CAPACITY, true);
+            var live = fragment(random, allocator);
+
+            var memory = new int[allocator.getCapacity()];
+            var ids = writeSegments(memory, live);
+
+            int fragmented = allocator.getFragmentedSpace();
+            int budget = 1 + random.nextInt(2048);
+
+            while (true) {
+                var copies = new ArrayList<PendingBufferCopyCommand>();
+                int moved = allocator.defragment(budget, copies);
+
+                if (moved == 0) {
+                    assertTrue(copies.isEmpty());
+                    break;
+                }
+
+                assertEquals(moved, copies.stream().mapToInt(copy -> copy.length).sum());
+
+                for (var copy : copies) {
+                    assertFalse(overlaps(copy.readOffset, copy.writeOffset, copy.length),
+                            "copy overlaps itself");
+
+                    System.arraycopy(memory, copy.readOffset, memory, copy.writeOffset, copy.length);
+                }
+
+                assertSegmentContents(memory, ids, live);
+                assertFreeListsMatch(allocator, live);
+
+                assertTrue(allocator.getFragmentedSpace() <= fragmented, "fragmented space grew");
+                fragmented = allocator.getFragmentedSpace();
+            }
+        }
+    }
+
+    @Test
+    public void defragmentMovesSegmentsLargerThanBudget() {
+        var allocator = new BufferSegmentAllocator(1024, true);
+
+        // Segments are allocated from the end of the free space, so this leaves the large segment at the start of the
+        // used space with a hole behind it which it fits into
+        var a = allocator.alloc(100);
+        var b = allocator.alloc(100);
+        var large = allocator.alloc(200);
+
+        allocator.free(a);
+        allocator.free(b);
+
+        var copies = new ArrayList<PendingBufferCopyCommand>();
+
+        assertEquals(200, allocator.defragment(50, copies));
+        assertEquals(1, copies.size());
+        assertEquals(824, large.getOffset());
+        assertEquals(0, allocator.getFragmentedSpace());
+
+        assertEquals(0, allocator.defragment(0, copies));
+    }
+
+    @Test
+    public void compactKeepsSegmentsInOrder() {
+        var random = new Random(4567L);
+
+        for (int run = 0; run < 50; run++) {
+            var allocator = new BufferSegmentAllocator(CAPACITY, true);
+            var live = fragment(random, allocator);
+
+            var memory = new int[allocator.getCapacity()];
+            var ids = writeSegments(memory, live);
+
+            live.sort(Comparator.comparingInt(GlBufferSegment::getOffset));
+
+            int newCapacity = allocator.getUsed() + random.nextInt(CAPACITY);
+            var newMemory = new int[newCapacity];
+
+            var copies = allocator.compact(newCapacity);
+
+            for (int i = 0; i < copies.size(); i++) {
+                var copy = copies.get(i);
+
+                for (int j = 0; j < i; j++) {
+                    var other = copies.get(j);
+
+                    assertFalse(overlaps(copy.writeOffset, other.writeOffset, copy.length, other.length),
+                            "copies write to the same range");
+                }
+
+                System.arraycopy(memory, copy.readOffset, newMemory, copy.writeOffset, copy.length);
+            }
+
+            assertEquals(newCapacity, allocator.getCapacity());
+            assertEquals(0, allocator.getFragmentedSpace());
+
+            // The used segments are packed against the end of the buffer, in the same order as before
+            int offset = newCapacity - allocator.getUsed();
+
+            for (var segment : live) {
+                assertEquals(offset, segment.getOffset());
+                offset += segment.getLength();
+            }
+
+            assertSegmentContents(newMemory, ids, live);
+            assertFreeListsMatch(allocator, live);
+        }
+    }
+
+    // Allocates random segments until the allocator is mostly full, and then frees some of them to leave holes
+    private static List<GlBufferSegment> fragment(Random random, BufferSegmentAllocator allocator) {
+        var live = new ArrayList<GlBufferSegment>();
+
+        while (allocator.getUsed() < allocator.getCapacity() / 2) {
+            var segment = allocator.alloc(randomSize(random));
+
+            if (segment != null) {
+                live.add(segment);
+            }
+        }
+
+        live.removeIf(segment -> {
+            if (random.nextBoolean()) {
+                allocator.free(segment);
+                return true;
+            }
+
+            return false;
+        });
+
+        return live;
+    }
+
+    private static int randomSize(Random random) {
+        // Mostly small segments, with some large ones which exercise the higher size classes
+        return random.nextInt(8) == 0 ? 1 + random.nextInt(4096) : 1 + random.nextInt(64);
+    }
+
+    // Checks that the bitmaps of the allocator agree with the free space found by brute force
+    private static void assertFreeListsMatch(BufferSegmentAllocator allocator, List<GlBufferSegment> live) {
+        var expected = new boolean[BufferSegmentAllocator.LIST_COUNT];
+
+        for (int[] gap : getGaps(live, allocator.getCapacity())) {
+            expected[BufferSegmentAllocator.getListIndex(gap[1])] = true;
+        }
+
+        for (int index = 0; index < expected.length; index++) {
+            assertEquals(expected[index], allocator.isFreeListNonEmpty(index), "free list #" + index);
+        }
+
+        assertEquals(live.stream().mapToInt(GlBufferSegment::getLength).sum(), allocator.getUsed());
+    }
+
+    private static void assertFitsIntoGap(List<GlBufferSegment> live, int capacity, GlBufferSegment segment) {
+        for (int[] gap : getGaps(live, capacity)) {
+            if (segment.getOffset() >= gap[0] && segment.getOffset() + segment.getLength() <= gap[0] + gap[1]) {
+                return;
+            }
+        }
+
+        fail("segment at %d overlaps a used segment".formatted(segment.getOffset()));
+    }
+
+    // Returns the offset and length of each range which isn't covered by a used segment
+    private static List<int[]> getGaps(List<GlBufferSegment> live, int capacity) {
+        var sorted = new ArrayList<>(live);
+        sorted.sort(Comparator.comparingInt(GlBufferSegment::getOffset));
+
+        var gaps = new ArrayList<int[]>();
+        int offset = 0;
+
+        for (var segment : sorted) {
+            assertTrue(segment.getOffset() >= offset, "used segments overlap");
+
+            if (segment.getOffset() > offset) {
+                gaps.add(new int[] { offset, segment.getOffset() - offset });
+            }
+
+            offset = segment.getOffset() + segment.getLength();
+        }
+
+        if (offset < capacity) {
+            gaps.add(new int[] { offset, capacity - offset });
+        }
+
+        return gaps;
+    }
+
+    private static int getLargestGap(List<GlBufferSegment> live, int capacity) {
+        return getGaps(live, capacity).stream()
+                .mapToInt(gap -> gap[1])
+                .max()
+                .orElse(0);
+    }
+
+    // Fills the range of each segment with a unique id, so that the copies can be checked by replaying them
+    private static Map<GlBufferSegment, Integer> writeSegments(int[] memory, List<GlBufferSegment> live) {
+        var ids = new IdentityHashMap<GlBufferSegment, Integer>();
+
+        for (var segment : live) {
+            int id = ids.size() + 1;
+            ids.put(segment, id);
+
+            for (int i = 0; i < segment.getLength(); i++) {
+                memory[segment.getOffset() + i] = id;
+            }
+        }
+
+        return ids;
+    }
+
+    private static void assertSegmentContents(int[] memory, Map<GlBufferSegment, Integer> ids,
+                                              List<GlBufferSegment> live) {
+        for (var segment : live) {
+            for (int i = 0; i < segment.getLength(); i++) {
+                assertEquals(ids.get(segment), memory[segment.getOffset() + i], "contents of a moved segment");
+            }
+        }
+    }
+
+    private static boolean overlaps(int a, int b, int length) {
+        return overlaps(a, b, length, length);
+    }
+
+    private static boolean overlaps(int a, int b, int lengthA, int lengthB) {
+        return a < b + lengthB && b < a + lengthA;
+    }
+}
@@ -0,0 +1,195 @@
+package me.jellysquid.mods.sodium.client.render.chunk;
+
+import me.jellysquid.mods.sodium.client.gl.arena.BufferSegmentAllocator;
+import me.jellysquid.mods.sodium.client.gl.device.IndirectDrawBatch;
+import me.jellysquid.mods.sodium.client.gl.util.VertexRange;
+import me.jellysquid.mods.sodium.client.model.quad.properties.ModelQuadFacing;
+import me.jellysquid.mods.sodium.client.render.chunk.data.SectionRenderDataStorage;
+import me.jellysquid.mods.sodium.client.render.chunk.lists.ChunkRenderList;
+import me.jellysquid.mods.sodium.client.render.chunk.region.RenderRegion;
+import me.jellysquid.mods.sodium.client.render.chunk.terrain.TerrainRenderPass;
+import me.jellysquid.mods.sodium.client.render.viewport.CameraTransform;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Builds indirect draw batches for a few regions of fake sections, and checks the commands and the instance data
+ * against the values which are expected for each section and the faces of it which can be seen from the camera.
+ */
+public class IndirectCommandBufferTest {
+    private static final int INSTANCE_STRIDE = 3 * Float.BYTES;
+
+    // The camera is in the chunk (6, 4, 8), so the regions below have sections on every side of it
+    private static final CameraTransform CAMERA = new CameraTransform(100.5, 70.25, 130.75);
+
+    private static final int[][] REGIONS = {
+            { 0, 1, 1 },
+            { 1, 0, 0 },
+            { 0, 1, 0 },
+            { -1, 0, 2 }
+    };
+
+    private static final TerrainRenderPass PASS = new TerrainRenderPass(null, false, false);
+
+    @Test
+    public void commandsWithFaceCulling() {
+        checkBatch(new Random(1111L), true);
+    }
+
+    @Test
+    public void commandsWithoutFaceCulling() {
+        checkBatch(new Random(2222L), false);
+    }
+
+    private static void checkBatch(Random random, boolean useBlockFaceCulling) {
+        var allocator = new BufferSegmentAllocator(1 << 24);
+        var builder = new RegionCommandBufferBuilder();
+
+        // Start with a small batch, so that it has to grow
+        var batch = new IndirectDrawBatch(4, INSTANCE_STRIDE);
+
+        var expected = new ArrayList<ExpectedCommand>();
+        var storages = new ArrayList<SectionRenderDataStorage>();
+
+        int instance = 0;
+        int maxElementCount = 0;
+
+        try {
+            for (int[] coords : REGIONS) {
+                var region = new RenderRegion(coords[0], coords[1], coords[2], null, null);
+                var storage = new SectionRenderDataStorage();
+                var renderList = new ChunkRenderList(region);
+
+                storages.add(storage);
+                renderList.reset(0);
+
+                for (int section : pickSections(random)) {
+                    var ranges = new VertexRange[ModelQuadFacing.COUNT];
+                    int vertexCount = 0;
+
+                    for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+                        if (random.nextInt(3) != 0) {
+                            ranges[facing] = new VertexRange(vertexCount, 4 * (1 + random.nextInt(64)));
+                            vertexCount += ranges[facing].vertexCount();
+                        }
+                    }
+
+                    if (vertexCount == 0) {
+                        continue;
+                    }
+
+                    var allocation = allocator.alloc(vertexCount);
+                    storage.setMeshes(section, allocation, ranges);
+                    renderList.add(section, 1 << RenderSectionFlags.HAS_BLOCK_GEOMETRY);
+
+                    int visible = useBlockFaceCulling ? getVisibleFaces(region, section) : ModelQuadFacing.ALL;
+                    int baseVertex = allocation.getOffset();
+
+                    for (int facing = 0; facing < ModelQuadFacing.COUNT; facing++) {
+                        if (ranges[facing] == null) {
+                            continue;
+                        }
+
+                        int elementCount = (ranges[facing].vertexCount() >> 2) * 6;
+
+                        if ((visible & (1 << facing)) != 0) {
+                            expected.add(new ExpectedCommand(elementCount, baseVertex, instance));
+                            maxElementCount = Math.max(maxElementCount, elementCount);
+                        }
+
+                        baseVertex += ranges[facing].vertexCount();
+                    }
+                }
+
+                DefaultChunkRenderer.fillIndirectCommandBuffer(batch, builder, region, storage, renderList, CAMERA,
+                        PASS, useBlockFaceCulling);
+
+                if (renderList.getSectionsWithGeometryCount() == 0) {
+                    continue;
+                }
+
+                // Each region adds one instance, which holds its offset from the camera
+                assertEquals(instance + 1, batch.getInstanceCount());
+
+                long pInstance = batch.getInstancePointer(instance);
+
+                assertEquals(getTranslation(region.getOriginX(), CAMERA.intX, CAMERA.fracX),
+                        MemoryUtil.memGetFloat(pInstance + 0), "region offset x");
+                assertEquals(getTranslation(region.getOriginY(), CAMERA.intY, CAMERA.fracY),
+                        MemoryUtil.memGetFloat(pInstance + 4), "region offset y");
+                assertEquals(getTranslation(region.getOriginZ(), CAMERA.intZ, CAMERA.fracZ),
+                        MemoryUtil.memGetFloat(pInstance + 8), "region offset z");
+
+                instance++;
+            }
+
+            assertEquals(expected.size(), batch.getCommandCount());
+            assertEquals(maxElementCount, batch.getIndexBufferSize());
+
+            for (int i = 0; i < expected.size(); i++) {
+                var command = expected.get(i);
+                long pCommand = batch.getCommandPointer(i);
+
+                assertEquals(command.elementCount(), MemoryUtil.memGetInt(pCommand + 0), "count of command " + i);
+                assertEquals(1, MemoryUtil.memGetInt(pCommand + 4), "instance count of command " + i);
+                assertEquals(0, MemoryUtil.memGetInt(pCommand + 8), "first index of command " + i);
+                assertEquals(command.baseVertex(), MemoryUtil.memGetInt(pCommand + 12), "base vertex of command " + i);
+                assertEquals(command.instance(), MemoryUtil.memGetInt(pCommand + 16), "base instance of command " + i);
+            }
+        } finally {
+            batch.delete();
+
+            for (var storage : storages) {
+                storage.delete();
+            }
+        }
+    }
+
+    // Picks a random subset of the sections in a region, in a random order
+    private static List<Integer> pickSections(Random random) {
+        var sections = new ArrayList<Integer>();
+
+        for (int section = 0; section < RenderRegion.REGION_SIZE; section++) {
+            if (random.nextInt(4) == 0) {
+                sections.add(section);
+            }
+        }
+
+        Collections.shuffle(sections, random);
+
+        return sections;
+    }
+
+    // Returns the faces of a section which can be seen from the chunk that the camera is in
+    private static int getVisibleFaces(RenderRegion region, int section) {
+        int x = (region.getChunkX() + LocalSectionIndex.unpackX(section)) - (CAMERA.intX >> 4);
+        int y = (region.getChunkY() + LocalSectionIndex.unpackY(section)) - (CAMERA.intY >> 4);
+        int z = (region.getChunkZ() + LocalSectionIndex.unpackZ(section)) - (CAMERA.intZ >> 4);
+
+        int faces = 1 << ModelQuadFacing.UNASSIGNED.ordinal();
+
+        faces |= x <= 0 ? 1 << ModelQuadFacing.POS_X.ordinal() : 0;
+        faces |= y <= 0 ? 1 << ModelQuadFacing.POS_Y.ordinal() : 0;
+        faces |= z <= 0 ? 1 << ModelQuadFacing.POS_Z.ordinal() : 0;
+
+        faces |= x >= 0 ? 1 << ModelQuadFacing.NEG_X.ordinal() : 0;
+        faces |= y >= 0 ? 1 << ModelQuadFacing.NEG_Y.ordinal() : 0;
+        faces |= z >= 0 ? 1 << ModelQuadFacing.NEG_Z.ordinal() : 0;
+
+        return faces;
+    }
+
+    private static float getTranslation(int origin, int cameraInt, float cameraFrac) {
+        return (origin - cameraInt) - cameraFrac;
+    }
+
+    private record ExpectedCommand(int elementCount, int baseVertex, int instance) {
+    }
+}
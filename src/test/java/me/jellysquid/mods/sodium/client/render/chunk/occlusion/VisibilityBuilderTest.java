@@ -0,0 +1,247 @@
+package me.jellysquid.mods.sodium.client.render.chunk.occlusion;
+
+import net.minecraft.client.render.chunk.ChunkOcclusionDataBuilder;
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link VisibilityBuilder} produces the same visibility data as vanilla's
+ * {@link ChunkOcclusionDataBuilder}, both for sections built to hit the edge cases of the flood fill and for randomly
+ * generated sections.
+ */
+public class VisibilityBuilderTest {
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+
+    @Test
+    public void emptyAndFullSections() {
+        assertMatchesVanilla("empty", new boolean[SECTION_VOLUME]);
+        assertMatchesVanilla("full", full());
+    }
+
+    @Test
+    public void fullPlanes() {
+        for (int axis = 0; axis < 3; axis++) {
+            for (int offset : new int[] { 0, 1, 7, 14, 15 }) {
+                var closed = new boolean[SECTION_VOLUME];
+                fillPlane(closed, axis, offset);
+
+                assertMatchesVanilla("plane axis=%d offset=%d".formatted(axis, offset), closed);
+
+                // A plane with a single hole has one block less than the threshold below which vanilla considers
+                // every face to be connected
+                closed[index(offset, offset, offset)] = false;
+
+                assertMatchesVanilla("plane with hole axis=%d offset=%d".formatted(axis, offset), closed);
+            }
+        }
+    }
+
+    @Test
+    public void parallelPlanes() {
+        for (int axis = 0; axis < 3; axis++) {
+            var closed = new boolean[SECTION_VOLUME];
+            fillPlane(closed, axis, 4);
+            fillPlane(closed, axis, 11);
+
+            assertMatchesVanilla("parallel planes axis=%d".formatted(axis), closed);
+        }
+    }
+
+    @Test
+    public void straightTunnels() {
+        for (int a = 0; a < 16; a += 5) {
+            for (int b = 0; b < 16; b += 5) {
+                for (int axis = 0; axis < 3; axis++) {
+                    var closed = full();
+
+                    for (int i = 0; i < 16; i++) {
+                        closed[switch (axis) {
+                            case 0 -> index(i, a, b);
+                            case 1 -> index(a, i, b);
+                            default -> index(a, b, i);
+                        }] = false;
+                    }
+
+                    assertMatchesVanilla("tunnel axis=%d a=%d b=%d".formatted(axis, a, b), closed);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bentTunnel() {
+        var closed = full();
+
+        // Enters from the west face, and turns upwards and then south before leaving through the south face
+        carveLine(closed, 0, 5, 5, 8, 5, 5);
+        carveLine(closed, 8, 5, 5, 8, 12, 5);
+        carveLine(closed, 8, 12, 5, 8, 12, 15);
+
+        assertMatchesVanilla("bent tunnel", closed);
+    }
+
+    @Test
+    public void windingTunnel() {
+        var closed = full();
+
+        // Zig-zags across every other row of a layer without touching the faces, so that the tunnel is as long as
+        // possible, and turns at alternating ends of the rows
+        for (int z = 1; z < 14; z += 2) {
+            carveLine(closed, 1, 8, z, 14, 8, z);
+
+            if (z + 2 < 14) {
+                int x = (z / 2) % 2 == 0 ? 14 : 1;
+                carveLine(closed, x, 8, z, x, 8, z + 2);
+            }
+        }
+
+        assertMatchesVanilla("winding tunnel without exits", closed);
+
+        // Open both ends of the tunnel, which is the longest path the flood fill can take between two faces
+        closed[index(0, 8, 1)] = false;
+        closed[index(15, 8, 13)] = false;
+
+        assertMatchesVanilla("winding tunnel", closed);
+    }
+
+    @Test
+    public void enclosedPockets() {
+        var closed = full();
+        closed[index(8, 8, 8)] = false;
+
+        assertMatchesVanilla("single enclosed block", closed);
+
+        carveBox(closed, 5, 5, 5, 10, 10, 10);
+
+        assertMatchesVanilla("enclosed cavity", closed);
+
+        // A cavity which reaches the faces of the section, but doesn't cross them
+        carveBox(closed, 1, 1, 1, 14, 14, 14);
+
+        assertMatchesVanilla("large enclosed cavity", closed);
+
+        // A hollow shell with open space both inside and outside
+        var shell = new boolean[SECTION_VOLUME];
+
+        for (int y = 2; y <= 13; y++) {
+            for (int z = 2; z <= 13; z++) {
+                for (int x = 2; x <= 13; x++) {
+                    shell[index(x, y, z)] = x == 2 || x == 13 || y == 2 || y == 13 || z == 2 || z == 13;
+                }
+            }
+        }
+
+        assertMatchesVanilla("hollow shell", shell);
+    }
+
+    @Test
+    public void checkerboard() {
+        var closed = new boolean[SECTION_VOLUME];
+
+        for (int i = 0; i < SECTION_VOLUME; i++) {
+            int x = i & 15, y = i >>> 8, z = (i >>> 4) & 15;
+            closed[i] = ((x + y + z) & 1) == 0;
+        }
+
+        assertMatchesVanilla("checkerboard", closed);
+    }
+
+    @Test
+    public void randomNoise() {
+        var random = new Random(4321L);
+
+        for (int i = 0; i < 5_000; i++) {
+            float density = random.nextFloat();
+            var closed = new boolean[SECTION_VOLUME];
+
+            for (int index = 0; index < SECTION_VOLUME; index++) {
+                closed[index] = random.nextFloat() < density;
+            }
+
+            assertMatchesVanilla("random noise #%d".formatted(i), closed);
+        }
+    }
+
+    @Test
+    public void randomCaves() {
+        var random = new Random(1234L);
+
+        for (int i = 0; i < 2_000; i++) {
+            var closed = full();
+            int boxes = 1 + random.nextInt(8);
+
+            for (int box = 0; box < boxes; box++) {
+                int minX = random.nextInt(16), minY = random.nextInt(16), minZ = random.nextInt(16);
+
+                carveBox(closed, minX, minY, minZ,
+                        Math.min(15, minX + random.nextInt(6)),
+                        Math.min(15, minY + random.nextInt(6)),
+                        Math.min(15, minZ + random.nextInt(6)));
+            }
+
+            assertMatchesVanilla("random caves #%d".formatted(i), closed);
+        }
+    }
+
+    private static void assertMatchesVanilla(String name, boolean[] closed) {
+        var expected = new ChunkOcclusionDataBuilder();
+        var actual = new VisibilityBuilder();
+
+        var pos = new BlockPos.Mutable();
+
+        for (int index = 0; index < SECTION_VOLUME; index++) {
+            if (closed[index]) {
+                int x = index & 15, y = index >>> 8, z = (index >>> 4) & 15;
+
+                expected.markClosed(pos.set(x, y, z));
+                actual.markClosed(x, y, z);
+            }
+        }
+
+        assertEquals(Long.toHexString(VisibilityEncoding.encode(expected.build())), Long.toHexString(actual.build()),
+                name);
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    private static boolean[] full() {
+        var closed = new boolean[SECTION_VOLUME];
+        Arrays.fill(closed, true);
+
+        return closed;
+    }
+
+    private static void fillPlane(boolean[] closed, int axis, int offset) {
+        for (int a = 0; a < 16; a++) {
+            for (int b = 0; b < 16; b++) {
+                closed[switch (axis) {
+                    case 0 -> index(offset, a, b);
+                    case 1 -> index(a, offset, b);
+                    default -> index(a, b, offset);
+                }] = true;
+            }
+        }
+    }
+
+    private static void carveLine(boolean[] closed, int x0, int y0, int z0, int x1, int y1, int z1) {
+        carveBox(closed, Math.min(x0, x1), Math.min(y0, y1), Math.min(z0, z1),
+                Math.max(x0, x1), Math.max(y0, y1), Math.max(z0, z1));
+    }
+
+    private static void carveBox(boolean[] closed, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    closed[index(x, y, z)] = false;
+                }
+            }
+        }
+    }
+}